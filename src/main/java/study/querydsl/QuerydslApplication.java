@@ -3,10 +3,17 @@ package study.querydsl;
 import com.querydsl.jpa.JPQLQueryFactory;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import study.querydsl.entity.BlockSequenceGenerator;
+import study.querydsl.repository.support.DeadlineJPAQueryFactory;
 
+@EnableScheduling
 @SpringBootApplication
 public class QuerydslApplication {
 
@@ -14,8 +21,22 @@ public class QuerydslApplication {
 		SpringApplication.run(QuerydslApplication.class, args);
 	}
 
+	// 요청 기한이 있으면 남은 시간을 쿼리 타임아웃으로 건다.
 	@Bean
 	JPAQueryFactory jPAQueryFactory(EntityManager em) {
-		return new JPAQueryFactory(em);
+		return new DeadlineJPAQueryFactory(em);
+	}
+
+	// 대량 저장 시 INSERT 를 JDBC batch 로 묶고, 시퀀스는 블록 단위로 받는다.
+	@Bean
+	HibernatePropertiesCustomizer jdbcBatchingCustomizer(
+			@Value("${member.bulk.jdbc-batch-size:100}") int jdbcBatchSize,
+			@Value("${member.id.block-size:100}") int idBlockSize) {
+		return properties -> {
+			properties.put(AvailableSettings.STATEMENT_BATCH_SIZE, jdbcBatchSize);
+			properties.put(AvailableSettings.ORDER_INSERTS, true);
+			properties.put(AvailableSettings.ORDER_UPDATES, true);
+			properties.put(BlockSequenceGenerator.BLOCK_SIZE_SETTING, idBlockSize);
+		};
 	}
 }
@@ -0,0 +1,110 @@
+package study.querydsl.concurrent;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD 로 조정되는 동시 실행 한도.
+ * <p>
+ * 응답 시간이 목표 이하이고 한도의 절반 이상을 쓰고 있으면 한도를 1 늘리고,
+ * 목표를 넘거나 실패하면 backoff 배로 줄인다. 한도가 차면 최대 maxQueue 개까지만 잠시 기다리게 하고 나머지는 바로 거절한다.
+ * (가상 스레드에서 기다려도 캐리어 스레드를 붙잡지 않도록 synchronized 대신 ReentrantLock 을 쓴다)
+ */
+class AimdLimit {
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final long latencyTargetNanos;
+  private final double backoff;
+  private final int maxQueue;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+  private double limit;
+  private int inFlight;
+  private int queued;
+
+  AimdLimit(int initialLimit, int minLimit, int maxLimit, long latencyTargetNanos, double backoff, int maxQueue) {
+    this.limit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.latencyTargetNanos = latencyTargetNanos;
+    this.backoff = backoff;
+    this.maxQueue = maxQueue;
+  }
+
+  /**
+   * @return 한도 안에 들어왔으면 true. 대기열이 찼거나 maxWaitNanos 안에 자리가 나지 않으면 false.
+   */
+  boolean tryAcquire(long maxWaitNanos) throws InterruptedException {
+    lock.lock();
+    try {
+      if (inFlight < (int) limit) {
+        inFlight++;
+        return true;
+      }
+      if (queued >= maxQueue || maxWaitNanos <= 0) {
+        return false;
+      }
+      queued++;
+      try {
+        long remaining = maxWaitNanos;
+        while (inFlight >= (int) limit) {
+          if (remaining <= 0) {
+            return false;
+          }
+          remaining = released.awaitNanos(remaining);
+        }
+        inFlight++;
+        return true;
+      } finally {
+        queued--;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void release(long latencyNanos, boolean failed) {
+    lock.lock();
+    try {
+      if (failed || latencyNanos > latencyTargetNanos) {
+        limit = Math.max(minLimit, limit * backoff);
+      } else if (inFlight * 2 >= limit) {
+        // 한도를 거의 쓰지 않을 때 늘리면 실제로 감당할 수 있는지 모르는 채 한도만 커진다.
+        limit = Math.min(maxLimit, limit + 1);
+      }
+      inFlight--;
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int limit() {
+    lock.lock();
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int inFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int queued() {
+    lock.lock();
+    try {
+      return queued;
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package study.querydsl.concurrent;
+
+import lombok.Getter;
+
+/**
+ * 클라이언트가 쓸 수 있는 쿼리 비용을 다 썼다. 웹 계층에서는 429 와 Retry-After 로 응답한다.
+ */
+@Getter
+public class ClientBudgetExhaustedException extends RuntimeException {
+
+  private final String client;
+  private final long retryAfterSeconds;
+
+  public ClientBudgetExhaustedException(String client, long retryAfterSeconds) {
+    super("Query budget of client " + client + " is exhausted, retry after " + retryAfterSeconds + "s");
+    this.client = client;
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+}
@@ -0,0 +1,91 @@
+package study.querydsl.concurrent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 클라이언트별 쿼리 비용 예산. (token bucket)
+ * <p>
+ * 클라이언트마다 최대 burst 만큼 모아 둘 수 있고 초당 perSecond 씩 채워진다. 요청은 추정 비용만큼 꺼내 쓰고,
+ * 모자라면 {@link ClientBudgetExhaustedException} 으로 거절한다. 한 요청의 비용은 burst 를 넘지 않는 것으로 본다.
+ * (요청 하나의 상한은 호출하는 쪽에서 따로 검사한다) 가득 찬 클라이언트의 상태는 주기적으로 버린다.
+ * <p>
+ * 상태를 가진 클라이언트가 maxClients 개면, 버려질 때까지 새 클라이언트는 하나의 공용 예산({@value #OVERFLOW})을 나눠 쓴다.
+ * (주소를 바꿔 가며 보내는 요청이 메모리를 늘리지 못하게 한다)
+ */
+@Component
+public class ClientCostBudgets {
+
+  static final String OVERFLOW = "(overflow)";
+
+  private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+  private final double perSecond;
+  private final double burst;
+  private final int maxClients;
+
+  public ClientCostBudgets(@Value("${member.query-cost.client-per-second:2000000}") double perSecond,
+      @Value("${member.query-cost.client-burst:10000000}") double burst,
+      @Value("${member.query-cost.max-clients:10000}") int maxClients) {
+    this.perSecond = perSecond;
+    this.burst = burst;
+    this.maxClients = maxClients;
+  }
+
+  public void consume(String client, double cost) {
+    double needed = Math.min(cost, burst);
+    Bucket bucket = buckets.get(client);
+    if (bucket == null) {
+      String key = buckets.size() < maxClients ? client : OVERFLOW;
+      bucket = buckets.computeIfAbsent(key, c -> new Bucket(burst, System.nanoTime()));
+    }
+    synchronized (bucket) {
+      bucket.refill(System.nanoTime(), perSecond, burst);
+      if (bucket.tokens < needed) {
+        long retryAfter = (long) Math.ceil((needed - bucket.tokens) / perSecond);
+        throw new ClientBudgetExhaustedException(client, Math.max(1, retryAfter));
+      }
+      bucket.tokens -= needed;
+    }
+  }
+
+  public double remaining(String client) {
+    Bucket bucket = buckets.get(client);
+    if (bucket == null) {
+      return burst;
+    }
+    synchronized (bucket) {
+      bucket.refill(System.nanoTime(), perSecond, burst);
+      return bucket.tokens;
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${member.query-cost.evict-interval-ms:60000}")
+  public void evictFull() {
+    long now = System.nanoTime();
+    buckets.values().removeIf(bucket -> {
+      synchronized (bucket) {
+        bucket.refill(now, perSecond, burst);
+        return bucket.tokens >= burst;
+      }
+    });
+  }
+
+  private static final class Bucket {
+
+    double tokens;
+    long refilledAtNanos;
+
+    Bucket(double tokens, long refilledAtNanos) {
+      this.tokens = tokens;
+      this.refilledAtNanos = refilledAtNanos;
+    }
+
+    void refill(long now, double perSecond, double burst) {
+      tokens = Math.min(burst, tokens + (now - refilledAtNanos) / 1e9 * perSecond);
+      refilledAtNanos = now;
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package study.querydsl.concurrent;
+
+import lombok.Getter;
+
+/**
+ * 동시 실행 한도를 넘어 요청을 거절했다. 웹 계층에서는 503 과 Retry-After 로 응답한다.
+ */
+@Getter
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+  private final String key;
+  private final long retryAfterSeconds;
+
+  public ConcurrencyLimitExceededException(String key, long retryAfterSeconds) {
+    super("Too many concurrent requests for " + key + ", retry after " + retryAfterSeconds + "s");
+    this.key = key;
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+}
@@ -0,0 +1,139 @@
+package study.querydsl.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * DB 를 쓰는 요청의 동시 실행 수를 키(엔드포인트와 검색 조건 모양 등)별로 제한한다.
+ * <p>
+ * 키마다 {@link AimdLimit} 를 두어 관찰한 응답 시간에 맞춰 한도를 조정하므로, 느린 조건의 요청이 몰려도
+ * 커넥션 풀 앞에 줄을 세우지 않고 빠르게 거절하고, 다른 조건의 요청은 영향을 받지 않는다.
+ * 키별 한도/실행 중/대기 수는 member.limiter.* 게이지로, 거절 수는 member.limiter.rejected 로 노출한다.
+ */
+@Component
+public class ConcurrencyLimiter {
+
+  private final MeterRegistry meterRegistry;
+  private final Map<String, Entry> limits = new ConcurrentHashMap<>();
+
+  private final int initialLimit;
+  private final int minLimit;
+  private final int maxLimit;
+  private final long latencyTargetNanos;
+  private final double backoff;
+  private final int maxQueue;
+  private final long maxWaitNanos;
+  private final long retryAfterSeconds;
+
+  public ConcurrencyLimiter(MeterRegistry meterRegistry,
+      @Value("${member.limiter.initial-limit:20}") int initialLimit,
+      @Value("${member.limiter.min-limit:2}") int minLimit,
+      @Value("${member.limiter.max-limit:200}") int maxLimit,
+      @Value("${member.limiter.latency-target-ms:250}") long latencyTargetMillis,
+      @Value("${member.limiter.backoff:0.9}") double backoff,
+      @Value("${member.limiter.max-queue:10}") int maxQueue,
+      @Value("${member.limiter.max-wait-ms:50}") long maxWaitMillis,
+      @Value("${member.limiter.retry-after-seconds:1}") long retryAfterSeconds) {
+    this.meterRegistry = meterRegistry;
+    this.initialLimit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(latencyTargetMillis);
+    this.backoff = backoff;
+    this.maxQueue = maxQueue;
+    this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  /**
+   * 자리를 얻지 못하면 {@link ConcurrencyLimitExceededException} 을 던진다.
+   * 받은 허가는 끝난 뒤 반드시 {@link Permit#release} 해야 한다.
+   */
+  public Permit acquire(String key) {
+    Entry entry = limits.computeIfAbsent(key, this::register);
+    boolean acquired;
+    try {
+      acquired = entry.limit.tryAcquire(maxWaitNanos);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      acquired = false;
+    }
+    if (!acquired) {
+      entry.rejected.increment();
+      throw new ConcurrencyLimitExceededException(key, retryAfterSeconds);
+    }
+    return new Permit(entry.limit, System.nanoTime());
+  }
+
+  public <T> T execute(String key, Supplier<T> call) {
+    Permit permit = acquire(key);
+    boolean failed = true;
+    try {
+      T result = call.get();
+      failed = false;
+      return result;
+    } finally {
+      permit.release(failed);
+    }
+  }
+
+  public int currentLimit(String key) {
+    Entry entry = limits.get(key);
+    return entry == null ? initialLimit : entry.limit.limit();
+  }
+
+  /**
+   * 실행 중인 요청이 한도의 ratio 이상이거나 자리를 기다리는 요청이 있는 키가 하나라도 있으면 true.
+   * 급하지 않은 작업이 DB 가 바쁠 때 물러나는 데 쓴다.
+   */
+  public boolean isSaturated(double ratio) {
+    for (Entry entry : limits.values()) {
+      AimdLimit limit = entry.limit();
+      if (limit.queued() > 0 || limit.inFlight() >= ratio * limit.limit()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Entry register(String key) {
+    AimdLimit limit = new AimdLimit(initialLimit, minLimit, maxLimit, latencyTargetNanos, backoff, maxQueue);
+    Gauge.builder("member.limiter.limit", limit, AimdLimit::limit).tag("key", key).register(meterRegistry);
+    Gauge.builder("member.limiter.in_flight", limit, AimdLimit::inFlight).tag("key", key).register(meterRegistry);
+    Gauge.builder("member.limiter.queued", limit, AimdLimit::queued).tag("key", key).register(meterRegistry);
+    return new Entry(limit, meterRegistry.counter("member.limiter.rejected", "key", key));
+  }
+
+  private record Entry(AimdLimit limit, Counter rejected) {
+  }
+
+  public static final class Permit {
+
+    private final AimdLimit limit;
+    private final long startNanos;
+    private boolean released;
+
+    private Permit(AimdLimit limit, long startNanos) {
+      this.limit = limit;
+      this.startNanos = startNanos;
+    }
+
+    /**
+     * @param failed 실패(타임아웃, 5xx 등)도 과부하 신호로 보고 한도를 줄인다.
+     */
+    public void release(boolean failed) {
+      if (released) {
+        return;
+      }
+      released = true;
+      limit.release(System.nanoTime() - startNanos, failed);
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package study.querydsl.concurrent;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * 요청 처리 기한. 현재 스레드에 묶어 두면 그 안에서 실행하는 쿼리의 타임아웃이 남은 시간으로 정해진다.
+ * (repository.support.QueryDeadlines 참고)
+ *
+ * @param shape 타임아웃을 집계할 요청 모양 (엔드포인트와 검색 조건 모양)
+ */
+public record Deadline(String shape, long expiresAtNanos) {
+
+  private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+  public static Deadline after(String shape, Duration timeout) {
+    return new Deadline(shape, System.nanoTime() + timeout.toNanos());
+  }
+
+  public static Deadline current() {
+    return CURRENT.get();
+  }
+
+  public static void set(Deadline deadline) {
+    CURRENT.set(deadline);
+  }
+
+  public static void clear() {
+    CURRENT.remove();
+  }
+
+  /**
+   * 다른 스레드에서 실행하는 작업에 요청의 기한을 넘겨줄 때 쓴다. 끝나면 원래 기한으로 되돌린다.
+   */
+  public static <T> T callWith(Deadline deadline, Supplier<T> call) {
+    Deadline previous = CURRENT.get();
+    CURRENT.set(deadline);
+    try {
+      return call.get();
+    } finally {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    }
+  }
+
+  public long remainingMillis() {
+    return Math.max(0, (expiresAtNanos - System.nanoTime()) / 1_000_000);
+  }
+
+  public boolean isExpired() {
+    return System.nanoTime() - expiresAtNanos >= 0;
+  }
+
+  public void check() {
+    if (isExpired()) {
+      throw new DeadlineExceededException(shape);
+    }
+  }
+}
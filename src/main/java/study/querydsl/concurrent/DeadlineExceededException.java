@@ -0,0 +1,17 @@
+package study.querydsl.concurrent;
+
+import lombok.Getter;
+
+/**
+ * 요청 기한이 지나 쿼리를 시작하지 않았다.
+ */
+@Getter
+public class DeadlineExceededException extends RuntimeException {
+
+  private final String shape;
+
+  public DeadlineExceededException(String shape) {
+    super("Deadline exceeded for " + shape);
+    this.shape = shape;
+  }
+}
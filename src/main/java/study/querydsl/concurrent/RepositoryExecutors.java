@@ -0,0 +1,81 @@
+package study.querydsl.concurrent;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 리포지토리의 병렬 작업(여러 조건 동시 검색, 구간 벌크 연산, 배치 파이프라인)이 쓰는 실행기.
+ * <p>
+ * spring.threads.virtual.enabled=true 이면 Tomcat 요청 처리와 마찬가지로 작업마다 가상 스레드를 만든다.
+ * JDBC 호출에서 대부분의 시간을 기다리므로 플랫폼 스레드 수가 처리량을 제한하지 않게 된다.
+ * 동시에 실행되는 쿼리 수는 커넥션 풀과 각 호출부의 동시 실행 제한이 정한다.
+ * 끄면 이전처럼 크기가 정해진 플랫폼 스레드 풀을 사용한다.
+ */
+@Slf4j
+@Component
+public class RepositoryExecutors {
+
+  private final boolean virtualThreads;
+  private final ExecutorService shared;
+
+  public RepositoryExecutors(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+      @Value("${member.executor.pool-size:8}") int poolSize) {
+    this.virtualThreads = virtualThreads;
+    this.shared = virtualThreads
+        ? Executors.newThreadPerTaskExecutor(factory("repository-"))
+        : Executors.newFixedThreadPool(poolSize, factory("repository-"));
+    log.info("repository executor uses {}", virtualThreads ? "virtual threads" : poolSize + " platform threads");
+  }
+
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * 짧은 조회 작업용 공유 실행기. 종료는 이 컴포넌트가 한다.
+   */
+  public ExecutorService shared() {
+    return shared;
+  }
+
+  /**
+   * 작업이 끝날 때까지 스레드를 계속 점유하는 작업자(배치 작업 등)용 실행기.
+   * 공유 풀을 점유해서 다른 작업을 굶기지 않도록 따로 만들며, 호출한 쪽이 종료해야 한다.
+   */
+  public ExecutorService dedicated(String name, int threads) {
+    return virtualThreads
+        ? Executors.newThreadPerTaskExecutor(factory(name + "-"))
+        : Executors.newFixedThreadPool(threads, factory(name + "-"));
+  }
+
+  /**
+   * 급하지 않은 작업(다음 페이지 미리 읽기 등)용 실행기. 호출한 쪽이 종료해야 한다.
+   * 가상 스레드는 우선순위를 정할 수 없으므로 항상 낮은 우선순위의 플랫폼 스레드 threads 개를 쓰고,
+   * 대기열이 가득 차면 기다리지 않고 RejectedExecutionException 으로 거절한다.
+   */
+  public ExecutorService background(String name, int threads, int queueCapacity) {
+    ThreadFactory factory = Thread.ofPlatform().name(name + "-", 0).daemon(true).priority(Thread.MIN_PRIORITY)
+        .factory();
+    return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), factory);
+  }
+
+  private ThreadFactory factory(String prefix) {
+    return virtualThreads
+        ? Thread.ofVirtual().name(prefix, 0).factory()
+        : Thread.ofPlatform().name(prefix, 0).daemon(true).factory();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    shared.shutdown();
+  }
+}
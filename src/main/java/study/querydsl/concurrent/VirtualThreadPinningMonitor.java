@@ -0,0 +1,103 @@
+package study.querydsl.concurrent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 가상 스레드가 synchronized 블록 안에서 블로킹되어 캐리어 스레드를 붙잡은(pinning) 경우를 JFR 로 감지한다.
+ * (JDBC 드라이버나 커넥션 풀의 synchronized 구간이 흔한 원인이다)
+ * <p>
+ * 위치(처음 나오는 JDK 밖의 프레임)별로 jvm.threads.virtual.pinned 타이머에 기록하고, 처음 발견한 위치는 스택과 함께 로그로 남긴다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+  static final String EVENT = "jdk.VirtualThreadPinned";
+  private static final int LOGGED_FRAMES = 12;
+
+  private final MeterRegistry meterRegistry;
+  private final Duration threshold;
+  private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+  private RecordingStream stream;
+
+  public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+      @Value("${member.virtual-threads.pinning-threshold-ms:20}") long thresholdMillis) {
+    this.meterRegistry = meterRegistry;
+    this.threshold = Duration.ofMillis(thresholdMillis);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    stream = new RecordingStream();
+    stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+    stream.onEvent(EVENT, this::record);
+    stream.startAsync();
+    log.info("virtual thread pinning monitor started (threshold {}ms)", threshold.toMillis());
+  }
+
+  void record(RecordedEvent event) {
+    String site = site(event.getStackTrace());
+    meterRegistry.timer("jvm.threads.virtual.pinned", "site", site).record(event.getDuration());
+    if (reportedSites.add(site)) {
+      log.warn("virtual thread pinned for {}ms at {}\n{}", event.getDuration().toMillis(), site,
+          format(event.getStackTrace()));
+    }
+  }
+
+  /**
+   * 위치별 누적 pinning 횟수.
+   */
+  public Map<String, Long> report() {
+    Map<String, Long> counts = new ConcurrentHashMap<>();
+    meterRegistry.find("jvm.threads.virtual.pinned").timers()
+        .forEach(timer -> counts.merge(timer.getId().getTag("site"), timer.count(), Long::sum));
+    return counts;
+  }
+
+  static String site(RecordedStackTrace stackTrace) {
+    if (stackTrace == null) {
+      return "unknown";
+    }
+    for (RecordedFrame frame : stackTrace.getFrames()) {
+      String type = frame.getMethod().getType().getName();
+      if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+        return type + "." + frame.getMethod().getName();
+      }
+    }
+    return "jdk";
+  }
+
+  private static String format(RecordedStackTrace stackTrace) {
+    if (stackTrace == null) {
+      return "";
+    }
+    StringBuilder sb = new StringBuilder();
+    stackTrace.getFrames().stream().limit(LOGGED_FRAMES).forEach(frame -> sb.append("\tat ")
+        .append(frame.getMethod().getType().getName()).append('.').append(frame.getMethod().getName())
+        .append(':').append(frame.getLineNumber()).append('\n'));
+    return sb.toString();
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (stream != null) {
+      stream.close();
+    }
+  }
+}
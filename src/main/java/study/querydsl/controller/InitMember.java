@@ -4,12 +4,17 @@ import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.repository.snapshot.MemberSnapshot;
 
 @Profile("local")
 @Component
@@ -17,10 +22,25 @@ import study.querydsl.entity.Team;
 public class InitMember {
 
   private final InitMemberService initMemberService;
+  private final MemberSnapshot memberSnapshot;
+
+  // 지정하면 스냅샷이 있을 때 스냅샷으로 적재하고, 없으면 데이터를 만든 뒤 스냅샷을 남긴다.
+  @Value("${member.snapshot.path:}")
+  private String snapshotPath;
 
   @PostConstruct
   public void init() {
-    initMemberService.init();
+    if (!StringUtils.hasText(snapshotPath)) {
+      initMemberService.init();
+      return;
+    }
+    Path snapshot = Path.of(snapshotPath);
+    if (Files.isRegularFile(snapshot)) {
+      memberSnapshot.restore(snapshot);
+    } else {
+      initMemberService.init();
+      memberSnapshot.export(snapshot);
+    }
   }
 
   @ComponentScan
@@ -1,35 +1,145 @@
 package study.querydsl.controller;
 
+import com.querydsl.core.types.Predicate;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.querydsl.binding.QuerydslPredicate;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberBatchSearchExecutor;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSearchCoalescer;
+import study.querydsl.repository.MemberTeamField;
+import study.querydsl.repository.bulk.MemberAgeIncrementBuffer;
+import study.querydsl.web.MemberPredicateGuard;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+  private static final int MAX_BATCH_SIZE = 200;
+
   private final MemberJpaRepository memberJpaRepository;
   private final MemberRepository memberRepository;
+  private final MemberBatchSearchExecutor memberBatchSearchExecutor;
+  private final MemberAgeIncrementBuffer memberAgeIncrementBuffer;
+  private final MemberSearchCoalescer memberSearchCoalescer;
+  private final MemberPredicateGuard memberPredicateGuard;
 
   @GetMapping("/v1/members")
   public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
-    return memberJpaRepository.search(condition);
+    return memberAgeIncrementBuffer.applyTo(memberJpaRepository.search(condition));
+  }
+
+  /**
+   * 나이 증가는 모았다가 주기적으로 반영하며, 응답에는 아직 반영되지 않은 증가분까지 더한 나이를 돌려준다.
+   */
+  @PostMapping("/v1/members/{memberId}/age/increment")
+  public MemberTeamDto incrementAge(@PathVariable Long memberId, @RequestParam(defaultValue = "1") int delta) {
+    List<MemberTeamDto> found = memberJpaRepository.findAllDtosByIds(List.of(memberId));
+    if (found.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Member " + memberId + " not found");
+    }
+    memberAgeIncrementBuffer.increment(memberId, delta);
+    return memberAgeIncrementBuffer.applyTo(found.get(0));
+  }
+
+  @GetMapping(value = "/v1/members", params = "fields")
+  public List<Map<String, Object>> searchMemberFieldsV1(MemberSearchCondition condition,
+      @RequestParam List<String> fields) {
+    Set<MemberTeamField> requested = parseFields(fields);
+    List<Map<String, Object>> rows = memberRepository.searchFields(condition, withMemberIdForAge(requested));
+    return rows.stream().map(row -> applyPendingAge(row, requested)).toList();
+  }
+
+  @PostMapping("/v1/members/batch")
+  public Map<Integer, List<MemberTeamDto>> searchMemberBatch(
+      @RequestBody List<MemberSearchCondition> conditions) {
+    if (conditions.size() > MAX_BATCH_SIZE) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "At most " + MAX_BATCH_SIZE + " conditions are allowed per batch");
+    }
+    if (conditions.contains(null)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Batch conditions must not be null");
+    }
+    Map<Integer, List<MemberTeamDto>> result = new LinkedHashMap<>();
+    memberBatchSearchExecutor.search(conditions)
+        .forEach((index, members) -> result.put(index, memberAgeIncrementBuffer.applyTo(members)));
+    return result;
   }
 
   @GetMapping("/v2/members")
   public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
-    return memberRepository.searchPageSimple(condition, pageable);
+    return memberSearchCoalescer.searchPageSimple(condition, pageable).map(dto -> memberAgeIncrementBuffer.applyTo(dto));
+  }
+
+  @GetMapping(value = {"/v2/members", "/v3/members"}, params = "fields")
+  public Page<Map<String, Object>> searchMemberFieldsPage(MemberSearchCondition condition,
+      @RequestParam List<String> fields, Pageable pageable) {
+    Set<MemberTeamField> requested = parseFields(fields);
+    return memberRepository.searchPageFields(condition, withMemberIdForAge(requested), pageable)
+        .map(row -> applyPendingAge(row, requested));
   }
 
   @GetMapping("/v3/members")
   public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-    return memberRepository.searchPageComplex(condition, pageable);
+    return memberSearchCoalescer.searchPageComplex(condition, pageable).map(dto -> memberAgeIncrementBuffer.applyTo(dto));
+  }
+
+  /**
+   * 인덱스가 있는 경로만 조건으로 받고(MemberRepository#customize), count 쿼리 없이 다음 페이지 여부만 알려준다.
+   * 예) /members/query?team.id=1&team.id=2&usernameLower=member1&sort=username
+   */
+  @GetMapping("/members/query")
+  public Slice<MemberTeamDto> queryMembers(
+      @QuerydslPredicate(root = Member.class, bindings = MemberRepository.class) Predicate predicate,
+      @RequestParam MultiValueMap<String, String> parameters, Pageable pageable) {
+    memberPredicateGuard.check(parameters, pageable);
+    return memberRepository.querySlice(predicate, pageable).map(dto -> memberAgeIncrementBuffer.applyTo(dto));
+  }
+
+  /**
+   * 아직 반영되지 않은 나이 증가분을 더하려면 회원 id 가 필요하므로, age 를 고르면 memberId 도 함께 조회한다.
+   */
+  private static Set<MemberTeamField> withMemberIdForAge(Set<MemberTeamField> requested) {
+    if (!requested.contains(MemberTeamField.AGE) || requested.contains(MemberTeamField.MEMBER_ID)) {
+      return requested;
+    }
+    Set<MemberTeamField> selected = EnumSet.copyOf(requested);
+    selected.add(MemberTeamField.MEMBER_ID);
+    return selected;
+  }
+
+  private Map<String, Object> applyPendingAge(Map<String, Object> row, Set<MemberTeamField> requested) {
+    if (!requested.contains(MemberTeamField.AGE)) {
+      return row;
+    }
+    return memberAgeIncrementBuffer.applyTo(row, requested.contains(MemberTeamField.MEMBER_ID));
+  }
+
+  private Set<MemberTeamField> parseFields(List<String> fields) {
+    try {
+      return MemberTeamField.parse(fields);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+    }
   }
 }
@@ -0,0 +1,30 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.repository.view.MemberTeamViewProjector;
+import study.querydsl.repository.view.MemberTeamViewRebuild;
+
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "member.view.enabled", havingValue = "true")
+public class MemberTeamViewController {
+
+  private final MemberTeamViewProjector memberTeamViewProjector;
+
+  /**
+   * member left join team 결과와 다른 member_team_view 행 수.
+   */
+  @GetMapping("/members/view/check")
+  public long checkView() {
+    return memberTeamViewProjector.drift();
+  }
+
+  @PostMapping("/members/view/rebuild")
+  public MemberTeamViewRebuild rebuildView() {
+    return memberTeamViewProjector.rebuild();
+  }
+}
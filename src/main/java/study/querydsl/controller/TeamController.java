@@ -0,0 +1,31 @@
+package study.querydsl.controller;
+
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.TeamStatisticsDto;
+import study.querydsl.dto.TeamStatisticsMismatchDto;
+import study.querydsl.repository.index.TeamStatistics;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+  private final TeamStatistics teamStatistics;
+
+  @GetMapping("/teams/stats")
+  public List<TeamStatisticsDto> teamStats() {
+    return teamStatistics.teams();
+  }
+
+  @GetMapping("/teams/stats/overall")
+  public TeamStatisticsDto overallStats() {
+    return teamStatistics.overall();
+  }
+
+  @GetMapping("/teams/stats/check")
+  public List<TeamStatisticsMismatchDto> checkTeamStats() {
+    return teamStatistics.check();
+  }
+}
@@ -0,0 +1,77 @@
+package study.querydsl.datasource;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import study.querydsl.repository.index.MemberBulkChangedEvent;
+import study.querydsl.repository.index.MemberChangedEvent;
+import study.querydsl.repository.index.TeamChangedEvent;
+
+/**
+ * 회원/팀을 변경한 세션은 windowMillis 동안 복제본 대신 주 DB 에서 읽게 한다. (복제 지연 동안 자기 변경이 안 보이는 것을 막는다)
+ * <p>
+ * 세션은 요청 헤더로 받은 클라이언트 세션 id 이고, 없으면 현재 스레드 안에서만 적용된다.
+ */
+public class ReadYourWrites {
+
+  private static final ThreadLocal<String> SESSION = new ThreadLocal<>();
+  private static final ThreadLocal<Long> THREAD_LAST_WRITE = new ThreadLocal<>();
+
+  private final long windowNanos;
+  private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+  public ReadYourWrites(long windowMillis) {
+    this.windowNanos = windowMillis * 1_000_000;
+  }
+
+  public static void setSession(String sessionId) {
+    SESSION.set(sessionId);
+  }
+
+  public static void clearSession() {
+    SESSION.remove();
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onMemberCommitted(MemberChangedEvent event) {
+    markWritten();
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onTeamCommitted(TeamChangedEvent event) {
+    markWritten();
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onBulkCommitted(MemberBulkChangedEvent event) {
+    markWritten();
+  }
+
+  public void markWritten() {
+    long now = System.nanoTime();
+    THREAD_LAST_WRITE.set(now);
+    String session = SESSION.get();
+    if (session != null) {
+      lastWrites.put(session, now);
+    }
+  }
+
+  public boolean recentlyWrote() {
+    long now = System.nanoTime();
+    Long threadWrite = THREAD_LAST_WRITE.get();
+    if (threadWrite != null && now - threadWrite < windowNanos) {
+      return true;
+    }
+    String session = SESSION.get();
+    Long sessionWrite = session == null ? null : lastWrites.get(session);
+    return sessionWrite != null && now - sessionWrite < windowNanos;
+  }
+
+  @Scheduled(fixedDelayString = "${member.replica.read-your-writes-ms:2000}")
+  public void evictExpired() {
+    long now = System.nanoTime();
+    lastWrites.values().removeIf(written -> now - written >= windowNanos);
+  }
+}
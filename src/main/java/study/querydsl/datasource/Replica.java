@@ -0,0 +1,60 @@
+package study.querydsl.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * 읽기 전용 복제본 하나와 마지막으로 확인한 상태.
+ */
+public class Replica {
+
+  /**
+   * 지연 시간을 아직 재지 못했거나 잴 수 없을 때의 값.
+   */
+  public static final long UNKNOWN_LAG = -1;
+
+  private final String name;
+  private final HikariDataSource dataSource;
+  private volatile boolean healthy = true;
+  private volatile long lagMillis = UNKNOWN_LAG;
+  private volatile String error;
+
+  public Replica(String name, HikariDataSource dataSource) {
+    this.name = name;
+    this.dataSource = dataSource;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public HikariDataSource dataSource() {
+    return dataSource;
+  }
+
+  public boolean healthy() {
+    return healthy;
+  }
+
+  public long lagMillis() {
+    return lagMillis;
+  }
+
+  public String error() {
+    return error;
+  }
+
+  void markHealthy(long lagMillis) {
+    this.healthy = true;
+    this.lagMillis = lagMillis;
+    this.error = null;
+  }
+
+  void markUnhealthy(String error) {
+    this.healthy = false;
+    this.error = error;
+  }
+
+  boolean usable(long maxLagMillis) {
+    return healthy && (lagMillis == UNKNOWN_LAG || lagMillis <= maxLagMillis);
+  }
+}
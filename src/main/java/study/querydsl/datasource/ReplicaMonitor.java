@@ -0,0 +1,108 @@
+package study.querydsl.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * 주기적으로 주 DB 에 heartbeat 시각을 쓰고, 복제본마다 그 값을 읽어 상태와 지연 시간을 잰다.
+ * 지연 시간은 heartbeat 간격만큼 크게 나올 수 있다. 복제본에 heartbeat 테이블이 없으면 지연은 알 수 없음으로 둔다.
+ * <p>
+ * 결과는 /actuator/health 의 replicas 항목과 member.replica.healthy/lag_ms 게이지로 노출한다.
+ */
+@Slf4j
+public class ReplicaMonitor implements HealthIndicator {
+
+  private static final String HEARTBEAT_TABLE = "replica_heartbeat";
+
+  private final JdbcTemplate primary;
+  private final List<Replica> replicas;
+  private final int checkTimeoutSeconds;
+
+  public ReplicaMonitor(DataSource primary, List<Replica> replicas, int checkTimeoutSeconds,
+      MeterRegistry meterRegistry) {
+    this.primary = new JdbcTemplate(primary);
+    this.replicas = replicas;
+    this.checkTimeoutSeconds = checkTimeoutSeconds;
+    for (Replica replica : replicas) {
+      Gauge.builder("member.replica.healthy", replica, r -> r.healthy() ? 1 : 0)
+          .tag("replica", replica.name()).register(meterRegistry);
+      Gauge.builder("member.replica.lag_ms", replica, Replica::lagMillis)
+          .tag("replica", replica.name()).register(meterRegistry);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${member.replica.check-interval-ms:1000}")
+  public void check() {
+    long now = System.currentTimeMillis();
+    try {
+      // H2 문법 (merge ... key)
+      primary.execute("create table if not exists " + HEARTBEAT_TABLE + " (id int primary key, beat_at bigint)");
+      primary.update("merge into " + HEARTBEAT_TABLE + " key (id) values (1, ?)", now);
+    } catch (DataAccessException e) {
+      log.warn("failed to write replica heartbeat", e);
+    }
+    for (Replica replica : replicas) {
+      check(replica, now);
+    }
+  }
+
+  private void check(Replica replica, long now) {
+    JdbcTemplate jdbc = new JdbcTemplate(replica.dataSource());
+    jdbc.setQueryTimeout(checkTimeoutSeconds);
+    boolean wasHealthy = replica.healthy();
+    try {
+      jdbc.queryForObject("select 1", Integer.class);
+    } catch (DataAccessException e) {
+      replica.markUnhealthy(e.getMostSpecificCause().getMessage());
+      if (wasHealthy) {
+        log.warn("replica {} is unhealthy", replica.name(), e);
+      }
+      return;
+    }
+    long lag = Replica.UNKNOWN_LAG;
+    try {
+      List<Long> beats = jdbc.queryForList("select beat_at from " + HEARTBEAT_TABLE + " where id = 1", Long.class);
+      if (!beats.isEmpty()) {
+        lag = Math.max(0, now - beats.get(0));
+      }
+    } catch (DataAccessException e) {
+      log.debug("replica {} has no heartbeat table", replica.name());
+    }
+    replica.markHealthy(lag);
+    if (!wasHealthy) {
+      log.info("replica {} is healthy again", replica.name());
+    }
+  }
+
+  public List<Replica> replicas() {
+    return replicas;
+  }
+
+  @Override
+  public Health health() {
+    Map<String, Object> details = new LinkedHashMap<>();
+    boolean anyHealthy = false;
+    for (Replica replica : replicas) {
+      Map<String, Object> status = new LinkedHashMap<>();
+      status.put("healthy", replica.healthy());
+      status.put("lagMillis", replica.lagMillis());
+      if (replica.error() != null) {
+        status.put("error", replica.error());
+      }
+      details.put(replica.name(), status);
+      anyHealthy |= replica.healthy();
+    }
+    // 복제본이 모두 죽어도 주 DB 로 읽으므로 서비스는 가능하다.
+    return (anyHealthy ? Health.up() : Health.status("DEGRADED")).withDetails(details).build();
+  }
+}
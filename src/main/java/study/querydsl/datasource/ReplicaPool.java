@@ -0,0 +1,24 @@
+package study.querydsl.datasource;
+
+import java.util.List;
+
+/**
+ * 복제본 목록. 종료할 때 커넥션 풀을 닫는다.
+ */
+public class ReplicaPool implements AutoCloseable {
+
+  private final List<Replica> replicas;
+
+  public ReplicaPool(List<Replica> replicas) {
+    this.replicas = List.copyOf(replicas);
+  }
+
+  public List<Replica> all() {
+    return replicas;
+  }
+
+  @Override
+  public void close() {
+    replicas.forEach(replica -> replica.dataSource().close());
+  }
+}
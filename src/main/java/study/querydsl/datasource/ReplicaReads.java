@@ -0,0 +1,50 @@
+package study.querydsl.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * 현재 스레드의 읽기 전용 트랜잭션을 복제본으로 보내도 되는지 표시한다. 표시가 없으면 읽기 전용이어도 주 DB 에서 읽는다.
+ * <p>
+ * 요청 경로의 검색/페이지 조회만 표시한다. (web.ReplicaReadInterceptor)
+ * 색인/통계를 다시 만드는 작업은 복제 지연만큼 오래된 데이터로 만들어지면 안 되므로 표시하지 않는다.
+ */
+public final class ReplicaReads {
+
+  private static final ThreadLocal<Boolean> ALLOWED = new ThreadLocal<>();
+
+  private ReplicaReads() {
+  }
+
+  public static boolean allowed() {
+    return Boolean.TRUE.equals(ALLOWED.get());
+  }
+
+  public static void allow() {
+    ALLOWED.set(Boolean.TRUE);
+  }
+
+  public static void clear() {
+    ALLOWED.remove();
+  }
+
+  /**
+   * 다른 스레드에서 실행하는 작업에 요청의 표시를 넘겨줄 때 쓴다. 끝나면 원래 표시로 되돌린다.
+   */
+  public static <T> T callWith(boolean allowed, Supplier<T> call) {
+    Boolean previous = ALLOWED.get();
+    if (allowed) {
+      ALLOWED.set(Boolean.TRUE);
+    } else {
+      ALLOWED.remove();
+    }
+    try {
+      return call.get();
+    } finally {
+      if (previous == null) {
+        ALLOWED.remove();
+      } else {
+        ALLOWED.set(previous);
+      }
+    }
+  }
+}
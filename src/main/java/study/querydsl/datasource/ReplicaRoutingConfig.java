@@ -0,0 +1,80 @@
+package study.querydsl.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+/**
+ * member.replica.enabled=true 이면 기본 DataSource 를 주 DB/복제본 라우팅 DataSource 로 바꾼다.
+ * <p>
+ * 복제본 URL 은 member.replica.urls (쉼표로 구분) 이고, 비워 두면 주 DB 와 같은 DB 에 커넥션 풀만 따로 만든다.
+ * (복제 지연이 없는 로컬 개발용 복제본)
+ */
+@Configuration
+@ConditionalOnProperty(name = "member.replica.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    dataSource.setPoolName("primary");
+    return dataSource;
+  }
+
+  @Bean
+  ReplicaPool replicaPool(DataSourceProperties properties,
+      @Value("${member.replica.urls:}") List<String> urls,
+      @Value("${member.replica.pool-size:10}") int poolSize) {
+    List<String> replicaUrls = urls.stream().filter(StringUtils::hasText).map(String::trim).toList();
+    if (replicaUrls.isEmpty()) {
+      replicaUrls = List.of(properties.determineUrl());
+    }
+    List<Replica> replicas = new ArrayList<>();
+    for (int i = 0; i < replicaUrls.size(); i++) {
+      HikariDataSource dataSource = DataSourceBuilder.create()
+          .type(HikariDataSource.class)
+          .url(replicaUrls.get(i))
+          .username(properties.determineUsername())
+          .password(properties.determinePassword())
+          .build();
+      dataSource.setPoolName("replica-" + i);
+      dataSource.setMaximumPoolSize(poolSize);
+      dataSource.setReadOnly(true);
+      replicas.add(new Replica("replica-" + i, dataSource));
+    }
+    return new ReplicaPool(replicas);
+  }
+
+  @Bean
+  ReadYourWrites readYourWrites(@Value("${member.replica.read-your-writes-ms:2000}") long windowMillis) {
+    return new ReadYourWrites(windowMillis);
+  }
+
+  // 빈 이름이 /actuator/health 의 항목 이름(replicas)이 된다.
+  @Bean
+  ReplicaMonitor replicasHealthIndicator(HikariDataSource primaryDataSource, ReplicaPool replicaPool,
+      @Value("${member.replica.check-timeout-seconds:1}") int checkTimeoutSeconds, MeterRegistry meterRegistry) {
+    return new ReplicaMonitor(primaryDataSource, replicaPool.all(), checkTimeoutSeconds, meterRegistry);
+  }
+
+  @Bean
+  @Primary
+  DataSource dataSource(HikariDataSource primaryDataSource, ReplicaPool replicaPool, ReadYourWrites readYourWrites,
+      @Value("${member.replica.max-lag-ms:5000}") long maxLagMillis, MeterRegistry meterRegistry) {
+    return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primaryDataSource, replicaPool.all(),
+        readYourWrites, maxLagMillis, meterRegistry));
+  }
+}
@@ -0,0 +1,65 @@
+package study.querydsl.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 복제본으로 보내도 된다고 표시한({@link ReplicaReads}) 읽기 전용 트랜잭션은 사용 가능한 복제본 중 하나로,
+ * 나머지는 주 DB 로 보낸다. 색인/통계 재구축 같은 유지보수 읽기는 표시하지 않으므로 주 DB 에서 읽는다.
+ * <p>
+ * 트랜잭션의 읽기 전용 여부는 커넥션을 얻은 뒤에 정해지므로 LazyConnectionDataSourceProxy 로 감싸서
+ * 첫 SQL 을 실행할 때 커넥션을 고르게 해야 한다.
+ * 복제본이 모두 비정상이거나 지연이 크거나, 현재 세션이 방금 쓴 경우에는 주 DB 에서 읽는다.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+  static final String PRIMARY = "primary";
+
+  private final List<Replica> replicas;
+  private final ReadYourWrites readYourWrites;
+  private final long maxLagMillis;
+  private final AtomicInteger next = new AtomicInteger();
+  private final Counter primaryReads;
+  private final Counter replicaReads;
+
+  public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, ReadYourWrites readYourWrites,
+      long maxLagMillis, MeterRegistry meterRegistry) {
+    this.replicas = replicas;
+    this.readYourWrites = readYourWrites;
+    this.maxLagMillis = maxLagMillis;
+    this.primaryReads = meterRegistry.counter("member.datasource.read_only_routes", "target", "primary");
+    this.replicaReads = meterRegistry.counter("member.datasource.read_only_routes", "target", "replica");
+    Map<Object, Object> targets = new HashMap<>();
+    targets.put(PRIMARY, primary);
+    replicas.forEach(replica -> targets.put(replica.name(), replica.dataSource()));
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+    afterPropertiesSet();
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      return PRIMARY;
+    }
+    if (ReplicaReads.allowed() && !readYourWrites.recentlyWrote()) {
+      int start = Math.floorMod(next.getAndIncrement(), Math.max(1, replicas.size()));
+      for (int i = 0; i < replicas.size(); i++) {
+        Replica replica = replicas.get((start + i) % replicas.size());
+        if (replica.usable(maxLagMillis)) {
+          replicaReads.increment();
+          return replica.name();
+        }
+      }
+    }
+    primaryReads.increment();
+    return PRIMARY;
+  }
+}
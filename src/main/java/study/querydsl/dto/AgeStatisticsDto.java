@@ -0,0 +1,21 @@
+package study.querydsl.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 회원 나이 집계 결과. teamName 은 팀별 집계일 때만 채워진다. (회원이 없으면 avg/max/min 은 null)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgeStatisticsDto {
+
+  private String teamName;
+  private long count;
+  private long sum;
+  private Double avg;
+  private Integer max;
+  private Integer min;
+}
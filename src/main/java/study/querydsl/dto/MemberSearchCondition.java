@@ -1,13 +1,46 @@
 package study.querydsl.dto;
 
+import static org.springframework.util.StringUtils.hasText;
+
+import java.util.List;
 import lombok.Data;
+import study.querydsl.entity.Member;
 
 @Data
 public class MemberSearchCondition {
   // 회원명, 팀명, 나이(ageGoe, ageLoe)
 
+  /**
+   * 검색 조건 파라미터 이름. (필드 이름과 같다)
+   */
+  public static final List<String> FILTER_NAMES = List.of("username", "usernameIgnoreCase", "usernameContains",
+      "usernameStartsWith", "teamName", "ageGoe", "ageLoe");
+
   private String username;
+  private String usernameIgnoreCase;
+  private String usernameContains;
+  private String usernameStartsWith;
   private String teamName;
   private Integer ageGoe;
   private Integer ageLoe;
+
+  public boolean hasNoFilter() {
+    return !hasText(username) && !hasText(usernameIgnoreCase) && !hasText(usernameContains)
+        && !hasText(usernameStartsWith) && !hasText(teamName) && ageGoe == null && ageLoe == null;
+  }
+
+  /**
+   * 같은 결과를 내는 조건끼리 같아지도록 정리한 복사본. (빈 문자열은 조건 없음, 대소문자 무시 이름은 정규화)
+   */
+  public MemberSearchCondition normalized() {
+    MemberSearchCondition normalized = new MemberSearchCondition();
+    normalized.username = hasText(username) ? username : null;
+    normalized.usernameIgnoreCase = hasText(usernameIgnoreCase) ? Member.normalizeUsername(usernameIgnoreCase) : null;
+    normalized.usernameContains = hasText(usernameContains) ? usernameContains : null;
+    normalized.usernameStartsWith = hasText(usernameStartsWith) ? usernameStartsWith : null;
+    normalized.teamName = hasText(teamName) ? teamName : null;
+    normalized.ageGoe = ageGoe;
+    normalized.ageLoe = ageLoe;
+    return normalized;
+  }
 }
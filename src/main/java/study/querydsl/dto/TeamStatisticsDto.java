@@ -0,0 +1,19 @@
+package study.querydsl.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TeamStatisticsDto {
+
+  private Long teamId;
+  private String teamName;
+  private long memberCount;
+  private long ageSum;
+  private Double ageAvg;
+  private Integer ageMin;
+  private Integer ageMax;
+}
@@ -0,0 +1,18 @@
+package study.querydsl.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 메모리 팀 통계와 DB 전체 재계산 결과가 다른 팀. (한쪽에만 있으면 다른 쪽은 null)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TeamStatisticsMismatchDto {
+
+  private Long teamId;
+  private TeamStatisticsDto expected;
+  private TeamStatisticsDto actual;
+}
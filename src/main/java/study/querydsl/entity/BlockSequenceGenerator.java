@@ -0,0 +1,60 @@
+package study.querydsl.entity;
+
+import java.util.Properties;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.OptimizerFactory;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * 한 번의 시퀀스 호출로 id 블록을 받아 쓰는 시퀀스 생성기. (pooled-lo 최적화기)
+ * 블록 크기는 {@link #BLOCK_SIZE_SETTING} 설정으로 정하며, 시퀀스의 increment 도 같은 값으로 만들어진다.
+ * 시퀀스를 다시 만들면 메모리에 남은 블록은 새 시퀀스와 맞지 않으므로 {@link #discardBlock()} 으로 버린다.
+ */
+public class BlockSequenceGenerator extends SequenceStyleGenerator {
+
+  public static final String BLOCK_SIZE_SETTING = "study.querydsl.id.block_size";
+
+  private String optimizerName;
+  private long initialValue;
+  private volatile Optimizer optimizer;
+
+  @Override
+  public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+    int blockSize = serviceRegistry.getService(ConfigurationService.class)
+        .getSetting(BLOCK_SIZE_SETTING, StandardConverters.INTEGER, DEFAULT_INCREMENT_SIZE);
+    parameters.put(INCREMENT_PARAM, String.valueOf(blockSize));
+    parameters.putIfAbsent(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+    super.configure(type, parameters, serviceRegistry);
+    this.optimizerName = parameters.getProperty(OPT_PARAM);
+    this.initialValue = ConfigurationHelper.getInt(INITIAL_PARAM, parameters, DEFAULT_INITIAL_VALUE);
+    this.optimizer = super.getOptimizer();
+  }
+
+  @Override
+  public Optimizer getOptimizer() {
+    return optimizer;
+  }
+
+  @Override
+  public Object generate(SharedSessionContractImplementor session, Object object) {
+    return optimizer.generate(getDatabaseStructure().buildCallback(session));
+  }
+
+  /**
+   * 받아 둔 블록을 버리고 다음 id 를 시퀀스에서 새로 받는다. 시퀀스를 다시 만든 뒤(스냅샷 복원 등) 호출한다.
+   * 다른 쓰기가 없을 때 호출해야 한다. (이미 이전 블록에서 id 를 받은 persist 는 그 id 를 쓴다)
+   */
+  public void discardBlock() {
+    Optimizer current = optimizer;
+    optimizer = OptimizerFactory.buildOptimizer(StandardOptimizerDescriptor.fromExternalName(optimizerName),
+        getIdentifierType().getReturnedClass(), current.getIncrementSize(), initialValue);
+  }
+}
@@ -0,0 +1,67 @@
+package study.querydsl.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 나눠서 실행하는 배치 작업에서 끝난 구간을 기록한다. 구간 작업과 같은 트랜잭션에서 저장하므로,
+ * 실패 후 같은 작업 이름으로 다시 실행하면 기록된 구간을 건너뛰고 이어서 처리할 수 있다.
+ * 구간 크기와 조건 해시도 남겨서, 다른 설정으로 이어서 실행하려 하면 작업 쪽에서 거부할 수 있게 한다.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_job_checkpoint", columnNames = {"job_name", "range_start"}))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString(of = {"jobName", "rangeStart", "rangeEnd", "chunkSize", "predicateHash", "rows"})
+public class JobCheckpoint {
+
+  @Id
+  @GeneratedValue
+  @Column(name = "job_checkpoint_id")
+  private Long id;
+
+  @Column(name = "job_name", nullable = false)
+  private String jobName;
+
+  @Column(name = "range_start", nullable = false)
+  private long rangeStart;
+
+  @Column(name = "range_end", nullable = false)
+  private long rangeEnd;
+
+  // 구간을 나눈 크기 (구간 크기가 없는 작업은 0)
+  @Column(name = "chunk_size", nullable = false)
+  private long chunkSize;
+
+  // 작업 종류와 조건의 해시 (조건이 없는 작업은 0)
+  @Column(name = "predicate_hash", nullable = false)
+  private int predicateHash;
+
+  @Column(name = "affected_rows")
+  private long rows;
+
+  private LocalDateTime completedAt;
+
+  public JobCheckpoint(String jobName, long rangeStart, long rangeEnd, long rows) {
+    this(jobName, rangeStart, rangeEnd, 0, 0, rows);
+  }
+
+  public JobCheckpoint(String jobName, long rangeStart, long rangeEnd, long chunkSize, int predicateHash, long rows) {
+    this.jobName = jobName;
+    this.rangeStart = rangeStart;
+    this.rangeEnd = rangeEnd;
+    this.chunkSize = chunkSize;
+    this.predicateHash = predicateHash;
+    this.rows = rows;
+    this.completedAt = LocalDateTime.now();
+  }
+}
@@ -5,26 +5,53 @@ import static lombok.AccessLevel.PROTECTED;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import java.util.Locale;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import study.querydsl.repository.index.MemberChangePublisher;
+import study.querydsl.repository.index.UsernameBloomFilterListener;
+import study.querydsl.repository.view.MemberTeamViewListener;
 
 @Setter
 @Getter
 @Entity
+@EntityListeners({UsernameBloomFilterListener.class, MemberChangePublisher.class, MemberTeamViewListener.class})
+@Table(indexes = {
+    @Index(name = "idx_member_username", columnList = "username"),
+    @Index(name = "idx_member_username_lower", columnList = "username_lower")
+})
 @NoArgsConstructor(access = PROTECTED)
 @ToString(of = {"id", "username", "age"})
 public class Member {
 
-  @Id @GeneratedValue
+  @Id
+  @GeneratedValue(generator = "member_seq")
+  @GenericGenerator(name = "member_seq", type = BlockSequenceGenerator.class,
+      parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "member_seq"))
   @Column(name = "member_id")
   private Long id;
   private String username;
+  // 대소문자 무시 검색용 정규화 컬럼 (lower(username) 조건은 인덱스를 타지 못한다)
+  // DB 가 username 으로 계산하는 생성 컬럼이라 벌크 update/JDBC 로 이름을 바꿔도 어긋나지 않는다.
+  // 엔티티 값은 조회 때 읽은 값이고, 같은 영속성 컨텍스트에서는 setUsername 이 같은 규칙으로 맞춰 둔다.
+  // (@Generated 로 다시 읽게 하면 insert/update 마다 select 가 붙어 JDBC batch 를 쓸 수 없다)
+  @Setter(AccessLevel.NONE)
+  @Column(name = "username_lower", insertable = false, updatable = false,
+      columnDefinition = "varchar(255) generated always as (lower(username))")
+  private String usernameLower;
   private int age;
 
   @ManyToOne(fetch = LAZY)
@@ -39,13 +66,25 @@ public class Member {
   }
 
   public Member(String username, int age, Team team) {
-    this.username = username;
+    setUsername(username);
     this.age = age;
     if (team != null) {
       changeTeam(team);
     }
   }
 
+  public void setUsername(String username) {
+    this.username = username;
+    this.usernameLower = normalizeUsername(username);
+  }
+
+  /**
+   * username_lower 생성 컬럼의 lower() 와 같은 규칙으로 검색어를 정규화한다.
+   */
+  public static String normalizeUsername(String username) {
+    return username == null ? null : username.toLowerCase(Locale.ROOT);
+  }
+
   public void changeTeam(Team team) {
     this.team = team;
     team.getMembers().add(this);
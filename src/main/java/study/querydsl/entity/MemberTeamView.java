@@ -0,0 +1,53 @@
+package study.querydsl.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Synchronize;
+
+/**
+ * member left join team 결과를 회원마다 한 행으로 펼쳐 둔 읽기 전용 테이블. 컬럼은 MemberTeamDto 와 같다.
+ * JPA 로는 읽기만 하고, 쓰기는 MemberTeamViewProjector 가 회원/팀 변경과 같은 트랜잭션에서 JDBC 로 한다.
+ * 행은 flush 때 고쳐지므로, 이 테이블을 조회하기 전에 회원/팀 변경을 auto flush 하도록 두 테이블에 동기화한다.
+ */
+@Entity
+@Immutable
+@Synchronize({"member", "team"})
+@Table(name = "member_team_view", indexes = {
+    @Index(name = "idx_member_team_view_username", columnList = "username"),
+    @Index(name = "idx_member_team_view_username_lower", columnList = "username_lower"),
+    @Index(name = "idx_member_team_view_team_id", columnList = "team_id"),
+    @Index(name = "idx_member_team_view_team_name", columnList = "team_name"),
+    @Index(name = "idx_member_team_view_age", columnList = "age")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class MemberTeamView {
+
+  @Id
+  @Column(name = "member_id")
+  private Long memberId;
+
+  private String username;
+
+  // Member.usernameLower 와 같은 생성 컬럼. 프로젝터의 insert 에는 넣지 않는다.
+  @Column(name = "username_lower", insertable = false, updatable = false,
+      columnDefinition = "varchar(255) generated always as (lower(username))")
+  private String usernameLower;
+
+  private int age;
+
+  @Column(name = "team_id")
+  private Long teamId;
+
+  @Column(name = "team_name")
+  private String teamName;
+}
@@ -2,6 +2,7 @@ package study.querydsl.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
@@ -12,15 +13,23 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import study.querydsl.repository.index.TeamChangePublisher;
+import study.querydsl.repository.view.MemberTeamViewListener;
 
 @Entity
+@EntityListeners({TeamChangePublisher.class, MemberTeamViewListener.class})
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
 public class Team {
   @Id
-  @GeneratedValue
+  @GeneratedValue(generator = "team_seq")
+  @GenericGenerator(name = "team_seq", type = BlockSequenceGenerator.class,
+      parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "team_seq"))
   @Column(name = "team_id")
   private Long id;
   private String name;
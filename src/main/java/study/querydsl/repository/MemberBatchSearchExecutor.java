@@ -0,0 +1,131 @@
+package study.querydsl.repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.concurrent.ConcurrencyLimiter;
+import study.querydsl.concurrent.Deadline;
+import study.querydsl.concurrent.RepositoryExecutors;
+import study.querydsl.datasource.ReplicaReads;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+/**
+ * 여러 검색 조건을 한 번에 처리한다.
+ * 같은 조건({@link MemberSearchCondition#normalized()} 기준)은 한 번만 조회하고,
+ * 필터가 있는 조건들은 maxConditionsPerQuery 개씩 묶어 쿼리 하나로 합친다.
+ * 필터가 없는 조건(전체 조회)은 단독으로 실행하며, 묶음들은 공유 실행기에서 병렬로 실행한다.
+ * 가상 스레드를 쓰면 스레드 수가 제한되지 않으므로, 동시에 실행하는 묶음 수는 {@link ConcurrencyLimiter} 로 제한한다.
+ */
+@Component
+public class MemberBatchSearchExecutor {
+
+  static final String LIMIT_KEY = "repository searchMerged";
+
+  private final MemberRepository memberRepository;
+  private final TransactionTemplate readOnlyTx;
+  private final ExecutorService executor;
+  private final ConcurrencyLimiter limiter;
+  private final int maxConditionsPerQuery;
+
+  public MemberBatchSearchExecutor(MemberRepository memberRepository,
+      PlatformTransactionManager transactionManager, RepositoryExecutors repositoryExecutors,
+      ConcurrencyLimiter limiter,
+      @Value("${member.batch-search.max-conditions-per-query:32}") int maxConditionsPerQuery) {
+    this.memberRepository = memberRepository;
+    this.readOnlyTx = new TransactionTemplate(transactionManager);
+    this.readOnlyTx.setReadOnly(true);
+    this.executor = repositoryExecutors.shared();
+    this.limiter = limiter;
+    this.maxConditionsPerQuery = maxConditionsPerQuery;
+  }
+
+  /**
+   * @return 요청 목록의 인덱스를 키로 하는 검색 결과
+   */
+  public Map<Integer, List<MemberTeamDto>> search(List<MemberSearchCondition> conditions) {
+    // 빈 문자열이나 대소문자만 다른 조건도 같은 결과를 내므로 정리한 조건으로 묶는다.
+    Map<MemberSearchCondition, List<Integer>> indexesByCondition = new LinkedHashMap<>();
+    for (int i = 0; i < conditions.size(); i++) {
+      indexesByCondition.computeIfAbsent(conditions.get(i).normalized(), c -> new ArrayList<>()).add(i);
+    }
+
+    List<List<MemberSearchCondition>> groups = new ArrayList<>();
+    List<MemberSearchCondition> current = new ArrayList<>();
+    for (MemberSearchCondition condition : indexesByCondition.keySet()) {
+      if (condition.hasNoFilter()) {
+        groups.add(List.of(condition));
+        continue;
+      }
+      current.add(condition);
+      if (current.size() == maxConditionsPerQuery) {
+        groups.add(current);
+        current = new ArrayList<>();
+      }
+    }
+    if (!current.isEmpty()) {
+      groups.add(current);
+    }
+
+    Map<Integer, List<MemberTeamDto>> results = new TreeMap<>();
+    for (Map.Entry<MemberSearchCondition, List<MemberTeamDto>> entry : execute(groups).entrySet()) {
+      for (Integer index : indexesByCondition.get(entry.getKey())) {
+        results.put(index, entry.getValue());
+      }
+    }
+    return results;
+  }
+
+  private Map<MemberSearchCondition, List<MemberTeamDto>> execute(
+      List<List<MemberSearchCondition>> groups) {
+    if (groups.size() == 1) {
+      return zip(groups.get(0), searchInTransaction(groups.get(0)));
+    }
+    // 다른 스레드에서 실행하는 묶음 쿼리에도 요청 기한과 복제본 읽기 표시를 넘긴다.
+    Deadline deadline = Deadline.current();
+    boolean replicaReads = ReplicaReads.allowed();
+    List<CompletableFuture<Map<MemberSearchCondition, List<MemberTeamDto>>>> futures = groups.stream()
+        .map(group -> CompletableFuture.supplyAsync(
+            () -> ReplicaReads.callWith(replicaReads,
+                () -> Deadline.callWith(deadline, () -> zip(group, searchWithPermit(group)))), executor))
+        .toList();
+
+    Map<MemberSearchCondition, List<MemberTeamDto>> merged = new LinkedHashMap<>();
+    try {
+      futures.forEach(future -> merged.putAll(future.join()));
+    } catch (CompletionException e) {
+      // 한도 초과 같은 예외를 그대로 올려야 웹 계층에서 알맞은 응답으로 바꿀 수 있다.
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+    return merged;
+  }
+
+  private List<List<MemberTeamDto>> searchWithPermit(List<MemberSearchCondition> group) {
+    return limiter.execute(LIMIT_KEY, () -> searchInTransaction(group));
+  }
+
+  private List<List<MemberTeamDto>> searchInTransaction(List<MemberSearchCondition> group) {
+    return readOnlyTx.execute(status -> memberRepository.searchMerged(group));
+  }
+
+  private Map<MemberSearchCondition, List<MemberTeamDto>> zip(List<MemberSearchCondition> group,
+      List<List<MemberTeamDto>> results) {
+    Map<MemberSearchCondition, List<MemberTeamDto>> zipped = new LinkedHashMap<>();
+    for (int i = 0; i < group.size(); i++) {
+      zipped.put(group.get(i), results.get(i));
+    }
+    return zipped;
+  }
+}
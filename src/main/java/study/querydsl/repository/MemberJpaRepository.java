@@ -8,62 +8,277 @@ import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QTeam;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.index.MemberBulkChangedEvent;
+import study.querydsl.repository.index.MemberChangePublisher;
+import study.querydsl.repository.index.MemberColumnStore;
+import study.querydsl.repository.index.MemberColumnStoreRouter;
+import study.querydsl.repository.index.UsernameBloomFilter;
+import study.querydsl.repository.index.UsernameNgramIndex;
+import study.querydsl.repository.shard.ShardedMemberRepository;
+import study.querydsl.repository.support.BulkWriteStats;
+import study.querydsl.repository.support.InClauseChunks;
+import study.querydsl.repository.support.LongArrayList;
+import study.querydsl.repository.support.PersistenceContextSupport;
+import study.querydsl.repository.support.QueryDeadlines;
 
+@Slf4j
 @Repository
 @RequiredArgsConstructor
 public class MemberJpaRepository {
 
   private final EntityManager em;
   private final JPAQueryFactory queryFactory;
+  private final UsernameBloomFilter usernameBloomFilter;
+  private final UsernameNgramIndex usernameNgramIndex;
+  private final MemberColumnStoreRouter memberColumnStoreRouter;
+  private final ApplicationEventPublisher eventPublisher;
+  private final ObjectProvider<ShardedMemberRepository> shardedMemberRepository;
+
+  // saveAll 에서 flush/clear 할 간격 (JDBC batch 크기의 배수로 맞추는 것이 좋다)
+  @Value("${member.bulk.flush-size:1000}")
+  private int flushSize;
+
+  // saveAll 이 발행하는 벌크 이벤트에 담을 최대 id 수 (넘으면 전체 재계산)
+  @Value("${member.bulk.max-event-ids:10000}")
+  private int maxEventIds;
 
   public void save(Member member) {
+    requireUnsharded("save");
     em.persist(member);
   }
 
+  /**
+   * 회원을 JDBC batch 로 저장한다. flushSize 건마다 flush/clear 해서 영속성 컨텍스트를 작게 유지하므로,
+   * 호출 전에 관리 중이던 엔티티도 준영속 상태가 된다. 트랜잭션 안에서 호출해야 한다.
+   * 회원별 변경 이벤트 대신 저장한 id 로 {@link MemberBulkChangedEvent} 를 한 번 발행한다.
+   */
+  public BulkWriteStats saveAll(Collection<Member> members) {
+    requireUnsharded("saveAll");
+    LongArrayList ids = new LongArrayList(members.size());
+    BulkWriteStats stats = MemberChangePublisher.collectingIds(ids, () -> persistAll(members, "member"));
+    if (!ids.isEmpty()) {
+      eventPublisher.publishEvent(ids.size() > maxEventIds
+          ? MemberBulkChangedEvent.all() : MemberBulkChangedEvent.of(ids.stream().boxed().toList()));
+    }
+    return stats;
+  }
+
+  public BulkWriteStats saveAllTeams(Collection<Team> teams) {
+    requireUnsharded("saveAllTeams");
+    return persistAll(teams, "team");
+  }
+
+  private BulkWriteStats persistAll(Collection<?> entities, String name) {
+    long start = System.currentTimeMillis();
+    int count = 0;
+    for (Object entity : entities) {
+      em.persist(entity);
+      if (++count % flushSize == 0) {
+        em.flush();
+        em.clear();
+      }
+    }
+    em.flush();
+    em.clear();
+    BulkWriteStats stats = new BulkWriteStats(count, System.currentTimeMillis() - start);
+    log.info("saved {} {} rows in {}ms ({} rows/s)", stats.rows(), name, stats.millis(),
+        (long) stats.rowsPerSecond());
+    return stats;
+  }
+
   public Optional<Member> findById(Long id) {
+    requireUnsharded("findById");
     Member findMember = em.find(Member.class, id);
     return Optional.ofNullable(findMember);
   }
 
+  /**
+   * 여러 id 를 IN 청크로 나눠 조회한다. 영속성 컨텍스트에 이미 있는 회원은 쿼리 없이 반환하고,
+   * 결과는 요청한 id 순서대로 정렬한다. (없는 id 는 제외)
+   */
+  public List<Member> findAllByIds(Collection<Long> ids) {
+    requireUnsharded("findAllByIds");
+    Map<Long, Member> found = new HashMap<>();
+    List<Long> missing = new ArrayList<>();
+    for (Long id : new LinkedHashSet<>(ids)) {
+      if (id == null) {
+        continue;
+      }
+      Member managed = findManaged(id);
+      if (managed != null) {
+        found.put(id, managed);
+      } else {
+        missing.add(id);
+      }
+    }
+    for (List<Long> chunk : InClauseChunks.split(missing)) {
+      queryFactory
+          .selectFrom(member)
+          .where(member.id.in(chunk))
+          .fetch()
+          .forEach(m -> found.put(m.getId(), m));
+    }
+    return ids.stream()
+        .map(found::get)
+        .filter(Objects::nonNull)
+        .toList();
+  }
+
+  public List<MemberTeamDto> findAllDtosByIds(Collection<Long> ids) {
+    ShardedMemberRepository sharded = shardedMemberRepository.getIfAvailable();
+    if (sharded != null) {
+      return sharded.findAllByIds(ids);
+    }
+    Map<Long, MemberTeamDto> found = new HashMap<>();
+    List<Long> missing = new ArrayList<>();
+    for (Long id : new LinkedHashSet<>(ids)) {
+      if (id == null) {
+        continue;
+      }
+      Member managed = findManaged(id);
+      // 팀이 로딩되지 않은 프록시면 팀 이름을 얻으려고 추가 쿼리가 나가므로 DB 에서 조회한다.
+      if (managed != null && (managed.getTeam() == null || Hibernate.isInitialized(managed.getTeam()))) {
+        found.put(id, toMemberTeamDto(managed));
+      } else {
+        missing.add(id);
+      }
+    }
+    for (List<Long> chunk : InClauseChunks.split(missing)) {
+      queryFactory
+          .select(new QMemberTeamDto(
+              member.id.as("memberId"),
+              member.username,
+              member.age,
+              team.id.as("teamId"),
+              team.name.as("teamName")
+          ))
+          .from(member)
+          .leftJoin(member.team, team)
+          .where(member.id.in(chunk))
+          .fetch()
+          .forEach(dto -> found.put(dto.getMemberId(), dto));
+    }
+    return ids.stream()
+        .map(found::get)
+        .filter(Objects::nonNull)
+        .toList();
+  }
+
+  private Member findManaged(Long id) {
+    // 트랜잭션(또는 OSIV)에 바인딩된 영속성 컨텍스트가 없으면 확인할 대상도 없다.
+    if (!PersistenceContextSupport.isBound(em)) {
+      return null;
+    }
+    SessionImplementor session = em.unwrap(SessionImplementor.class);
+    EntityPersister persister = session.getFactory().getMappingMetamodel()
+        .getEntityDescriptor(Member.class);
+    EntityKey key = session.generateEntityKey(id, persister);
+    Object entity = session.getPersistenceContextInternal().getEntity(key);
+    return entity != null && em.contains(entity) ? (Member) entity : null;
+  }
+
+  private MemberTeamDto toMemberTeamDto(Member m) {
+    Team t = m.getTeam();
+    return new MemberTeamDto(m.getId(), m.getUsername(), m.getAge(),
+        t == null ? null : t.getId(), t == null ? null : t.getName());
+  }
+
   public List<Member> findAll() {
-    return em.createQuery("select m from Member m", Member.class)
+    requireUnsharded("findAll");
+    return QueryDeadlines.apply(em.createQuery("select m from Member m", Member.class))
         .getResultList();
   }
 
   public List<Member> findAll_Querydsl() {
+    requireUnsharded("findAll_Querydsl");
     return queryFactory
         .selectFrom(member)
         .fetch();
   }
 
   public List<Member> findByUsername(String username) {
-    return em.createQuery("select m from Member m where m.username = :username", Member.class)
+    requireUnsharded("findByUsername");
+    if (usernameBloomFilter.definitelyAbsent(username)) {
+      return List.of();
+    }
+    List<Member> result = QueryDeadlines.apply(
+            em.createQuery("select m from Member m where m.username = :username", Member.class))
         .setParameter("username", username)
         .getResultList();
+    usernameBloomFilter.recordLookup(!result.isEmpty());
+    return result;
   }
 
   public List<Member> findByUsername_Querydsl(String username) {
-    return queryFactory
+    requireUnsharded("findByUsername_Querydsl");
+    if (usernameBloomFilter.definitelyAbsent(username)) {
+      return List.of();
+    }
+    List<Member> result = queryFactory
         .selectFrom(member)
         .where(member.username.eq(username))
         .fetch();
+    usernameBloomFilter.recordLookup(!result.isEmpty());
+    return result;
   }
 
+  /**
+   * 엔티티를 읽고 쓰는 메서드는 주 DB 의 영속성 컨텍스트를 쓰므로 샤딩을 켜면 지원하지 않는다.
+   * (샤드에는 {@link ShardedMemberRepository} 로 저장/조회한다)
+   */
+  private void requireUnsharded(String operation) {
+    if (shardedMemberRepository.getIfAvailable() != null) {
+      throw new IllegalStateException(operation + " uses the primary database and is not supported with member sharding; "
+          + "use ShardedMemberRepository or search");
+    }
+  }
+
+  @Transactional(readOnly = true)
   public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
+    ShardedMemberRepository sharded = shardedMemberRepository.getIfAvailable();
+    if (sharded != null) {
+      return sharded.search(condition);
+    }
+    usernameNgramIndex.flushForSearch(condition);
     BooleanBuilder builder = new BooleanBuilder();
     if (hasText(condition.getUsername())) {
       builder.and(member.username.eq(condition.getUsername()));
     }
+    if (hasText(condition.getUsernameIgnoreCase())) {
+      builder.and(member.usernameLower.eq(Member.normalizeUsername(condition.getUsernameIgnoreCase())));
+    }
+    if (hasText(condition.getUsernameContains())) {
+      builder.and(usernameNgramIndex.usernameContains(condition.getUsernameContains()));
+    }
+    if (hasText(condition.getUsernameStartsWith())) {
+      builder.and(usernameNgramIndex.usernameStartsWith(condition.getUsernameStartsWith()));
+    }
     if (hasText(condition.getTeamName())) {
       builder.and(team.name.eq(condition.getTeamName()));
     }
@@ -87,7 +302,18 @@ public class MemberJpaRepository {
         .fetch();
   }
 
+  @Transactional(readOnly = true)
   public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    // 샤딩을 켜면 회원은 샤드에만 있다.
+    ShardedMemberRepository sharded = shardedMemberRepository.getIfAvailable();
+    if (sharded != null) {
+      return sharded.search(condition);
+    }
+    MemberColumnStore columnStore = memberColumnStoreRouter.route(condition);
+    if (columnStore != null) {
+      return columnStore.search(condition);
+    }
+    usernameNgramIndex.flushForSearch(condition);
     return queryFactory
         .select(new QMemberTeamDto(
             member.id.as("memberId"),
@@ -100,6 +326,9 @@ public class MemberJpaRepository {
         .leftJoin(member.team, team)
         .where(
             usernameEq(condition.getUsername()),
+            usernameIgnoreCaseEq(condition.getUsernameIgnoreCase()),
+            usernameContains(condition.getUsernameContains()),
+            usernameStartsWith(condition.getUsernameStartsWith()),
             teamNameEq(condition.getTeamName()),
             ageGoe(condition.getAgeGoe()),
             ageLoe(condition.getAgeLoe())
@@ -111,6 +340,18 @@ public class MemberJpaRepository {
     return hasText(username) ? member.username.eq(username) : null;
   }
 
+  public BooleanExpression usernameIgnoreCaseEq(String username) {
+    return hasText(username) ? member.usernameLower.eq(Member.normalizeUsername(username)) : null;
+  }
+
+  public BooleanExpression usernameContains(String term) {
+    return hasText(term) ? usernameNgramIndex.usernameContains(term) : null;
+  }
+
+  public BooleanExpression usernameStartsWith(String prefix) {
+    return hasText(prefix) ? usernameNgramIndex.usernameStartsWith(prefix) : null;
+  }
+
   public BooleanExpression teamNameEq(String teamName) {
     return hasText(teamName) ? team.name.eq(teamName) : null;
   }
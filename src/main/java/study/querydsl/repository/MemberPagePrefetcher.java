@@ -0,0 +1,277 @@
+package study.querydsl.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import study.querydsl.concurrent.ConcurrencyLimiter;
+import study.querydsl.concurrent.Deadline;
+import study.querydsl.concurrent.RepositoryExecutors;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.index.MemberBulkChangedEvent;
+import study.querydsl.repository.index.MemberChangedEvent;
+import study.querydsl.repository.index.TeamChangedEvent;
+
+/**
+ * 페이지 검색 결과를 돌려준 뒤 다음 페이지를 미리 읽어 두고, ttl-ms 동안 같은 검색(조건 + 페이지 + 정렬)에 바로 돌려준다.
+ * member.search.prefetch.enabled=true 일 때만 켜진다.
+ * <p>
+ * 미리 읽기는 낮은 우선순위의 작은 실행기에서 한다. DB 가 바쁘면(커넥션을 기다리는 스레드가 있거나, 사용 중인 커넥션이나
+ * 동시 실행 제한이 busy-ratio 를 넘으면) 건너뛰고 backoff-ms 동안 새로 시작하지 않는다. 미리 읽기가 실패해도 물러난다.
+ * 회원/팀 변경이 커밋되면 보관한 페이지를 모두 버리고, 그 전에 시작한 미리 읽기 결과도 보관하지 않는다.
+ * <p>
+ * 적중률은 member.search.prefetch{result=hit|miss} 로 본다. 첫 페이지는 미리 읽을 수 없으므로 집계하지 않는다.
+ * 쓰이지 않고 버려진 페이지 수는 member.search.prefetch.wasted 로 본다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "member.search.prefetch.enabled", havingValue = "true")
+public class MemberPagePrefetcher {
+
+  private final ConcurrencyLimiter limiter;
+  private final HikariDataSource hikari;
+  private final ExecutorService executor;
+  private final long ttlNanos;
+  private final int maxEntries;
+  private final Duration timeout;
+  private final long backoffNanos;
+  private final double busyRatio;
+
+  private final Map<Key, Entry> pages = new ConcurrentHashMap<>();
+  private final Set<Key> loading = ConcurrentHashMap.newKeySet();
+  private final AtomicLong generation = new AtomicLong();
+  private volatile long backoffUntilNanos = System.nanoTime();
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter loaded;
+  private final Counter failed;
+  private final Counter wasted;
+  private final Counter skippedBusy;
+  private final Counter skippedFull;
+
+  public MemberPagePrefetcher(ConcurrencyLimiter limiter, DataSource dataSource, RepositoryExecutors executors,
+      MeterRegistry meterRegistry,
+      @Value("${member.search.prefetch.threads:2}") int threads,
+      @Value("${member.search.prefetch.queue:16}") int queueCapacity,
+      @Value("${member.search.prefetch.ttl-ms:5000}") long ttlMillis,
+      @Value("${member.search.prefetch.max-entries:1000}") int maxEntries,
+      @Value("${member.search.prefetch.timeout-ms:2000}") long timeoutMillis,
+      @Value("${member.search.prefetch.backoff-ms:1000}") long backoffMillis,
+      @Value("${member.search.prefetch.busy-ratio:0.8}") double busyRatio) {
+    this.limiter = limiter;
+    this.hikari = hikari(dataSource);
+    this.executor = executors.background("prefetch", threads, queueCapacity);
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    this.maxEntries = maxEntries;
+    this.timeout = Duration.ofMillis(timeoutMillis);
+    this.backoffNanos = TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+    this.busyRatio = busyRatio;
+    this.hits = meterRegistry.counter("member.search.prefetch", "result", "hit");
+    this.misses = meterRegistry.counter("member.search.prefetch", "result", "miss");
+    this.loaded = meterRegistry.counter("member.search.prefetch.loaded");
+    this.failed = meterRegistry.counter("member.search.prefetch.failed");
+    this.wasted = meterRegistry.counter("member.search.prefetch.wasted");
+    this.skippedBusy = meterRegistry.counter("member.search.prefetch.skipped", "reason", "busy");
+    this.skippedFull = meterRegistry.counter("member.search.prefetch.skipped", "reason", "full");
+    Gauge.builder("member.search.prefetch.cached", pages, Map::size).register(meterRegistry);
+  }
+
+  /**
+   * 미리 읽어 둔 페이지. 없거나 만료됐으면 null.
+   */
+  Page<MemberTeamDto> get(String method, MemberSearchCondition condition, Pageable pageable) {
+    Entry entry = pages.get(new Key(method, condition, pageable));
+    boolean hit = entry != null && !entry.isExpired();
+    if (pageable.isPaged() && pageable.getPageNumber() > 0) {
+      (hit ? hits : misses).increment();
+    }
+    if (!hit) {
+      return null;
+    }
+    entry.used = true;
+    return entry.page;
+  }
+
+  /**
+   * served 다음 페이지를 백그라운드에서 읽어 둔다. loader 가 null 을 반환하면 실패로 본다.
+   * 반환하는 페이지는 여러 요청이 공유하므로 수정할 수 없어야 한다.
+   */
+  void prefetchNext(String method, MemberSearchCondition condition, Page<MemberTeamDto> served,
+      Function<Pageable, Page<MemberTeamDto>> loader) {
+    if (!served.hasNext()) {
+      return;
+    }
+    Key key = new Key(method, condition, served.nextPageable());
+    Entry cached = pages.get(key);
+    if (cached != null && !cached.isExpired() || loading.contains(key)) {
+      return;
+    }
+    if (isBusy()) {
+      skippedBusy.increment();
+      return;
+    }
+    if (pages.size() >= maxEntries) {
+      evictExpired();
+      if (pages.size() >= maxEntries) {
+        skippedFull.increment();
+        return;
+      }
+    }
+    if (!loading.add(key)) {
+      return;
+    }
+    long startGeneration = generation.get();
+    try {
+      executor.execute(() -> load(key, startGeneration, loader));
+    } catch (RejectedExecutionException e) {
+      loading.remove(key);
+      skippedFull.increment();
+    }
+  }
+
+  private void load(Key key, long startGeneration, Function<Pageable, Page<MemberTeamDto>> loader) {
+    try {
+      // 대기열에서 기다리는 동안 바빠졌을 수 있다.
+      if (isBusy()) {
+        skippedBusy.increment();
+        return;
+      }
+      Page<MemberTeamDto> page = Deadline.callWith(Deadline.after("prefetch " + key.method(), timeout),
+          () -> loader.apply(key.pageable()));
+      if (page == null) {
+        fail(key, null);
+        return;
+      }
+      loaded.increment();
+      Entry entry = new Entry(page, System.nanoTime() + ttlNanos);
+      pages.put(key, entry);
+      // 읽는 동안 변경이 커밋됐으면 오래된 결과일 수 있다.
+      if (generation.get() != startGeneration) {
+        pages.remove(key, entry);
+      }
+    } catch (RuntimeException e) {
+      fail(key, e);
+    } finally {
+      loading.remove(key);
+    }
+  }
+
+  private void fail(Key key, RuntimeException e) {
+    failed.increment();
+    backoffUntilNanos = System.nanoTime() + backoffNanos;
+    log.debug("prefetch of {} failed, backing off", key, e);
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onMemberCommitted(MemberChangedEvent event) {
+    invalidate();
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onTeamCommitted(TeamChangedEvent event) {
+    invalidate();
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onBulkCommitted(MemberBulkChangedEvent event) {
+    invalidate();
+  }
+
+  public void invalidate() {
+    generation.incrementAndGet();
+    pages.values().removeIf(entry -> {
+      if (!entry.used) {
+        wasted.increment();
+      }
+      return true;
+    });
+  }
+
+  @Scheduled(fixedDelayString = "${member.search.prefetch.ttl-ms:5000}")
+  public void evictExpired() {
+    pages.values().removeIf(entry -> {
+      if (!entry.isExpired()) {
+        return false;
+      }
+      if (!entry.used) {
+        wasted.increment();
+      }
+      return true;
+    });
+  }
+
+  private boolean isBusy() {
+    long now = System.nanoTime();
+    if (now - backoffUntilNanos < 0) {
+      return true;
+    }
+    HikariPoolMXBean pool = hikari == null ? null : hikari.getHikariPoolMXBean();
+    boolean busy = limiter.isSaturated(busyRatio)
+        || pool != null && (pool.getThreadsAwaitingConnection() > 0
+        || pool.getActiveConnections() >= busyRatio * hikari.getMaximumPoolSize());
+    if (busy) {
+      backoffUntilNanos = now + backoffNanos;
+    }
+    return busy;
+  }
+
+  /**
+   * 커넥션 풀 사용량을 볼 수 있는 Hikari 풀. 복제본 라우팅을 켜면 트랜잭션 밖에서 고르는 주 DB 의 풀이다.
+   */
+  private static HikariDataSource hikari(DataSource dataSource) {
+    try {
+      return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+    } catch (SQLException e) {
+      log.debug("connection pool metrics are not available for prefetch back-off", e);
+      return null;
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private record Key(String method, MemberSearchCondition condition, Pageable pageable) {
+  }
+
+  private static final class Entry {
+
+    final Page<MemberTeamDto> page;
+    final long expiresAtNanos;
+    volatile boolean used;
+
+    Entry(Page<MemberTeamDto> page, long expiresAtNanos) {
+      this.page = page;
+      this.expiresAtNanos = expiresAtNanos;
+    }
+
+    boolean isExpired() {
+      return System.nanoTime() - expiresAtNanos >= 0;
+    }
+  }
+}
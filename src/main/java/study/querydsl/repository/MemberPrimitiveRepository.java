@@ -0,0 +1,108 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.jpa.impl.JPAQuery;
+import java.util.function.LongConsumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.index.UsernameNgramIndex;
+import study.querydsl.repository.support.LongArrayList;
+import study.querydsl.repository.support.Querydsl4RepositorySupport;
+
+/**
+ * id, 나이처럼 한 컬럼만 필요한 대량 조회용 리포지토리.
+ * <p>
+ * {@code select(member.id).fetch()} 는 결과 List 를 만들고 다시 복사하므로, 여기서는 커서로 읽은 값을 바로
+ * long[]/int[] 에 담는다. (Querydsl4RepositorySupport#forEachLong) fetch size 는 member.primitive.fetch-size 로 조정한다.
+ * 조건은 다른 검색과 같은 Querydsl 조건이며, JPQL 이므로 flush 되지 않은 변경은 auto flush 된다.
+ */
+@Repository
+public class MemberPrimitiveRepository extends Querydsl4RepositorySupport {
+
+  private final UsernameNgramIndex usernameNgramIndex;
+  private final int fetchSize;
+
+  public MemberPrimitiveRepository(UsernameNgramIndex usernameNgramIndex,
+      @Value("${member.primitive.fetch-size:10000}") int fetchSize) {
+    super(Member.class);
+    this.usernameNgramIndex = usernameNgramIndex;
+    this.fetchSize = fetchSize;
+  }
+
+  /**
+   * 조건에 맞는 회원 id 를 id 순서로 반환한다.
+   */
+  public LongArrayList findIds(MemberSearchCondition condition) {
+    return fetchLongs(query(member.id, condition), fetchSize);
+  }
+
+  /**
+   * 결과를 모으지 않고 id 를 하나씩 넘긴다. (커넥션은 호출이 끝날 때까지 열려 있다)
+   */
+  public void forEachId(MemberSearchCondition condition, LongConsumer action) {
+    forEachLong(query(member.id, condition), fetchSize, action);
+  }
+
+  /**
+   * 조건에 맞는 회원 나이를 id 순서로 반환한다.
+   */
+  public int[] findAges(MemberSearchCondition condition) {
+    return fetchInts(query(member.age, condition), fetchSize);
+  }
+
+  private <T extends Number & Comparable<?>> JPAQuery<T> query(NumberPath<T> column,
+      MemberSearchCondition condition) {
+    usernameNgramIndex.flushForSearch(condition);
+    JPAQuery<T> query = select(column).from(member);
+    // left join 은 결과에 영향이 없으므로 teamName 조건이 있을 때만 조인
+    if (hasText(condition.getTeamName())) {
+      query.leftJoin(member.team, team);
+    }
+    return query
+        .where(
+            usernameEq(condition.getUsername()),
+            usernameIgnoreCaseEq(condition.getUsernameIgnoreCase()),
+            usernameContains(condition.getUsernameContains()),
+            usernameStartsWith(condition.getUsernameStartsWith()),
+            teamNameEq(condition.getTeamName()),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe())
+        )
+        .orderBy(member.id.asc());
+  }
+
+  private BooleanExpression usernameEq(String username) {
+    return hasText(username) ? member.username.eq(username) : null;
+  }
+
+  private BooleanExpression usernameIgnoreCaseEq(String username) {
+    return hasText(username) ? member.usernameLower.eq(Member.normalizeUsername(username)) : null;
+  }
+
+  private BooleanExpression usernameContains(String term) {
+    return hasText(term) ? usernameNgramIndex.usernameContains(term) : null;
+  }
+
+  private BooleanExpression usernameStartsWith(String prefix) {
+    return hasText(prefix) ? usernameNgramIndex.usernameStartsWith(prefix) : null;
+  }
+
+  private BooleanExpression teamNameEq(String teamName) {
+    return hasText(teamName) ? team.name.eq(teamName) : null;
+  }
+
+  private BooleanExpression ageGoe(Integer ageGoe) {
+    return ageGoe != null ? member.age.goe(ageGoe) : null;
+  }
+
+  private BooleanExpression ageLoe(Integer ageLoe) {
+    return ageLoe != null ? member.age.loe(ageLoe) : null;
+  }
+}
@@ -12,17 +12,22 @@ import org.springframework.stereotype.Repository;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.index.UsernameNgramIndex;
 
 @Repository
 public class MemberQueryRepository {
 
   private final JPAQueryFactory queryFactory;
+  private final UsernameNgramIndex usernameNgramIndex;
 
-  public MemberQueryRepository(EntityManager em) {
+  public MemberQueryRepository(EntityManager em, UsernameNgramIndex usernameNgramIndex) {
     this.queryFactory = new JPAQueryFactory(em);
+    this.usernameNgramIndex = usernameNgramIndex;
   }
 
   public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    usernameNgramIndex.flushForSearch(condition);
     return queryFactory
         .select(new QMemberTeamDto(
             member.id.as("memberId"),
@@ -35,6 +40,9 @@ public class MemberQueryRepository {
         .leftJoin(member.team, team)
         .where(
             usernameEq(condition.getUsername()),
+            usernameIgnoreCaseEq(condition.getUsernameIgnoreCase()),
+            usernameContains(condition.getUsernameContains()),
+            usernameStartsWith(condition.getUsernameStartsWith()),
             teamNameEq(condition.getTeamName()),
             ageGoe(condition.getAgeGoe()),
             ageLoe(condition.getAgeLoe())
@@ -46,6 +54,18 @@ public class MemberQueryRepository {
     return hasText(username) ? member.username.eq(username) : null;
   }
 
+  public BooleanExpression usernameIgnoreCaseEq(String username) {
+    return hasText(username) ? member.usernameLower.eq(Member.normalizeUsername(username)) : null;
+  }
+
+  public BooleanExpression usernameContains(String term) {
+    return hasText(term) ? usernameNgramIndex.usernameContains(term) : null;
+  }
+
+  public BooleanExpression usernameStartsWith(String prefix) {
+    return hasText(prefix) ? usernameNgramIndex.usernameStartsWith(prefix) : null;
+  }
+
   public BooleanExpression teamNameEq(String teamName) {
     return hasText(teamName) ? team.name.eq(teamName) : null;
   }
@@ -1,12 +1,29 @@
 package study.querydsl.repository;
 
-import java.util.List;
+import java.util.Set;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.data.querydsl.binding.QuerydslBinderCustomizer;
+import org.springframework.data.querydsl.binding.QuerydslBindings;
 import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
 
 public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom,
-    QuerydslPredicateExecutor<Member> {
+    QuerydslPredicateExecutor<Member>, QuerydslBinderCustomizer<QMember> {
 
-  List<Member> findByUsername(String username);
+  /**
+   * {@code @QuerydslPredicate} 로 조건을 받을 수 있는 경로. 인덱스가 있는 경로만 연다.
+   */
+  Set<String> QUERY_PATHS = Set.of("id", "username", "usernameLower", "team.id");
+
+  /**
+   * 목록에 없는 경로는 무시하고, 연산은 기본 바인딩(값 하나면 같음, 여러 개면 in)만 쓴다.
+   * usernameLower 는 대소문자를 무시한 이름 검색이므로 값을 정규화해서 비교한다.
+   */
+  @Override
+  default void customize(QuerydslBindings bindings, QMember member) {
+    bindings.excludeUnlistedProperties(true);
+    bindings.including(member.id, member.username, member.usernameLower, member.team.id);
+    bindings.bind(member.usernameLower).first((path, value) -> path.eq(Member.normalizeUsername(value)));
+  }
 }
@@ -1,13 +1,37 @@
 package study.querydsl.repository;
 
+import com.querydsl.core.types.Predicate;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.AgeStatisticsDto;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
 
+// 검색/페이징/통계는 읽기 전용 트랜잭션으로 실행한다. (복제본 라우팅을 켜면 복제본에서 읽는다)
 public interface MemberRepositoryCustom {
+  List<Member> findByUsername(String username);
+  @Transactional(readOnly = true)
   List<MemberTeamDto> search(MemberSearchCondition condition);
+  @Transactional(readOnly = true)
   Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
+  @Transactional(readOnly = true)
   Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+  @Transactional(readOnly = true)
+  List<Map<String, Object>> searchFields(MemberSearchCondition condition, Set<MemberTeamField> fields);
+  @Transactional(readOnly = true)
+  Page<Map<String, Object>> searchPageFields(MemberSearchCondition condition, Set<MemberTeamField> fields, Pageable pageable);
+  @Transactional(readOnly = true)
+  Slice<MemberTeamDto> querySlice(Predicate predicate, Pageable pageable);
+  @Transactional(readOnly = true)
+  List<List<MemberTeamDto>> searchMerged(List<MemberSearchCondition> conditions);
+  @Transactional(readOnly = true)
+  AgeStatisticsDto ageStatistics(MemberSearchCondition condition);
+  @Transactional(readOnly = true)
+  List<AgeStatisticsDto> ageStatisticsByTeam(MemberSearchCondition condition);
 }
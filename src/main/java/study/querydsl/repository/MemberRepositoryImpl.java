@@ -4,30 +4,98 @@ import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
+import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.NumberExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.support.PageableExecutionUtils;
+import study.querydsl.dto.AgeStatisticsDto;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.index.MemberColumnStore;
+import study.querydsl.repository.index.MemberColumnStoreRouter;
+import study.querydsl.repository.index.UsernameBloomFilter;
+import study.querydsl.repository.index.UsernameNgramIndex;
+import study.querydsl.repository.shard.ShardedMemberRepository;
+import study.querydsl.repository.support.DeadlineJPAQueryFactory;
+import study.querydsl.repository.support.SliceSupport;
+import study.querydsl.repository.view.MemberTeamViewRepository;
 
 public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
   private final JPAQueryFactory queryFactory;
+  private final UsernameBloomFilter usernameBloomFilter;
+  private final UsernameNgramIndex usernameNgramIndex;
+  private final MemberColumnStoreRouter memberColumnStoreRouter;
+  private final ObjectProvider<ShardedMemberRepository> shardedMemberRepository;
+  private final ObjectProvider<MemberTeamViewRepository> memberTeamViewRepository;
 
-  public MemberRepositoryImpl(EntityManager em) {
-    this.queryFactory = new JPAQueryFactory(em);
+  public MemberRepositoryImpl(EntityManager em, UsernameBloomFilter usernameBloomFilter,
+      UsernameNgramIndex usernameNgramIndex, MemberColumnStoreRouter memberColumnStoreRouter,
+      ObjectProvider<ShardedMemberRepository> shardedMemberRepository,
+      ObjectProvider<MemberTeamViewRepository> memberTeamViewRepository) {
+    this.queryFactory = new DeadlineJPAQueryFactory(em);
+    this.usernameBloomFilter = usernameBloomFilter;
+    this.usernameNgramIndex = usernameNgramIndex;
+    this.memberColumnStoreRouter = memberColumnStoreRouter;
+    this.shardedMemberRepository = shardedMemberRepository;
+    this.memberTeamViewRepository = memberTeamViewRepository;
+  }
+
+  @Override
+  public List<Member> findByUsername(String username) {
+    requireUnsharded("findByUsername");
+    if (usernameBloomFilter.definitelyAbsent(username)) {
+      return List.of();
+    }
+    List<Member> result = queryFactory
+        .selectFrom(member)
+        .where(member.username.eq(username))
+        .fetch();
+    usernameBloomFilter.recordLookup(!result.isEmpty());
+    return result;
   }
 
   @Override
   public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    // 샤딩을 켜면 회원은 샤드에만 있다.
+    ShardedMemberRepository sharded = shardedMemberRepository.getIfAvailable();
+    if (sharded != null) {
+      return sharded.search(condition);
+    }
+    MemberColumnStore columnStore = memberColumnStoreRouter.route(condition);
+    if (columnStore != null) {
+      return columnStore.search(condition);
+    }
+    // 읽기 모델을 켜면 조인 없이 member_team_view 에서 찾는다.
+    MemberTeamViewRepository view = memberTeamViewRepository.getIfAvailable();
+    if (view != null) {
+      return view.search(condition);
+    }
+    usernameNgramIndex.flushForSearch(condition);
     return queryFactory
         .select(new QMemberTeamDto(
             member.id.as("memberId"),
@@ -40,6 +108,9 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
         .leftJoin(member.team, team)
         .where(
             usernameEq(condition.getUsername()),
+            usernameIgnoreCaseEq(condition.getUsernameIgnoreCase()),
+            usernameContains(condition.getUsernameContains()),
+            usernameStartsWith(condition.getUsernameStartsWith()),
             teamNameEq(condition.getTeamName()),
             ageGoe(condition.getAgeGoe()),
             ageLoe(condition.getAgeLoe())
@@ -51,6 +122,18 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
     return hasText(username) ? member.username.eq(username) : null;
   }
 
+  public BooleanExpression usernameIgnoreCaseEq(String username) {
+    return hasText(username) ? member.usernameLower.eq(Member.normalizeUsername(username)) : null;
+  }
+
+  public BooleanExpression usernameContains(String term) {
+    return hasText(term) ? usernameNgramIndex.usernameContains(term) : null;
+  }
+
+  public BooleanExpression usernameStartsWith(String prefix) {
+    return hasText(prefix) ? usernameNgramIndex.usernameStartsWith(prefix) : null;
+  }
+
   public BooleanExpression teamNameEq(String teamName) {
     return hasText(teamName) ? team.name.eq(teamName) : null;
   }
@@ -65,7 +148,16 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
   @Override
   public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+    ShardedMemberRepository sharded = shardedMemberRepository.getIfAvailable();
+    if (sharded != null) {
+      return sharded.searchPage(condition, pageable);
+    }
+    MemberTeamViewRepository view = memberTeamViewRepository.getIfAvailable();
+    if (view != null) {
+      return view.searchPage(condition, pageable);
+    }
 
+    usernameNgramIndex.flushForSearch(condition);
     QueryResults<MemberTeamDto> results = queryFactory
         .select(new QMemberTeamDto(
             member.id,
@@ -78,10 +170,14 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
         .leftJoin(member.team, team)
         .where(
             usernameEq(condition.getUsername()),
+            usernameIgnoreCaseEq(condition.getUsernameIgnoreCase()),
+            usernameContains(condition.getUsernameContains()),
+            usernameStartsWith(condition.getUsernameStartsWith()),
             teamNameEq(condition.getTeamName()),
             ageGoe(condition.getAgeGoe()),
             ageLoe(condition.getAgeLoe())
         )
+        .orderBy(pageOrders(pageable.getSort()))
         .offset(pageable.getOffset())
         .limit(pageable.getPageSize())
         .fetchResults();
@@ -92,6 +188,15 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
   @Override
   public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+    ShardedMemberRepository sharded = shardedMemberRepository.getIfAvailable();
+    if (sharded != null) {
+      return sharded.searchPage(condition, pageable);
+    }
+    MemberTeamViewRepository view = memberTeamViewRepository.getIfAvailable();
+    if (view != null) {
+      return view.searchPage(condition, pageable);
+    }
+    usernameNgramIndex.flushForSearch(condition);
     List<MemberTeamDto> content = queryFactory
         .select(new QMemberTeamDto(
             member.id,
@@ -104,10 +209,14 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
         .leftJoin(member.team, team)
         .where(
             usernameEq(condition.getUsername()),
+            usernameIgnoreCaseEq(condition.getUsernameIgnoreCase()),
+            usernameContains(condition.getUsernameContains()),
+            usernameStartsWith(condition.getUsernameStartsWith()),
             teamNameEq(condition.getTeamName()),
             ageGoe(condition.getAgeGoe()),
             ageLoe(condition.getAgeLoe())
         )
+        .orderBy(pageOrders(pageable.getSort()))
         .offset(pageable.getOffset())
         .limit(pageable.getPageSize())
         .fetch();
@@ -119,6 +228,9 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
         .leftJoin(member.team, team)
         .where(
             usernameEq(condition.getUsername()),
+            usernameIgnoreCaseEq(condition.getUsernameIgnoreCase()),
+            usernameContains(condition.getUsernameContains()),
+            usernameStartsWith(condition.getUsernameStartsWith()),
             teamNameEq(condition.getTeamName()),
             ageGoe(condition.getAgeGoe()),
             ageLoe(condition.getAgeLoe())
@@ -130,4 +242,298 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
     // 페이지이면서 컨텐츠 사이즈가 페이지 사이즈보다 작을 때
     return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
   }
+
+  @Override
+  public List<Map<String, Object>> searchFields(MemberSearchCondition condition,
+      Set<MemberTeamField> fields) {
+    ShardedMemberRepository sharded = shardedMemberRepository.getIfAvailable();
+    if (sharded != null) {
+      return sharded.searchFields(condition, fields);
+    }
+    usernameNgramIndex.flushForSearch(condition);
+    return fieldsQuery(condition, fields, Sort.unsorted())
+        .fetch()
+        .stream()
+        .map(tuple -> toMap(tuple, fields))
+        .toList();
+  }
+
+  @Override
+  public Page<Map<String, Object>> searchPageFields(MemberSearchCondition condition,
+      Set<MemberTeamField> fields, Pageable pageable) {
+    ShardedMemberRepository sharded = shardedMemberRepository.getIfAvailable();
+    if (sharded != null) {
+      return sharded.searchPageFields(condition, fields, pageable);
+    }
+    usernameNgramIndex.flushForSearch(condition);
+    List<Map<String, Object>> content = fieldsQuery(condition, fields, pageable.getSort())
+        .offset(pageable.getOffset())
+        .limit(pageable.getPageSize())
+        .fetch()
+        .stream()
+        .map(tuple -> toMap(tuple, fields))
+        .toList();
+
+    // left join 은 count 에 영향이 없으므로 teamName 조건이 있을 때만 조인
+    JPAQuery<Long> countQuery = queryFactory
+        .select(member.count())
+        .from(member);
+    if (hasText(condition.getTeamName())) {
+      countQuery.leftJoin(member.team, team);
+    }
+    countQuery.where(
+        usernameEq(condition.getUsername()),
+        usernameIgnoreCaseEq(condition.getUsernameIgnoreCase()),
+        usernameContains(condition.getUsernameContains()),
+        usernameStartsWith(condition.getUsernameStartsWith()),
+        teamNameEq(condition.getTeamName()),
+        ageGoe(condition.getAgeGoe()),
+        ageLoe(condition.getAgeLoe())
+    );
+    return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
+  }
+
+  /**
+   * 요청한 필드만 select 하고, team 필드를 요청하지 않았고 teamName 조건/정렬도 없으면 team 조인을 생략한다.
+   * 결과와 페이지가 실행마다 같도록 요청한 정렬 뒤에 id 순으로 정렬한다. (샤딩을 켰을 때와 같은 순서)
+   */
+  private JPAQuery<Tuple> fieldsQuery(MemberSearchCondition condition, Set<MemberTeamField> fields, Sort sort) {
+    JPAQuery<Tuple> query = queryFactory
+        .select(MemberTeamField.expressions(fields))
+        .from(member);
+    if (MemberTeamField.anyTeamJoinRequired(fields) || hasText(condition.getTeamName())
+        || sort.getOrderFor(MemberTeamField.TEAM_NAME.getFieldName()) != null) {
+      query.leftJoin(member.team, team);
+    }
+    return query.where(
+        usernameEq(condition.getUsername()),
+        usernameIgnoreCaseEq(condition.getUsernameIgnoreCase()),
+        usernameContains(condition.getUsernameContains()),
+        usernameStartsWith(condition.getUsernameStartsWith()),
+        teamNameEq(condition.getTeamName()),
+        ageGoe(condition.getAgeGoe()),
+        ageLoe(condition.getAgeLoe())
+    ).orderBy(pageOrders(sort));
+  }
+
+  private Map<String, Object> toMap(Tuple tuple, Set<MemberTeamField> fields) {
+    Map<String, Object> row = new LinkedHashMap<>();
+    for (MemberTeamField field : fields) {
+      row.put(field.getFieldName(), tuple.get(field.getExpression()));
+    }
+    return row;
+  }
+
+  @Override
+  public Slice<MemberTeamDto> querySlice(Predicate predicate, Pageable pageable) {
+    ShardedMemberRepository sharded = shardedMemberRepository.getIfAvailable();
+    if (sharded != null) {
+      return sharded.querySlice(predicate, pageable);
+    }
+    List<MemberTeamDto> rows = queryFactory
+        .select(new QMemberTeamDto(
+            member.id,
+            member.username,
+            member.age,
+            team.id,
+            team.name
+        ))
+        .from(member)
+        .leftJoin(member.team, team)
+        .where(predicate)
+        .orderBy(sliceOrders(pageable.getSort()))
+        .offset(pageable.getOffset())
+        .limit(pageable.getPageSize() + 1)
+        .fetch();
+    return SliceSupport.toSlice(rows, pageable);
+  }
+
+  /**
+   * 페이지 검색의 정렬. 샤드 결과를 합칠 때와 같도록 null 은 마지막에 두고 id 로 동순위를 끊는다.
+   * 정렬 비용은 요청 전에 QueryCostEstimator 가 확인한다.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static OrderSpecifier<?>[] pageOrders(Sort sort) {
+    List<OrderSpecifier<?>> orders = new ArrayList<>();
+    boolean hasId = false;
+    for (Sort.Order order : sort) {
+      MemberTeamField field = MemberTeamField.of(order.getProperty());
+      Expression<? extends Comparable> expression = (Expression<? extends Comparable>) field.getExpression();
+      orders.add(new OrderSpecifier(order.isAscending() ? Order.ASC : Order.DESC, expression).nullsLast());
+      hasId |= field == MemberTeamField.MEMBER_ID;
+    }
+    if (!hasId) {
+      orders.add(member.id.asc());
+    }
+    return orders.toArray(OrderSpecifier<?>[]::new);
+  }
+
+  /**
+   * 인덱스 순서로 읽을 수 있는 memberId, username 정렬만 받는다. 동순위는 id 로 끊는다.
+   */
+  private static OrderSpecifier<?>[] sliceOrders(Sort sort) {
+    List<OrderSpecifier<?>> orders = new ArrayList<>();
+    boolean hasId = false;
+    for (Sort.Order order : sort) {
+      Order direction = order.isAscending() ? Order.ASC : Order.DESC;
+      switch (MemberTeamField.of(order.getProperty())) {
+        case MEMBER_ID -> {
+          orders.add(new OrderSpecifier<>(direction, member.id));
+          hasId = true;
+        }
+        case USERNAME -> orders.add(new OrderSpecifier<>(direction, member.username));
+        default -> throw new IllegalArgumentException("Sorting by " + order.getProperty() + " is not indexed");
+      }
+    }
+    if (!hasId) {
+      orders.add(member.id.asc());
+    }
+    return orders.toArray(OrderSpecifier<?>[]::new);
+  }
+
+  /**
+   * 여러 검색 조건을 조건들의 OR 로 한 번에 조회한다. 조건마다 CASE WHEN 으로 해당 여부를 SQL 에서 표시하고
+   * (UNION ALL + 구분 컬럼과 같은 결과), 표시된 로우만 조건별로 나눠 담는다. 반환 목록의 순서는 conditions 의 순서와 같다.
+   */
+  @Override
+  public List<List<MemberTeamDto>> searchMerged(List<MemberSearchCondition> conditions) {
+    if (conditions.isEmpty()) {
+      return List.of();
+    }
+    ShardedMemberRepository sharded = shardedMemberRepository.getIfAvailable();
+    if (sharded != null) {
+      return sharded.searchMerged(conditions);
+    }
+    usernameNgramIndex.flushForSearch(conditions);
+    BooleanBuilder anyCondition = new BooleanBuilder();
+    boolean unfiltered = false;
+    // 필터가 없는 조건은 모든 로우에 해당하므로 표시 컬럼 없이(null) 둔다.
+    List<NumberExpression<Integer>> tags = new ArrayList<>(conditions.size());
+    for (MemberSearchCondition condition : conditions) {
+      BooleanBuilder each = new BooleanBuilder()
+          .and(usernameEq(condition.getUsername()))
+          .and(usernameIgnoreCaseEq(condition.getUsernameIgnoreCase()))
+          .and(usernameContains(condition.getUsernameContains()))
+          .and(usernameStartsWith(condition.getUsernameStartsWith()))
+          .and(teamNameEq(condition.getTeamName()))
+          .and(ageGoe(condition.getAgeGoe()))
+          .and(ageLoe(condition.getAgeLoe()));
+      if (each.hasValue()) {
+        anyCondition.or(each);
+        tags.add(new CaseBuilder().when(each).then(1).otherwise(0));
+      } else {
+        unfiltered = true;
+        tags.add(null);
+      }
+    }
+
+    List<Expression<?>> columns = new ArrayList<>(List.of(member.id, member.username, member.age, team.id, team.name));
+    tags.stream().filter(Objects::nonNull).forEach(columns::add);
+    List<Tuple> rows = queryFactory
+        .select(columns.toArray(Expression<?>[]::new))
+        .from(member)
+        .leftJoin(member.team, team)
+        .where(unfiltered ? null : anyCondition)
+        .orderBy(member.id.asc())
+        .fetch();
+
+    List<List<MemberTeamDto>> results = new ArrayList<>(conditions.size());
+    for (NumberExpression<Integer> tag : tags) {
+      List<MemberTeamDto> matched = new ArrayList<>();
+      for (Tuple row : rows) {
+        if (tag == null || Integer.valueOf(1).equals(row.get(tag))) {
+          matched.add(new MemberTeamDto(row.get(member.id), row.get(member.username), row.get(member.age),
+              row.get(team.id), row.get(team.name)));
+        }
+      }
+      results.add(matched);
+    }
+    return results;
+  }
+
+  @Override
+  public AgeStatisticsDto ageStatistics(MemberSearchCondition condition) {
+    ShardedMemberRepository sharded = shardedMemberRepository.getIfAvailable();
+    if (sharded != null) {
+      return sharded.ageStatistics(condition);
+    }
+    MemberColumnStore columnStore = memberColumnStoreRouter.route(condition);
+    if (columnStore != null) {
+      return columnStore.ageStatistics(condition);
+    }
+    usernameNgramIndex.flushForSearch(condition);
+    Tuple tuple = queryFactory
+        .select(member.count(), member.age.sum(), member.age.avg(), member.age.max(), member.age.min())
+        .from(member)
+        .leftJoin(member.team, team)
+        .where(
+            usernameEq(condition.getUsername()),
+            usernameIgnoreCaseEq(condition.getUsernameIgnoreCase()),
+            usernameContains(condition.getUsernameContains()),
+            usernameStartsWith(condition.getUsernameStartsWith()),
+            teamNameEq(condition.getTeamName()),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe())
+        )
+        .fetchOne();
+    return toAgeStatistics(null, tuple, 0);
+  }
+
+  @Override
+  public List<AgeStatisticsDto> ageStatisticsByTeam(MemberSearchCondition condition) {
+    ShardedMemberRepository sharded = shardedMemberRepository.getIfAvailable();
+    if (sharded != null) {
+      return sharded.ageStatisticsByTeam(condition);
+    }
+    MemberColumnStore columnStore = memberColumnStoreRouter.route(condition);
+    if (columnStore != null) {
+      return columnStore.ageStatisticsByTeam(condition);
+    }
+    usernameNgramIndex.flushForSearch(condition);
+    return queryFactory
+        .select(team.name, member.count(), member.age.sum(), member.age.avg(), member.age.max(), member.age.min())
+        .from(member)
+        .join(member.team, team)
+        .where(
+            usernameEq(condition.getUsername()),
+            usernameIgnoreCaseEq(condition.getUsernameIgnoreCase()),
+            usernameContains(condition.getUsernameContains()),
+            usernameStartsWith(condition.getUsernameStartsWith()),
+            teamNameEq(condition.getTeamName()),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe())
+        )
+        .groupBy(team.name)
+        .orderBy(team.name.asc())
+        .fetch()
+        .stream()
+        .map(tuple -> toAgeStatistics(tuple.get(team.name), tuple, 1))
+        .toList();
+  }
+
+  /**
+   * 엔티티를 돌려주는 조회는 샤드의 영속성 컨텍스트에 묶이므로 샤딩을 켜면 지원하지 않는다. (DTO 검색을 쓴다)
+   */
+  private void requireUnsharded(String operation) {
+    if (shardedMemberRepository.getIfAvailable() != null) {
+      throw new IllegalStateException(operation + " reads the primary database and is not supported with member sharding; "
+          + "use search with a username condition");
+    }
+  }
+
+  /**
+   * tuple 의 offset 위치부터 count, sum, avg, max, min 순서로 집계 컬럼이 있다.
+   * (JPQL 의 sum 은 Long 을 반환하므로 Number 로 꺼낸다)
+   */
+  private AgeStatisticsDto toAgeStatistics(String teamName, Tuple tuple, int offset) {
+    long count = tuple.get(offset, Long.class);
+    if (count == 0) {
+      return new AgeStatisticsDto(teamName, 0, 0, null, null, null);
+    }
+    return new AgeStatisticsDto(teamName, count,
+        tuple.get(offset + 1, Number.class).longValue(),
+        tuple.get(offset + 2, Number.class).doubleValue(),
+        tuple.get(offset + 3, Number.class).intValue(),
+        tuple.get(offset + 4, Number.class).intValue());
+  }
 }
@@ -0,0 +1,159 @@
+package study.querydsl.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import study.querydsl.concurrent.ClientBudgetExhaustedException;
+import study.querydsl.concurrent.ConcurrencyLimitExceededException;
+import study.querydsl.concurrent.Deadline;
+import study.querydsl.concurrent.DeadlineExceededException;
+import study.querydsl.datasource.ReadYourWrites;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.index.MemberWriteTracker;
+import study.querydsl.repository.support.SingleFlight;
+
+/**
+ * 같은 검색(정리한 조건 + 페이지 + 정렬)이 동시에 들어오면 쿼리는 한 번만 실행하고 결과를 나눠 준다.
+ * <p>
+ * 결과는 여러 호출자가 공유하므로 수정할 수 없는 목록으로 돌려주고, 실행이 끝나면 보관하지 않는다.
+ * 현재 트랜잭션에 커밋되지 않은 변경이 있거나 방금 쓴 세션이면 자기 변경이 보여야 하므로 따로 실행한다.
+ * 기다리는 쪽은 트랜잭션/커넥션 없이 기다리도록 repository 트랜잭션 바깥에서 합친다.
+ * 먼저 실행한 요청이 자기 기한/한도 때문에 실패하면 기다리던 요청 중 하나가 다시 실행한다. ({@link #callerSpecific})
+ * <p>
+ * {@link MemberPagePrefetcher} 가 켜져 있으면 페이지 검색은 미리 읽어 둔 페이지를 먼저 찾고, 돌려준 뒤 다음 페이지를 미리 읽게 한다.
+ * 미리 읽기도 같은 키로 합치므로 미리 읽는 중에 들어온 다음 페이지 요청은 그 결과를 기다린다.
+ */
+@Slf4j
+@Component
+public class MemberSearchCoalescer {
+
+  private final MemberRepository memberRepository;
+  private final MemberWriteTracker memberWriteTracker;
+  private final ObjectProvider<ReadYourWrites> readYourWrites;
+  private final ObjectProvider<MemberPagePrefetcher> prefetcher;
+  private final SingleFlight<Key, Object> flights = new SingleFlight<>();
+  private final long maxWaitMillis;
+
+  private final Counter leaders;
+  private final Counter followers;
+  private final Counter bypassed;
+
+  public MemberSearchCoalescer(MemberRepository memberRepository, MemberWriteTracker memberWriteTracker,
+      ObjectProvider<ReadYourWrites> readYourWrites, ObjectProvider<MemberPagePrefetcher> prefetcher,
+      MeterRegistry meterRegistry,
+      @Value("${member.search.single-flight.max-wait-ms:10000}") long maxWaitMillis) {
+    this.memberRepository = memberRepository;
+    this.memberWriteTracker = memberWriteTracker;
+    this.readYourWrites = readYourWrites;
+    this.prefetcher = prefetcher;
+    this.maxWaitMillis = maxWaitMillis;
+    this.leaders = meterRegistry.counter("member.search.single_flight", "role", "leader");
+    this.followers = meterRegistry.counter("member.search.single_flight", "role", "follower");
+    this.bypassed = meterRegistry.counter("member.search.single_flight", "role", "bypass");
+  }
+
+  public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    return coalesce(new Key("search", condition.normalized(), null),
+        () -> List.copyOf(memberRepository.search(condition)));
+  }
+
+  public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+    return searchPage("searchPageSimple", condition, pageable, memberRepository::searchPageSimple);
+  }
+
+  public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+    return searchPage("searchPageComplex", condition, pageable, memberRepository::searchPageComplex);
+  }
+
+  private Page<MemberTeamDto> searchPage(String method, MemberSearchCondition condition, Pageable pageable,
+      BiFunction<MemberSearchCondition, Pageable, Page<MemberTeamDto>> query) {
+    MemberSearchCondition normalized = condition.normalized();
+    MemberPagePrefetcher prefetcher = this.prefetcher.getIfAvailable();
+    if (prefetcher == null || mustSeeOwnWrites()) {
+      return coalesce(new Key(method, normalized, pageable), () -> immutable(query.apply(condition, pageable)));
+    }
+    Page<MemberTeamDto> page = prefetcher.get(method, normalized, pageable);
+    if (page == null) {
+      page = coalesce(new Key(method, normalized, pageable), () -> immutable(query.apply(condition, pageable)));
+    }
+    prefetcher.prefetchNext(method, normalized, page,
+        next -> coalesce(new Key(method, normalized, next), () -> prefetch(query, normalized, next)));
+    return page;
+  }
+
+  /**
+   * 미리 읽기가 실패해도 같이 기다리던 요청에 예외를 넘기지 않도록 null 을 반환한다. (받은 쪽은 직접 실행한다)
+   */
+  private static Page<MemberTeamDto> prefetch(BiFunction<MemberSearchCondition, Pageable, Page<MemberTeamDto>> query,
+      MemberSearchCondition condition, Pageable pageable) {
+    try {
+      return immutable(query.apply(condition, pageable));
+    } catch (RuntimeException e) {
+      log.debug("prefetch query failed", e);
+      return null;
+    }
+  }
+
+  private boolean mustSeeOwnWrites() {
+    ReadYourWrites ryw = readYourWrites.getIfAvailable();
+    return memberWriteTracker.hasUncommittedWrites() || ryw != null && ryw.recentlyWrote();
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T coalesce(Key key, Supplier<T> query) {
+    if (mustSeeOwnWrites()) {
+      bypassed.increment();
+      return query.get();
+    }
+    Deadline deadline = Deadline.current();
+    long wait = deadline != null ? deadline.remainingMillis() : maxWaitMillis;
+    try {
+      SingleFlight.Result<Object> result = flights.execute(key, wait, (Supplier<Object>) query,
+          MemberSearchCoalescer::callerSpecific);
+      (result.leader() ? leaders : followers).increment();
+      if (result.value() == null && !result.leader()) {
+        // 기다린 미리 읽기가 실패했다.
+        bypassed.increment();
+        return query.get();
+      }
+      return (T) result.value();
+    } catch (TimeoutException e) {
+      if (deadline != null) {
+        throw new DeadlineExceededException(deadline.shape());
+      }
+      // 먼저 실행한 쪽이 너무 오래 걸리면 직접 실행한다.
+      bypassed.increment();
+      return query.get();
+    }
+  }
+
+  /**
+   * 먼저 실행한 요청의 기한 초과/한도 거절은 그 요청에만 해당하므로, 기다리던 요청은 결과를 받지 않고 다시 실행한다.
+   */
+  static boolean callerSpecific(Throwable failure) {
+    return failure instanceof DeadlineExceededException
+        || failure instanceof QueryTimeoutException
+        || failure instanceof jakarta.persistence.QueryTimeoutException
+        || failure instanceof ConcurrencyLimitExceededException
+        || failure instanceof ClientBudgetExhaustedException;
+  }
+
+  private static Page<MemberTeamDto> immutable(Page<MemberTeamDto> page) {
+    return new PageImpl<>(List.copyOf(page.getContent()), page.getPageable(), page.getTotalElements());
+  }
+
+  private record Key(String method, MemberSearchCondition condition, Pageable pageable) {
+  }
+}
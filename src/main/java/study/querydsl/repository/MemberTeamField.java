@@ -0,0 +1,69 @@
+package study.querydsl.repository;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.types.Expression;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+import lombok.Getter;
+
+/**
+ * MemberTeamDto 의 필드를 클라이언트가 골라서 조회할 수 있도록 필드명과 Querydsl 표현식을 매핑한다.
+ * teamId 는 member 의 FK 컬럼으로 조회되므로 team 조인이 필요한 필드는 teamName 뿐이다.
+ */
+@Getter
+public enum MemberTeamField {
+
+  MEMBER_ID("memberId", member.id, false),
+  USERNAME("username", member.username, false),
+  AGE("age", member.age, false),
+  TEAM_ID("teamId", member.team.id, false),
+  TEAM_NAME("teamName", team.name, true);
+
+  private final String fieldName;
+  private final Expression<?> expression;
+  private final boolean teamJoinRequired;
+
+  MemberTeamField(String fieldName, Expression<?> expression, boolean teamJoinRequired) {
+    this.fieldName = fieldName;
+    this.expression = expression;
+    this.teamJoinRequired = teamJoinRequired;
+  }
+
+  public static MemberTeamField of(String fieldName) {
+    for (MemberTeamField field : values()) {
+      if (field.fieldName.equals(fieldName)) {
+        return field;
+      }
+    }
+    throw new IllegalArgumentException("Unknown member field: " + fieldName);
+  }
+
+  /**
+   * 필드명 목록을 변환한다. 비어 있으면 전체 필드를 조회한다.
+   */
+  public static Set<MemberTeamField> parse(Collection<String> fieldNames) {
+    if (fieldNames == null || fieldNames.stream().allMatch(String::isBlank)) {
+      return EnumSet.allOf(MemberTeamField.class);
+    }
+    Set<MemberTeamField> fields = EnumSet.noneOf(MemberTeamField.class);
+    for (String fieldName : fieldNames) {
+      if (!fieldName.isBlank()) {
+        fields.add(of(fieldName.trim()));
+      }
+    }
+    return fields;
+  }
+
+  public static Expression<?>[] expressions(Set<MemberTeamField> fields) {
+    return fields.stream()
+        .map(MemberTeamField::getExpression)
+        .toArray(Expression<?>[]::new);
+  }
+
+  public static boolean anyTeamJoinRequired(Set<MemberTeamField> fields) {
+    return fields.stream().anyMatch(MemberTeamField::isTeamJoinRequired);
+  }
+}
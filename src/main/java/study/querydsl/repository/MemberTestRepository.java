@@ -14,13 +14,17 @@ import static study.querydsl.entity.QTeam.team;
 
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.entity.Member;
+import study.querydsl.repository.index.UsernameNgramIndex;
 import study.querydsl.repository.support.Querydsl4RepositorySupport;
 
 @Repository
 public class MemberTestRepository extends Querydsl4RepositorySupport {
 
-  public MemberTestRepository() {
+  private final UsernameNgramIndex usernameNgramIndex;
+
+  public MemberTestRepository(UsernameNgramIndex usernameNgramIndex) {
     super(Member.class);
+    this.usernameNgramIndex = usernameNgramIndex;
   }
 
   public List<Member> basicSelect() {
@@ -36,9 +40,13 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
 
   public Page<Member> searchPageByApplyPage(MemberSearchCondition condition,
       Pageable pageable) {
+    usernameNgramIndex.flushForSearch(condition);
     JPAQuery<Member> query = selectFrom(member)
         .leftJoin(member.team, team)
         .where(usernameEq(condition.getUsername()),
+            usernameIgnoreCaseEq(condition.getUsernameIgnoreCase()),
+            usernameContains(condition.getUsernameContains()),
+            usernameStartsWith(condition.getUsernameStartsWith()),
             teamNameEq(condition.getTeamName()),
             ageGoe(condition.getAgeGoe()),
             ageLoe(condition.getAgeLoe())
@@ -50,20 +58,28 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
 
   public Page<Member> applyPagination(MemberSearchCondition condition,
       Pageable pageable) {
+    usernameNgramIndex.flushForSearch(condition);
     return applyPagination(pageable, contentQuery -> contentQuery
         .selectFrom(member)
         .leftJoin(member.team, team)
         .where(usernameEq(condition.getUsername()),
+            usernameIgnoreCaseEq(condition.getUsernameIgnoreCase()),
+            usernameContains(condition.getUsernameContains()),
+            usernameStartsWith(condition.getUsernameStartsWith()),
             teamNameEq(condition.getTeamName()),
             ageGoe(condition.getAgeGoe()),
             ageLoe(condition.getAgeLoe())));
   }
   public Page<Member> applyPagination2(MemberSearchCondition condition,
       Pageable pageable) {
+    usernameNgramIndex.flushForSearch(condition);
     return applyPagination(pageable, contentQuery -> contentQuery
             .selectFrom(member)
             .leftJoin(member.team, team)
             .where(usernameEq(condition.getUsername()),
+                usernameIgnoreCaseEq(condition.getUsernameIgnoreCase()),
+                usernameContains(condition.getUsernameContains()),
+                usernameStartsWith(condition.getUsernameStartsWith()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe())),
@@ -71,6 +87,9 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
             .selectFrom(member)
             .leftJoin(member.team, team)
             .where(usernameEq(condition.getUsername()),
+                usernameIgnoreCaseEq(condition.getUsernameIgnoreCase()),
+                usernameContains(condition.getUsernameContains()),
+                usernameStartsWith(condition.getUsernameStartsWith()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe()))
@@ -79,6 +98,15 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
   private BooleanExpression usernameEq(String username) {
     return isEmpty(username) ? null : member.username.eq(username);
   }
+  private BooleanExpression usernameIgnoreCaseEq(String username) {
+    return isEmpty(username) ? null : member.usernameLower.eq(Member.normalizeUsername(username));
+  }
+  private BooleanExpression usernameContains(String term) {
+    return isEmpty(term) ? null : usernameNgramIndex.usernameContains(term);
+  }
+  private BooleanExpression usernameStartsWith(String prefix) {
+    return isEmpty(prefix) ? null : usernameNgramIndex.usernameStartsWith(prefix);
+  }
   private BooleanExpression teamNameEq(String teamName) {
     return isEmpty(teamName) ? null : team.name.eq(teamName);
   }
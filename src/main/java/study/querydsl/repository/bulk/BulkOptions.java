@@ -0,0 +1,39 @@
+package study.querydsl.repository.bulk;
+
+import java.util.function.Consumer;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 구간 단위 벌크 연산 설정.
+ */
+@Getter
+@Builder
+public class BulkOptions {
+
+  /**
+   * 구간 하나의 id 폭. 구간은 chunkSize 의 배수에서 시작하므로 재실행해도 같은 구간으로 나뉜다.
+   */
+  @Builder.Default
+  private final long chunkSize = 1000;
+
+  /**
+   * 동시에 실행할 구간 수.
+   */
+  @Builder.Default
+  private final int parallelism = 1;
+
+  /**
+   * 구간 사이에 쉬는 시간. (락 점유와 복제 지연을 줄이기 위해)
+   */
+  @Builder.Default
+  private final long pauseMillis = 0;
+
+  @Builder.Default
+  private final Consumer<BulkProgress> progressListener = progress -> {
+  };
+
+  public static BulkOptions defaults() {
+    return builder().build();
+  }
+}
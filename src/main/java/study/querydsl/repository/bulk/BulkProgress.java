@@ -0,0 +1,11 @@
+package study.querydsl.repository.bulk;
+
+/**
+ * 벌크 연산 진행 상황. (완료 구간 수에는 이전 실행에서 끝나서 건너뛴 구간도 포함된다)
+ */
+public record BulkProgress(String jobName, long completedChunks, long totalChunks, long affectedRows) {
+
+  public double ratio() {
+    return totalChunks == 0 ? 1 : (double) completedChunks / totalChunks;
+  }
+}
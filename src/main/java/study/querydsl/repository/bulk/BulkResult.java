@@ -0,0 +1,9 @@
+package study.querydsl.repository.bulk;
+
+/**
+ * @param chunks        실행한 구간 수
+ * @param skippedChunks 이전 실행에서 끝나서 건너뛴 구간 수
+ * @param affectedRows  이번 실행에서 변경된 행 수
+ */
+public record BulkResult(long chunks, long skippedChunks, long affectedRows, long millis) {
+}
@@ -0,0 +1,266 @@
+package study.querydsl.repository.bulk;
+
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.index.MemberBulkChangedEvent;
+import study.querydsl.repository.support.InClauseChunks;
+
+/**
+ * 회원 나이 증가({@code member.age.add(n)})를 메모리에 모았다가 주기적으로 한꺼번에 반영한다.
+ * <p>
+ * 회원마다 LongAdder 로 누적하므로 증가는 락 없이 처리되고, flush 는 누적값이 같은 회원끼리 묶어
+ * {@code update member set age = age + ? where id in (...)} 한 번으로 보낸다.
+ * 아직 반영되지 않은 증가분은 {@link #pendingDelta}/{@link #applyTo} 로 회원 조회 결과(DTO, 필드 선택 행)에 더할 수 있다.
+ * 조회 결과는 여러 요청이 공유할 수 있으므로 DTO 를 고치지 않고 복사본에 더한다.
+ * 나이 조건 검색과 팀 통계는 증가분을 모르므로 flush 주기만큼 늦게 반영된다.
+ * <p>
+ * flush 중인 세대는 update 트랜잭션의 커밋 직후(afterCommit) 조회 대상에서 빠지므로 DB 값과 두 번 더해지지 않는다.
+ * 실패하면 그 세대를 flush 중인 채로 두고 다음 flush 가 다시 시도한다. 종료 시에는 drain-attempts 번 시도하고,
+ * 그래도 남으면 남은 증가분을 로그로 남기고 예외를 던진다.
+ */
+@Slf4j
+@Component
+public class MemberAgeIncrementBuffer {
+
+  private final JPAQueryFactory queryFactory;
+  private final TransactionTemplate tx;
+  private final ApplicationEventPublisher eventPublisher;
+  private final int drainAttempts;
+  private final boolean sharding;
+
+  private volatile Buffers buffers = new Buffers(new Generation(), null);
+  private volatile boolean closed;
+
+  private final Counter increments;
+  private final Counter flushedRows;
+  private final Counter statements;
+
+  public MemberAgeIncrementBuffer(JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager,
+      ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+      @Value("${member.age-buffer.drain-attempts:3}") int drainAttempts,
+      @Value("${member.sharding.enabled:false}") boolean sharding) {
+    this.queryFactory = queryFactory;
+    this.tx = new TransactionTemplate(transactionManager);
+    this.eventPublisher = eventPublisher;
+    this.drainAttempts = drainAttempts;
+    this.sharding = sharding;
+    this.increments = meterRegistry.counter("member.age.buffer.increments");
+    this.flushedRows = meterRegistry.counter("member.age.buffer.flushed_rows");
+    this.statements = meterRegistry.counter("member.age.buffer.statements");
+  }
+
+  public void increment(long memberId, int delta) {
+    if (closed) {
+      throw new IllegalStateException("Age increment buffer is closed");
+    }
+    // flush 는 주 DB 의 회원을 고치므로, 샤딩을 켜면 받은 증가분이 어디에도 반영되지 않는다.
+    if (sharding) {
+      throw new IllegalStateException("Age increments are flushed to the primary database and are not supported with "
+          + "member.sharding.enabled");
+    }
+    add(memberId, delta);
+    increments.increment();
+  }
+
+  private void add(long memberId, long delta) {
+    while (true) {
+      Generation generation = buffers.current();
+      generation.writers.incrementAndGet();
+      try {
+        // flush 가 세대를 바꾼 뒤라면 이전 세대에 쓰지 않고 새 세대로 다시 시도한다.
+        if (generation == buffers.current()) {
+          generation.deltas.computeIfAbsent(memberId, id -> new LongAdder()).add(delta);
+          return;
+        }
+      } finally {
+        generation.writers.decrementAndGet();
+      }
+    }
+  }
+
+  public long pendingDelta(long memberId) {
+    Buffers snapshot = buffers;
+    long delta = snapshot.current().delta(memberId);
+    return snapshot.flushing() == null ? delta : delta + snapshot.flushing().delta(memberId);
+  }
+
+  /**
+   * 아직 반영되지 않은 증가분이 있으면 나이에 더한 복사본을, 없으면 dto 를 그대로 반환한다.
+   */
+  public MemberTeamDto applyTo(MemberTeamDto dto) {
+    long delta = pendingDelta(dto.getMemberId());
+    if (delta == 0) {
+      return dto;
+    }
+    return new MemberTeamDto(dto.getMemberId(), dto.getUsername(), Math.toIntExact(dto.getAge() + delta),
+        dto.getTeamId(), dto.getTeamName());
+  }
+
+  public List<MemberTeamDto> applyTo(List<MemberTeamDto> members) {
+    return members.stream().map(this::applyTo).toList();
+  }
+
+  /**
+   * 필드를 골라 조회한 행에 증가분을 더한 복사본. 행에는 memberId 와 age 가 있어야 하며,
+   * 클라이언트가 memberId 를 요청하지 않았으면(keepMemberId=false) 복사본에서 뺀다.
+   */
+  public Map<String, Object> applyTo(Map<String, Object> row, boolean keepMemberId) {
+    Long memberId = (Long) row.get("memberId");
+    long delta = memberId == null ? 0 : pendingDelta(memberId);
+    if (delta == 0 && keepMemberId) {
+      return row;
+    }
+    Map<String, Object> copy = new LinkedHashMap<>(row);
+    if (delta != 0 && copy.get("age") instanceof Integer age) {
+      copy.put("age", Math.toIntExact(age + delta));
+    }
+    if (!keepMemberId) {
+      copy.remove("memberId");
+    }
+    return copy;
+  }
+
+  @Scheduled(fixedDelayString = "${member.age-buffer.flush-interval-ms:1000}")
+  public void flush() {
+    flushOnce();
+  }
+
+  /**
+   * 이전에 실패한 세대가 있으면 그것을, 없으면 현재 세대를 반영한다.
+   *
+   * @return 반영했거나 반영할 것이 없으면 true
+   */
+  private synchronized boolean flushOnce() {
+    Generation drained = buffers.flushing();
+    if (drained == null) {
+      drained = buffers.current();
+      if (drained.deltas.isEmpty()) {
+        return true;
+      }
+      buffers = new Buffers(new Generation(), drained);
+      // 세대를 바꾼 뒤, 바꾸기 전에 이전 세대에 쓰기 시작한 증가가 끝날 때까지 기다린다.
+      while (drained.writers.get() > 0) {
+        Thread.onSpinWait();
+      }
+    }
+
+    Map<Long, List<Long>> idsByDelta = new TreeMap<>();
+    drained.deltas.forEach((id, adder) -> {
+      long delta = adder.sum();
+      if (delta != 0) {
+        idsByDelta.computeIfAbsent(delta, d -> new ArrayList<>()).add(id);
+      }
+    });
+    boolean[] committed = new boolean[1];
+    try {
+      List<Long> changed = new ArrayList<>();
+      tx.executeWithoutResult(status -> {
+        // 커밋되면 바로 조회 대상에서 뺀다. 이벤트 리스너보다 먼저 실행되도록 발행 전에 등록한다.
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            committed[0] = true;
+            buffers = new Buffers(buffers.current(), null);
+          }
+        });
+        idsByDelta.forEach((delta, ids) -> {
+          for (List<Long> chunk : InClauseChunks.split(ids)) {
+            queryFactory.update(member)
+                .set(member.age, member.age.add(Math.toIntExact(delta)))
+                .where(member.id.in(chunk))
+                .execute();
+            statements.increment();
+          }
+          changed.addAll(ids);
+        });
+        eventPublisher.publishEvent(MemberBulkChangedEvent.agesOf(changed));
+      });
+      flushedRows.increment(changed.size());
+      log.debug("flushed age increments for {} members in {} groups", changed.size(), idsByDelta.size());
+      return true;
+    } catch (RuntimeException e) {
+      if (committed[0]) {
+        // 커밋 후 리스너가 실패한 경우다. 증가분은 반영됐으므로 다시 시도하지 않는다.
+        log.warn("age increments were flushed but a commit listener failed", e);
+        return true;
+      }
+      // 반영하지 못한 세대는 flush 중인 채로 두어 조회에 계속 더해지고, 다음 flush 가 다시 시도한다.
+      log.warn("failed to flush age increments for {} members, will retry", drained.deltas.size(), e);
+      return false;
+    }
+  }
+
+  /**
+   * 종료 시 새 증가를 막고 남은 증가분을 모두 반영한다. 끝내 반영하지 못하면 잃어버린 증가분을 남기고 실패한다.
+   */
+  @PreDestroy
+  public void drain() {
+    closed = true;
+    int failures = 0;
+    while (buffers.flushing() != null || !buffers.current().deltas.isEmpty()) {
+      if (flushOnce()) {
+        continue;
+      }
+      if (++failures >= drainAttempts) {
+        Map<Long, Long> lost = new TreeMap<>();
+        for (Generation generation : new Generation[]{buffers.flushing(), buffers.current()}) {
+          if (generation != null) {
+            generation.deltas.forEach((id, adder) -> lost.merge(id, adder.sum(), Long::sum));
+          }
+        }
+        log.error("age increments could not be flushed on shutdown after {} attempts: {}", failures, lost);
+        throw new IllegalStateException("Age increments for " + lost.size() + " members were not flushed");
+      }
+      pause(failures);
+    }
+  }
+
+  private static void pause(int failures) {
+    try {
+      Thread.sleep(100L * failures);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while draining age increments", e);
+    }
+  }
+
+  /**
+   * 증가를 받는 세대와 flush 중인 세대. 조회가 두 값을 한 번에 읽도록 함께 바꾼다.
+   * flush 중인 세대는 커밋될 때까지 DB 에 없으므로 조회에 더한다.
+   */
+  private record Buffers(Generation current, Generation flushing) {
+  }
+
+  private static final class Generation {
+
+    final ConcurrentHashMap<Long, LongAdder> deltas = new ConcurrentHashMap<>();
+    final AtomicInteger writers = new AtomicInteger();
+
+    long delta(long memberId) {
+      LongAdder adder = deltas.get(memberId);
+      return adder == null ? 0 : adder.sum();
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package study.querydsl.repository.bulk;
+
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import jakarta.persistence.EntityManager;
+import java.util.List;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.index.MemberBulkChangedEvent;
+import study.querydsl.repository.support.PersistenceContextSupport;
+
+/**
+ * 한 트랜잭션에서 끝나는 Querydsl 벌크 update/delete. 실행 후 {@link MemberBulkChangedEvent} 를 같은 트랜잭션에서
+ * 발행하므로 커밋되면 메모리 색인/통계/읽기 모델이 바뀐 회원을 다시 읽는다.
+ * {@code queryFactory.update(member)} 를 직접 실행하면 이벤트가 없으므로 회원 벌크 변경은 이 클래스를 거친다.
+ * (id 구간으로 나눠 실행하려면 {@link MemberBulkOperations})
+ */
+@Component
+public class MemberBulkClauses {
+
+  private final EntityManager em;
+  private final JPAQueryFactory queryFactory;
+  private final ApplicationEventPublisher eventPublisher;
+  private final int maxEventIds;
+  private final boolean sharding;
+
+  public MemberBulkClauses(EntityManager em, JPAQueryFactory queryFactory, ApplicationEventPublisher eventPublisher,
+      @Value("${member.bulk.max-event-ids:10000}") int maxEventIds,
+      @Value("${member.sharding.enabled:false}") boolean sharding) {
+    this.em = em;
+    this.queryFactory = queryFactory;
+    this.eventPublisher = eventPublisher;
+    this.maxEventIds = maxEventIds;
+    this.sharding = sharding;
+  }
+
+  /**
+   * @param assignments {@code update -> update.set(member.username, "비회원")} 처럼 변경할 값을 지정한다.
+   */
+  @Transactional
+  public long update(Predicate where, Consumer<JPAUpdateClause> assignments) {
+    requireUnsharded();
+    // 변경할 값이 조건 컬럼을 바꿀 수 있으므로 대상 id 는 실행 전에 읽는다.
+    List<Long> ids = targetIds(where);
+    JPAUpdateClause update = queryFactory.update(member).where(where);
+    assignments.accept(update);
+    long count = update.execute();
+    afterBulkChange(ids);
+    return count;
+  }
+
+  @Transactional
+  public long delete(Predicate where) {
+    requireUnsharded();
+    List<Long> ids = targetIds(where);
+    long count = queryFactory.delete(member).where(where).execute();
+    afterBulkChange(ids);
+    return count;
+  }
+
+  /**
+   * 샤딩을 켜면 회원은 샤드에만 있으므로 주 DB 에 실행하면 아무것도 바뀌지 않는다.
+   */
+  private void requireUnsharded() {
+    if (sharding) {
+      throw new IllegalStateException("Member bulk clauses run on the primary database and are not supported with "
+          + "member.sharding.enabled");
+    }
+  }
+
+  private List<Long> targetIds(Predicate where) {
+    return queryFactory.select(member.id)
+        .from(member)
+        .where(where)
+        .limit(maxEventIds + 1L)
+        .fetch();
+  }
+
+  private void afterBulkChange(List<Long> ids) {
+    // 영속성 컨텍스트와 2차 캐시에 남은 회원은 DB 와 다를 수 있다.
+    PersistenceContextSupport.detachAll(em, Member.class);
+    em.getEntityManagerFactory().getCache().evict(Member.class);
+    // 대상이 너무 많으면 id 목록 대신 전체 재계산을 요청한다.
+    eventPublisher.publishEvent(ids.size() > maxEventIds
+        ? MemberBulkChangedEvent.all() : MemberBulkChangedEvent.of(ids));
+  }
+}
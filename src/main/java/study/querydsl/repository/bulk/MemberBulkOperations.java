@@ -0,0 +1,248 @@
+package study.querydsl.repository.bulk;
+
+import static study.querydsl.entity.QJobCheckpoint.jobCheckpoint;
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.concurrent.RepositoryExecutors;
+import study.querydsl.entity.JobCheckpoint;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.index.MemberBulkChangedEvent;
+import study.querydsl.repository.support.PersistenceContextSupport;
+
+/**
+ * Querydsl 벌크 update/delete 를 id 구간으로 나눠 구간마다 별도 트랜잭션으로 실행한다.
+ * 테이블 전체에 한 번에 락을 잡지 않고, 구간 사이에 쉬거나 여러 구간을 동시에 실행할 수 있다.
+ * <p>
+ * 끝난 구간은 같은 트랜잭션에서 {@link JobCheckpoint} 로 기록하므로, 실패한 작업을 같은 이름으로 다시 실행하면
+ * 남은 구간만 처리한다. 기록에는 구간 크기와 조건 해시도 남기므로, 같은 이름이라도 구간 크기나 조건이 다르면
+ * 이어서 실행하지 않고 거부한다. (다른 경계의 구간을 건너뛰면 일부 회원이 두 번 바뀌거나 빠진다)
+ * 기록 이름은 "bulk:" 으로 시작해서 StatelessBatchPipeline 의 작업과 이름이 겹쳐도 섞이지 않는다. 모든 구간이 끝나면 기록을 지우고, 호출한 쪽 영속성 컨텍스트의 회원을 준영속으로 만든 뒤
+ * {@link MemberBulkChangedEvent} 로 메모리 색인/통계를 다시 계산하게 한다.
+ */
+@Slf4j
+@Component
+public class MemberBulkOperations {
+
+  private static final String CHECKPOINT_PREFIX = "bulk:";
+
+  private final EntityManager em;
+  private final JPAQueryFactory queryFactory;
+  private final TransactionTemplate chunkTx;
+  private final ApplicationEventPublisher eventPublisher;
+  private final RepositoryExecutors executors;
+  private final boolean sharding;
+
+  public MemberBulkOperations(EntityManager em, JPAQueryFactory queryFactory,
+      PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+      RepositoryExecutors executors, @Value("${member.sharding.enabled:false}") boolean sharding) {
+    this.em = em;
+    this.queryFactory = queryFactory;
+    this.chunkTx = new TransactionTemplate(transactionManager);
+    this.chunkTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.eventPublisher = eventPublisher;
+    this.executors = executors;
+    this.sharding = sharding;
+  }
+
+  /**
+   * @param assignments {@code update -> update.set(member.age, member.age.add(1))} 처럼 변경할 값을 지정한다.
+   */
+  public BulkResult update(String jobName, Predicate where, Consumer<JPAUpdateClause> assignments,
+      BulkOptions options) {
+    return execute(jobName, "update", where, options, range -> {
+      JPAUpdateClause update = queryFactory.update(member)
+          .where(where, member.id.goe(range[0]), member.id.lt(range[1]));
+      assignments.accept(update);
+      return update.execute();
+    });
+  }
+
+  public BulkResult delete(String jobName, Predicate where, BulkOptions options) {
+    return execute(jobName, "delete", where, options, range -> queryFactory.delete(member)
+        .where(where, member.id.goe(range[0]), member.id.lt(range[1]))
+        .execute());
+  }
+
+  private BulkResult execute(String jobName, String kind, Predicate where, BulkOptions options,
+      ToLongFunction<long[]> statement) {
+    // 샤딩을 켜면 회원은 샤드에만 있어 주 DB 의 구간은 비어 있다. 아무것도 하지 않고 성공한 것처럼 끝나지 않게 거부한다.
+    if (sharding) {
+      throw new IllegalStateException("Bulk job " + jobName + " runs on the primary database and is not supported with "
+          + "member.sharding.enabled");
+    }
+    // 호출한 트랜잭션이 flush 하지 않은 변경은 새 트랜잭션의 구간 작업과 같은 행을 잠가 서로 기다리게 된다.
+    if (PersistenceContextSupport.hasPendingChanges(em)) {
+      throw new IllegalStateException("Flush or commit pending changes before running bulk job " + jobName);
+    }
+    long start = System.currentTimeMillis();
+    long chunkSize = options.getChunkSize();
+    int predicateHash = (kind + ":" + where).hashCode();
+    String checkpointName = CHECKPOINT_PREFIX + jobName;
+    Map<Long, Long> done = completedRanges(checkpointName, chunkSize, predicateHash);
+    List<long[]> ranges = ranges(where, chunkSize);
+    List<long[]> remaining = ranges.stream()
+        .filter(range -> !Long.valueOf(range[1]).equals(done.get(range[0])))
+        .toList();
+    long skipped = ranges.size() - remaining.size();
+
+    AtomicLong completed = new AtomicLong(skipped);
+    AtomicLong affectedRows = new AtomicLong();
+    try {
+      run(remaining, options.getParallelism(), range -> {
+        Long rows = chunkTx.execute(status -> {
+          long count = statement.applyAsLong(range);
+          em.persist(new JobCheckpoint(checkpointName, range[0], range[1], chunkSize, predicateHash, count));
+          return count;
+        });
+        BulkProgress progress = new BulkProgress(jobName, completed.incrementAndGet(), ranges.size(),
+            affectedRows.addAndGet(rows));
+        log.debug("bulk job {}: {}/{} chunks, {} rows", jobName, progress.completedChunks(),
+            progress.totalChunks(), progress.affectedRows());
+        options.getProgressListener().accept(progress);
+        pause(options.getPauseMillis());
+      });
+    } catch (RuntimeException e) {
+      log.warn("bulk job {} failed after {}/{} chunks; run it again with the same name to resume",
+          jobName, completed.get(), ranges.size(), e);
+      throw e;
+    } finally {
+      if (!remaining.isEmpty()) {
+        afterBulkChange();
+      }
+    }
+
+    chunkTx.executeWithoutResult(status -> queryFactory.delete(jobCheckpoint)
+        .where(jobCheckpoint.jobName.eq(checkpointName))
+        .execute());
+    BulkResult result = new BulkResult(remaining.size(), skipped, affectedRows.get(),
+        System.currentTimeMillis() - start);
+    log.info("bulk job {} finished: {} chunks ({} skipped), {} rows in {}ms", jobName, result.chunks(),
+        result.skippedChunks(), result.affectedRows(), result.millis());
+    return result;
+  }
+
+  /**
+   * 조건에 맞는 id 의 최소/최대 사이를 chunkSize 배수 경계로 나눈 [시작, 끝) 구간 목록.
+   */
+  private List<long[]> ranges(Predicate where, long chunkSize) {
+    Tuple bounds = queryFactory.select(member.id.min(), member.id.max())
+        .from(member)
+        .where(where)
+        .fetchOne();
+    List<long[]> ranges = new ArrayList<>();
+    if (bounds == null || bounds.get(member.id.min()) == null) {
+      return ranges;
+    }
+    long min = bounds.get(member.id.min());
+    long max = bounds.get(member.id.max());
+    for (long from = Math.floorDiv(min, chunkSize) * chunkSize; from <= max; from += chunkSize) {
+      ranges.add(new long[]{from, from + chunkSize});
+    }
+    return ranges;
+  }
+
+  /**
+   * 끝난 구간의 시작 -> 끝. 구간 크기나 조건이 다른 기록이 있으면 이어서 실행할 수 없으므로 예외를 던진다.
+   */
+  private Map<Long, Long> completedRanges(String checkpointName, long chunkSize, int predicateHash) {
+    List<JobCheckpoint> checkpoints = queryFactory.selectFrom(jobCheckpoint)
+        .where(jobCheckpoint.jobName.eq(checkpointName))
+        .fetch();
+    Map<Long, Long> done = new HashMap<>();
+    for (JobCheckpoint checkpoint : checkpoints) {
+      if (checkpoint.getChunkSize() != chunkSize || checkpoint.getPredicateHash() != predicateHash) {
+        throw new IllegalStateException("Bulk job " + checkpointName + " has checkpoints from a run with chunk size "
+            + checkpoint.getChunkSize() + " or a different statement; resume it with the same options"
+            + " or use another job name");
+      }
+      done.put(checkpoint.getRangeStart(), checkpoint.getRangeEnd());
+    }
+    return done;
+  }
+
+  /**
+   * parallelism 개의 작업자가 구간을 하나씩 가져가 실행한다. 하나라도 실패하면 새 구간은 시작하지 않는다.
+   */
+  private void run(List<long[]> ranges, int parallelism, Consumer<long[]> chunk) {
+    if (parallelism <= 1 || ranges.size() <= 1) {
+      ranges.forEach(chunk);
+      return;
+    }
+    AtomicInteger next = new AtomicInteger();
+    AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    int workers = Math.min(parallelism, ranges.size());
+    ExecutorService executor = executors.dedicated("bulk", workers);
+    try {
+      List<Future<?>> futures = new ArrayList<>(workers);
+      for (int i = 0; i < workers; i++) {
+        futures.add(executor.submit(() -> {
+          int index;
+          while (failure.get() == null && (index = next.getAndIncrement()) < ranges.size()) {
+            try {
+              chunk.accept(ranges.get(index));
+            } catch (RuntimeException e) {
+              failure.compareAndSet(null, e);
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while running bulk chunks", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+  }
+
+  private void afterBulkChange() {
+    // 호출한 쪽 영속성 컨텍스트와 2차 캐시에 남은 회원은 DB 와 다를 수 있다.
+    PersistenceContextSupport.detachAll(em, Member.class);
+    em.getEntityManagerFactory().getCache().evict(Member.class);
+    // 구간들은 이미 커밋됐으므로 별도 트랜잭션에서 발행해서 바로 반영되게 한다.
+    chunkTx.executeWithoutResult(status -> eventPublisher.publishEvent(MemberBulkChangedEvent.all()));
+  }
+
+  private static void pause(long millis) {
+    if (millis <= 0) {
+      return;
+    }
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while throttling bulk job", e);
+    }
+  }
+}
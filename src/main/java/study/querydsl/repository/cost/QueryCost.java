@@ -0,0 +1,40 @@
+package study.querydsl.repository.cost;
+
+/**
+ * 페이지 검색 한 번이 DB 에서 다루는 행 수의 추정치. 단위는 행이다.
+ *
+ * @param scanned 조건을 평가하려고 읽는 행 (내용 쿼리와 count 쿼리 합계)
+ * @param skipped offset 때문에 읽고 버리는 행
+ * @param sorted  인덱스 순서로 읽을 수 없어 정렬해야 하는 행
+ * @param returned 돌려주는 행
+ */
+public record QueryCost(double scanned, double skipped, double sorted, double returned) {
+
+  public double total() {
+    return scanned + skipped + sorted + returned;
+  }
+
+  /**
+   * 비용이 가장 큰 항목. 거절할 때 무엇을 줄여야 하는지 알려주는 데 쓴다.
+   */
+  public Part dominant() {
+    Part dominant = Part.SCAN;
+    double max = scanned;
+    if (skipped > max) {
+      dominant = Part.OFFSET;
+      max = skipped;
+    }
+    if (sorted > max) {
+      dominant = Part.SORT;
+      max = sorted;
+    }
+    if (returned > max) {
+      dominant = Part.SIZE;
+    }
+    return dominant;
+  }
+
+  public enum Part {
+    SCAN, OFFSET, SORT, SIZE
+  }
+}
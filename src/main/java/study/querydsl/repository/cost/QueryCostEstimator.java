@@ -0,0 +1,138 @@
+package study.querydsl.repository.cost;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.TeamStatisticsDto;
+import study.querydsl.repository.MemberTeamField;
+import study.querydsl.repository.index.TeamStatistics;
+
+/**
+ * 회원 페이지 검색의 비용을 쿼리를 실행하지 않고 추정한다.
+ * <p>
+ * 전체 회원 수/팀 수/나이 범위는 메모리 통계({@link TeamStatistics})에서 가져오고, 조건마다 고정된 선택도를 곱한다.
+ * 인덱스로 좁힐 수 있는 조건(username, usernameIgnoreCase, usernameStartsWith, teamName)이 있으면 그만큼만 읽고,
+ * 없으면 전체를 읽는다고 본다. 인덱스 순서로 읽을 수 없는 정렬(age, teamName 등)은 조건에 맞는 행을 모두 정렬한다.
+ * 실제 실행 계획보다 크게 잡는 쪽으로 추정한다.
+ */
+@Component
+public class QueryCostEstimator {
+
+  static final double CONTAINS_SELECTIVITY = 0.1;
+  static final double PREFIX_CHAR_SELECTIVITY = 0.1;
+  private static final long STATS_REFRESH_NANOS = 1_000_000_000L;
+
+  /**
+   * 이 순서로 정렬하면 인덱스를 따라 읽으며 바로 멈출 수 있다.
+   */
+  private static final List<List<MemberTeamField>> INDEXED_ORDERS = List.of(
+      List.of(MemberTeamField.MEMBER_ID),
+      List.of(MemberTeamField.USERNAME),
+      List.of(MemberTeamField.USERNAME, MemberTeamField.MEMBER_ID));
+
+  private final TeamStatistics teamStatistics;
+
+  private volatile TableStats stats;
+  private volatile long statsReadAtNanos;
+
+  public QueryCostEstimator(TeamStatistics teamStatistics) {
+    this.teamStatistics = teamStatistics;
+  }
+
+  /**
+   * @throws IllegalArgumentException 정렬할 수 없는 속성이 있으면
+   */
+  public QueryCost estimate(MemberSearchCondition condition, Pageable pageable) {
+    return estimate(condition, pageable, stats());
+  }
+
+  static QueryCost estimate(MemberSearchCondition condition, Pageable pageable, TableStats stats) {
+    double rows = Math.max(1, stats.members());
+    double oneRow = 1 / rows;
+    double indexed = 1;
+    double selectivity = 1;
+
+    if (hasText(condition.getUsername())) {
+      indexed = Math.min(indexed, oneRow);
+    }
+    if (hasText(condition.getUsernameIgnoreCase())) {
+      indexed = Math.min(indexed, oneRow);
+    }
+    if (hasText(condition.getUsernameStartsWith())) {
+      double prefix = Math.pow(PREFIX_CHAR_SELECTIVITY, condition.getUsernameStartsWith().length());
+      indexed = Math.min(indexed, Math.max(prefix, oneRow));
+    }
+    if (hasText(condition.getTeamName())) {
+      indexed = Math.min(indexed, 1.0 / Math.max(1, stats.teams()));
+    }
+    if (hasText(condition.getUsernameContains())) {
+      selectivity *= CONTAINS_SELECTIVITY;
+    }
+    selectivity *= ageSelectivity(condition.getAgeGoe(), condition.getAgeLoe(), stats);
+
+    double scanRange = rows * indexed;
+    double matched = scanRange * selectivity;
+    if (pageable.isUnpaged()) {
+      return new QueryCost(scanRange, 0, sortRequired(pageable.getSort()) ? matched : 0, matched);
+    }
+    double offset = pageable.getOffset();
+    boolean sortRequired = sortRequired(pageable.getSort());
+    // 정렬하지 않아도 되면 내용 쿼리는 offset + size 개를 찾은 뒤 멈춘다. count 쿼리는 끝까지 읽는다.
+    double contentScan = sortRequired ? scanRange
+        : Math.min(scanRange, (offset + pageable.getPageSize()) / Math.max(selectivity, oneRow));
+    double skipped = Math.min(offset, matched);
+    double sorted = sortRequired ? matched : 0;
+    double returned = Math.min(pageable.getPageSize(), Math.max(0, matched - offset));
+    return new QueryCost(contentScan + scanRange, skipped, sorted, returned);
+  }
+
+  private static double ageSelectivity(Integer goe, Integer loe, TableStats stats) {
+    if (goe == null && loe == null || stats.minAge() == null) {
+      return 1;
+    }
+    int min = stats.minAge();
+    int max = stats.maxAge();
+    int from = goe == null ? min : Math.max(goe, min);
+    int to = loe == null ? max : Math.min(loe, max);
+    if (from > to) {
+      return 0;
+    }
+    return (double) (to - from + 1) / (max - min + 1);
+  }
+
+  static boolean sortRequired(Sort sort) {
+    if (sort.isUnsorted()) {
+      return false;
+    }
+    List<MemberTeamField> fields = sort.stream().map(order -> MemberTeamField.of(order.getProperty())).toList();
+    Set<Sort.Direction> directions = EnumSet.noneOf(Sort.Direction.class);
+    sort.forEach(order -> directions.add(order.getDirection()));
+    // 방향이 섞이면 인덱스를 한 방향으로 읽을 수 없다.
+    return directions.size() > 1 || !INDEXED_ORDERS.contains(fields);
+  }
+
+  private TableStats stats() {
+    TableStats current = stats;
+    long now = System.nanoTime();
+    if (current == null || now - statsReadAtNanos > STATS_REFRESH_NANOS) {
+      TeamStatisticsDto overall = teamStatistics.overall();
+      current = new TableStats(overall.getMemberCount(), teamStatistics.teams().size(), overall.getAgeMin(),
+          overall.getAgeMax());
+      stats = current;
+      statsReadAtNanos = now;
+    }
+    return current;
+  }
+
+  /**
+   * 추정에 쓰는 테이블 통계. 회원이 없으면 나이 범위는 null 이다.
+   */
+  record TableStats(long members, int teams, Integer minAge, Integer maxAge) {
+  }
+}
@@ -0,0 +1,22 @@
+package study.querydsl.repository.cost;
+
+import lombok.Getter;
+
+/**
+ * 추정 비용이 요청 하나에 허용하는 상한을 넘었다. 웹 계층에서는 400 과 줄이는 방법으로 응답한다.
+ */
+@Getter
+public class QueryCostExceededException extends RuntimeException {
+
+  private final QueryCost cost;
+  private final double maxCost;
+  private final String suggestion;
+
+  public QueryCostExceededException(QueryCost cost, double maxCost, String suggestion) {
+    super(String.format("Estimated query cost %.0f rows exceeds the limit of %.0f rows. %s", cost.total(), maxCost,
+        suggestion));
+    this.cost = cost;
+    this.maxCost = maxCost;
+    this.suggestion = suggestion;
+  }
+}
@@ -0,0 +1,33 @@
+package study.querydsl.repository.index;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Querydsl 벌크 update/delete 처럼 엔티티 리스너를 거치지 않고 회원을 변경했을 때 발행하는 재계산 이벤트.
+ * 메모리 구조들은 커밋 후 해당 회원들을 DB 에서 다시 읽는다.
+ *
+ * @param memberIds       변경된 회원 id, null 이면 전체
+ * @param usernameChanged username 이 바뀌었을 수 있는지 (false 면 username 색인은 다시 만들지 않는다)
+ */
+public record MemberBulkChangedEvent(List<Long> memberIds, boolean usernameChanged) {
+
+  public static MemberBulkChangedEvent all() {
+    return new MemberBulkChangedEvent(null, true);
+  }
+
+  public static MemberBulkChangedEvent of(Collection<Long> memberIds) {
+    return new MemberBulkChangedEvent(List.copyOf(memberIds), true);
+  }
+
+  /**
+   * 나이만 바뀐 회원들.
+   */
+  public static MemberBulkChangedEvent agesOf(Collection<Long> memberIds) {
+    return new MemberBulkChangedEvent(List.copyOf(memberIds), false);
+  }
+
+  public boolean isAll() {
+    return memberIds == null;
+  }
+}
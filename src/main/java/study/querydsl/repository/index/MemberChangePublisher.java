@@ -0,0 +1,74 @@
+package study.querydsl.repository.index;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import java.util.function.Supplier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.support.LongArrayList;
+
+/**
+ * Member 의 insert/update/delete 를 {@link MemberChangedEvent} 로 발행한다.
+ * 벌크 update/delete 는 엔티티 리스너를 거치지 않으므로 이벤트가 발행되지 않는다.
+ * <p>
+ * 대량 저장 중에는({@link #collectingIds}) 회원마다 발행하지 않고 id 만 모은다. 회원마다 발행하면 커밋 후 리스너가
+ * 건마다 트랜잭션 동기화로 등록되어 메모리가 저장 건수만큼 늘어나므로, 호출한 쪽이 모은 id 로
+ * {@link MemberBulkChangedEvent} 를 한 번 발행한다.
+ */
+@Component
+public class MemberChangePublisher {
+
+  private static final Object COLLECTING = MemberChangePublisher.class.getName() + ".COLLECTING";
+
+  private final ApplicationEventPublisher eventPublisher;
+
+  public MemberChangePublisher(ApplicationEventPublisher eventPublisher) {
+    this.eventPublisher = eventPublisher;
+  }
+
+  /**
+   * action 실행 중 flush 되는 회원 id 를 ids 에 모으고 회원별 이벤트는 발행하지 않는다.
+   */
+  public static <T> T collectingIds(LongArrayList ids, Supplier<T> action) {
+    TransactionSynchronizationManager.bindResource(COLLECTING, ids);
+    try {
+      return action.get();
+    } finally {
+      TransactionSynchronizationManager.unbindResource(COLLECTING);
+    }
+  }
+
+  /**
+   * 회원별 변경을 모으는 중인지. 같은 flush 에서 회원별로 일하는 다른 리스너도 이때는 건너뛴다.
+   */
+  public static boolean isCollecting() {
+    return TransactionSynchronizationManager.hasResource(COLLECTING);
+  }
+
+  private static boolean collect(Member member) {
+    LongArrayList ids = (LongArrayList) TransactionSynchronizationManager.getResource(COLLECTING);
+    if (ids == null) {
+      return false;
+    }
+    ids.add(member.getId());
+    return true;
+  }
+
+  @PostPersist
+  @PostUpdate
+  public void onSaved(Member member) {
+    if (!collect(member)) {
+      eventPublisher.publishEvent(MemberChangedEvent.saved(member));
+    }
+  }
+
+  @PostRemove
+  public void onDeleted(Member member) {
+    if (!collect(member)) {
+      eventPublisher.publishEvent(MemberChangedEvent.deleted(member));
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package study.querydsl.repository.index;
+
+import study.querydsl.entity.Member;
+
+/**
+ * 회원이 flush 될 때 발행되는 변경 이벤트. 메모리 인덱스들이 이 이벤트로 갱신된다.
+ * 커밋 후에만 반영해야 하는 구독자는 {@code @TransactionalEventListener} 로 받는다.
+ */
+public record MemberChangedEvent(Type type, Long memberId, String username, int age, Long teamId) {
+
+  public enum Type {
+    SAVED, DELETED
+  }
+
+  public static MemberChangedEvent saved(Member member) {
+    return of(Type.SAVED, member);
+  }
+
+  public static MemberChangedEvent deleted(Member member) {
+    return of(Type.DELETED, member);
+  }
+
+  private static MemberChangedEvent of(Type type, Member member) {
+    Long teamId = member.getTeam() == null ? null : member.getTeam().getId();
+    return new MemberChangedEvent(type, member.getId(), member.getUsername(), member.getAge(), teamId);
+  }
+
+  public boolean isDeleted() {
+    return type == Type.DELETED;
+  }
+}
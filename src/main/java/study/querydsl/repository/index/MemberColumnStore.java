@@ -0,0 +1,486 @@
+package study.querydsl.repository.index;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.AgeStatisticsDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.InClauseChunks;
+
+/**
+ * 나이 범위 조건과 나이 집계를 DB 대신 메모리에서 처리하기 위한 Member 의 컬럼형 복제본.
+ * (member.column-store.enabled=true 일 때만 등록된다)
+ * <p>
+ * id/팀 id 는 long[], 나이는 int[], username 은 사전 코드(int[])로 저장하고, 조회는 배열을 순서대로 훑는
+ * 단순한 반복문으로 처리한다. 행이 많으면 구간을 나눠 fork-join 공용 풀에서 병렬로 계산한다.
+ * 변경은 커밋 후 {@link MemberChangedEvent}/{@link TeamChangedEvent} 로 반영하며,
+ * 벌크 update/delete 는 {@link MemberBulkChangedEvent} 를 받으면 다시 적재한다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "member.column-store.enabled", havingValue = "true")
+public class MemberColumnStore {
+
+  static final int SEGMENT_SIZE = 1 << 16;
+
+  private final JPAQueryFactory queryFactory;
+  private final TransactionTemplate readOnlyTx;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private Columns columns = new Columns();
+  private Map<Long, String> teamNames = new HashMap<>();
+  private boolean loading = true;
+  private final List<Object> pendingEvents = new ArrayList<>();
+
+  public MemberColumnStore(JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager) {
+    this.queryFactory = queryFactory;
+    this.readOnlyTx = new TransactionTemplate(transactionManager);
+    this.readOnlyTx.setReadOnly(true);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void reload() {
+    long start = System.currentTimeMillis();
+    lock.writeLock().lock();
+    try {
+      loading = true;
+      pendingEvents.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    Columns next = new Columns();
+    Map<Long, String> names = new HashMap<>();
+    readOnlyTx.executeWithoutResult(status -> {
+      queryFactory.select(team.id, team.name).from(team).fetch()
+          .forEach(row -> names.put(row.get(team.id), row.get(team.name)));
+      try (Stream<Tuple> rows = queryFactory
+          .select(member.id, member.username, member.age, member.team.id)
+          .from(member)
+          .stream()) {
+        rows.forEach(row -> next.upsert(row.get(member.id), row.get(member.username),
+            row.get(member.age), teamIdOrZero(row.get(member.team.id))));
+      }
+    });
+
+    lock.writeLock().lock();
+    try {
+      columns = next;
+      teamNames = names;
+      // 적재하는 동안 커밋된 변경을 순서대로 다시 적용한다. (전체 상태를 담은 이벤트라 중복 적용해도 된다)
+      pendingEvents.forEach(this::apply);
+      pendingEvents.clear();
+      loading = false;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    log.info("member column store loaded: {} rows in {}ms", next.size, System.currentTimeMillis() - start);
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onMemberCommitted(MemberChangedEvent event) {
+    enqueueOrApply(event);
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onTeamCommitted(TeamChangedEvent event) {
+    enqueueOrApply(event);
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onBulkCommitted(MemberBulkChangedEvent event) {
+    if (event.isAll()) {
+      reload();
+    } else {
+      refresh(event.memberIds());
+    }
+  }
+
+  /**
+   * 주어진 회원들을 DB 에서 다시 읽어 반영한다. 없어진 회원은 삭제한다.
+   */
+  public void refresh(List<Long> memberIds) {
+    List<MemberChangedEvent> events = new ArrayList<>(memberIds.size());
+    readOnlyTx.executeWithoutResult(status -> {
+      for (List<Long> chunk : InClauseChunks.split(memberIds)) {
+        Set<Long> missing = new HashSet<>(chunk);
+        for (Tuple row : queryFactory
+            .select(member.id, member.username, member.age, member.team.id)
+            .from(member)
+            .where(member.id.in(chunk))
+            .fetch()) {
+          missing.remove(row.get(member.id));
+          events.add(new MemberChangedEvent(MemberChangedEvent.Type.SAVED, row.get(member.id),
+              row.get(member.username), row.get(member.age), row.get(member.team.id)));
+        }
+        missing.forEach(id -> events.add(new MemberChangedEvent(MemberChangedEvent.Type.DELETED, id, null, 0, null)));
+      }
+    });
+    events.forEach(this::enqueueOrApply);
+  }
+
+  private void enqueueOrApply(Object event) {
+    lock.writeLock().lock();
+    try {
+      if (loading) {
+        pendingEvents.add(event);
+      } else {
+        apply(event);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void apply(Object event) {
+    if (event instanceof MemberChangedEvent e) {
+      if (e.isDeleted()) {
+        columns.delete(e.memberId());
+      } else {
+        columns.upsert(e.memberId(), e.username(), e.age(), teamIdOrZero(e.teamId()));
+      }
+    } else if (event instanceof TeamChangedEvent e) {
+      if (e.isDeleted()) {
+        teamNames.remove(e.teamId());
+      } else {
+        teamNames.put(e.teamId(), e.name());
+      }
+    }
+  }
+
+  /**
+   * 적재가 끝났고, 메모리에서 처리할 수 있는 조건(username 일치, 팀명, 나이 범위)만 있는지 확인한다.
+   */
+  public boolean supports(MemberSearchCondition condition) {
+    lock.readLock().lock();
+    try {
+      if (loading) {
+        return false;
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return !hasText(condition.getUsernameIgnoreCase())
+        && !hasText(condition.getUsernameContains())
+        && !hasText(condition.getUsernameStartsWith());
+  }
+
+  public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    lock.readLock().lock();
+    try {
+      Filter filter = filter(condition);
+      if (filter == null) {
+        return List.of();
+      }
+      int[] slots = segments(columns.size)
+          .mapToObj(range -> columns.match(filter, range[0], range[1]))
+          .flatMapToInt(Arrays::stream)
+          .toArray();
+      List<MemberTeamDto> result = new ArrayList<>(slots.length);
+      for (int slot : slots) {
+        long teamId = columns.teamIds[slot];
+        result.add(new MemberTeamDto(columns.ids[slot], columns.username(slot), columns.ages[slot],
+            teamId == 0 ? null : teamId, teamId == 0 ? null : teamNames.get(teamId)));
+      }
+      result.sort(Comparator.comparing(MemberTeamDto::getMemberId));
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public AgeStatisticsDto ageStatistics(MemberSearchCondition condition) {
+    lock.readLock().lock();
+    try {
+      Filter filter = filter(condition);
+      if (filter == null) {
+        return new AgeStatisticsDto(null, 0, 0, null, null, null);
+      }
+      Partial total = segments(columns.size)
+          .mapToObj(range -> columns.aggregate(filter, range[0], range[1]))
+          .reduce(new Partial(), Partial::merge);
+      return total.toDto(null);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * 팀 이름별 나이 집계. 팀이 없는 회원은 제외한다. (inner join + group by team.name 과 같은 결과)
+   */
+  public List<AgeStatisticsDto> ageStatisticsByTeam(MemberSearchCondition condition) {
+    lock.readLock().lock();
+    try {
+      Filter filter = filter(condition);
+      if (filter == null) {
+        return List.of();
+      }
+      long[] teamIds = teamNames.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+      Partial[] byTeam = segments(columns.size)
+          .mapToObj(range -> columns.aggregateByTeam(filter, teamIds, range[0], range[1]))
+          .reduce(Partial::mergeAll)
+          .orElseGet(() -> Partial.array(teamIds.length));
+
+      Map<String, Partial> byName = new TreeMap<>();
+      for (int i = 0; i < teamIds.length; i++) {
+        if (byTeam[i].count > 0) {
+          byName.merge(teamNames.get(teamIds[i]), byTeam[i], Partial::merge);
+        }
+      }
+      return byName.entrySet().stream()
+          .map(entry -> entry.getValue().toDto(entry.getKey()))
+          .toList();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private Filter filter(MemberSearchCondition condition) {
+    int usernameCode = Filter.ANY;
+    if (hasText(condition.getUsername())) {
+      Integer code = columns.codes.get(condition.getUsername());
+      if (code == null) {
+        return null;
+      }
+      usernameCode = code;
+    }
+    long[] teamIds = null;
+    if (hasText(condition.getTeamName())) {
+      teamIds = teamNames.entrySet().stream()
+          .filter(entry -> condition.getTeamName().equals(entry.getValue()))
+          .mapToLong(Map.Entry::getKey)
+          .toArray();
+      if (teamIds.length == 0) {
+        return null;
+      }
+    }
+    return new Filter(
+        condition.getAgeGoe() == null ? Integer.MIN_VALUE : condition.getAgeGoe(),
+        condition.getAgeLoe() == null ? Integer.MAX_VALUE : condition.getAgeLoe(),
+        usernameCode, teamIds);
+  }
+
+  /**
+   * 행이 많으면 SEGMENT_SIZE 단위 구간으로 나눈 병렬 스트림(fork-join 공용 풀)을 반환한다.
+   */
+  private static Stream<int[]> segments(int size) {
+    int count = Math.max(1, (size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+    Stream<int[]> ranges = IntStream.range(0, count)
+        .mapToObj(i -> new int[]{i * SEGMENT_SIZE, Math.min(size, (i + 1) * SEGMENT_SIZE)});
+    return count > 1 ? ranges.parallel() : ranges;
+  }
+
+  private static long teamIdOrZero(Long teamId) {
+    return teamId == null ? 0 : teamId;
+  }
+
+  record Filter(int ageMin, int ageMax, int usernameCode, long[] teamIds) {
+
+    static final int ANY = -1;
+
+    boolean teamMatches(long teamId) {
+      if (teamIds == null) {
+        return true;
+      }
+      for (long id : teamIds) {
+        if (id == teamId) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  static final class Partial {
+
+    long count;
+    long sum;
+    int max = Integer.MIN_VALUE;
+    int min = Integer.MAX_VALUE;
+
+    void add(int age) {
+      count++;
+      sum += age;
+      if (age > max) {
+        max = age;
+      }
+      if (age < min) {
+        min = age;
+      }
+    }
+
+    Partial merge(Partial other) {
+      Partial merged = new Partial();
+      merged.count = count + other.count;
+      merged.sum = sum + other.sum;
+      merged.max = Math.max(max, other.max);
+      merged.min = Math.min(min, other.min);
+      return merged;
+    }
+
+    static Partial[] array(int length) {
+      Partial[] partials = new Partial[length];
+      for (int i = 0; i < length; i++) {
+        partials[i] = new Partial();
+      }
+      return partials;
+    }
+
+    static Partial[] mergeAll(Partial[] left, Partial[] right) {
+      Partial[] merged = new Partial[left.length];
+      for (int i = 0; i < left.length; i++) {
+        merged[i] = left[i].merge(right[i]);
+      }
+      return merged;
+    }
+
+    AgeStatisticsDto toDto(String teamName) {
+      if (count == 0) {
+        return new AgeStatisticsDto(teamName, 0, 0, null, null, null);
+      }
+      return new AgeStatisticsDto(teamName, count, sum, (double) sum / count, max, min);
+    }
+  }
+
+  /**
+   * 실제 컬럼 데이터. 삭제 시 마지막 행을 빈 자리로 옮겨 배열을 항상 빈틈없이 유지한다.
+   * 동기화는 바깥의 lock 으로 한다.
+   */
+  static final class Columns {
+
+    long[] ids = new long[1024];
+    int[] ages = new int[1024];
+    long[] teamIds = new long[1024];
+    int[] usernameCodes = new int[1024];
+    int size;
+
+    final Map<Long, Integer> slots = new HashMap<>();
+    final List<String> dictionary = new ArrayList<>();
+    final Map<String, Integer> codes = new HashMap<>();
+
+    void upsert(long id, String username, int age, long teamId) {
+      Integer slot = slots.get(id);
+      if (slot == null) {
+        if (size == ids.length) {
+          grow();
+        }
+        slot = size++;
+        slots.put(id, slot);
+        ids[slot] = id;
+      }
+      ages[slot] = age;
+      teamIds[slot] = teamId;
+      usernameCodes[slot] = code(username);
+    }
+
+    void delete(long id) {
+      Integer slot = slots.remove(id);
+      if (slot == null) {
+        return;
+      }
+      int last = --size;
+      if (slot != last) {
+        ids[slot] = ids[last];
+        ages[slot] = ages[last];
+        teamIds[slot] = teamIds[last];
+        usernameCodes[slot] = usernameCodes[last];
+        slots.put(ids[slot], slot);
+      }
+    }
+
+    String username(int slot) {
+      int code = usernameCodes[slot];
+      return code == Filter.ANY ? null : dictionary.get(code);
+    }
+
+    int[] match(Filter filter, int from, int to) {
+      int[] matched = new int[to - from];
+      int count = 0;
+      for (int i = from; i < to; i++) {
+        int age = ages[i];
+        if (age >= filter.ageMin() && age <= filter.ageMax()
+            && (filter.usernameCode() == Filter.ANY || usernameCodes[i] == filter.usernameCode())
+            && filter.teamMatches(teamIds[i])) {
+          matched[count++] = i;
+        }
+      }
+      return Arrays.copyOf(matched, count);
+    }
+
+    Partial aggregate(Filter filter, int from, int to) {
+      Partial partial = new Partial();
+      for (int i = from; i < to; i++) {
+        int age = ages[i];
+        if (age >= filter.ageMin() && age <= filter.ageMax()
+            && (filter.usernameCode() == Filter.ANY || usernameCodes[i] == filter.usernameCode())
+            && filter.teamMatches(teamIds[i])) {
+          partial.add(age);
+        }
+      }
+      return partial;
+    }
+
+    Partial[] aggregateByTeam(Filter filter, long[] sortedTeamIds, int from, int to) {
+      Partial[] partials = Partial.array(sortedTeamIds.length);
+      for (int i = from; i < to; i++) {
+        int age = ages[i];
+        if (teamIds[i] != 0 && age >= filter.ageMin() && age <= filter.ageMax()
+            && (filter.usernameCode() == Filter.ANY || usernameCodes[i] == filter.usernameCode())
+            && filter.teamMatches(teamIds[i])) {
+          int team = Arrays.binarySearch(sortedTeamIds, teamIds[i]);
+          if (team >= 0) {
+            partials[team].add(age);
+          }
+        }
+      }
+      return partials;
+    }
+
+    private int code(String username) {
+      if (username == null) {
+        return Filter.ANY;
+      }
+      Integer code = codes.get(username);
+      if (code == null) {
+        code = dictionary.size();
+        dictionary.add(username);
+        codes.put(username, code);
+      }
+      return code;
+    }
+
+    private void grow() {
+      int capacity = ids.length * 2;
+      ids = Arrays.copyOf(ids, capacity);
+      ages = Arrays.copyOf(ages, capacity);
+      teamIds = Arrays.copyOf(teamIds, capacity);
+      usernameCodes = Arrays.copyOf(usernameCodes, capacity);
+    }
+  }
+}
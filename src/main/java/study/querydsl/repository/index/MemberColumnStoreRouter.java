@@ -0,0 +1,33 @@
+package study.querydsl.repository.index;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * 검색 조건을 컬럼형 복제본에서 처리할 수 있는지 판단한다.
+ * 복제본이 비활성화되었거나, 지원하지 않는 조건이거나, 현재 트랜잭션에 커밋되지 않은 변경이 있으면 DB 로 보낸다.
+ */
+@Component
+public class MemberColumnStoreRouter {
+
+  private final ObjectProvider<MemberColumnStore> memberColumnStore;
+  private final MemberWriteTracker memberWriteTracker;
+
+  public MemberColumnStoreRouter(ObjectProvider<MemberColumnStore> memberColumnStore,
+      MemberWriteTracker memberWriteTracker) {
+    this.memberColumnStore = memberColumnStore;
+    this.memberWriteTracker = memberWriteTracker;
+  }
+
+  /**
+   * @return 처리할 수 있으면 컬럼형 복제본, 아니면 null
+   */
+  public MemberColumnStore route(MemberSearchCondition condition) {
+    MemberColumnStore store = memberColumnStore.getIfAvailable();
+    if (store == null || !store.supports(condition) || memberWriteTracker.hasUncommittedWrites()) {
+      return null;
+    }
+    return store;
+  }
+}
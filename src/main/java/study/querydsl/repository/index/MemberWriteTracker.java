@@ -0,0 +1,61 @@
+package study.querydsl.repository.index;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.repository.support.PersistenceContextSupport;
+
+/**
+ * 현재 트랜잭션이 아직 커밋되지 않은 회원 변경을 가지고 있는지 추적한다.
+ * 커밋 후에 갱신되는 메모리 구조는 이런 트랜잭션에서 자기 변경을 볼 수 없으므로 DB 로 조회해야 한다.
+ */
+@Component
+public class MemberWriteTracker {
+
+  private static final Object KEY = MemberWriteTracker.class.getName() + ".WRITTEN";
+
+  private final EntityManager em;
+
+  public MemberWriteTracker(EntityManager em) {
+    this.em = em;
+  }
+
+  @EventListener
+  public void onFlushed(MemberChangedEvent event) {
+    markWritten();
+  }
+
+  @EventListener
+  public void onFlushed(TeamChangedEvent event) {
+    markWritten();
+  }
+
+  @EventListener
+  public void onBulkChanged(MemberBulkChangedEvent event) {
+    markWritten();
+  }
+
+  /**
+   * 벌크 update/delete 처럼 이벤트 없이 회원을 변경했을 때 호출한다.
+   */
+  public void markWritten() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()
+        || TransactionSynchronizationManager.hasResource(KEY)) {
+      return;
+    }
+    TransactionSynchronizationManager.bindResource(KEY, Boolean.TRUE);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(KEY);
+      }
+    });
+  }
+
+  public boolean hasUncommittedWrites() {
+    return TransactionSynchronizationManager.hasResource(KEY)
+        || PersistenceContextSupport.mayHavePendingChanges(em);
+  }
+}
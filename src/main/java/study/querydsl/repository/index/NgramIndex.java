@@ -0,0 +1,254 @@
+package study.querydsl.repository.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 문자열 값에 대한 trigram 역색인. (id -> 값, trigram -> id 집합)
+ * <p>
+ * 값의 맨 앞에 시작 표시 문자를 붙여서 색인하므로 "시작 표시 + 앞 두 글자" trigram 으로
+ * 접두사 검색도 후보를 좁힐 수 있다. 조회 결과는 후보일 뿐이므로 호출하는 쪽에서 원래 조건으로 다시 확인해야 한다.
+ */
+public class NgramIndex {
+
+  static final int N = 3;
+  private static final char START = '\u0002';
+
+  private final Map<Long, LongHashSet> postings = new HashMap<>();
+  private final Map<Long, String> values = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * 값의 trigram 을 추가만 한다. 이전 값의 trigram 은 지우지 않으므로 색인은 실제보다 넓은 후보를 가진다.
+   */
+  public void add(long id, String value) {
+    lock.writeLock().lock();
+    try {
+      for (long gram : grams(START + value)) {
+        postings.computeIfAbsent(gram, g -> new LongHashSet()).add(id);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * id 의 값을 정확히 교체한다. 이전 값에만 있던 trigram 에서는 id 를 제거한다.
+   */
+  public void put(long id, String value) {
+    lock.writeLock().lock();
+    try {
+      String previous = values.put(id, value);
+      Set<Long> current = grams(START + value);
+      if (previous != null) {
+        for (long gram : grams(START + previous)) {
+          if (!current.contains(gram)) {
+            removePosting(gram, id);
+          }
+        }
+      }
+      for (long gram : current) {
+        postings.computeIfAbsent(gram, g -> new LongHashSet()).add(id);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(long id) {
+    lock.writeLock().lock();
+    try {
+      String previous = values.remove(id);
+      if (previous != null) {
+        for (long gram : grams(START + previous)) {
+          removePosting(gram, id);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return values.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * 부분 문자열 검색 후보 id 를 정렬해서 반환한다.
+   *
+   * @return 검색어가 trigram 보다 짧거나 후보가 limit 를 넘어 색인이 도움이 되지 않으면 null
+   */
+  public long[] containsCandidates(String term, int limit) {
+    return candidates(grams(term), limit);
+  }
+
+  /**
+   * 접두사 검색 후보 id 를 정렬해서 반환한다.
+   *
+   * @return 검색어가 두 글자보다 짧거나 후보가 limit 를 넘으면 null
+   */
+  public long[] prefixCandidates(String prefix, int limit) {
+    return candidates(grams(START + prefix), limit);
+  }
+
+  private long[] candidates(Set<Long> grams, int limit) {
+    if (grams.isEmpty()) {
+      return null;
+    }
+    lock.readLock().lock();
+    try {
+      List<LongHashSet> sets = new ArrayList<>(grams.size());
+      for (long gram : grams) {
+        LongHashSet set = postings.get(gram);
+        if (set == null) {
+          return new long[0];
+        }
+        sets.add(set);
+      }
+      sets.sort(Comparator.comparingInt(LongHashSet::size));
+      LongHashSet smallest = sets.get(0);
+      if (smallest.size() > limit) {
+        return null;
+      }
+      long[] result = new long[smallest.size()];
+      int count = 0;
+      for (long id : smallest.toArray()) {
+        boolean all = true;
+        for (int i = 1; i < sets.size() && all; i++) {
+          all = sets.get(i).contains(id);
+        }
+        if (all) {
+          result[count++] = id;
+        }
+      }
+      long[] candidates = Arrays.copyOf(result, count);
+      Arrays.sort(candidates);
+      return candidates;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void removePosting(long gram, long id) {
+    LongHashSet set = postings.get(gram);
+    if (set != null && set.remove(id) && set.size() == 0) {
+      postings.remove(gram);
+    }
+  }
+
+  static Set<Long> grams(String value) {
+    Set<Long> grams = new HashSet<>();
+    for (int i = 0; i + N <= value.length(); i++) {
+      grams.add(((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2));
+    }
+    return grams;
+  }
+
+  /**
+   * long 전용 open addressing 해시 집합. 0 은 빈 칸 표시로 쓰므로 저장할 수 없다. (회원 id 는 1부터 시작)
+   */
+  static final class LongHashSet {
+
+    private long[] table = new long[4];
+    private int size;
+
+    boolean add(long value) {
+      if ((size + 1) * 4 > table.length * 3) {
+        resize(table.length * 2);
+      }
+      int mask = table.length - 1;
+      int i = index(value, mask);
+      while (table[i] != 0) {
+        if (table[i] == value) {
+          return false;
+        }
+        i = (i + 1) & mask;
+      }
+      table[i] = value;
+      size++;
+      return true;
+    }
+
+    boolean contains(long value) {
+      int mask = table.length - 1;
+      int i = index(value, mask);
+      while (table[i] != 0) {
+        if (table[i] == value) {
+          return true;
+        }
+        i = (i + 1) & mask;
+      }
+      return false;
+    }
+
+    boolean remove(long value) {
+      int mask = table.length - 1;
+      int i = index(value, mask);
+      while (table[i] != value) {
+        if (table[i] == 0) {
+          return false;
+        }
+        i = (i + 1) & mask;
+      }
+      table[i] = 0;
+      size--;
+      // 뒤따르는 충돌 항목들을 당겨서 탐색 체인이 끊기지 않게 한다.
+      int j = (i + 1) & mask;
+      while (table[j] != 0) {
+        long moved = table[j];
+        int home = index(moved, mask);
+        if (((j - home) & mask) >= ((j - i) & mask)) {
+          table[i] = moved;
+          table[j] = 0;
+          i = j;
+        }
+        j = (j + 1) & mask;
+      }
+      return true;
+    }
+
+    int size() {
+      return size;
+    }
+
+    long[] toArray() {
+      long[] values = new long[size];
+      int n = 0;
+      for (long value : table) {
+        if (value != 0) {
+          values[n++] = value;
+        }
+      }
+      return values;
+    }
+
+    private void resize(int capacity) {
+      long[] old = table;
+      table = new long[capacity];
+      size = 0;
+      for (long value : old) {
+        if (value != 0) {
+          add(value);
+        }
+      }
+    }
+
+    private static int index(long value, int mask) {
+      long h = value * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32)) & mask;
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package study.querydsl.repository.index;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Team;
+
+/**
+ * Team 의 insert/update/delete 를 {@link TeamChangedEvent} 로 발행한다.
+ */
+@Component
+public class TeamChangePublisher {
+
+  private final ApplicationEventPublisher eventPublisher;
+
+  public TeamChangePublisher(ApplicationEventPublisher eventPublisher) {
+    this.eventPublisher = eventPublisher;
+  }
+
+  @PostPersist
+  @PostUpdate
+  public void onSaved(Team team) {
+    eventPublisher.publishEvent(TeamChangedEvent.saved(team));
+  }
+
+  @PostRemove
+  public void onDeleted(Team team) {
+    eventPublisher.publishEvent(TeamChangedEvent.deleted(team));
+  }
+}
@@ -0,0 +1,25 @@
+package study.querydsl.repository.index;
+
+import study.querydsl.entity.Team;
+
+/**
+ * 팀이 flush 될 때 발행되는 변경 이벤트.
+ */
+public record TeamChangedEvent(Type type, Long teamId, String name) {
+
+  public enum Type {
+    SAVED, DELETED
+  }
+
+  public static TeamChangedEvent saved(Team team) {
+    return new TeamChangedEvent(Type.SAVED, team.getId(), team.getName());
+  }
+
+  public static TeamChangedEvent deleted(Team team) {
+    return new TeamChangedEvent(Type.DELETED, team.getId(), team.getName());
+  }
+
+  public boolean isDeleted() {
+    return type == Type.DELETED;
+  }
+}
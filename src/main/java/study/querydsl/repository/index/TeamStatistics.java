@@ -0,0 +1,310 @@
+package study.querydsl.repository.index;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamStatisticsDto;
+import study.querydsl.dto.TeamStatisticsMismatchDto;
+import study.querydsl.repository.support.InClauseChunks;
+
+/**
+ * 팀별 회원 수/나이 합계/최소/최대를 메모리에 유지한다. (group by team 집계를 매번 실행하지 않기 위해)
+ * <p>
+ * 회원마다 마지막으로 반영한 (팀 id, 나이) 를 기억해 두고, 커밋된 {@link MemberChangedEvent} 가 오면
+ * 이전 팀에서 빼고 새 팀에 더한다. 최소/최대는 삭제에도 맞출 수 있도록 나이별 인원수로 관리한다.
+ * 벌크 update/delete 는 {@link MemberBulkChangedEvent} 를 발행하면 해당 회원만 DB 에서 다시 읽어 반영한다.
+ */
+@Slf4j
+@Component
+public class TeamStatistics {
+
+  /**
+   * 팀이 없는 회원의 팀 id. (전체 집계에만 포함된다)
+   */
+  static final long NO_TEAM = 0;
+
+  private final JPAQueryFactory queryFactory;
+  private final TransactionTemplate readOnlyTx;
+
+  private State state = new State();
+  private boolean loading = true;
+  private final List<Object> pendingEvents = new ArrayList<>();
+
+  public TeamStatistics(JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager) {
+    this.queryFactory = queryFactory;
+    this.readOnlyTx = new TransactionTemplate(transactionManager);
+    this.readOnlyTx.setReadOnly(true);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void recompute() {
+    long start = System.currentTimeMillis();
+    synchronized (this) {
+      loading = true;
+      pendingEvents.clear();
+    }
+    State next = load();
+    synchronized (this) {
+      state = next;
+      // 적재하는 동안 커밋된 변경을 순서대로 다시 적용한다. (이벤트가 전체 상태를 담고 있어서 중복 적용해도 된다)
+      pendingEvents.forEach(this::apply);
+      pendingEvents.clear();
+      loading = false;
+    }
+    log.info("team statistics recomputed: {} members in {}ms", next.members.size(),
+        System.currentTimeMillis() - start);
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onMemberCommitted(MemberChangedEvent event) {
+    enqueueOrApply(event);
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onTeamCommitted(TeamChangedEvent event) {
+    enqueueOrApply(event);
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onBulkCommitted(MemberBulkChangedEvent event) {
+    if (event.isAll()) {
+      recompute();
+    } else {
+      refresh(event.memberIds());
+    }
+  }
+
+  /**
+   * 주어진 회원들의 현재 상태를 DB 에서 다시 읽어 반영한다. 없어진 회원은 삭제로 처리한다.
+   */
+  public void refresh(List<Long> memberIds) {
+    List<MemberChangedEvent> events = new ArrayList<>(memberIds.size());
+    readOnlyTx.executeWithoutResult(status -> {
+      for (List<Long> chunk : InClauseChunks.split(memberIds)) {
+        Set<Long> missing = new HashSet<>(chunk);
+        List<Tuple> rows = queryFactory
+            .select(member.id, member.username, member.age, member.team.id)
+            .from(member)
+            .where(member.id.in(chunk))
+            .fetch();
+        for (Tuple row : rows) {
+          missing.remove(row.get(member.id));
+          events.add(new MemberChangedEvent(MemberChangedEvent.Type.SAVED, row.get(member.id),
+              row.get(member.username), row.get(member.age), row.get(member.team.id)));
+        }
+        missing.stream().filter(Objects::nonNull).forEach(id -> events.add(
+            new MemberChangedEvent(MemberChangedEvent.Type.DELETED, id, null, 0, null)));
+      }
+    });
+    events.forEach(this::enqueueOrApply);
+  }
+
+  /**
+   * 팀 id 순서의 팀별 통계. 회원이 없는 팀도 포함한다.
+   */
+  public synchronized List<TeamStatisticsDto> teams() {
+    return state.teams();
+  }
+
+  /**
+   * 팀이 없는 회원까지 포함한 전체 회원의 나이 통계.
+   */
+  public synchronized TeamStatisticsDto overall() {
+    Ages total = new Ages();
+    state.ages.values().forEach(total::addAll);
+    return total.toDto(null, null);
+  }
+
+  /**
+   * 메모리 통계를 group by 전체 재계산 결과와 비교해서 다른 팀을 반환한다.
+   * 비교하는 동안 커밋된 변경 때문에 일시적으로 다르게 나올 수 있다.
+   */
+  public List<TeamStatisticsMismatchDto> check() {
+    Map<Long, TeamStatisticsDto> expected = new TreeMap<>();
+    readOnlyTx.executeWithoutResult(status -> {
+      queryFactory.select(team.id, team.name).from(team).fetch().forEach(row ->
+          expected.put(row.get(team.id), new Ages().toDto(row.get(team.id), row.get(team.name))));
+      queryFactory
+          .select(team.id, team.name, member.count(), member.age.sum(), member.age.min(), member.age.max())
+          .from(member)
+          .join(member.team, team)
+          .groupBy(team.id, team.name)
+          .fetch()
+          .forEach(row -> {
+            long count = row.get(member.count());
+            // Hibernate 6 는 정수 sum 을 Long 으로 반환하므로 Number 로 읽는다.
+            long sum = row.get(3, Number.class).longValue();
+            expected.put(row.get(team.id), new TeamStatisticsDto(row.get(team.id), row.get(team.name),
+                count, sum, (double) sum / count, row.get(member.age.min()), row.get(member.age.max())));
+          });
+    });
+
+    Map<Long, TeamStatisticsDto> actual = new TreeMap<>();
+    teams().forEach(dto -> actual.put(dto.getTeamId(), dto));
+
+    Set<Long> teamIds = new HashSet<>(expected.keySet());
+    teamIds.addAll(actual.keySet());
+    return teamIds.stream()
+        .sorted()
+        .filter(id -> !Objects.equals(expected.get(id), actual.get(id)))
+        .map(id -> new TeamStatisticsMismatchDto(id, expected.get(id), actual.get(id)))
+        .toList();
+  }
+
+  /**
+   * 주기적으로 전체 재계산과 비교해서, 다르면 경고를 남기고 다시 계산한다.
+   */
+  @Scheduled(fixedDelayString = "${member.team-stats.check-interval-ms:600000}",
+      initialDelayString = "${member.team-stats.check-interval-ms:600000}")
+  public void checkAndRepair() {
+    List<TeamStatisticsMismatchDto> mismatches = check();
+    if (!mismatches.isEmpty()) {
+      log.warn("team statistics mismatch, recomputing: {}", mismatches);
+      recompute();
+    }
+  }
+
+  private State load() {
+    State next = new State();
+    readOnlyTx.executeWithoutResult(status -> {
+      queryFactory.select(team.id, team.name).from(team).fetch()
+          .forEach(row -> next.putTeam(row.get(team.id), row.get(team.name)));
+      try (Stream<Tuple> rows = queryFactory.select(member.id, member.age, member.team.id).from(member).stream()) {
+        rows.forEach(row -> next.putMember(row.get(member.id), row.get(member.age), row.get(member.team.id)));
+      }
+    });
+    return next;
+  }
+
+  private synchronized void enqueueOrApply(Object event) {
+    if (loading) {
+      pendingEvents.add(event);
+    } else {
+      apply(event);
+    }
+  }
+
+  private void apply(Object event) {
+    if (event instanceof MemberChangedEvent e) {
+      if (e.isDeleted()) {
+        state.removeMember(e.memberId());
+      } else {
+        state.putMember(e.memberId(), e.age(), e.teamId());
+      }
+    } else if (event instanceof TeamChangedEvent e) {
+      if (e.isDeleted()) {
+        state.removeTeam(e.teamId());
+      } else {
+        state.putTeam(e.teamId(), e.name());
+      }
+    }
+  }
+
+  /**
+   * 회원별 마지막 반영 상태와 팀별 집계. 동기화는 바깥에서 한다.
+   */
+  static final class State {
+
+    final Map<Long, Placement> members = new HashMap<>();
+    final Map<Long, Ages> ages = new HashMap<>();
+    final Map<Long, String> teamNames = new HashMap<>();
+
+    void putMember(long memberId, int age, Long teamId) {
+      long target = teamId == null ? NO_TEAM : teamId;
+      Placement previous = members.put(memberId, new Placement(target, age));
+      if (previous != null) {
+        ages.get(previous.teamId()).remove(previous.age());
+      }
+      ages.computeIfAbsent(target, id -> new Ages()).add(age);
+    }
+
+    void removeMember(long memberId) {
+      Placement previous = members.remove(memberId);
+      if (previous != null) {
+        ages.get(previous.teamId()).remove(previous.age());
+      }
+    }
+
+    void putTeam(long teamId, String name) {
+      teamNames.put(teamId, name);
+    }
+
+    void removeTeam(long teamId) {
+      teamNames.remove(teamId);
+    }
+
+    List<TeamStatisticsDto> teams() {
+      return teamNames.entrySet().stream()
+          .sorted(Map.Entry.comparingByKey())
+          .map(entry -> ages.getOrDefault(entry.getKey(), new Ages()).toDto(entry.getKey(), entry.getValue()))
+          .toList();
+    }
+  }
+
+  record Placement(long teamId, int age) {
+  }
+
+  /**
+   * 나이별 인원수. 최소/최대 나이는 가장 작은/큰 키이다.
+   */
+  static final class Ages {
+
+    private final TreeMap<Integer, Long> counts = new TreeMap<>();
+    private long count;
+    private long sum;
+
+    void add(int age) {
+      counts.merge(age, 1L, Long::sum);
+      count++;
+      sum += age;
+    }
+
+    void remove(int age) {
+      Long n = counts.get(age);
+      if (n == null) {
+        return;
+      }
+      if (n == 1) {
+        counts.remove(age);
+      } else {
+        counts.put(age, n - 1);
+      }
+      count--;
+      sum -= age;
+    }
+
+    void addAll(Ages other) {
+      other.counts.forEach((age, n) -> counts.merge(age, n, Long::sum));
+      count += other.count;
+      sum += other.sum;
+    }
+
+    TeamStatisticsDto toDto(Long teamId, String teamName) {
+      if (count == 0) {
+        return new TeamStatisticsDto(teamId, teamName, 0, 0, null, null, null);
+      }
+      return new TeamStatisticsDto(teamId, teamName, count, sum, (double) sum / count,
+          counts.firstKey(), counts.lastKey());
+    }
+  }
+}
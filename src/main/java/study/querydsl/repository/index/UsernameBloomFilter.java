@@ -0,0 +1,240 @@
+package study.querydsl.repository.index;
+
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.repository.support.PersistenceContextSupport;
+
+/**
+ * Member.username 에 대한 메모리 Bloom filter.
+ * 없는 username 조회는 DB 에 가지 않고 바로 빈 결과를 돌려주기 위해 사용한다.
+ * <p>
+ * 시작 시 테이블을 스트리밍해서 만들고, 등록/이름 변경은 {@link UsernameBloomFilterListener} 가 반영한다.
+ * 삭제는 Bloom filter 에서 지울 수 없으므로 주기적으로 다시 만든다.
+ * 벌크 update 로 username 을 바꾸면 엔티티 리스너를 거치지 않으므로 {@link MemberBulkChangedEvent} 를 받아 다시 만든다.
+ * (회원 벌크 변경은 MemberBulkClauses/MemberBulkOperations 를 거쳐야 이벤트가 발행된다)
+ * <p>
+ * 다시 만드는 중에는 flush 때 이전 필터에만 넣은 이름이 스냅샷보다 늦게 커밋될 수 있다. 그래서 커밋된 이름을
+ * 다시 넣고, 다시 만드는 동안에는 없다고 확정하지 않는다.
+ */
+@Slf4j
+@Component
+public class UsernameBloomFilter {
+
+  private final EntityManager em;
+  private final JPAQueryFactory queryFactory;
+  private final TransactionTemplate readOnlyTx;
+  private final long expectedInsertions;
+  private final double falsePositiveProbability;
+
+  private volatile Bits current;
+  private volatile Bits building;
+
+  private final Counter negatives;
+  private final Counter truePositives;
+  private final Counter falsePositives;
+
+  public UsernameBloomFilter(EntityManager em, JPAQueryFactory queryFactory,
+      PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+      @Value("${member.bloom.expected-insertions:100000}") long expectedInsertions,
+      @Value("${member.bloom.false-positive-probability:0.01}") double falsePositiveProbability) {
+    this.em = em;
+    this.queryFactory = queryFactory;
+    this.readOnlyTx = new TransactionTemplate(transactionManager);
+    this.readOnlyTx.setReadOnly(true);
+    this.expectedInsertions = expectedInsertions;
+    this.falsePositiveProbability = falsePositiveProbability;
+
+    this.negatives = meterRegistry.counter("member.username.bloom.lookups", "result", "negative");
+    this.truePositives = meterRegistry.counter("member.username.bloom.lookups", "result", "true_positive");
+    this.falsePositives = meterRegistry.counter("member.username.bloom.lookups", "result", "false_positive");
+    Gauge.builder("member.username.bloom.false_positive_rate", this,
+            UsernameBloomFilter::observedFalsePositiveRate)
+        .register(meterRegistry);
+    Gauge.builder("member.username.bloom.expected_false_positive_rate", this,
+            UsernameBloomFilter::expectedFalsePositiveRate)
+        .register(meterRegistry);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void init() {
+    rebuild();
+  }
+
+  @Scheduled(fixedDelayString = "${member.bloom.rebuild-interval-ms:600000}",
+      initialDelayString = "${member.bloom.rebuild-interval-ms:600000}")
+  public void rebuild() {
+    long start = System.currentTimeMillis();
+    readOnlyTx.executeWithoutResult(status -> {
+      long count = queryFactory.select(member.count()).from(member).fetchOne();
+      Bits next = new Bits(Math.max(expectedInsertions, count * 2), falsePositiveProbability);
+      // 다시 만드는 동안 들어온 등록도 새 필터에 반영되도록 먼저 공개한다.
+      building = next;
+      try (Stream<String> usernames = queryFactory.select(member.username).from(member).stream()) {
+        usernames.filter(Objects::nonNull).forEach(next::put);
+        current = next;
+      } finally {
+        building = null;
+      }
+    });
+    log.info("username bloom filter rebuilt in {}ms", System.currentTimeMillis() - start);
+  }
+
+  /**
+   * flush 때 넣은 이름을 커밋 후 한 번 더 넣는다. 그 사이 필터가 새로 만들어졌어도 빠지지 않는다.
+   */
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onCommitted(MemberChangedEvent event) {
+    if (!event.isDeleted()) {
+      put(event.username());
+    }
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onBulkCommitted(MemberBulkChangedEvent event) {
+    if (event.usernameChanged()) {
+      rebuild();
+    }
+  }
+
+  public void put(String username) {
+    if (username == null) {
+      return;
+    }
+    Bits bits = current;
+    if (bits != null) {
+      bits.put(username);
+    }
+    Bits next = building;
+    if (next != null) {
+      next.put(username);
+    }
+  }
+
+  /**
+   * 아직 필터가 만들어지지 않았으면 항상 true 를 반환한다.
+   */
+  public boolean mightContain(String username) {
+    Bits bits = current;
+    return bits == null || bits.mightContain(username);
+  }
+
+  /**
+   * DB 를 조회하지 않아도 username 이 없다고 확정할 수 있는지 판단한다.
+   * 아직 flush 되지 않은 이름 변경이 있거나 필터를 다시 만드는 중이면 DB 를 조회한다.
+   */
+  public boolean definitelyAbsent(String username) {
+    if (username == null || building != null || mightContain(username)
+        || PersistenceContextSupport.mayHavePendingChanges(em)) {
+      return false;
+    }
+    negatives.increment();
+    return true;
+  }
+
+  /**
+   * 필터가 있다고 판단해서 DB 를 조회한 결과를 기록한다. (오탐률 측정용)
+   */
+  public void recordLookup(boolean found) {
+    if (found) {
+      truePositives.increment();
+    } else {
+      falsePositives.increment();
+    }
+  }
+
+  double observedFalsePositiveRate() {
+    double fp = falsePositives.count();
+    double total = fp + negatives.count();
+    return total == 0 ? 0 : fp / total;
+  }
+
+  double expectedFalsePositiveRate() {
+    Bits bits = current;
+    return bits == null ? 1 : bits.expectedFalsePositiveRate();
+  }
+
+  static final class Bits {
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashCount;
+
+    Bits(long expectedInsertions, double falsePositiveProbability) {
+      long n = Math.max(1, expectedInsertions);
+      long m = (long) (-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+      this.words = new AtomicLongArray((int) Math.max(1, (m + 63) / 64));
+      this.bitSize = words.length() * 64L;
+      this.hashCount = Math.max(1, (int) Math.round((double) bitSize / n * Math.log(2)));
+    }
+
+    void put(String value) {
+      long h1 = hash(value);
+      long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L);
+      for (int i = 0; i < hashCount; i++) {
+        long bit = Math.floorMod(h1 + i * h2, bitSize);
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long prev;
+        do {
+          prev = words.get(word);
+        } while ((prev & mask) == 0 && !words.compareAndSet(word, prev, prev | mask));
+      }
+    }
+
+    boolean mightContain(String value) {
+      long h1 = hash(value);
+      long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L);
+      for (int i = 0; i < hashCount; i++) {
+        long bit = Math.floorMod(h1 + i * h2, bitSize);
+        if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    double expectedFalsePositiveRate() {
+      long setBits = 0;
+      for (int i = 0; i < words.length(); i++) {
+        setBits += Long.bitCount(words.get(i));
+      }
+      return Math.pow((double) setBits / bitSize, hashCount);
+    }
+
+    private static long hash(String value) {
+      long h = 0xcbf29ce484222325L;
+      for (int i = 0; i < value.length(); i++) {
+        h ^= value.charAt(i);
+        h *= 0x100000001b3L;
+      }
+      return mix(h);
+    }
+
+    private static long mix(long h) {
+      h ^= h >>> 33;
+      h *= 0xff51afd7ed558ccdL;
+      h ^= h >>> 33;
+      h *= 0xc4ceb9fe1a85ec53L;
+      h ^= h >>> 33;
+      return h;
+    }
+  }
+}
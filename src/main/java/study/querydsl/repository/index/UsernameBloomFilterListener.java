@@ -0,0 +1,28 @@
+package study.querydsl.repository.index;
+
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+
+/**
+ * 회원 등록/이름 변경 시 username 을 Bloom filter 에 추가한다.
+ * 롤백되어도 오탐이 하나 늘어날 뿐이므로 커밋 전에 바로 반영한다.
+ * 엔티티 리스너는 EntityManagerFactory 생성 중에 만들어질 수 있어 필터는 지연 조회한다.
+ */
+@Component
+public class UsernameBloomFilterListener {
+
+  private final ObjectProvider<UsernameBloomFilter> usernameBloomFilter;
+
+  public UsernameBloomFilterListener(ObjectProvider<UsernameBloomFilter> usernameBloomFilter) {
+    this.usernameBloomFilter = usernameBloomFilter;
+  }
+
+  @PrePersist
+  @PreUpdate
+  public void onWrite(Member member) {
+    usernameBloomFilter.ifAvailable(filter -> filter.put(member.getUsername()));
+  }
+}
@@ -0,0 +1,208 @@
+package study.querydsl.repository.index;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.support.InClauseChunks;
+import study.querydsl.repository.support.PersistenceContextSupport;
+
+/**
+ * Member.username 에 대한 trigram 색인으로 부분 문자열/접두사 검색의 후보를 좁힌다.
+ * <p>
+ * 색인은 항상 실제보다 넓게 유지한다. 새 이름은 flush 즉시 추가하고(롤백되면 후보만 늘어난다),
+ * 이전 이름 제거와 삭제는 커밋 후에 반영한다. 롤백으로 남은 후보는 주기적인 재생성으로 정리한다.
+ * 후보는 항상 원래 LIKE 조건으로 다시 확인하므로 결과는 LIKE 검색과 같다.
+ * 벌크 변경(saveAll 포함)은 회원별 이벤트가 없으므로, 그 트랜잭션에서는 커밋 후 다시 만들 때까지 색인을 쓰지 않는다.
+ */
+@Slf4j
+@Component
+public class UsernameNgramIndex {
+
+  private static final Object BULK_CHANGED = UsernameNgramIndex.class.getName() + ".BULK_CHANGED";
+
+  private final EntityManager em;
+  private final JPAQueryFactory queryFactory;
+  private final TransactionTemplate readOnlyTx;
+  private final int maxCandidates;
+
+  private volatile NgramIndex index = new NgramIndex();
+  private volatile NgramIndex building;
+  private volatile boolean ready;
+
+  public UsernameNgramIndex(EntityManager em, JPAQueryFactory queryFactory,
+      PlatformTransactionManager transactionManager,
+      @Value("${member.ngram.max-candidates:1024}") int maxCandidates) {
+    this.em = em;
+    this.queryFactory = queryFactory;
+    this.readOnlyTx = new TransactionTemplate(transactionManager);
+    this.readOnlyTx.setReadOnly(true);
+    this.maxCandidates = maxCandidates;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void init() {
+    rebuild();
+  }
+
+  @Scheduled(fixedDelayString = "${member.ngram.rebuild-interval-ms:3600000}",
+      initialDelayString = "${member.ngram.rebuild-interval-ms:3600000}")
+  public void rebuild() {
+    long start = System.currentTimeMillis();
+    NgramIndex next = new NgramIndex();
+    building = next;
+    try {
+      readOnlyTx.executeWithoutResult(status -> {
+        try (Stream<Tuple> rows = queryFactory.select(member.id, member.username).from(member).stream()) {
+          rows.forEach(row -> {
+            String username = row.get(member.username);
+            if (username != null) {
+              next.put(row.get(member.id), Member.normalizeUsername(username));
+            }
+          });
+        }
+      });
+      index = next;
+      ready = true;
+    } finally {
+      building = null;
+    }
+    log.info("username ngram index rebuilt: {} members in {}ms", next.size(),
+        System.currentTimeMillis() - start);
+  }
+
+  @EventListener
+  public void onFlushed(MemberChangedEvent event) {
+    if (!event.isDeleted() && event.username() != null) {
+      String normalized = Member.normalizeUsername(event.username());
+      apply(target -> target.add(event.memberId(), normalized));
+    }
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onCommitted(MemberChangedEvent event) {
+    if (event.isDeleted() || event.username() == null) {
+      apply(target -> target.remove(event.memberId()));
+    } else {
+      String normalized = Member.normalizeUsername(event.username());
+      apply(target -> target.put(event.memberId(), normalized));
+    }
+  }
+
+  @EventListener
+  public void onBulkChanged(MemberBulkChangedEvent event) {
+    if (!event.usernameChanged() || !TransactionSynchronizationManager.isSynchronizationActive()
+        || TransactionSynchronizationManager.hasResource(BULK_CHANGED)) {
+      return;
+    }
+    TransactionSynchronizationManager.bindResource(BULK_CHANGED, Boolean.TRUE);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(BULK_CHANGED);
+      }
+    });
+  }
+
+  /**
+   * 벌크 update/delete 는 엔티티 이벤트가 없으므로 커밋 후 다시 만든다.
+   */
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onBulkCommitted(MemberBulkChangedEvent event) {
+    if (event.usernameChanged()) {
+      rebuild();
+    }
+  }
+
+  public BooleanExpression usernameContains(String term) {
+    return usernameContains(member.id, member.username, term);
+  }
+
+  public BooleanExpression usernameStartsWith(String prefix) {
+    return usernameStartsWith(member.id, member.username, prefix);
+  }
+
+  /**
+   * 회원 id 와 이름을 그대로 담은 다른 테이블(member_team_view 등)에서 같은 색인을 쓸 때 그 테이블의 경로를 넘긴다.
+   */
+  public BooleanExpression usernameContains(NumberPath<Long> id, StringPath username, String term) {
+    return resolve(id, username.contains(term),
+        ready() ? index.containsCandidates(Member.normalizeUsername(term), maxCandidates) : null);
+  }
+
+  public BooleanExpression usernameStartsWith(NumberPath<Long> id, StringPath username, String prefix) {
+    return resolve(id, username.startsWith(prefix),
+        ready() ? index.prefixCandidates(Member.normalizeUsername(prefix), maxCandidates) : null);
+  }
+
+  /**
+   * 후보가 있으면 id IN (후보) 로 범위를 좁히고, 원래 조건으로 다시 확인한다.
+   * 색인을 쓸 수 없으면(검색어가 짧거나 후보가 너무 많으면) 원래 조건만 사용한다.
+   */
+  private BooleanExpression resolve(NumberPath<Long> id, BooleanExpression verification, long[] candidates) {
+    if (candidates == null) {
+      return verification;
+    }
+    if (candidates.length == 0) {
+      return Expressions.TRUE.isFalse();
+    }
+    List<Long> ids = InClauseChunks.pad(Arrays.stream(candidates).boxed().toList());
+    return id.in(ids).and(verification);
+  }
+
+  /**
+   * flush 되지 않은 등록/변경은 색인에 없으므로, 색인을 쓰는 조건으로 조회하는 쪽은 predicate 를 만들기 전에 호출한다.
+   * predicate 를 만드는 것만으로는 flush 하지 않는다. (JPQL 실행 전 auto flush 는 후보를 고른 뒤라 늦다)
+   */
+  public void flushForSearch(MemberSearchCondition condition) {
+    if (usesIndex(condition) && ready()) {
+      PersistenceContextSupport.flushPendingChanges(em);
+    }
+  }
+
+  public void flushForSearch(List<MemberSearchCondition> conditions) {
+    if (conditions.stream().anyMatch(UsernameNgramIndex::usesIndex) && ready()) {
+      PersistenceContextSupport.flushPendingChanges(em);
+    }
+  }
+
+  private static boolean usesIndex(MemberSearchCondition condition) {
+    return hasText(condition.getUsernameContains()) || hasText(condition.getUsernameStartsWith());
+  }
+
+  private boolean ready() {
+    return ready && !TransactionSynchronizationManager.hasResource(BULK_CHANGED);
+  }
+
+  private void apply(Consumer<NgramIndex> change) {
+    change.accept(index);
+    NgramIndex next = building;
+    if (next != null) {
+      change.accept(next);
+    }
+  }
+}
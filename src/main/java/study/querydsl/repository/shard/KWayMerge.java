@@ -0,0 +1,58 @@
+package study.querydsl.repository.shard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 각각 정렬된 목록들을 하나의 정렬된 목록으로 합친다. 앞의 skip 개는 건너뛰고 limit 개까지만 만든다.
+ */
+final class KWayMerge {
+
+  private KWayMerge() {
+  }
+
+  static <T> List<T> merge(List<List<T>> sortedLists, Comparator<? super T> comparator, long skip, int limit) {
+    PriorityQueue<Cursor<T>> heap = new PriorityQueue<>(Math.max(1, sortedLists.size()),
+        (a, b) -> comparator.compare(a.head(), b.head()));
+    for (List<T> list : sortedLists) {
+      if (!list.isEmpty()) {
+        heap.add(new Cursor<>(list));
+      }
+    }
+    List<T> merged = new ArrayList<>(Math.max(0, limit));
+    long skipped = 0;
+    while (!heap.isEmpty() && merged.size() < limit) {
+      Cursor<T> cursor = heap.poll();
+      T next = cursor.head();
+      if (skipped < skip) {
+        skipped++;
+      } else {
+        merged.add(next);
+      }
+      if (cursor.advance()) {
+        heap.add(cursor);
+      }
+    }
+    return merged;
+  }
+
+  private static final class Cursor<T> {
+
+    private final List<T> list;
+    private int position;
+
+    Cursor(List<T> list) {
+      this.list = list;
+    }
+
+    T head() {
+      return list.get(position);
+    }
+
+    boolean advance() {
+      return ++position < list.size();
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package study.querydsl.repository.shard;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.repository.support.DeadlineJPAQueryFactory;
+
+/**
+ * 샤드 하나. em/queryFactory 는 이 샤드의 트랜잭션(tx/readOnlyTx)에 묶인 EntityManager 를 쓴다.
+ */
+@Getter
+@Accessors(fluent = true)
+public class MemberShard {
+
+  private final int index;
+  private final HikariDataSource dataSource;
+  private final EntityManagerFactory emf;
+  private final EntityManager em;
+  private final JPAQueryFactory queryFactory;
+  private final TransactionTemplate tx;
+  private final TransactionTemplate readOnlyTx;
+
+  MemberShard(int index, HikariDataSource dataSource, EntityManagerFactory emf) {
+    this.index = index;
+    this.dataSource = dataSource;
+    this.emf = emf;
+    this.em = SharedEntityManagerCreator.createSharedEntityManager(emf);
+    this.queryFactory = new DeadlineJPAQueryFactory(em);
+    JpaTransactionManager transactionManager = new JpaTransactionManager(emf);
+    this.tx = new TransactionTemplate(transactionManager);
+    this.readOnlyTx = new TransactionTemplate(transactionManager);
+    this.readOnlyTx.setReadOnly(true);
+  }
+
+  @Override
+  public String toString() {
+    return "shard-" + index;
+  }
+}
@@ -0,0 +1,182 @@
+package study.querydsl.repository.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.stereotype.Component;
+import study.querydsl.concurrent.Deadline;
+import study.querydsl.concurrent.RepositoryExecutors;
+import study.querydsl.entity.BlockSequenceGenerator;
+import study.querydsl.entity.Member;
+
+/**
+ * 회원 샤드 목록. 샤드마다 DataSource 와 EntityManagerFactory 를 직접 만든다. (기본 DataSource/EMF 와 별개)
+ * <p>
+ * 샤드 번호는 회원/팀 id 의 상위 비트에 담는다. 샤드 i 의 시퀀스는 {@code i << SHARD_ID_SHIFT} 부터 시작하므로
+ * id 만 보고 샤드를 찾을 수 있고, 샤드끼리 id 가 겹치지 않는다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "member.sharding.enabled", havingValue = "true")
+public class MemberShards {
+
+  static final int SHARD_ID_SHIFT = 40;
+  static final String FAN_OUT = "member-shard-fan-out";
+
+  private final List<MemberShard> shards = new ArrayList<>();
+  private final List<LocalContainerEntityManagerFactoryBean> factoryBeans = new ArrayList<>();
+  private final ExecutorService fanOut;
+
+  /**
+   * @param fanOutThreads 샤드 쿼리를 실행할 스레드 수. 공유 실행기에서 돌던 작업(묶음 검색 등)이 샤드 결과를 기다리므로
+   *                      같은 풀을 쓰면 모든 스레드가 대기열의 샤드 작업을 기다리며 멈출 수 있어 따로 둔다.
+   */
+  public MemberShards(EntityManagerFactoryBuilder builder, RepositoryExecutors executors,
+      @Value("${member.sharding.count:2}") int count,
+      @Value("${member.sharding.url-template:jdbc:h2:mem:member_shard_%d;DB_CLOSE_DELAY=-1}") String urlTemplate,
+      @Value("${member.sharding.username:sa}") String username,
+      @Value("${member.sharding.password:}") String password,
+      @Value("${member.sharding.ddl-auto:create}") String ddlAuto,
+      @Value("${member.id.block-size:100}") int idBlockSize,
+      @Value("${member.sharding.fan-out-threads:16}") int fanOutThreads) {
+    this.fanOut = executors.dedicated(FAN_OUT, fanOutThreads);
+    for (int index = 0; index < count; index++) {
+      HikariDataSource dataSource = DataSourceBuilder.create()
+          .type(HikariDataSource.class)
+          .url(String.format(urlTemplate, index))
+          .username(username)
+          .password(password)
+          .build();
+      dataSource.setPoolName("member-shard-" + index);
+
+      // 기본 EMF 와 같은 이름 규칙을 쓴다. 엔티티 리스너(블룸 필터, 변경 이벤트, 읽기 모델)는 기본 DB 의
+      // 색인을 고치므로 샤드에서는 JPA 콜백을 끈다. (리스너 빈도 만들지 않는다)
+      Map<String, Object> properties = new HashMap<>();
+      properties.put(AvailableSettings.HBM2DDL_AUTO, ddlAuto);
+      properties.put(AvailableSettings.PHYSICAL_NAMING_STRATEGY, CamelCaseToUnderscoresNamingStrategy.class.getName());
+      properties.put(AvailableSettings.IMPLICIT_NAMING_STRATEGY, SpringImplicitNamingStrategy.class.getName());
+      properties.put(AvailableSettings.JPA_CALLBACKS_ENABLED, false);
+      properties.put(BlockSequenceGenerator.BLOCK_SIZE_SETTING, idBlockSize);
+      LocalContainerEntityManagerFactoryBean factoryBean = builder.dataSource(dataSource)
+          .packages(Member.class)
+          .persistenceUnit("member-shard-" + index)
+          .properties(properties)
+          .build();
+      factoryBean.afterPropertiesSet();
+      factoryBeans.add(factoryBean);
+      EntityManagerFactory emf = factoryBean.getObject();
+
+      offsetSequences(new JdbcTemplate(dataSource), index);
+      shards.add(new MemberShard(index, dataSource, emf));
+    }
+    log.info("member sharding enabled with {} shards", count);
+  }
+
+  /**
+   * 새로 만든 샤드의 시퀀스를 샤드 번호 구간의 처음으로 옮긴다. 이미 데이터가 있으면 그대로 둔다.
+   */
+  private static void offsetSequences(JdbcTemplate jdbc, int index) {
+    if (index == 0) {
+      return;
+    }
+    long start = ((long) index << SHARD_ID_SHIFT) + 1;
+    Map<String, String> sequences = Map.of("member_seq", "select max(member_id) from member",
+        "team_seq", "select max(team_id) from team");
+    sequences.forEach((sequence, maxQuery) -> {
+      Long max = jdbc.queryForObject(maxQuery, Long.class);
+      if (max == null) {
+        jdbc.execute("alter sequence " + sequence + " restart with " + start);
+      }
+    });
+  }
+
+  public List<MemberShard> all() {
+    return shards;
+  }
+
+  public int size() {
+    return shards.size();
+  }
+
+  /**
+   * id 의 상위 비트가 있는 샤드를 가리키는지. (클라이언트가 보낸 id 를 찾기 전에 확인한다)
+   */
+  public boolean contains(long id) {
+    return id > 0 && (id >>> SHARD_ID_SHIFT) < shards.size();
+  }
+
+  public MemberShard byId(long id) {
+    int index = (int) (id >>> SHARD_ID_SHIFT);
+    if (index >= shards.size()) {
+      throw new IllegalArgumentException("Id " + id + " does not belong to any of " + shards.size() + " shards");
+    }
+    return shards.get(index);
+  }
+
+  /**
+   * 새 팀을 둘 샤드. 이름 해시는 처음 배치할 때만 쓰고, 이후 팀은 id 로 찾는다. (이름이 바뀌어도 샤드는 그대로다)
+   */
+  public MemberShard forNewTeam(String teamName) {
+    return shards.get(Math.floorMod(String.valueOf(teamName).hashCode(), shards.size()));
+  }
+
+  /**
+   * 샤드마다 작업을 병렬로 실행하고 샤드 순서대로 결과를 모은다. 요청 기한도 함께 넘긴다.
+   * 이미 샤드 실행기의 스레드에서 부른 경우에는 자기 풀의 작업을 기다리지 않도록 차례로 실행한다.
+   */
+  public <T> List<T> scatter(List<MemberShard> targets, Function<MemberShard, T> work) {
+    if (targets.isEmpty()) {
+      return List.of();
+    }
+    if (targets.size() == 1 || Thread.currentThread().getName().startsWith(FAN_OUT + "-")) {
+      return targets.stream().map(work).toList();
+    }
+    Deadline deadline = Deadline.current();
+    List<Future<T>> futures = new ArrayList<>(targets.size());
+    for (MemberShard shard : targets) {
+      futures.add(fanOut.submit(() -> Deadline.callWith(deadline, () -> work.apply(shard))));
+    }
+    List<T> results = new ArrayList<>(targets.size());
+    try {
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      futures.forEach(future -> future.cancel(true));
+      throw new IllegalStateException("Interrupted while querying member shards", e);
+    } catch (ExecutionException e) {
+      futures.forEach(future -> future.cancel(true));
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+    return results;
+  }
+
+  @PreDestroy
+  public void close() {
+    fanOut.shutdownNow();
+    factoryBeans.forEach(LocalContainerEntityManagerFactoryBean::destroy);
+    shards.forEach(shard -> shard.dataSource().close());
+  }
+}
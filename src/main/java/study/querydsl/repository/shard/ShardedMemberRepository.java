@@ -0,0 +1,410 @@
+package study.querydsl.repository.shard;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.AgeStatisticsDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberTeamField;
+import study.querydsl.repository.support.InClauseChunks;
+import study.querydsl.repository.support.SliceSupport;
+
+/**
+ * 회원을 팀 단위로 샤드에 나눠 저장하고, 검색은 모든 샤드에 병렬로 보내 결과를 합친다.
+ * <p>
+ * 새 팀은 이름 해시로 샤드를 정하고, 회원은 소속 팀과 같은 샤드에 둔다. (팀 조인이 샤드 안에서 끝난다)
+ * 팀이 없는 회원은 이름으로 샤드를 정한다. 팀 이름 조건이 있는 검색은 먼저 그 이름의 팀 id 를 찾아
+ * 팀이 있는 샤드에만 보낸다. 팀 id 에 샤드가 담겨 있으므로 팀 이름을 바꿔도({@link #renameTeam}) 검색이 맞다.
+ * 회원을 다른 샤드의 팀으로 옮기는 것은 지원하지 않는다. ({@link #changeTeam} 이 거부한다)
+ * 페이지는 샤드마다 offset + size 개를 같은 정렬로 읽어 k-way merge 하므로, 뒤쪽 페이지일수록 많이 읽는다.
+ * <p>
+ * 메모리 색인(n-gram, 컬럼형 복제본)은 기본 DB 로 만들어지므로 샤드 검색에는 쓰지 않는다.
+ */
+@Repository
+@ConditionalOnProperty(name = "member.sharding.enabled", havingValue = "true")
+public class ShardedMemberRepository {
+
+  private final MemberShards shards;
+
+  public ShardedMemberRepository(MemberShards shards) {
+    this.shards = shards;
+  }
+
+  public Team saveTeam(Team newTeam) {
+    MemberShard shard = shards.forNewTeam(newTeam.getName());
+    shard.tx().executeWithoutResult(status -> shard.em().persist(newTeam));
+    return newTeam;
+  }
+
+  /**
+   * 팀은 샤드를 옮기지 않고 이름만 바꾼다.
+   */
+  public void renameTeam(long teamId, String name) {
+    MemberShard shard = shards.byId(teamId);
+    shard.tx().executeWithoutResult(status -> {
+      Team found = shard.em().find(Team.class, teamId);
+      if (found == null) {
+        throw new IllegalArgumentException("Team " + teamId + " not found");
+      }
+      found.setName(name);
+    });
+  }
+
+  /**
+   * 회원의 팀을 바꾼다. 회원은 소속 팀과 같은 샤드에 있어야 하므로 다른 샤드의 팀으로는 옮길 수 없다.
+   * (회원 id 에도 샤드가 담겨 있어서 옮기려면 새 id 로 다시 만들어야 한다)
+   */
+  public void changeTeam(long memberId, long teamId) {
+    MemberShard shard = shards.byId(memberId);
+    MemberShard teamShard = shards.byId(teamId);
+    if (teamShard != shard) {
+      throw new IllegalArgumentException("Member " + memberId + " on " + shard + " cannot join team " + teamId
+          + " on " + teamShard + "; moving members across shards is not supported");
+    }
+    shard.tx().executeWithoutResult(status -> {
+      Member found = shard.em().find(Member.class, memberId);
+      Team newTeam = shard.em().find(Team.class, teamId);
+      if (found == null || newTeam == null) {
+        throw new IllegalArgumentException("Member " + memberId + " or team " + teamId + " not found");
+      }
+      found.changeTeam(newTeam);
+    });
+  }
+
+  /**
+   * 팀은 먼저 {@link #saveTeam} 으로 저장되어 있어야 한다. (팀 id 로 샤드를 찾는다)
+   */
+  public Member save(Member newMember) {
+    Team memberTeam = newMember.getTeam();
+    MemberShard shard = memberTeam != null
+        ? shards.byId(memberTeam.getId())
+        : shards.all().get(Math.floorMod(String.valueOf(newMember.getUsername()).hashCode(), shards.size()));
+    shard.tx().executeWithoutResult(status -> shard.em().persist(newMember));
+    return newMember;
+  }
+
+  public Optional<MemberTeamDto> findById(long memberId) {
+    MemberShard shard = shards.byId(memberId);
+    return Optional.ofNullable(shard.readOnlyTx().execute(status -> select(shard)
+        .where(member.id.eq(memberId))
+        .fetchOne()));
+  }
+
+  /**
+   * id 를 샤드별로 나눠 IN 으로 조회하고, 요청한 id 순서대로 돌려준다. (없는 id 는 제외)
+   */
+  public List<MemberTeamDto> findAllByIds(Collection<Long> ids) {
+    Map<MemberShard, List<Long>> idsByShard = new LinkedHashMap<>();
+    ids.stream()
+        .filter(id -> id != null && shards.contains(id))
+        .distinct()
+        .forEach(id -> idsByShard.computeIfAbsent(shards.byId(id), shard -> new ArrayList<>()).add(id));
+    Map<Long, MemberTeamDto> found = new HashMap<>();
+    shards.scatter(List.copyOf(idsByShard.keySet()), shard ->
+        shard.readOnlyTx().execute(status -> {
+          List<MemberTeamDto> rows = new ArrayList<>();
+          for (List<Long> chunk : InClauseChunks.split(idsByShard.get(shard))) {
+            rows.addAll(select(shard).where(member.id.in(chunk)).fetch());
+          }
+          return rows;
+        })).forEach(rows -> rows.forEach(dto -> found.put(dto.getMemberId(), dto)));
+    return ids.stream()
+        .map(found::get)
+        .filter(Objects::nonNull)
+        .toList();
+  }
+
+  /**
+   * 샤드마다 id 순으로 조회해서 id 순으로 합친다.
+   */
+  public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    List<List<MemberTeamDto>> results = shards.scatter(targets(condition), shard ->
+        shard.readOnlyTx().execute(status -> select(shard)
+            .where(where(condition))
+            .orderBy(member.id.asc())
+            .fetch()));
+    return KWayMerge.merge(results, Comparator.comparing(MemberTeamDto::getMemberId), 0, Integer.MAX_VALUE);
+  }
+
+  public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable) {
+    List<SortKey> sortKeys = sortKeys(pageable.getSort());
+    OrderSpecifier<?>[] orders = sortKeys.stream().map(SortKey::order).toArray(OrderSpecifier<?>[]::new);
+    Comparator<MemberTeamDto> comparator = sortKeys.stream()
+        .map(SortKey::comparator)
+        .reduce((first, second) -> first.thenComparing(second))
+        .orElseThrow();
+    long window = pageable.getOffset() + pageable.getPageSize();
+
+    List<ShardPage> pages = shards.scatter(targets(condition), shard ->
+        shard.readOnlyTx().execute(status -> {
+          List<MemberTeamDto> rows = select(shard)
+              .where(where(condition))
+              .orderBy(orders)
+              .limit(window)
+              .fetch();
+          // 읽은 행이 window 보다 적으면 이 샤드의 전체 개수이므로 count 쿼리를 생략한다.
+          long total = rows.size() < window ? rows.size() : shard.queryFactory()
+              .select(member.count())
+              .from(member)
+              .leftJoin(member.team, team)
+              .where(where(condition))
+              .fetchOne();
+          return new ShardPage(rows, total);
+        }));
+
+    List<MemberTeamDto> content = KWayMerge.merge(pages.stream().map(ShardPage::rows).toList(), comparator,
+        pageable.getOffset(), pageable.getPageSize());
+    long total = pages.stream().mapToLong(ShardPage::total).sum();
+    return new PageImpl<>(content, pageable, total);
+  }
+
+  /**
+   * 샤드마다 offset + size + 1 개를 읽어 합치고, 한 개 더 읽은 것으로 다음 페이지 여부를 정한다. (count 쿼리 없음)
+   * 조건은 회원 경로로만 만들어지므로 모든 샤드에 보낸다.
+   */
+  public Slice<MemberTeamDto> querySlice(Predicate predicate, Pageable pageable) {
+    List<SortKey> sortKeys = sortKeys(pageable.getSort());
+    OrderSpecifier<?>[] orders = sortKeys.stream().map(SortKey::order).toArray(OrderSpecifier<?>[]::new);
+    Comparator<MemberTeamDto> comparator = sortKeys.stream()
+        .map(SortKey::comparator)
+        .reduce((first, second) -> first.thenComparing(second))
+        .orElseThrow();
+    long window = pageable.getOffset() + pageable.getPageSize() + 1;
+
+    List<List<MemberTeamDto>> rows = shards.scatter(shards.all(), shard ->
+        shard.readOnlyTx().execute(status -> select(shard)
+            .where(predicate)
+            .orderBy(orders)
+            .limit(window)
+            .fetch()));
+    return SliceSupport.toSlice(
+        KWayMerge.merge(rows, comparator, pageable.getOffset(), pageable.getPageSize() + 1), pageable);
+  }
+
+  public List<Map<String, Object>> searchFields(MemberSearchCondition condition, Set<MemberTeamField> fields) {
+    return search(condition).stream().map(dto -> toRow(dto, fields)).toList();
+  }
+
+  public Page<Map<String, Object>> searchPageFields(MemberSearchCondition condition, Set<MemberTeamField> fields,
+      Pageable pageable) {
+    return searchPage(condition, pageable).map(dto -> toRow(dto, fields));
+  }
+
+  /**
+   * 조건마다 모든 샤드에 보낸다. (조건들을 OR 로 묶어 한 번에 읽는 기본 DB 구현과 결과가 같다)
+   */
+  public List<List<MemberTeamDto>> searchMerged(List<MemberSearchCondition> conditions) {
+    return conditions.stream().map(this::search).toList();
+  }
+
+  /**
+   * 샤드마다 count/sum/max/min 을 구해 합치고, 평균은 합친 sum/count 로 구한다.
+   */
+  public AgeStatisticsDto ageStatistics(MemberSearchCondition condition) {
+    List<AgeStatisticsDto> parts = shards.scatter(targets(condition), shard ->
+        shard.readOnlyTx().execute(status -> toAgeStatistics(null, shard.queryFactory()
+            .select(member.count(), member.age.sum(), member.age.max(), member.age.min())
+            .from(member)
+            .leftJoin(member.team, team)
+            .where(where(condition))
+            .fetchOne(), 0)));
+    return combine(null, parts);
+  }
+
+  /**
+   * 기본 DB 구현처럼 팀 이름으로 묶는다. 이름이 같은 팀이 여러 샤드에 있으면 한 행으로 합친다.
+   */
+  public List<AgeStatisticsDto> ageStatisticsByTeam(MemberSearchCondition condition) {
+    List<List<AgeStatisticsDto>> parts = shards.scatter(targets(condition), shard ->
+        shard.readOnlyTx().execute(status -> shard.queryFactory()
+            .select(team.name, member.count(), member.age.sum(), member.age.max(), member.age.min())
+            .from(member)
+            .join(member.team, team)
+            .where(where(condition))
+            .groupBy(team.name)
+            .fetch()
+            .stream()
+            .map(tuple -> toAgeStatistics(tuple.get(team.name), tuple, 1))
+            .toList()));
+    Map<String, List<AgeStatisticsDto>> byTeamName = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+    parts.stream()
+        .flatMap(List::stream)
+        .forEach(part -> byTeamName.computeIfAbsent(part.getTeamName(), name -> new ArrayList<>()).add(part));
+    return byTeamName.entrySet().stream()
+        .map(entry -> combine(entry.getKey(), entry.getValue()))
+        .toList();
+  }
+
+  /**
+   * 팀 이름 조건이 있으면 그 이름의 팀이 있는 샤드만. (이름이 같은 팀이 여러 샤드에 있을 수 있다)
+   */
+  List<MemberShard> targets(MemberSearchCondition condition) {
+    if (!hasText(condition.getTeamName())) {
+      return shards.all();
+    }
+    List<List<Long>> teamIds = shards.scatter(shards.all(), shard ->
+        shard.readOnlyTx().execute(status -> shard.queryFactory()
+            .select(team.id)
+            .from(team)
+            .where(team.name.eq(condition.getTeamName()))
+            .fetch()));
+    return teamIds.stream()
+        .flatMap(List::stream)
+        .map(shards::byId)
+        .distinct()
+        .toList();
+  }
+
+  private static JPAQuery<MemberTeamDto> select(MemberShard shard) {
+    return shard.queryFactory()
+        .select(new QMemberTeamDto(
+            member.id,
+            member.username,
+            member.age,
+            team.id,
+            team.name
+        ))
+        .from(member)
+        .leftJoin(member.team, team);
+  }
+
+  private static Map<String, Object> toRow(MemberTeamDto dto, Set<MemberTeamField> fields) {
+    Map<String, Object> row = new LinkedHashMap<>();
+    for (MemberTeamField field : fields) {
+      row.put(field.getFieldName(), switch (field) {
+        case MEMBER_ID -> dto.getMemberId();
+        case USERNAME -> dto.getUsername();
+        case AGE -> dto.getAge();
+        case TEAM_ID -> dto.getTeamId();
+        case TEAM_NAME -> dto.getTeamName();
+      });
+    }
+    return row;
+  }
+
+  /**
+   * tuple 의 offset 위치부터 count, sum, max, min 순서로 집계 컬럼이 있다. avg 는 합친 뒤에 구한다.
+   */
+  private static AgeStatisticsDto toAgeStatistics(String teamName, Tuple tuple, int offset) {
+    long count = tuple.get(offset, Long.class);
+    if (count == 0) {
+      return new AgeStatisticsDto(teamName, 0, 0, null, null, null);
+    }
+    return new AgeStatisticsDto(teamName, count,
+        tuple.get(offset + 1, Number.class).longValue(),
+        null,
+        tuple.get(offset + 2, Number.class).intValue(),
+        tuple.get(offset + 3, Number.class).intValue());
+  }
+
+  private static AgeStatisticsDto combine(String teamName, List<AgeStatisticsDto> parts) {
+    long count = 0;
+    long sum = 0;
+    Integer max = null;
+    Integer min = null;
+    for (AgeStatisticsDto part : parts) {
+      if (part.getCount() == 0) {
+        continue;
+      }
+      count += part.getCount();
+      sum += part.getSum();
+      max = max == null ? part.getMax() : Math.max(max, part.getMax());
+      min = min == null ? part.getMin() : Math.min(min, part.getMin());
+    }
+    if (count == 0) {
+      return new AgeStatisticsDto(teamName, 0, 0, null, null, null);
+    }
+    return new AgeStatisticsDto(teamName, count, sum, (double) sum / count, max, min);
+  }
+
+  private static Predicate[] where(MemberSearchCondition condition) {
+    return new Predicate[]{
+        hasText(condition.getUsername()) ? member.username.eq(condition.getUsername()) : null,
+        hasText(condition.getUsernameIgnoreCase())
+            ? member.usernameLower.eq(Member.normalizeUsername(condition.getUsernameIgnoreCase())) : null,
+        hasText(condition.getUsernameContains()) ? member.username.contains(condition.getUsernameContains()) : null,
+        hasText(condition.getUsernameStartsWith())
+            ? member.username.startsWith(condition.getUsernameStartsWith()) : null,
+        hasText(condition.getTeamName()) ? team.name.eq(condition.getTeamName()) : null,
+        ageGoe(condition.getAgeGoe()),
+        ageLoe(condition.getAgeLoe())
+    };
+  }
+
+  private static BooleanExpression ageGoe(Integer ageGoe) {
+    return ageGoe != null ? member.age.goe(ageGoe) : null;
+  }
+
+  private static BooleanExpression ageLoe(Integer ageLoe) {
+    return ageLoe != null ? member.age.loe(ageLoe) : null;
+  }
+
+  /**
+   * 샤드 쿼리의 정렬과 합칠 때의 비교가 같아야 하므로, null 은 항상 마지막에 두고 id 로 동순위를 끊는다.
+   */
+  private static List<SortKey> sortKeys(Sort sort) {
+    List<SortKey> keys = new ArrayList<>();
+    boolean hasId = false;
+    for (Sort.Order order : sort) {
+      MemberTeamField field = MemberTeamField.of(order.getProperty());
+      keys.add(SortKey.of(field, order.isAscending()));
+      hasId |= field == MemberTeamField.MEMBER_ID;
+    }
+    if (!hasId) {
+      keys.add(SortKey.of(MemberTeamField.MEMBER_ID, true));
+    }
+    return keys;
+  }
+
+  private record ShardPage(List<MemberTeamDto> rows, long total) {
+  }
+
+  private record SortKey(OrderSpecifier<?> order, Comparator<MemberTeamDto> comparator) {
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static SortKey of(MemberTeamField field, boolean ascending) {
+      Expression<? extends Comparable> expression = (Expression<? extends Comparable>) field.getExpression();
+      OrderSpecifier<?> order = new OrderSpecifier(ascending ? Order.ASC : Order.DESC, expression).nullsLast();
+      Comparator<Comparable> values = ascending ? Comparator.naturalOrder() : Comparator.reverseOrder();
+      Function<MemberTeamDto, Comparable> getter = switch (field) {
+        case MEMBER_ID -> MemberTeamDto::getMemberId;
+        case USERNAME -> MemberTeamDto::getUsername;
+        case AGE -> MemberTeamDto::getAge;
+        case TEAM_ID -> MemberTeamDto::getTeamId;
+        case TEAM_NAME -> MemberTeamDto::getTeamName;
+      };
+      return new SortKey(order, Comparator.comparing(getter, Comparator.nullsLast(values)));
+    }
+  }
+}
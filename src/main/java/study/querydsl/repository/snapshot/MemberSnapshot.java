@@ -0,0 +1,229 @@
+package study.querydsl.repository.snapshot;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.BlockSequenceGenerator;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.index.MemberBulkChangedEvent;
+
+/**
+ * Member/Team 테이블을 바이너리 스냅샷 파일로 내보내고 다시 적재한다.
+ * JPA 로 한 건씩 persist 하는 대신 JDBC batch insert 로 적재해서 큰 테스트 데이터도 빠르게 올린다.
+ * <p>
+ * 파일 형식: MAGIC, VERSION, 팀 수, 회원 수, 팀(id, name)..., 회원(id, username, age, team id(없으면 0))...
+ * 적재 후에는 이후 persist 가 겹치는 id 를 받지 않도록 시퀀스를 최대 id 뒤로 옮긴다. 시퀀스는 다시 만들므로
+ * 복원은 다른 쓰기가 없을 때 실행한다.
+ */
+@Slf4j
+@Component
+public class MemberSnapshot {
+
+  static final int MAGIC = 0x51445348; // "QDSH"
+  static final int VERSION = 1;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate tx;
+  private final ApplicationEventPublisher eventPublisher;
+  private final SessionFactoryImplementor sessionFactory;
+  private final int batchSize;
+  private final boolean sharding;
+
+  public MemberSnapshot(DataSource dataSource, PlatformTransactionManager transactionManager,
+      ApplicationEventPublisher eventPublisher, EntityManagerFactory entityManagerFactory,
+      @Value("${member.snapshot.batch-size:1000}") int batchSize,
+      @Value("${member.primitive.fetch-size:10000}") int fetchSize,
+      @Value("${member.sharding.enabled:false}") boolean sharding) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.jdbcTemplate.setFetchSize(fetchSize);
+    this.tx = new TransactionTemplate(transactionManager);
+    this.eventPublisher = eventPublisher;
+    this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    this.batchSize = batchSize;
+    this.sharding = sharding;
+  }
+
+  public SnapshotStats export(Path file) {
+    requireUnsharded("export");
+    long start = System.currentTimeMillis();
+    TransactionTemplate readOnlyTx = new TransactionTemplate(tx.getTransactionManager());
+    readOnlyTx.setReadOnly(true);
+    long[] counts = new long[2];
+    long bytes = readOnlyTx.execute(status -> {
+      try (SnapshotWriter writer = new SnapshotWriter(file)) {
+        writer.writeInt(MAGIC);
+        writer.writeInt(VERSION);
+        long countsPosition = writer.position();
+        writer.writeInt(0);
+        writer.writeInt(0);
+
+        jdbcTemplate.query("select team_id, name from team order by team_id", rs -> {
+          write(() -> {
+            writer.writeLong(rs.getLong(1));
+            writer.writeString(rs.getString(2));
+          });
+          counts[0]++;
+        });
+        jdbcTemplate.query("select member_id, username, age, team_id from member order by member_id", rs -> {
+          write(() -> {
+            writer.writeLong(rs.getLong(1));
+            writer.writeString(rs.getString(2));
+            writer.writeInt(rs.getInt(3));
+            writer.writeLong(rs.getLong(4));
+          });
+          counts[1]++;
+        });
+
+        writer.patchInt(countsPosition, Math.toIntExact(counts[0]));
+        writer.patchInt(countsPosition + Integer.BYTES, Math.toIntExact(counts[1]));
+        return writer.position();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    SnapshotStats stats = new SnapshotStats(counts[0], counts[1], bytes, System.currentTimeMillis() - start);
+    log.info("member snapshot exported to {}: {} teams, {} members, {} bytes in {}ms ({} rows/s)",
+        file, stats.teams(), stats.members(), stats.bytes(), stats.millis(), (long) stats.rowsPerSecond());
+    return stats;
+  }
+
+  /**
+   * 기존 Member/Team 데이터를 지우고 스냅샷으로 교체한다.
+   */
+  public SnapshotStats restore(Path file) {
+    requireUnsharded("restore");
+    long start = System.currentTimeMillis();
+    long[] maxIds = new long[2];
+    SnapshotStats stats = tx.execute(status -> {
+      try (SnapshotReader reader = new SnapshotReader(file)) {
+        if (reader.readInt() != MAGIC || reader.readInt() != VERSION) {
+          throw new IllegalArgumentException("Not a member snapshot: " + file);
+        }
+        int teamCount = reader.readInt();
+        int memberCount = reader.readInt();
+
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        long maxTeamId = 0;
+        for (int i = 0; i < teamCount; i++) {
+          long id = reader.readLong();
+          maxTeamId = Math.max(maxTeamId, id);
+          batch.add(new Object[]{id, reader.readString()});
+          flushIfFull("insert into team (team_id, name) values (?, ?)", batch, false);
+        }
+        flushIfFull("insert into team (team_id, name) values (?, ?)", batch, true);
+
+        // username_lower 는 DB 가 계산하는 생성 컬럼이다.
+        String memberInsert = "insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)";
+        long maxMemberId = 0;
+        for (int i = 0; i < memberCount; i++) {
+          long id = reader.readLong();
+          String username = reader.readString();
+          int age = reader.readInt();
+          long teamId = reader.readLong();
+          maxMemberId = Math.max(maxMemberId, id);
+          batch.add(new Object[]{id, username, age, teamId == 0 ? null : teamId});
+          flushIfFull(memberInsert, batch, false);
+        }
+        flushIfFull(memberInsert, batch, true);
+
+        // 엔티티 리스너를 거치지 않았으므로 메모리 색인/통계를 다시 만들게 한다.
+        eventPublisher.publishEvent(MemberBulkChangedEvent.all());
+        maxIds[0] = maxTeamId;
+        maxIds[1] = maxMemberId;
+        return new SnapshotStats(teamCount, memberCount, reader.size(), 0);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    // DDL 은 DB 에 따라 트랜잭션을 커밋하므로 적재 트랜잭션이 끝난 뒤에 실행한다.
+    restartSequence(Team.class, maxIds[0]);
+    restartSequence(Member.class, maxIds[1]);
+    stats = new SnapshotStats(stats.teams(), stats.members(), stats.bytes(), System.currentTimeMillis() - start);
+    log.info("member snapshot restored from {}: {} teams, {} members in {}ms ({} rows/s)",
+        file, stats.teams(), stats.members(), stats.millis(), (long) stats.rowsPerSecond());
+    return stats;
+  }
+
+  private void flushIfFull(String sql, List<Object[]> batch, boolean force) {
+    if (batch.size() >= batchSize || (force && !batch.isEmpty())) {
+      jdbcTemplate.batchUpdate(sql, batch);
+      batch.clear();
+    }
+  }
+
+  /**
+   * 엔티티 id 생성기의 시퀀스가 최대 id + increment 부터 시작하도록 다시 만든다.
+   * pooled(최대값 기준)/pooled-lo(최소값 기준) 어느 최적화기를 써도 새 id 가 최대 id 보다 커진다.
+   * 시퀀스 이름, increment 와 DDL 은 Hibernate 매핑과 Dialect 에서 얻으므로 DB 종류에 묶이지 않는다.
+   * (시퀀스가 없는 DB 에서는 SequenceStyleGenerator 가 테이블을 쓰므로 그 값을 고친다)
+   */
+  private void restartSequence(Class<?> entityClass, long maxId) {
+    if (!(sessionFactory.getMappingMetamodel().getEntityDescriptor(entityClass).getGenerator()
+        instanceof SequenceStyleGenerator generator)) {
+      throw new IllegalStateException(entityClass.getSimpleName() + " id is not generated by a sequence");
+    }
+    DatabaseStructure structure = generator.getDatabaseStructure();
+    Dialect dialect = sessionFactory.getJdbcServices().getDialect();
+    String name = sessionFactory.getJdbcServices().getJdbcEnvironment().getQualifiedObjectNameFormatter()
+        .format(structure.getPhysicalName(), dialect);
+    long next = maxId + structure.getIncrementSize();
+    if (!structure.isPhysicalSequence()) {
+      jdbcTemplate.update("update " + name + " set " + SequenceStyleGenerator.DEF_VALUE_COLUMN + " = ?", next);
+    } else {
+      for (String sql : dialect.getSequenceSupport().getDropSequenceStrings(name)) {
+        jdbcTemplate.execute(sql);
+      }
+      for (String sql : dialect.getSequenceSupport()
+          .getCreateSequenceStrings(name, Math.toIntExact(next), structure.getIncrementSize())) {
+        jdbcTemplate.execute(sql);
+      }
+    }
+    // 생성기가 이전 시퀀스에서 받아 둔 블록의 남은 id 는 복원한 회원의 id 와 겹칠 수 있다.
+    if (generator instanceof BlockSequenceGenerator blockGenerator) {
+      blockGenerator.discardBlock();
+    }
+  }
+
+  /**
+   * 스냅샷은 주 DB 의 테이블을 읽고 쓴다. 샤딩을 켜면 회원은 샤드에만 있으므로 거부한다.
+   */
+  private void requireUnsharded(String operation) {
+    if (sharding) {
+      throw new IllegalStateException("Member snapshot " + operation + " uses the primary database and is not "
+          + "supported with member.sharding.enabled");
+    }
+  }
+
+  private static void write(IoAction action) {
+    try {
+      action.run();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @FunctionalInterface
+  private interface IoAction {
+
+    void run() throws IOException;
+  }
+}
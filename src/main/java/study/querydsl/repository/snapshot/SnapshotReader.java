@@ -0,0 +1,71 @@
+package study.querydsl.repository.snapshot;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link SnapshotWriter} 가 쓴 파일을 memory-mapped 구간 단위로 읽는다. 구간은 파일 끝을 넘겨 매핑하지 않는다.
+ */
+class SnapshotReader implements AutoCloseable {
+
+  static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+  private final FileChannel channel;
+  private final long size;
+  private MappedByteBuffer buffer;
+  private long windowStart;
+
+  SnapshotReader(Path file) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    this.size = channel.size();
+    this.buffer = map(0, 0);
+  }
+
+  long size() {
+    return size;
+  }
+
+  int readInt() throws IOException {
+    return ensure(Integer.BYTES).getInt();
+  }
+
+  long readLong() throws IOException {
+    return ensure(Long.BYTES).getLong();
+  }
+
+  String readString() throws IOException {
+    int length = readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    ensure(length).get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private MappedByteBuffer ensure(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      windowStart += buffer.position();
+      if (windowStart + bytes > size) {
+        throw new IOException("Unexpected end of snapshot at " + windowStart);
+      }
+      buffer = map(windowStart, bytes);
+    }
+    return buffer;
+  }
+
+  private MappedByteBuffer map(long position, int minBytes) throws IOException {
+    long length = Math.min(Math.max(WINDOW_SIZE, minBytes), size - position);
+    return channel.map(MapMode.READ_ONLY, position, length);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,11 @@
+package study.querydsl.repository.snapshot;
+
+/**
+ * 스냅샷 export/restore 결과.
+ */
+public record SnapshotStats(long teams, long members, long bytes, long millis) {
+
+  public double rowsPerSecond() {
+    return millis == 0 ? teams + members : (teams + members) * 1000.0 / millis;
+  }
+}
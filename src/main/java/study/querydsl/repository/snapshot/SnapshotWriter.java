@@ -0,0 +1,98 @@
+package study.querydsl.repository.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 스냅샷 파일을 direct 버퍼에 모았다가 순서대로 쓴다.
+ * <p>
+ * 쓰기는 매핑하지 않는다. MappedByteBuffer 는 GC 전까지 매핑이 풀리지 않으므로 앞으로 쓸 구간을 크게 잡아 매핑하면
+ * 파일을 자르거나 헤더를 고칠 때도 매핑이 남아 있다. (Windows 에서는 매핑된 파일을 자를 수 없다)
+ * 순서대로 쓰면 파일은 쓴 만큼만 커지므로 자를 필요가 없다.
+ */
+class SnapshotWriter implements AutoCloseable {
+
+  static final int BUFFER_SIZE = 1024 * 1024;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private long written;
+
+  SnapshotWriter(Path file) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  long position() {
+    return written + buffer.position();
+  }
+
+  void writeInt(int value) throws IOException {
+    ensure(Integer.BYTES).putInt(value);
+  }
+
+  void writeLong(long value) throws IOException {
+    ensure(Long.BYTES).putLong(value);
+  }
+
+  /**
+   * 길이(int) + UTF-8 바이트. null 은 길이 -1 로 쓴다.
+   */
+  void writeString(String value) throws IOException {
+    if (value == null) {
+      writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeInt(bytes.length);
+    if (bytes.length > BUFFER_SIZE) {
+      flush();
+      write(ByteBuffer.wrap(bytes));
+      return;
+    }
+    ensure(bytes.length).put(bytes);
+  }
+
+  /**
+   * 이미 쓴 위치의 int 를 덮어쓴다. (헤더의 건수처럼 나중에 알게 되는 값)
+   */
+  void patchInt(long position, int value) throws IOException {
+    flush();
+    ByteBuffer bytes = ByteBuffer.allocate(Integer.BYTES).putInt(value).flip();
+    while (bytes.hasRemaining()) {
+      position += channel.write(bytes, position);
+    }
+  }
+
+  private ByteBuffer ensure(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flush();
+    }
+    return buffer;
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    write(buffer);
+    buffer.clear();
+  }
+
+  private void write(ByteBuffer bytes) throws IOException {
+    while (bytes.hasRemaining()) {
+      written += channel.write(bytes);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+}
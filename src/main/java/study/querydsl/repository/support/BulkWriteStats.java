@@ -0,0 +1,11 @@
+package study.querydsl.repository.support;
+
+/**
+ * 대량 쓰기 결과. (처리 건수와 소요 시간)
+ */
+public record BulkWriteStats(long rows, long millis) {
+
+  public double rowsPerSecond() {
+    return millis == 0 ? rows : rows * 1000.0 / millis;
+  }
+}
@@ -0,0 +1,21 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.jpa.impl.JPAQuery;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+/**
+ * 실행할 때마다(목록과 count 각각) 현재 요청 기한을 타임아웃 힌트로 거는 JPAQuery.
+ */
+public class DeadlineJPAQuery<T> extends JPAQuery<T> {
+
+  public DeadlineJPAQuery(EntityManager em) {
+    super(em);
+  }
+
+  @Override
+  protected Query createQuery(QueryModifiers modifiers, boolean forCount) {
+    return QueryDeadlines.apply(super.createQuery(modifiers, forCount));
+  }
+}
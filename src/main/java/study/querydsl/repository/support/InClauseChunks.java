@@ -0,0 +1,47 @@
+package study.querydsl.repository.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.util.Assert;
+
+/**
+ * IN 절 파라미터를 DB 가 감당할 수 있는 크기로 나누고, 각 청크의 크기를 2의 거듭제곱으로 맞춘다.
+ * 크기를 맞추지 않으면 목록 길이마다 다른 SQL 이 만들어져 statement/plan 캐시가 금방 가득 찬다.
+ * 부족한 자리는 마지막 값을 반복해서 채운다. (IN 절에서 중복 값은 결과에 영향이 없다)
+ */
+public final class InClauseChunks {
+
+  public static final int DEFAULT_MAX_CHUNK_SIZE = 512;
+
+  private InClauseChunks() {
+  }
+
+  public static <T> List<List<T>> split(List<T> values) {
+    return split(values, DEFAULT_MAX_CHUNK_SIZE);
+  }
+
+  public static <T> List<List<T>> split(List<T> values, int maxChunkSize) {
+    Assert.isTrue(Integer.bitCount(maxChunkSize) == 1, "maxChunkSize must be a power of two");
+    List<List<T>> chunks = new ArrayList<>();
+    for (int from = 0; from < values.size(); from += maxChunkSize) {
+      List<T> chunk = values.subList(from, Math.min(values.size(), from + maxChunkSize));
+      chunks.add(pad(chunk));
+    }
+    return chunks;
+  }
+
+  public static <T> List<T> pad(List<T> chunk) {
+    int paddedSize = paddedSize(chunk.size());
+    List<T> padded = new ArrayList<>(paddedSize);
+    padded.addAll(chunk);
+    T last = chunk.get(chunk.size() - 1);
+    while (padded.size() < paddedSize) {
+      padded.add(last);
+    }
+    return padded;
+  }
+
+  static int paddedSize(int size) {
+    return size <= 1 ? size : Integer.highestOneBit(size - 1) << 1;
+  }
+}
@@ -0,0 +1,47 @@
+package study.querydsl.repository.support;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * 박싱 없이 int 값을 모으는 가변 길이 목록.
+ */
+public final class IntArrayList {
+
+  private int[] values;
+  private int size;
+
+  public IntArrayList() {
+    this(16);
+  }
+
+  public IntArrayList(int initialCapacity) {
+    this.values = new int[Math.max(1, initialCapacity)];
+  }
+
+  public void add(int value) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, values.length + (values.length >> 1) + 1);
+    }
+    values[size++] = value;
+  }
+
+  public int get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+    }
+    return values[index];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public IntStream stream() {
+    return Arrays.stream(values, 0, size);
+  }
+
+  public int[] toArray() {
+    return Arrays.copyOf(values, size);
+  }
+}
@@ -0,0 +1,58 @@
+package study.querydsl.repository.support;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * 박싱 없이 long 값을 모으는 가변 길이 목록. (List&lt;Long&gt; 은 값마다 Long 객체와 참조를 만든다)
+ */
+public final class LongArrayList {
+
+  private long[] values;
+  private int size;
+
+  public LongArrayList() {
+    this(16);
+  }
+
+  public LongArrayList(int initialCapacity) {
+    this.values = new long[Math.max(1, initialCapacity)];
+  }
+
+  public void add(long value) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, values.length + (values.length >> 1) + 1);
+    }
+    values[size++] = value;
+  }
+
+  public long get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+    }
+    return values[index];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void forEach(LongConsumer action) {
+    for (int i = 0; i < size; i++) {
+      action.accept(values[i]);
+    }
+  }
+
+  public LongStream stream() {
+    return Arrays.stream(values, 0, size);
+  }
+
+  public long[] toArray() {
+    return Arrays.copyOf(values, size);
+  }
+}
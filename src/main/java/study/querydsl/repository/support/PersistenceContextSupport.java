@@ -0,0 +1,74 @@
+package study.querydsl.repository.support;
+
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 메모리 인덱스는 flush 된 변경만 알고 있으므로, 인덱스로 조회하기 전에 영속성 컨텍스트의
+ * 아직 반영되지 않은 변경을 확인하거나 내보낼 때 사용한다.
+ */
+public final class PersistenceContextSupport {
+
+  private PersistenceContextSupport() {
+  }
+
+  /**
+   * 현재 스레드에 바인딩된 영속성 컨텍스트(트랜잭션 또는 OSIV)가 있는지 확인한다.
+   */
+  public static boolean isBound(EntityManager em) {
+    return TransactionSynchronizationManager.hasResource(em.getEntityManagerFactory());
+  }
+
+  /**
+   * 모든 엔티티를 dirty check 해서 flush 되지 않은 변경이 있는지 정확히 확인한다. 조회 경로에서는 쓰지 않는다.
+   */
+  public static boolean hasPendingChanges(EntityManager em) {
+    return isBound(em) && em.unwrap(Session.class).isDirty();
+  }
+
+  /**
+   * dirty check 없이 flush 되지 않은 변경이 있을 수 있는지 확인한다. 대기 중인 insert/delete 가 없고
+   * 수정할 수 있는 엔티티도 없으면(읽기 전용 트랜잭션에서 읽은 엔티티뿐이면) false 다.
+   */
+  public static boolean mayHavePendingChanges(EntityManager em) {
+    if (!isBound(em)) {
+      return false;
+    }
+    SessionImplementor session = em.unwrap(SessionImplementor.class);
+    return session.getActionQueue().hasAnyQueuedActions()
+        || session.getPersistenceContextInternal().hasNonReadOnlyEntities();
+  }
+
+  /**
+   * 트랜잭션 안에서 flush 되지 않은 변경이 있을 수 있으면 flush 한다. (JPQL 실행 전 auto flush 와 같은 효과)
+   * 바뀐 엔티티를 찾는 일은 flush 가 하므로 따로 dirty check 하지 않는다.
+   */
+  public static void flushPendingChanges(EntityManager em) {
+    if (TransactionSynchronizationManager.isActualTransactionActive() && mayHavePendingChanges(em)) {
+      em.flush();
+    }
+  }
+
+  /**
+   * 영속성 컨텍스트에서 type 의 엔티티만 준영속으로 만든다. (벌크 연산으로 DB 와 달라진 엔티티 정리용)
+   */
+  public static void detachAll(EntityManager em, Class<?> type) {
+    if (!isBound(em)) {
+      return;
+    }
+    List<Object> targets = new ArrayList<>();
+    for (Map.Entry<Object, EntityEntry> entry : em.unwrap(SessionImplementor.class)
+        .getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+      if (type.isInstance(entry.getKey())) {
+        targets.add(entry.getKey());
+      }
+    }
+    targets.forEach(em::detach);
+  }
+}
@@ -0,0 +1,64 @@
+package study.querydsl.repository.support;
+
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+/**
+ * {@link StatelessBatchPipeline} 으로 실행할 작업 정의.
+ *
+ * @param <T> 읽는 엔티티
+ * @param <R> 처리 결과 (null 이면 쓰지 않는다)
+ */
+@Getter
+@Builder
+public class PipelineJob<T, R> {
+
+  /**
+   * 체크포인트를 구분하는 작업 이름.
+   */
+  private final String name;
+
+  /**
+   * 읽기 HQL. {@code :after} 파라미터보다 큰 id 만 id 순서로 읽어야 한다.
+   * StatelessSession 은 지연 로딩을 할 수 없으므로 필요한 연관관계는 fetch join 한다.
+   * <pre>select m from Member m left join fetch m.team where m.id > :after order by m.id</pre>
+   */
+  private final String query;
+
+  private final Class<T> type;
+
+  private final ToLongFunction<T> idOf;
+
+  private final Function<T, R> processor;
+
+  /**
+   * 결과를 쓰는 SQL 과 파라미터 바인딩. 배치 하나는 체크포인트와 같은 트랜잭션으로 커밋된다.
+   */
+  private final String writeSql;
+
+  private final ParameterizedPreparedStatementSetter<R> writeBinder;
+
+  @Builder.Default
+  private final int batchSize = 500;
+
+  @Builder.Default
+  private final int workers = 4;
+
+  /**
+   * 읽기/쓰기 대기열에 쌓아 둘 수 있는 배치 수. 가득 차면 앞 단계가 기다린다.
+   */
+  @Builder.Default
+  private final int queueCapacity = 8;
+
+  @Builder.Default
+  private final int fetchSize = 1000;
+
+  /**
+   * 회원을 바꾸는 작업인지. true 면 끝난 뒤 MemberBulkChangedEvent 를 발행한다. 다른 테이블만 쓰는 작업은 false 로 둔다.
+   */
+  @Builder.Default
+  private final boolean changesMembers = true;
+}
@@ -0,0 +1,11 @@
+package study.querydsl.repository.support;
+
+/**
+ * @param resumedAfterId 이전 실행의 체크포인트에서 이어서 시작한 id (처음부터 실행했으면 0)
+ */
+public record PipelineResult(long read, long written, long batches, long resumedAfterId, long millis) {
+
+  public double rowsPerSecond() {
+    return millis == 0 ? read : read * 1000.0 / millis;
+  }
+}
@@ -0,0 +1,28 @@
+package study.querydsl.repository.support;
+
+import jakarta.persistence.Query;
+import study.querydsl.concurrent.Deadline;
+
+/**
+ * 현재 요청 기한의 남은 시간을 JPA 쿼리 타임아웃 힌트로 건다.
+ * 기한이 이미 지났으면 쿼리를 실행하지 않고 DeadlineExceededException 을 던진다. (페이지의 count 쿼리 등)
+ */
+public final class QueryDeadlines {
+
+  public static final String TIMEOUT_HINT = "jakarta.persistence.query.timeout";
+
+  private QueryDeadlines() {
+  }
+
+  public static <Q extends Query> Q apply(Q query) {
+    Deadline deadline = Deadline.current();
+    if (deadline == null) {
+      return query;
+    }
+    deadline.check();
+    // Hibernate 는 JDBC 타임아웃을 초 단위로 걸기 때문에, 1초 미만이 0(타임아웃 없음)이 되지 않도록 올린다.
+    long seconds = Math.max(1, (deadline.remainingMillis() + 999) / 1000);
+    query.setHint(TIMEOUT_HINT, (int) (seconds * 1000));
+    return query;
+  }
+}
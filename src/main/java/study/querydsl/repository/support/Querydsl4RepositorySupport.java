@@ -10,6 +10,9 @@ import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityManager;
 import java.util.List;
 import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -40,7 +43,7 @@ public abstract class Querydsl4RepositorySupport {
     this.entityManager = entityManager;
     this.querydsl = new Querydsl(entityManager, new
         PathBuilder<>(path.getType(), path.getMetadata()));
-    this.queryFactory = new JPAQueryFactory(entityManager);
+    this.queryFactory = new DeadlineJPAQueryFactory(entityManager);
   }
   @PostConstruct
   public void validate() {
@@ -82,4 +85,23 @@ public abstract class Querydsl4RepositorySupport {
         countResult::fetchCount);
   }
 
+  /**
+   * 숫자 한 컬럼 결과를 List 로 모으지 않고 fetchSize 건씩 커서로 읽어 넘긴다.
+   */
+  protected void forEachLong(JPAQuery<? extends Number> query, int fetchSize, LongConsumer action) {
+    try (Stream<? extends Number> values = query.setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize).stream()) {
+      values.forEach(value -> action.accept(value.longValue()));
+    }
+  }
+  protected LongArrayList fetchLongs(JPAQuery<? extends Number> query, int fetchSize) {
+    LongArrayList values = new LongArrayList();
+    forEachLong(query, fetchSize, values::add);
+    return values;
+  }
+  protected int[] fetchInts(JPAQuery<? extends Number> query, int fetchSize) {
+    IntArrayList values = new IntArrayList();
+    forEachLong(query, fetchSize, value -> values.add(Math.toIntExact(value)));
+    return values.toArray();
+  }
+
 }
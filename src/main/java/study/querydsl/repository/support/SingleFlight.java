@@ -0,0 +1,103 @@
+package study.querydsl.repository.support;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 같은 키의 호출이 실행 중이면 새로 실행하지 않고 그 결과를 기다린다.
+ * 끝난 결과는 보관하지 않으므로, 실행 중에 들어온 호출끼리만 결과를 나눠 갖는다.
+ */
+public class SingleFlight<K, V> {
+
+  private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+  /**
+   * @param maxWaitMillis 다른 호출의 결과를 기다릴 최대 시간. 넘으면 {@link TimeoutException}.
+   */
+  public Result<V> execute(K key, long maxWaitMillis, Supplier<V> loader) throws TimeoutException {
+    return execute(key, maxWaitMillis, loader, failure -> false);
+  }
+
+  /**
+   * 실행한 호출의 실패가 callerSpecific 이면(그 호출의 기한 초과, 한도 거절 등) 기다리던 호출에 넘기지 않는다.
+   * 기다리던 호출들이 다시 들어와서 그중 하나가 새로 실행하고 나머지는 그 결과를 기다린다.
+   *
+   * @param maxWaitMillis 다른 호출의 결과를 기다릴 최대 시간 (다시 기다리는 시간 포함)
+   */
+  public Result<V> execute(K key, long maxWaitMillis, Supplier<V> loader, Predicate<Throwable> callerSpecific)
+      throws TimeoutException {
+    long waitUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    while (true) {
+      CompletableFuture<V> mine = new CompletableFuture<>();
+      CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+      if (running == null) {
+        return new Result<>(lead(key, mine, loader), true);
+      }
+      Throwable failure = await(running, waitUntil - System.nanoTime());
+      if (failure == null) {
+        return new Result<>(running.join(), false);
+      }
+      if (!callerSpecific.test(failure)) {
+        throw rethrow(failure);
+      }
+    }
+  }
+
+  public int inFlight() {
+    return inFlight.size();
+  }
+
+  /**
+   * 기다리던 호출이 다시 들어왔을 때 끝난 실행을 보지 않도록, 결과를 알리기 전에 목록에서 뺀다.
+   */
+  private V lead(K key, CompletableFuture<V> mine, Supplier<V> loader) {
+    V value;
+    try {
+      value = loader.get();
+    } catch (RuntimeException | Error e) {
+      inFlight.remove(key, mine);
+      mine.completeExceptionally(e);
+      throw e;
+    }
+    inFlight.remove(key, mine);
+    mine.complete(value);
+    return value;
+  }
+
+  /**
+   * @return 실행한 호출의 실패, 성공했으면 null
+   */
+  private static Throwable await(CompletableFuture<?> running, long waitNanos) throws TimeoutException {
+    try {
+      running.get(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Interrupted while waiting for an in-flight call");
+    } catch (ExecutionException e) {
+      return e.getCause();
+    }
+  }
+
+  private static RuntimeException rethrow(Throwable failure) {
+    if (failure instanceof RuntimeException cause) {
+      return cause;
+    }
+    if (failure instanceof Error error) {
+      throw error;
+    }
+    return new IllegalStateException(failure);
+  }
+
+  /**
+   * @param leader 직접 실행했으면 true, 다른 호출의 결과를 받았으면 false
+   */
+  public record Result<V>(V value, boolean leader) {
+  }
+}
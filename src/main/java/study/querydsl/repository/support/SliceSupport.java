@@ -0,0 +1,24 @@
+package study.querydsl.repository.support;
+
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+/**
+ * count 쿼리 없는 페이지. 페이지 크기보다 한 개 더 읽어서 다음 페이지가 있는지만 판단한다.
+ */
+public final class SliceSupport {
+
+  private SliceSupport() {
+  }
+
+  /**
+   * @param rows {@code limit(pageable.getPageSize() + 1)} 로 읽은 결과
+   */
+  public static <T> Slice<T> toSlice(List<T> rows, Pageable pageable) {
+    boolean hasNext = rows.size() > pageable.getPageSize();
+    List<T> content = hasNext ? rows.subList(0, pageable.getPageSize()) : rows;
+    return new SliceImpl<>(content, pageable, hasNext);
+  }
+}
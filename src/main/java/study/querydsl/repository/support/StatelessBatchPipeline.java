@@ -0,0 +1,297 @@
+package study.querydsl.repository.support;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.concurrent.RepositoryExecutors;
+import study.querydsl.entity.JobCheckpoint;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.index.MemberBulkChangedEvent;
+
+/**
+ * 테이블 전체를 읽어 자바로 계산하고 결과를 다시 쓰는 배치 작업용 파이프라인.
+ * <p>
+ * 읽기: StatelessSession 의 forward-only 커서로 id 순서대로 읽어 batchSize 단위로 묶는다. (영속성 컨텍스트 없음)
+ * 처리: workers 개의 스레드가 배치를 병렬로 처리한다.
+ * 쓰기: 한 스레드가 배치를 읽은 순서대로 JDBC batch 로 쓰고, 같은 트랜잭션에 {@link JobCheckpoint} 를 남긴다.
+ * 단계 사이의 대기열은 크기가 정해져 있어서 뒤 단계가 느리면 앞 단계가 기다리므로, 메모리 사용량은 테이블 크기와 무관하다.
+ * <p>
+ * 실패 후 같은 이름으로 다시 실행하면 마지막으로 커밋된 배치 다음 id 부터 이어서 처리한다.
+ * 체크포인트 이름은 "pipeline:" 으로 시작해서 MemberBulkOperations 의 작업과 이름이 겹쳐도 섞이지 않는다.
+ * <p>
+ * 회원을 바꾸는 작업(PipelineJob#changesMembers)은 한 배치라도 썼으면 끝나거나 실패한 뒤
+ * {@link MemberBulkChangedEvent#all()} 를 발행해서 메모리 색인/통계를 다시 계산하게 한다.
+ */
+@Slf4j
+@Component
+public class StatelessBatchPipeline {
+
+  private static final long POLL_MILLIS = 100;
+  private static final String CHECKPOINT_PREFIX = "pipeline:";
+
+  private final SessionFactory sessionFactory;
+  private final RepositoryExecutors executors;
+  private final ApplicationEventPublisher eventPublisher;
+  private final TransactionTemplate eventTx;
+
+  public StatelessBatchPipeline(EntityManagerFactory entityManagerFactory, RepositoryExecutors executors,
+      ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager) {
+    this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    this.executors = executors;
+    this.eventPublisher = eventPublisher;
+    this.eventTx = new TransactionTemplate(transactionManager);
+    this.eventTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  public <T, R> PipelineResult run(PipelineJob<T, R> job) {
+    long start = System.currentTimeMillis();
+    String checkpointName = CHECKPOINT_PREFIX + job.getName();
+    long resumeAfter = lastCheckpoint(checkpointName);
+    BlockingQueue<Batch<T>> input = new ArrayBlockingQueue<>(job.getQueueCapacity());
+    BlockingQueue<Batch<R>> output = new ArrayBlockingQueue<>(job.getQueueCapacity());
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    AtomicLong read = new AtomicLong();
+    AtomicLong written = new AtomicLong();
+    AtomicLong batches = new AtomicLong();
+
+    ExecutorService executor = executors.dedicated("pipeline-" + job.getName(), job.getWorkers() + 1);
+    try {
+      List<Future<?>> workers = new ArrayList<>();
+      for (int i = 0; i < job.getWorkers(); i++) {
+        workers.add(executor.submit(guard(failure, () -> process(job, input, output, failure))));
+      }
+      Future<?> writer = executor.submit(guard(failure,
+          () -> write(job, checkpointName, output, written, batches, failure)));
+
+      guard(failure, () -> read(job, resumeAfter, input, read, failure)).run();
+      // 읽기가 끝나면(또는 실패하면) 작업자마다 종료 표시를 보낸다.
+      for (int i = 0; i < job.getWorkers(); i++) {
+        offer(input, Batch.end(), failure, true);
+      }
+      for (Future<?> worker : workers) {
+        worker.get();
+      }
+      offer(output, Batch.end(), failure, true);
+      writer.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failure.compareAndSet(null, e);
+    } catch (Exception e) {
+      failure.compareAndSet(null, e);
+    } finally {
+      executor.shutdownNow();
+      if (job.isChangesMembers() && batches.get() > 0) {
+        afterMembersChanged();
+      }
+    }
+
+    if (failure.get() != null) {
+      log.warn("pipeline {} failed after {} rows written; run it again to resume", job.getName(), written.get());
+      throw new IllegalStateException("Pipeline " + job.getName() + " failed", failure.get());
+    }
+    clearCheckpoints(checkpointName);
+    PipelineResult result = new PipelineResult(read.get(), written.get(), batches.get(), resumeAfter,
+        System.currentTimeMillis() - start);
+    log.info("pipeline {} finished: {} read, {} written in {} batches, {}ms ({} rows/s)", job.getName(),
+        result.read(), result.written(), result.batches(), result.millis(), (long) result.rowsPerSecond());
+    return result;
+  }
+
+  private <T> void read(PipelineJob<T, ?> job, long resumeAfter, BlockingQueue<Batch<T>> input,
+      AtomicLong read, AtomicReference<Throwable> failure) throws InterruptedException {
+    try (StatelessSession session = sessionFactory.openStatelessSession()) {
+      Transaction tx = session.beginTransaction();
+      try (ScrollableResults<T> rows = session.createSelectionQuery(job.getQuery(), job.getType())
+          .setParameter("after", resumeAfter)
+          .setFetchSize(job.getFetchSize())
+          .setReadOnly(true)
+          .scroll(ScrollMode.FORWARD_ONLY)) {
+        long sequence = 0;
+        List<T> items = new ArrayList<>(job.getBatchSize());
+        while (failure.get() == null && rows.next()) {
+          items.add(rows.get());
+          read.incrementAndGet();
+          if (items.size() == job.getBatchSize()) {
+            offer(input, Batch.of(sequence++, items, job), failure, false);
+            items = new ArrayList<>(job.getBatchSize());
+          }
+        }
+        if (!items.isEmpty()) {
+          offer(input, Batch.of(sequence, items, job), failure, false);
+        }
+      } finally {
+        tx.commit();
+      }
+    }
+  }
+
+  private <T, R> void process(PipelineJob<T, R> job, BlockingQueue<Batch<T>> input,
+      BlockingQueue<Batch<R>> output, AtomicReference<Throwable> failure) throws InterruptedException {
+    while (failure.get() == null) {
+      Batch<T> batch = input.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+      if (batch == null) {
+        continue;
+      }
+      if (batch.isEnd()) {
+        return;
+      }
+      List<R> results = new ArrayList<>(batch.items().size());
+      for (T item : batch.items()) {
+        R result = job.getProcessor().apply(item);
+        if (result != null) {
+          results.add(result);
+        }
+      }
+      offer(output, new Batch<>(batch.sequence(), batch.firstId(), batch.lastId(), results), failure, false);
+    }
+  }
+
+  /**
+   * 작업자들이 끝낸 순서와 상관없이 읽은 순서대로 쓴다. 그래야 체크포인트 이전 id 는 모두 쓰였다고 보장할 수 있다.
+   */
+  private <R> void write(PipelineJob<?, R> job, String checkpointName, BlockingQueue<Batch<R>> output,
+      AtomicLong written, AtomicLong batches, AtomicReference<Throwable> failure) throws InterruptedException {
+    Map<Long, Batch<R>> pending = new TreeMap<>();
+    long next = 0;
+    try (StatelessSession session = sessionFactory.openStatelessSession()) {
+      while (failure.get() == null) {
+        Batch<R> batch = output.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (batch == null) {
+          continue;
+        }
+        if (batch.isEnd()) {
+          return;
+        }
+        pending.put(batch.sequence(), batch);
+        while (pending.containsKey(next)) {
+          Batch<R> ready = pending.remove(next++);
+          writeBatch(session, job, checkpointName, ready);
+          written.addAndGet(ready.items().size());
+          batches.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  private <R> void writeBatch(StatelessSession session, PipelineJob<?, R> job, String checkpointName,
+      Batch<R> batch) {
+    Transaction tx = session.beginTransaction();
+    try {
+      if (!batch.items().isEmpty()) {
+        session.doWork(connection -> {
+          try (PreparedStatement ps = connection.prepareStatement(job.getWriteSql())) {
+            for (R item : batch.items()) {
+              job.getWriteBinder().setValues(ps, item);
+              ps.addBatch();
+            }
+            ps.executeBatch();
+          }
+        });
+      }
+      session.insert(new JobCheckpoint(checkpointName, batch.firstId(), batch.lastId(), batch.items().size()));
+      tx.commit();
+    } catch (RuntimeException e) {
+      tx.rollback();
+      throw e;
+    }
+  }
+
+  private void afterMembersChanged() {
+    // JDBC 로 바꾼 회원은 2차 캐시와 다를 수 있다.
+    sessionFactory.getCache().evict(Member.class);
+    // 배치들은 이미 커밋됐으므로 별도 트랜잭션에서 발행해서 바로 반영되게 한다.
+    eventTx.executeWithoutResult(status -> eventPublisher.publishEvent(MemberBulkChangedEvent.all()));
+  }
+
+  private long lastCheckpoint(String jobName) {
+    try (StatelessSession session = sessionFactory.openStatelessSession()) {
+      Long last = session.createSelectionQuery(
+              "select max(c.rangeEnd) from JobCheckpoint c where c.jobName = :jobName", Long.class)
+          .setParameter("jobName", jobName)
+          .getSingleResult();
+      return last == null ? 0 : last;
+    }
+  }
+
+  private void clearCheckpoints(String jobName) {
+    try (StatelessSession session = sessionFactory.openStatelessSession()) {
+      Transaction tx = session.beginTransaction();
+      session.createMutationQuery("delete from JobCheckpoint c where c.jobName = :jobName")
+          .setParameter("jobName", jobName)
+          .executeUpdate();
+      tx.commit();
+    }
+  }
+
+  /**
+   * 대기열이 가득 차면 기다린다. (backpressure) 다른 단계가 실패했으면 포기한다.
+   * 종료 표시는 실패 여부와 상관없이 보내야 하므로 force 로 보낸다.
+   */
+  private static <E> void offer(BlockingQueue<E> queue, E element, AtomicReference<Throwable> failure,
+      boolean force) throws InterruptedException {
+    while (force || failure.get() == null) {
+      if (queue.offer(element, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+        return;
+      }
+      if (force && failure.get() != null) {
+        return;
+      }
+    }
+  }
+
+  private static Runnable guard(AtomicReference<Throwable> failure, Step step) {
+    return () -> {
+      try {
+        step.run();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        failure.compareAndSet(null, e);
+      } catch (Throwable e) {
+        failure.compareAndSet(null, e);
+      }
+    };
+  }
+
+  @FunctionalInterface
+  private interface Step {
+
+    void run() throws Exception;
+  }
+
+  private record Batch<E>(long sequence, long firstId, long lastId, List<E> items) {
+
+    static <T> Batch<T> of(long sequence, List<T> items, PipelineJob<T, ?> job) {
+      return new Batch<>(sequence, job.getIdOf().applyAsLong(items.get(0)),
+          job.getIdOf().applyAsLong(items.get(items.size() - 1)), items);
+    }
+
+    static <E> Batch<E> end() {
+      return new Batch<>(-1, 0, 0, null);
+    }
+
+    boolean isEnd() {
+      return items == null;
+    }
+  }
+}
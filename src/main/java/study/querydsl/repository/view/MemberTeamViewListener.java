@@ -0,0 +1,57 @@
+package study.querydsl.repository.view;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.index.MemberChangePublisher;
+
+/**
+ * Member/Team 의 insert/update/delete 를 flush 중에 {@link MemberTeamViewProjector} 로 넘겨
+ * member_team_view 를 같은 트랜잭션에서 고친다. 프로젝터가 꺼져 있으면 아무것도 하지 않는다.
+ * (리스너 클래스에는 콜백마다 메서드를 하나만 둘 수 있어서 두 엔티티를 타입으로 나눈다)
+ * 대량 저장 중인 회원은 건마다 고치지 않는다. 끝나고 발행되는 MemberBulkChangedEvent 로 한 번에 다시 만든다.
+ */
+@Component
+public class MemberTeamViewListener {
+
+  private final ObjectProvider<MemberTeamViewProjector> projector;
+
+  public MemberTeamViewListener(ObjectProvider<MemberTeamViewProjector> projector) {
+    this.projector = projector;
+  }
+
+  @PostPersist
+  @PostUpdate
+  public void onSaved(Object entity) {
+    MemberTeamViewProjector view = projector.getIfAvailable();
+    if (view == null) {
+      return;
+    }
+    if (entity instanceof Member member) {
+      if (!MemberChangePublisher.isCollecting()) {
+        view.upsert(member);
+      }
+    } else if (entity instanceof Team team) {
+      view.renameTeam(team.getId(), team.getName());
+    }
+  }
+
+  @PostRemove
+  public void onDeleted(Object entity) {
+    MemberTeamViewProjector view = projector.getIfAvailable();
+    if (view == null) {
+      return;
+    }
+    if (entity instanceof Member member) {
+      if (!MemberChangePublisher.isCollecting()) {
+        view.delete(member.getId());
+      }
+    } else if (entity instanceof Team team) {
+      view.detachTeam(team.getId());
+    }
+  }
+}
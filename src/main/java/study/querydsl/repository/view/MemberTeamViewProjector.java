@@ -0,0 +1,221 @@
+package study.querydsl.repository.view;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.index.MemberBulkChangedEvent;
+import study.querydsl.repository.support.InClauseChunks;
+
+/**
+ * member_team_view 를 회원/팀 변경과 같은 트랜잭션에서 고친다. member.view.enabled=true 일 때만 켜진다.
+ * <p>
+ * 엔티티 변경은 {@link MemberTeamViewListener} 가 flush 중에 넘겨준다. JDBC batch 로 모아 둔 insert/update 는
+ * 아직 DB 에 없을 수 있으므로 member 테이블을 다시 읽지 않고 엔티티 값으로 쓴다.
+ * 팀 이름이 바뀌면 그 팀 회원 행을 update 한 번으로 모두 고친다.
+ * 벌크 변경은 {@link MemberBulkChangedEvent} 로 받는다. 회원 id 가 있으면 같은 트랜잭션에서 그 회원만 다시 만들고,
+ * 전체 변경이면 커밋 후 {@link #rebuild()} 한다.
+ * <p>
+ * 어긋난 행은 {@link #drift()} 로 세고, 주기적으로(check-interval-ms) 확인해서 있으면 다시 만든다.
+ * 회원이 샤드에 나뉘어 있으면 한 테이블로 모을 수 없으므로 샤딩과 함께 켤 수 없다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "member.view.enabled", havingValue = "true")
+public class MemberTeamViewProjector {
+
+  // 행이 없는 순간이 없도록 지우고 다시 넣는 대신 덮어쓴다. (동시에 실행되는 upsert 와 키가 겹쳐도 실패하지 않는다)
+  private static final String MERGE_FROM_MEMBER =
+      "merge into member_team_view (member_id, username, age, team_id, team_name) key (member_id)"
+          + " select m.member_id, m.username, m.age, m.team_id, t.name"
+          + " from member m left join team t on t.team_id = m.team_id";
+
+  private static final String DELETE_ORPHANS =
+      "delete from member_team_view v"
+          + " where not exists (select 1 from member m where m.member_id = v.member_id)";
+
+  private static final String DRIFTED_ROWS =
+      "select count(*) from member m"
+          + " left join team t on t.team_id = m.team_id"
+          + " left join member_team_view v on v.member_id = m.member_id"
+          + " where v.member_id is null"
+          + " or v.username is distinct from m.username"
+          + " or v.age <> m.age"
+          + " or v.team_id is distinct from m.team_id"
+          + " or v.team_name is distinct from t.name";
+
+  private static final String ORPHAN_ROWS =
+      "select count(*) from member_team_view v"
+          + " where not exists (select 1 from member m where m.member_id = v.member_id)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final NamedParameterJdbcTemplate namedJdbcTemplate;
+  private final TransactionTemplate chunkTx;
+  private final long chunkSize;
+
+  private final Counter rebuilds;
+  private final Counter repairs;
+
+  public MemberTeamViewProjector(DataSource dataSource, PlatformTransactionManager transactionManager,
+      MeterRegistry meterRegistry,
+      @Value("${member.sharding.enabled:false}") boolean sharding,
+      @Value("${member.view.rebuild-chunk-size:10000}") long chunkSize) {
+    if (sharding) {
+      throw new IllegalStateException("member.view.enabled cannot be combined with member.sharding.enabled");
+    }
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    this.chunkTx = new TransactionTemplate(transactionManager);
+    this.chunkTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.chunkSize = chunkSize;
+    this.rebuilds = meterRegistry.counter("member.view.rebuilds");
+    this.repairs = meterRegistry.counter("member.view.repairs");
+  }
+
+  /**
+   * 회원 행을 엔티티 값으로 덮어쓴다. 팀을 읽지 않은 프록시면 팀 이름만 DB 에서 읽는다.
+   * (읽지 않은 팀은 이 트랜잭션에서 바뀌지 않았으므로 DB 값이 최신이다)
+   */
+  public void upsert(Member member) {
+    Team team = member.getTeam();
+    Long teamId = team == null ? null : team.getId();
+    String teamName = team == null ? null : Hibernate.isInitialized(team) ? team.getName() : teamName(teamId);
+    // update 후 insert 로 나누면 그 사이에 다시 만들기가 같은 행을 넣어 키가 겹칠 수 있다.
+    jdbcTemplate.update(
+        "merge into member_team_view (member_id, username, age, team_id, team_name) key (member_id)"
+            + " values (?, ?, ?, ?, ?)",
+        member.getId(), member.getUsername(), member.getAge(), teamId, teamName);
+  }
+
+  public void delete(long memberId) {
+    jdbcTemplate.update("delete from member_team_view where member_id = ?", memberId);
+  }
+
+  /**
+   * 팀 이름을 그 팀의 모든 회원 행에 반영한다. 새 팀이면 고칠 행이 없다.
+   */
+  public int renameTeam(long teamId, String name) {
+    return jdbcTemplate.update("update member_team_view set team_name = ? where team_id = ?", name, teamId);
+  }
+
+  /**
+   * 삭제된 팀의 회원 행을 팀 없음으로 바꾼다.
+   */
+  public int detachTeam(long teamId) {
+    return jdbcTemplate.update("update member_team_view set team_id = null, team_name = null where team_id = ?",
+        teamId);
+  }
+
+  private String teamName(Long teamId) {
+    List<String> names = jdbcTemplate.queryForList("select name from team where team_id = ?", String.class, teamId);
+    return names.isEmpty() ? null : names.get(0);
+  }
+
+  /**
+   * id 가 있는 벌크 변경은 같은 트랜잭션에서 반영한다. (벌크 update 는 이미 실행됐으므로 member 를 다시 읽어도 된다)
+   */
+  @EventListener
+  public void onBulkChanged(MemberBulkChangedEvent event) {
+    if (!event.isAll()) {
+      refresh(event.memberIds());
+    }
+  }
+
+  /**
+   * 전체 변경은 여러 트랜잭션에 걸쳐 다시 만들어야 하므로 커밋 후에 한다.
+   */
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onBulkCommitted(MemberBulkChangedEvent event) {
+    if (event.isAll()) {
+      rebuild();
+    }
+  }
+
+  /**
+   * 주어진 회원 행을 member/team 에서 다시 만든다. 현재 트랜잭션에서 실행한다.
+   */
+  public void refresh(List<Long> memberIds) {
+    for (List<Long> chunk : InClauseChunks.split(memberIds)) {
+      Map<String, List<Long>> params = Map.of("ids", chunk);
+      namedJdbcTemplate.update(MERGE_FROM_MEMBER + " where m.member_id in (:ids)", params);
+      namedJdbcTemplate.update(DELETE_ORPHANS + " and v.member_id in (:ids)", params);
+    }
+  }
+
+  /**
+   * 테이블 전체를 chunk-size 크기의 id 구간으로 나눠, 구간마다 별도 트랜잭션에서 member/team 값으로 덮어쓰고
+   * 회원이 없어진 행을 지운다. 구간 하나의 락만 잡으므로 다시 만드는 동안에도 다른 구간의 회원은 바로 반영된다.
+   */
+  public MemberTeamViewRebuild rebuild() {
+    long start = System.currentTimeMillis();
+    Map<String, Object> bounds = jdbcTemplate.queryForMap(
+        "select min(member_id) min_id, max(member_id) max_id"
+            + " from (select member_id from member union all select member_id from member_team_view) ids");
+    long rows = 0;
+    long chunks = 0;
+    if (bounds.get("min_id") != null) {
+      long min = ((Number) bounds.get("min_id")).longValue();
+      long max = ((Number) bounds.get("max_id")).longValue();
+      for (long from = Math.floorDiv(min, chunkSize) * chunkSize; from <= max; from += chunkSize) {
+        long rangeStart = from;
+        long rangeEnd = from + chunkSize;
+        Integer merged = chunkTx.execute(status -> {
+          int count = jdbcTemplate.update(MERGE_FROM_MEMBER + " where m.member_id >= ? and m.member_id < ?",
+              rangeStart, rangeEnd);
+          jdbcTemplate.update(DELETE_ORPHANS + " and v.member_id >= ? and v.member_id < ?", rangeStart, rangeEnd);
+          return count;
+        });
+        rows += merged;
+        chunks++;
+      }
+    }
+    rebuilds.increment();
+    MemberTeamViewRebuild result = new MemberTeamViewRebuild(chunks, rows, System.currentTimeMillis() - start);
+    log.info("member_team_view rebuilt: {} rows in {} chunks, {}ms", result.rows(), result.chunks(),
+        result.millis());
+    return result;
+  }
+
+  /**
+   * member left join team 결과와 다른 행 수. 없는 행, 값이 다른 행, 회원이 없어진 행을 모두 센다.
+   * 확인하는 동안 커밋된 변경 때문에 일시적으로 0 이 아닐 수 있다.
+   */
+  public long drift() {
+    Long drifted = jdbcTemplate.queryForObject(DRIFTED_ROWS, Long.class);
+    Long orphans = jdbcTemplate.queryForObject(ORPHAN_ROWS, Long.class);
+    return drifted + orphans;
+  }
+
+  /**
+   * 켜기 전에 있던 회원도 읽을 수 있도록 시작할 때 한 번, 이후 주기적으로 확인한다.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Scheduled(fixedDelayString = "${member.view.check-interval-ms:600000}",
+      initialDelayString = "${member.view.check-interval-ms:600000}")
+  public void checkAndRepair() {
+    long drift = drift();
+    if (drift > 0) {
+      log.warn("member_team_view has {} drifted rows, rebuilding", drift);
+      repairs.increment();
+      rebuild();
+    }
+  }
+}
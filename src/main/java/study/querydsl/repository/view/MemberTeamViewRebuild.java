@@ -0,0 +1,10 @@
+package study.querydsl.repository.view;
+
+/**
+ * member_team_view 를 다시 만든 결과.
+ *
+ * @param chunks 처리한 id 구간 수
+ * @param rows   다시 채운 행 수
+ */
+public record MemberTeamViewRebuild(long chunks, long rows, long millis) {
+}
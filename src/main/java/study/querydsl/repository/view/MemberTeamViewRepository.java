@@ -0,0 +1,144 @@
+package study.querydsl.repository.view;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMemberTeamView.memberTeamView;
+
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberTeamField;
+import study.querydsl.repository.index.UsernameNgramIndex;
+import study.querydsl.repository.support.DeadlineJPAQueryFactory;
+
+/**
+ * member_team_view 한 테이블에서 검색한다. 조인이 없으므로 username, team_name, age 조건이 모두 이 테이블의 인덱스를 탄다.
+ * usernameIgnoreCase 는 username_lower 인덱스를, usernameContains/StartsWith 는 회원 검색과 같은 n-gram 색인
+ * (후보 회원 id)을 쓴다. 행의 id 가 회원 id 와 같기 때문이다.
+ */
+@Repository
+@ConditionalOnProperty(name = "member.view.enabled", havingValue = "true")
+public class MemberTeamViewRepository {
+
+  private final JPAQueryFactory queryFactory;
+  private final UsernameNgramIndex usernameNgramIndex;
+
+  public MemberTeamViewRepository(EntityManager em, UsernameNgramIndex usernameNgramIndex) {
+    this.queryFactory = new DeadlineJPAQueryFactory(em);
+    this.usernameNgramIndex = usernameNgramIndex;
+  }
+
+  public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    usernameNgramIndex.flushForSearch(condition);
+    return select(condition)
+        .orderBy(memberTeamView.memberId.asc())
+        .fetch();
+  }
+
+  public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable) {
+    usernameNgramIndex.flushForSearch(condition);
+    List<MemberTeamDto> content = select(condition)
+        .orderBy(orders(pageable.getSort()))
+        .offset(pageable.getOffset())
+        .limit(pageable.getPageSize())
+        .fetch();
+    JPAQuery<Long> countQuery = queryFactory
+        .select(memberTeamView.count())
+        .from(memberTeamView)
+        .where(where(condition));
+    return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
+  }
+
+  /**
+   * 회원 검색 페이지와 같은 정렬. null 은 마지막에 두고 id 로 동순위를 끊는다.
+   */
+  private static OrderSpecifier<?>[] orders(Sort sort) {
+    List<OrderSpecifier<?>> orders = new ArrayList<>();
+    boolean hasId = false;
+    for (Sort.Order order : sort) {
+      MemberTeamField field = MemberTeamField.of(order.getProperty());
+      Order direction = order.isAscending() ? Order.ASC : Order.DESC;
+      orders.add(switch (field) {
+        case MEMBER_ID -> new OrderSpecifier<>(direction, memberTeamView.memberId);
+        case USERNAME -> new OrderSpecifier<>(direction, memberTeamView.username);
+        case AGE -> new OrderSpecifier<>(direction, memberTeamView.age);
+        case TEAM_ID -> new OrderSpecifier<>(direction, memberTeamView.teamId).nullsLast();
+        case TEAM_NAME -> new OrderSpecifier<>(direction, memberTeamView.teamName).nullsLast();
+      });
+      hasId |= field == MemberTeamField.MEMBER_ID;
+    }
+    if (!hasId) {
+      orders.add(memberTeamView.memberId.asc());
+    }
+    return orders.toArray(OrderSpecifier<?>[]::new);
+  }
+
+  private JPAQuery<MemberTeamDto> select(MemberSearchCondition condition) {
+    return queryFactory
+        .select(new QMemberTeamDto(
+            memberTeamView.memberId,
+            memberTeamView.username,
+            memberTeamView.age,
+            memberTeamView.teamId,
+            memberTeamView.teamName
+        ))
+        .from(memberTeamView)
+        .where(where(condition));
+  }
+
+  private BooleanExpression[] where(MemberSearchCondition condition) {
+    return new BooleanExpression[]{
+        usernameEq(condition.getUsername()),
+        usernameIgnoreCaseEq(condition.getUsernameIgnoreCase()),
+        usernameContains(condition.getUsernameContains()),
+        usernameStartsWith(condition.getUsernameStartsWith()),
+        teamNameEq(condition.getTeamName()),
+        ageGoe(condition.getAgeGoe()),
+        ageLoe(condition.getAgeLoe())
+    };
+  }
+
+  private static BooleanExpression usernameEq(String username) {
+    return hasText(username) ? memberTeamView.username.eq(username) : null;
+  }
+
+  private static BooleanExpression usernameIgnoreCaseEq(String username) {
+    return hasText(username) ? memberTeamView.usernameLower.eq(Member.normalizeUsername(username)) : null;
+  }
+
+  private BooleanExpression usernameContains(String term) {
+    return hasText(term)
+        ? usernameNgramIndex.usernameContains(memberTeamView.memberId, memberTeamView.username, term) : null;
+  }
+
+  private BooleanExpression usernameStartsWith(String prefix) {
+    return hasText(prefix)
+        ? usernameNgramIndex.usernameStartsWith(memberTeamView.memberId, memberTeamView.username, prefix) : null;
+  }
+
+  private static BooleanExpression teamNameEq(String teamName) {
+    return hasText(teamName) ? memberTeamView.teamName.eq(teamName) : null;
+  }
+
+  private static BooleanExpression ageGoe(Integer ageGoe) {
+    return ageGoe != null ? memberTeamView.age.goe(ageGoe) : null;
+  }
+
+  private static BooleanExpression ageLoe(Integer ageLoe) {
+    return ageLoe != null ? memberTeamView.age.loe(ageLoe) : null;
+  }
+}
@@ -0,0 +1,124 @@
+package study.querydsl.web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.StreamUtils;
+import study.querydsl.dto.MemberTeamDto;
+
+/**
+ * 페이지 응답을 컬럼 단위로 쓰는 컨버터. 필드 이름은 한 번만 쓰고, 필드마다 값 배열을 쓴 뒤 필요한 페이지 정보만 붙인다.
+ * <pre>
+ * {"fields":["memberId",...],"columns":[[1,2,...],...],"page":{"number":0,"size":20,...}}
+ * </pre>
+ * 같은 구조를 JSON/CBOR/Smile 로 쓸 수 있으며, 중간 트리 없이 JsonGenerator 로 응답 스트림에 바로 쓴다.
+ * 내용은 {@link MemberTeamDto} 나 필드 선택 조회의 Map 이어야 한다.
+ */
+public class ColumnarPageHttpMessageConverter extends AbstractHttpMessageConverter<Page<?>> {
+
+  public static final MediaType COLUMNAR_JSON = MediaType.parseMediaType("application/vnd.querydsl.columnar");
+
+  private static final List<String> MEMBER_TEAM_FIELDS = List.of("memberId", "username", "age", "teamId", "teamName");
+  private static final List<Function<MemberTeamDto, Object>> MEMBER_TEAM_GETTERS = List.of(
+      MemberTeamDto::getMemberId, MemberTeamDto::getUsername, MemberTeamDto::getAge,
+      MemberTeamDto::getTeamId, MemberTeamDto::getTeamName);
+
+  private final ObjectMapper objectMapper;
+
+  public ColumnarPageHttpMessageConverter(ObjectMapper objectMapper, MediaType mediaType) {
+    super(mediaType);
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return Page.class.isAssignableFrom(clazz);
+  }
+
+  @Override
+  protected boolean canRead(MediaType mediaType) {
+    return false;
+  }
+
+  @Override
+  protected Page<?> readInternal(Class<? extends Page<?>> clazz, HttpInputMessage inputMessage) {
+    throw new HttpMessageNotReadableException("Columnar pages are write-only", inputMessage);
+  }
+
+  @Override
+  protected void writeInternal(Page<?> page, HttpOutputMessage outputMessage) throws IOException {
+    List<?> content = page.getContent();
+    List<String> fields = fields(content);
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(StreamUtils.nonClosing(outputMessage.getBody()))) {
+      generator.writeStartObject();
+
+      generator.writeArrayFieldStart("fields");
+      for (String field : fields) {
+        generator.writeString(field);
+      }
+      generator.writeEndArray();
+
+      generator.writeArrayFieldStart("columns");
+      for (int i = 0; i < fields.size(); i++) {
+        generator.writeStartArray();
+        for (Object row : content) {
+          writeValue(generator, value(row, fields.get(i), i));
+        }
+        generator.writeEndArray();
+      }
+      generator.writeEndArray();
+
+      generator.writeObjectFieldStart("page");
+      generator.writeNumberField("number", page.getNumber());
+      generator.writeNumberField("size", page.getSize());
+      generator.writeNumberField("totalElements", page.getTotalElements());
+      generator.writeNumberField("totalPages", page.getTotalPages());
+      generator.writeEndObject();
+
+      generator.writeEndObject();
+    }
+  }
+
+  private static List<String> fields(List<?> content) {
+    if (content.isEmpty() || content.get(0) instanceof MemberTeamDto) {
+      return MEMBER_TEAM_FIELDS;
+    }
+    if (content.get(0) instanceof Map<?, ?> row) {
+      List<String> fields = new ArrayList<>(row.size());
+      row.keySet().forEach(key -> fields.add(String.valueOf(key)));
+      return fields;
+    }
+    throw new IllegalArgumentException("Unsupported page content: " + content.get(0).getClass());
+  }
+
+  private static Object value(Object row, String field, int index) {
+    if (row instanceof MemberTeamDto dto) {
+      return MEMBER_TEAM_GETTERS.get(index).apply(dto);
+    }
+    return ((Map<?, ?>) row).get(field);
+  }
+
+  private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+    if (value == null) {
+      generator.writeNull();
+    } else if (value instanceof Long l) {
+      generator.writeNumber(l);
+    } else if (value instanceof Integer i) {
+      generator.writeNumber(i);
+    } else if (value instanceof String s) {
+      generator.writeString(s);
+    } else {
+      generator.writeObject(value);
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package study.querydsl.web;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import study.querydsl.concurrent.ConcurrencyLimitExceededException;
+
+@RestControllerAdvice
+public class ConcurrencyLimitExceptionHandler {
+
+  @ExceptionHandler(ConcurrencyLimitExceededException.class)
+  public ResponseEntity<ProblemDetail> handle(ConcurrencyLimitExceededException e) {
+    ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+        .body(problem);
+  }
+}
@@ -0,0 +1,55 @@
+package study.querydsl.web;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.StringJoiner;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import study.querydsl.concurrent.ConcurrencyLimiter;
+import study.querydsl.concurrent.ConcurrencyLimiter.Permit;
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * 회원 엔드포인트 요청을 "메서드 경로 패턴 [검색 조건 모양]" 키로 {@link ConcurrencyLimiter} 에 통과시킨다.
+ * 예) {@code GET /v2/members [teamName,ageGoe]}
+ * <p>
+ * 같은 엔드포인트라도 조건 모양에 따라 쿼리 비용이 크게 다르므로 모양마다 한도를 따로 둔다.
+ * 거절은 {@link ConcurrencyLimitExceptionHandler} 가 503 으로 바꾼다.
+ */
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+  private static final String PERMIT = ConcurrencyLimitInterceptor.class.getName() + ".permit";
+
+  private final ConcurrencyLimiter limiter;
+
+  public ConcurrencyLimitInterceptor(ConcurrencyLimiter limiter) {
+    this.limiter = limiter;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    request.setAttribute(PERMIT, limiter.acquire(key(request)));
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+      Exception ex) {
+    if (request.getAttribute(PERMIT) instanceof Permit permit) {
+      permit.release(ex != null || response.getStatus() >= 500);
+    }
+  }
+
+  static String key(HttpServletRequest request) {
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    StringJoiner shape = new StringJoiner(",", "[", "]");
+    for (String name : MemberSearchCondition.FILTER_NAMES) {
+      if (hasText(request.getParameter(name))) {
+        shape.add(name);
+      }
+    }
+    return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI()) + " " + shape;
+  }
+}
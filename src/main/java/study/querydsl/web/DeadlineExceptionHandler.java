@@ -0,0 +1,35 @@
+package study.querydsl.web;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import study.querydsl.concurrent.Deadline;
+import study.querydsl.concurrent.DeadlineExceededException;
+
+/**
+ * 기한이 지나 시작하지 않은 쿼리와 JDBC 타임아웃으로 취소된 쿼리를 504 로 응답하고,
+ * member.query.deadline_exceeded 에 요청 모양별로 센다.
+ */
+@RestControllerAdvice
+public class DeadlineExceptionHandler {
+
+  private final MeterRegistry meterRegistry;
+
+  public DeadlineExceptionHandler(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @ExceptionHandler({DeadlineExceededException.class, org.springframework.dao.QueryTimeoutException.class,
+      jakarta.persistence.QueryTimeoutException.class})
+  public ResponseEntity<ProblemDetail> handle(RuntimeException e) {
+    Deadline deadline = Deadline.current();
+    String shape = deadline != null ? deadline.shape() : "unknown";
+    String stage = e instanceof DeadlineExceededException ? "before_execution" : "during_execution";
+    meterRegistry.counter("member.query.deadline_exceeded", "shape", shape, "stage", stage).increment();
+    return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+        .body(ProblemDetail.forStatusAndDetail(HttpStatus.GATEWAY_TIMEOUT, "Request deadline exceeded"));
+  }
+}
@@ -0,0 +1,56 @@
+package study.querydsl.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import study.querydsl.concurrent.Deadline;
+
+/**
+ * 요청마다 처리 기한을 정해 현재 스레드에 묶는다.
+ * <p>
+ * 기한은 엔드포인트(경로 패턴)별 설정, 없으면 기본값이고, 클라이언트가 {@value #TIMEOUT_HEADER} 헤더로
+ * 남은 시간(ms)을 보내면 그보다 짧게 줄일 수 있다. (최대값은 maxMillis)
+ */
+public class DeadlineInterceptor implements HandlerInterceptor {
+
+  public static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+  private final long defaultMillis;
+  private final long maxMillis;
+  private final Map<String, Number> endpointMillis;
+
+  public DeadlineInterceptor(long defaultMillis, long maxMillis, Map<String, Number> endpointMillis) {
+    this.defaultMillis = defaultMillis;
+    this.maxMillis = maxMillis;
+    this.endpointMillis = endpointMillis;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    Number configured = endpointMillis.get(String.valueOf(pattern));
+    long millis = configured != null ? configured.longValue() : defaultMillis;
+    String header = request.getHeader(TIMEOUT_HEADER);
+    if (header != null) {
+      try {
+        millis = Math.min(millis, Long.parseLong(header.trim()));
+      } catch (NumberFormatException e) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid " + TIMEOUT_HEADER + ": " + header);
+      }
+    }
+    millis = Math.min(Math.max(millis, 0), maxMillis);
+    Deadline.set(Deadline.after(ConcurrencyLimitInterceptor.key(request), Duration.ofMillis(millis)));
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+      Exception ex) {
+    Deadline.clear();
+  }
+}
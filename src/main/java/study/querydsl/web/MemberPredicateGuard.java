@@ -0,0 +1,79 @@
+package study.querydsl.web;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.Set;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ResponseStatusException;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberRepository;
+
+/**
+ * /members/query 의 파라미터를 검사한다. 바인딩은 목록에 없는 경로를 조용히 무시하므로, 클라이언트가 조건이
+ * 빠진 결과를 받지 않도록 허용하지 않는 경로와 인덱스 없는 정렬은 400 으로 거절한다.
+ * 조건이 회원 검색 조건과 달라서 비용 추정(QueryCostInterceptor)을 거치지 않으므로, 건너뛰는 행 수(offset)도 maxOffset 으로 제한한다.
+ * <p>
+ * 클라이언트가 실제로 어떤 조건을 쓰는지 member.query.predicate{path,operator} 로, 거절한 경로는
+ * member.query.predicate.rejected{path} 로 센다. (회원 속성이 아닌 이름은 other 로 묶는다)
+ */
+@Component
+public class MemberPredicateGuard {
+
+  static final Set<String> PAGING_PARAMETERS = Set.of("page", "size", "sort");
+  static final Set<String> SORT_FIELDS = Set.of("memberId", "username");
+  static final int MAX_VALUES = 100;
+
+  private final MeterRegistry meterRegistry;
+  private final long maxOffset;
+
+  public MemberPredicateGuard(MeterRegistry meterRegistry,
+      @Value("${member.query.max-offset:10000}") long maxOffset) {
+    this.meterRegistry = meterRegistry;
+    this.maxOffset = maxOffset;
+  }
+
+  public void check(MultiValueMap<String, String> parameters, Pageable pageable) {
+    List<String> unsupported = parameters.keySet().stream()
+        .filter(name -> !PAGING_PARAMETERS.contains(name) && !MemberRepository.QUERY_PATHS.contains(name))
+        .sorted()
+        .toList();
+    if (!unsupported.isEmpty()) {
+      unsupported.forEach(name -> meterRegistry.counter("member.query.predicate.rejected", "path", tag(name))
+          .increment());
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported query parameters " + unsupported
+          + "; only indexed paths " + MemberRepository.QUERY_PATHS.stream().sorted().toList() + " can be queried");
+    }
+    if (pageable.getOffset() > maxOffset) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page " + pageable.getPageNumber() + " skips "
+          + pageable.getOffset() + " rows; at most " + maxOffset + " rows can be skipped, narrow the query instead");
+    }
+    for (Sort.Order order : pageable.getSort()) {
+      if (!SORT_FIELDS.contains(order.getProperty())) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Sorting by " + order.getProperty()
+            + " is not supported; sort by " + SORT_FIELDS.stream().sorted().toList());
+      }
+    }
+    parameters.forEach((name, values) -> {
+      if (!MemberRepository.QUERY_PATHS.contains(name)) {
+        return;
+      }
+      if (values.size() > MAX_VALUES) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+            "At most " + MAX_VALUES + " values are allowed for " + name);
+      }
+      meterRegistry.counter("member.query.predicate", "path", name, "operator", values.size() > 1 ? "in" : "eq")
+          .increment();
+    });
+  }
+
+  private static String tag(String name) {
+    String property = name.split("\\.", 2)[0];
+    return BeanUtils.getPropertyDescriptor(Member.class, property) != null ? property : "other";
+  }
+}
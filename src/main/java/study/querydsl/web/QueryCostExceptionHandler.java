@@ -0,0 +1,43 @@
+package study.querydsl.web;
+
+import java.util.Map;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import study.querydsl.concurrent.ClientBudgetExhaustedException;
+import study.querydsl.repository.cost.QueryCost;
+import study.querydsl.repository.cost.QueryCostExceededException;
+
+/**
+ * 비용 상한을 넘은 요청은 400 에 추정 비용 내역과 줄이는 방법을, 예산을 다 쓴 클라이언트는 429 와 Retry-After 를 응답한다.
+ */
+@RestControllerAdvice
+public class QueryCostExceptionHandler {
+
+  @ExceptionHandler(QueryCostExceededException.class)
+  public ResponseEntity<ProblemDetail> handle(QueryCostExceededException e) {
+    QueryCost cost = e.getCost();
+    ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    problem.setTitle("Query too expensive");
+    problem.setProperty("cost", Math.round(cost.total()));
+    problem.setProperty("maxCost", Math.round(e.getMaxCost()));
+    problem.setProperty("breakdown", Map.of(
+        "scanned", Math.round(cost.scanned()),
+        "skipped", Math.round(cost.skipped()),
+        "sorted", Math.round(cost.sorted()),
+        "returned", Math.round(cost.returned())));
+    problem.setProperty("suggestion", e.getSuggestion());
+    return ResponseEntity.badRequest().body(problem);
+  }
+
+  @ExceptionHandler(ClientBudgetExhaustedException.class)
+  public ResponseEntity<ProblemDetail> handle(ClientBudgetExhaustedException e) {
+    ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.TOO_MANY_REQUESTS, e.getMessage());
+    return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+        .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+        .body(problem);
+  }
+}
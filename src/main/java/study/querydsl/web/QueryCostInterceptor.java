@@ -0,0 +1,167 @@
+package study.querydsl.web;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.security.Principal;
+import java.util.Set;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.MethodParameter;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.ServletRequestDataBinder;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerInterceptor;
+import study.querydsl.concurrent.ClientBudgetExhaustedException;
+import study.querydsl.concurrent.ClientCostBudgets;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.cost.QueryCost;
+import study.querydsl.repository.cost.QueryCostEstimator;
+import study.querydsl.repository.cost.QueryCostExceededException;
+
+/**
+ * 페이지 검색 요청의 비용을 실행 전에 추정해서 너무 비싼 요청을 거절한다.
+ * <p>
+ * 페이지 크기는 maxPageSize 로 줄인다. (실제로 줄이는 것은 WebConfig 의 Pageable 리졸버 설정이고, 여기서는
+ * {@value #CAPPED_HEADER} 헤더로 알려준다) 추정 비용은 {@value #COST_HEADER} 헤더로 돌려주고, maxCost 를 넘으면
+ * 무엇을 줄여야 하는지와 함께 400 으로, 클라이언트별 예산을 다 썼으면 429 로 거절한다. ({@link QueryCostExceptionHandler})
+ * <p>
+ * 페이지는 컨트롤러와 같은 Pageable 리졸버로 읽는다. 클라이언트는 인증된 사용자, 없으면 요청 주소이고,
+ * {@value #CLIENT_HEADER} 헤더는 신뢰하는 프록시(trustedProxies)가 보낸 요청에서만 쓴다. (누구나 바꿔 보낼 수 있으므로)
+ */
+public class QueryCostInterceptor implements HandlerInterceptor {
+
+  public static final String CLIENT_HEADER = "X-Client-Id";
+  public static final String COST_HEADER = "X-Query-Cost";
+  public static final String CAPPED_HEADER = "X-Page-Size-Capped";
+
+  private final QueryCostEstimator estimator;
+  private final ClientCostBudgets budgets;
+  private final ObjectProvider<PageableHandlerMethodArgumentResolver> pageableResolver;
+  private final Set<String> trustedProxies;
+  private final int maxPageSize;
+  private final double maxCost;
+
+  private final DistributionSummary costs;
+  private final Counter capped;
+  private final Counter rejectedCost;
+  private final Counter rejectedClient;
+
+  /**
+   * @param pageableResolver WebConfig 의 설정(최대 페이지 크기)이 적용된 리졸버. 설정 순환을 피하려고 요청 때 꺼낸다.
+   */
+  public QueryCostInterceptor(QueryCostEstimator estimator, ClientCostBudgets budgets, MeterRegistry meterRegistry,
+      ObjectProvider<PageableHandlerMethodArgumentResolver> pageableResolver, Set<String> trustedProxies,
+      int maxPageSize, double maxCost) {
+    this.estimator = estimator;
+    this.budgets = budgets;
+    this.pageableResolver = pageableResolver;
+    this.trustedProxies = Set.copyOf(trustedProxies);
+    this.maxPageSize = maxPageSize;
+    this.maxCost = maxCost;
+    this.costs = DistributionSummary.builder("member.query.cost").baseUnit("rows").register(meterRegistry);
+    this.capped = meterRegistry.counter("member.query.cost.capped");
+    this.rejectedCost = meterRegistry.counter("member.query.cost.rejected", "reason", "cost");
+    this.rejectedClient = meterRegistry.counter("member.query.cost.rejected", "reason", "client");
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    MethodParameter pageableParameter = pageableParameter(handler);
+    if (!HttpMethod.GET.matches(request.getMethod()) || pageableParameter == null) {
+      return true;
+    }
+    // 리졸버가 이미 maxPageSize 로 줄인 값이다.
+    Pageable pageable = pageableResolver.getObject()
+        .resolveArgument(pageableParameter, null, new ServletWebRequest(request), null);
+    if (requestedSize(request) > pageable.getPageSize()) {
+      response.setHeader(CAPPED_HEADER, String.valueOf(maxPageSize));
+      capped.increment();
+    }
+    QueryCost cost;
+    try {
+      cost = estimator.estimate(condition(request), pageable);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+    }
+    costs.record(cost.total());
+    response.setHeader(COST_HEADER, String.valueOf(Math.round(cost.total())));
+    if (cost.total() > maxCost) {
+      rejectedCost.increment();
+      throw new QueryCostExceededException(cost, maxCost, suggestion(cost, pageable));
+    }
+    try {
+      budgets.consume(client(request), cost.total());
+    } catch (ClientBudgetExhaustedException e) {
+      rejectedClient.increment();
+      throw e;
+    }
+    return true;
+  }
+
+  private static String suggestion(QueryCost cost, Pageable pageable) {
+    return switch (cost.dominant()) {
+      case OFFSET -> "Page " + pageable.getPageNumber() + " skips " + Math.round(cost.skipped())
+          + " rows; narrow the search with filters (for example usernameStartsWith or ageGoe/ageLoe)"
+          + " instead of paging this deep.";
+      case SORT -> "Sorting " + Math.round(cost.sorted()) + " rows; sort by memberId or username, which are indexed,"
+          + " or add filters.";
+      case SCAN -> "Scanning " + Math.round(cost.scanned()) + " rows; add an indexed filter"
+          + " (username, usernameIgnoreCase, usernameStartsWith or teamName).";
+      case SIZE -> "Request fewer rows per page.";
+    };
+  }
+
+  private static MethodParameter pageableParameter(Object handler) {
+    if (handler instanceof HandlerMethod method) {
+      for (MethodParameter parameter : method.getMethodParameters()) {
+        if (Pageable.class.equals(parameter.getParameterType())) {
+          return parameter;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 줄였는지 알리기 위해서만 요청한 크기를 읽는다. (잘못된 값은 리졸버가 기본값으로 바꾸므로 0)
+   */
+  private static int requestedSize(HttpServletRequest request) {
+    String size = request.getParameter("size");
+    if (!hasText(size)) {
+      return 0;
+    }
+    try {
+      return Integer.parseInt(size.trim());
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private static MemberSearchCondition condition(HttpServletRequest request) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    // 변환할 수 없는 값은 무시된다. (컨트롤러 바인딩에서 다시 검사한다)
+    new ServletRequestDataBinder(condition).bind(request);
+    return condition;
+  }
+
+  private String client(HttpServletRequest request) {
+    Principal principal = request.getUserPrincipal();
+    if (principal != null) {
+      return "user:" + principal.getName();
+    }
+    String client = request.getHeader(CLIENT_HEADER);
+    if (hasText(client) && trustedProxies.contains(request.getRemoteAddr())) {
+      return "client:" + client.trim();
+    }
+    return "addr:" + request.getRemoteAddr();
+  }
+}
@@ -0,0 +1,30 @@
+package study.querydsl.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import study.querydsl.datasource.ReadYourWrites;
+
+/**
+ * 클라이언트가 {@value #SESSION_HEADER} 헤더로 보낸 세션 id 를 현재 스레드에 묶는다.
+ * 같은 세션의 다음 요청은 변경 직후 잠시 동안 주 DB 에서 읽는다. (복제본 라우팅을 켰을 때만 의미가 있다)
+ */
+public class ReadYourWritesInterceptor implements HandlerInterceptor {
+
+  public static final String SESSION_HEADER = "X-Client-Session";
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    String session = request.getHeader(SESSION_HEADER);
+    if (session != null && !session.isBlank()) {
+      ReadYourWrites.setSession(session);
+    }
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+      Exception ex) {
+    ReadYourWrites.clearSession();
+  }
+}
@@ -0,0 +1,25 @@
+package study.querydsl.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import study.querydsl.datasource.ReplicaReads;
+
+/**
+ * 회원 검색/페이지 요청의 읽기 전용 트랜잭션을 복제본으로 보낼 수 있게 표시한다. (복제본 라우팅을 켰을 때만 의미가 있다)
+ * 표시가 없는 읽기(색인 다시 만들기, 스냅샷 등)는 주 DB 에서 읽는다.
+ */
+public class ReplicaReadInterceptor implements HandlerInterceptor {
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    ReplicaReads.allow();
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+      Exception ex) {
+    ReplicaReads.clear();
+  }
+}
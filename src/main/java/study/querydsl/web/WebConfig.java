@@ -0,0 +1,101 @@
+package study.querydsl.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.data.web.config.PageableHandlerMethodArgumentResolverCustomizer;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import study.querydsl.concurrent.ClientCostBudgets;
+import study.querydsl.concurrent.ConcurrencyLimiter;
+import study.querydsl.repository.cost.QueryCostEstimator;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+  private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+  private final ObjectMapper objectMapper;
+  private final ConcurrencyLimiter concurrencyLimiter;
+  private final DeadlineInterceptor deadlineInterceptor;
+  private final QueryCostInterceptor queryCostInterceptor;
+  private final int maxPageSize;
+
+  /**
+   * @param deadlineEndpoints 경로 패턴별 기한(ms). 예) member.deadline.endpoints-ms={'/v3/members':2000}
+   * @param maxQueryCost      요청 하나에 허용하는 추정 비용(행 수)
+   * @param trustedProxies    클라이언트 id 헤더를 믿을 프록시 주소. 예) member.query-cost.trusted-proxies=10.0.0.1,10.0.0.2
+   */
+  public WebConfig(ObjectMapper objectMapper, ConcurrencyLimiter concurrencyLimiter,
+      QueryCostEstimator queryCostEstimator, ClientCostBudgets clientCostBudgets, MeterRegistry meterRegistry,
+      ObjectProvider<PageableHandlerMethodArgumentResolver> pageableResolver,
+      @Value("${member.deadline.default-ms:5000}") long deadlineDefaultMillis,
+      @Value("${member.deadline.max-ms:30000}") long deadlineMaxMillis,
+      @Value("#{${member.deadline.endpoints-ms:{:}}}") Map<String, Number> deadlineEndpoints,
+      @Value("${member.query-cost.max-page-size:100}") int maxPageSize,
+      @Value("${member.query-cost.max-cost:2000000}") double maxQueryCost,
+      @Value("${member.query-cost.trusted-proxies:}") Set<String> trustedProxies) {
+    this.objectMapper = objectMapper;
+    this.concurrencyLimiter = concurrencyLimiter;
+    this.deadlineInterceptor = new DeadlineInterceptor(deadlineDefaultMillis, deadlineMaxMillis, deadlineEndpoints);
+    this.queryCostInterceptor = new QueryCostInterceptor(queryCostEstimator, clientCostBudgets, meterRegistry,
+        pageableResolver, trustedProxies, maxPageSize, maxQueryCost);
+    this.maxPageSize = maxPageSize;
+  }
+
+  /**
+   * 기한을 먼저 정해야 한도 대기열에서 기다린 시간도 기한에 포함된다.
+   * 비용 검사는 동시 실행 자리를 받기 전에 해서, 거절할 요청이 자리를 차지하지 않게 한다.
+   */
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new ReadYourWritesInterceptor());
+    // 복제본은 요청 경로의 검색/페이지 조회만 읽는다. (나이 증가 같은 쓰기는 읽기 전용 트랜잭션이 아니다)
+    registry.addInterceptor(new ReplicaReadInterceptor())
+        .addPathPatterns("/v1/members", "/v1/members/batch", "/v2/members", "/v3/members", "/members/query");
+    registry.addInterceptor(deadlineInterceptor)
+        .addPathPatterns("/v1/members/**", "/v2/members/**", "/v3/members/**", "/members/query");
+    registry.addInterceptor(queryCostInterceptor)
+        .addPathPatterns("/v2/members", "/v3/members");
+    registry.addInterceptor(new ConcurrencyLimitInterceptor(concurrencyLimiter))
+        .addPathPatterns("/v1/members/**", "/v2/members/**", "/v3/members/**", "/members/query");
+  }
+
+  /**
+   * 요청한 페이지 크기가 maxPageSize 보다 크면 maxPageSize 로 줄인다. (Spring Data 기본값은 2000)
+   */
+  @Bean
+  public PageableHandlerMethodArgumentResolverCustomizer pageableCustomizer() {
+    return resolver -> resolver.setMaxPageSize(maxPageSize);
+  }
+
+  /**
+   * 페이지 응답용 컬럼형 컨버터를 기본 JSON 컨버터 바로 뒤에 둔다.
+   * 앞에 두면 Accept 가 없을 때 컬럼형이 선택되고, 기본 CBOR/Smile 컨버터보다 뒤에 두면 페이지도 행 단위로 쓰인다.
+   */
+  @Override
+  public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+    int index = 0;
+    for (int i = 0; i < converters.size(); i++) {
+      if (converters.get(i) instanceof MappingJackson2HttpMessageConverter) {
+        index = i + 1;
+        break;
+      }
+    }
+    converters.addAll(index, List.of(
+        new ColumnarPageHttpMessageConverter(objectMapper, ColumnarPageHttpMessageConverter.COLUMNAR_JSON),
+        new ColumnarPageHttpMessageConverter(Jackson2ObjectMapperBuilder.cbor().build(), MediaType.APPLICATION_CBOR),
+        new ColumnarPageHttpMessageConverter(Jackson2ObjectMapperBuilder.smile().build(), SMILE)));
+  }
+}
@@ -0,0 +1,74 @@
+package study.querydsl.concurrent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AimdLimitTest {
+
+  private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(100);
+
+  @Test
+  public void growsWhileFastAndBusy() throws InterruptedException {
+    AimdLimit limit = new AimdLimit(2, 1, 10, TARGET, 0.5, 0);
+
+    assertThat(limit.tryAcquire(0)).isTrue();
+    assertThat(limit.tryAcquire(0)).isTrue();
+    assertThat(limit.tryAcquire(0)).isFalse();
+    limit.release(TimeUnit.MILLISECONDS.toNanos(10), false);
+
+    assertThat(limit.limit()).isEqualTo(3);
+    assertThat(limit.inFlight()).isEqualTo(1);
+  }
+
+  @Test
+  public void doesNotGrowWhenIdle() throws InterruptedException {
+    AimdLimit limit = new AimdLimit(10, 1, 20, TARGET, 0.5, 0);
+
+    assertThat(limit.tryAcquire(0)).isTrue();
+    limit.release(TimeUnit.MILLISECONDS.toNanos(10), false);
+
+    assertThat(limit.limit()).isEqualTo(10);
+  }
+
+  @Test
+  public void backsOffOnSlowOrFailedCalls() throws InterruptedException {
+    AimdLimit limit = new AimdLimit(8, 2, 20, TARGET, 0.5, 0);
+
+    limit.tryAcquire(0);
+    limit.release(TimeUnit.MILLISECONDS.toNanos(500), false);
+    assertThat(limit.limit()).isEqualTo(4);
+
+    limit.tryAcquire(0);
+    limit.release(0, true);
+    assertThat(limit.limit()).isEqualTo(2);
+
+    limit.tryAcquire(0);
+    limit.release(0, true);
+    assertThat(limit.limit()).isEqualTo(2);
+  }
+
+  @Test
+  public void queuedCallerGetsReleasedSlot() throws Exception {
+    AimdLimit limit = new AimdLimit(1, 1, 1, TARGET, 0.5, 1);
+    limit.tryAcquire(0);
+
+    Thread waiter = Thread.ofVirtual().start(() -> {
+      try {
+        assertThat(limit.tryAcquire(TimeUnit.SECONDS.toNanos(5))).isTrue();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    while (limit.queued() == 0) {
+      Thread.onSpinWait();
+    }
+    // 대기열(1개)이 찼으므로 다음 호출은 기다리지 않고 거절된다.
+    assertThat(limit.tryAcquire(TimeUnit.SECONDS.toNanos(5))).isFalse();
+
+    limit.release(0, false);
+    waiter.join();
+    assertThat(limit.inFlight()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,23 @@
+package study.querydsl.concurrent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class ClientCostBudgetsTest {
+
+  @Test
+  public void newClientsShareOverflowBudgetWhenFull() {
+    ClientCostBudgets budgets = new ClientCostBudgets(1, 100, 2);
+    budgets.consume("addr:10.0.0.1", 10);
+    budgets.consume("addr:10.0.0.2", 10);
+
+    // 상태를 가진 클라이언트가 가득 차면 새 주소들은 공용 예산 하나를 나눠 쓴다.
+    budgets.consume("addr:10.0.0.3", 60);
+    assertThatThrownBy(() -> budgets.consume("addr:10.0.0.4", 60))
+        .isInstanceOf(ClientBudgetExhaustedException.class);
+    assertThat(budgets.remaining(ClientCostBudgets.OVERFLOW)).isLessThan(50);
+    assertThat(budgets.remaining("addr:10.0.0.1")).isLessThan(100);
+  }
+}
@@ -0,0 +1,84 @@
+package study.querydsl.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 느린 쿼리(SLOW_QUERY 함수로 잠든다)를 동시에 여러 개 실행할 때 플랫폼 스레드 풀과 가상 스레드의 처리량을 비교한다.
+ * 플랫폼 스레드 수는 Tomcat 작업 스레드처럼 고정하고, 커넥션 풀은 그보다 크게 잡아서 스레드 수가 병목이 되게 한다.
+ * <p>
+ * ./gradlew test -Dbenchmark=true 로 실행
+ */
+@SpringBootTest(properties = {
+    "spring.threads.virtual.enabled=true",
+    "spring.datasource.hikari.maximum-pool-size=" + VirtualThreadLoadTest.CONNECTIONS,
+    "member.virtual-threads.pinning-threshold-ms=10"
+})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VirtualThreadLoadTest {
+
+  static final int CONNECTIONS = 256;
+  private static final int PLATFORM_THREADS = 64;
+  private static final int QUERY_MILLIS = 50;
+  private static final int QUERIES_PER_CLIENT = 5;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+  @Autowired VirtualThreadPinningMonitor pinningMonitor;
+
+  @BeforeEach
+  public void before() {
+    jdbcTemplate.execute("create alias if not exists slow_query for \""
+        + VirtualThreadLoadTest.class.getName() + ".slowQuery\"");
+  }
+
+  public static int slowQuery(int millis) throws InterruptedException {
+    Thread.sleep(millis);
+    return millis;
+  }
+
+  @Test
+  public void throughputByConcurrentSlowQueries() throws Exception {
+    System.out.printf("%12s %16s %16s%n", "concurrency", "platform q/s", "virtual q/s");
+    for (int concurrency : new int[]{16, 64, 128, 256, 512}) {
+      double platform;
+      try (ExecutorService executor = Executors.newFixedThreadPool(PLATFORM_THREADS)) {
+        platform = run(executor, concurrency);
+      }
+      double virtual;
+      try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        virtual = run(executor, concurrency);
+      }
+      System.out.printf("%12d %16.0f %16.0f%n", concurrency, platform, virtual);
+    }
+
+    // JFR 이벤트는 주기적으로 전달되므로 잠시 기다린다.
+    Thread.sleep(2_000);
+    // 드라이버가 synchronized 안에서 블로킹하면 여기에 위치별 횟수가 나온다.
+    System.out.println("pinned sites: " + pinningMonitor.report());
+  }
+
+  private double run(ExecutorService executor, int concurrency) throws Exception {
+    long start = System.nanoTime();
+    List<Future<?>> clients = new ArrayList<>(concurrency);
+    for (int i = 0; i < concurrency; i++) {
+      clients.add(executor.submit(() -> {
+        for (int q = 0; q < QUERIES_PER_CLIENT; q++) {
+          jdbcTemplate.queryForObject("select slow_query(?)", Integer.class, QUERY_MILLIS);
+        }
+      }));
+    }
+    for (Future<?> client : clients) {
+      client.get();
+    }
+    return (double) concurrency * QUERIES_PER_CLIENT / ((System.nanoTime() - start) / 1e9);
+  }
+}
@@ -0,0 +1,118 @@
+package study.querydsl.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberBatchSearchExecutor;
+
+/**
+ * 묶음 검색은 여러 묶음을 다른 스레드에서 실행하므로 테스트 트랜잭션 없이 실행하고 직접 정리한다.
+ */
+@SpringBootTest(properties = "member.batch-search.max-conditions-per-query=1")
+class MemberControllerTest {
+
+  @Autowired MemberController memberController;
+  @Autowired MemberBatchSearchExecutor memberBatchSearchExecutor;
+  @Autowired EntityManager em;
+  @Autowired TransactionTemplate transactionTemplate;
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  public void before() {
+    transactionTemplate.executeWithoutResult(status -> {
+      Team teamA = new Team("teamA");
+      em.persist(teamA);
+      em.persist(new Member("member1", 10, teamA));
+      em.persist(new Member("member2", 20, teamA));
+      em.persist(new Member("member3", 30));
+    });
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    jdbcTemplate.update("delete from member");
+    jdbcTemplate.update("delete from team");
+  }
+
+  @Test
+  public void batchRunsGroupsInParallelAndSharesEquivalentConditions() {
+    MemberSearchCondition member1 = condition("member1", null, null);
+    MemberSearchCondition member2Upper = condition(null, "MEMBER2", null);
+    MemberSearchCondition member2Lower = condition(null, "member2", null);
+    MemberSearchCondition all = new MemberSearchCondition();
+    // 빈 팀 이름은 조건이 없는 것과 같으므로 member1 과 같은 조회를 쓴다.
+    MemberSearchCondition member1EmptyTeam = condition("member1", null, "");
+
+    // 묶음마다 조건 하나이므로 서로 다른 조건 세 개가 세 묶음으로 병렬 실행된다.
+    Map<Integer, List<MemberTeamDto>> result = memberBatchSearchExecutor.search(
+        List.of(member1, member2Upper, member2Lower, all, member1EmptyTeam));
+
+    assertThat(result).containsOnlyKeys(0, 1, 2, 3, 4);
+    assertThat(result.get(0)).extracting(MemberTeamDto::getUsername).containsExactly("member1");
+    assertThat(result.get(1)).extracting(MemberTeamDto::getUsername).containsExactly("member2");
+    assertThat(result.get(2)).isSameAs(result.get(1));
+    assertThat(result.get(4)).isSameAs(result.get(0));
+    assertThat(result.get(3)).extracting(MemberTeamDto::getUsername)
+        .containsExactlyInAnyOrder("member1", "member2", "member3");
+  }
+
+  @Test
+  public void batchEndpointAcceptsUpTo200Conditions() {
+    List<MemberSearchCondition> conditions = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      conditions.add(condition("member" + (i % 3 + 1), null, null));
+    }
+
+    Map<Integer, List<MemberTeamDto>> result = memberController.searchMemberBatch(conditions);
+
+    assertThat(result).hasSize(200);
+    assertThat(result.get(199)).extracting(MemberTeamDto::getUsername).containsExactly("member2");
+  }
+
+  @Test
+  public void batchEndpointRejectsMoreThan200Conditions() {
+    List<MemberSearchCondition> conditions = new ArrayList<>();
+    for (int i = 0; i < 201; i++) {
+      conditions.add(new MemberSearchCondition());
+    }
+
+    assertThatThrownBy(() -> memberController.searchMemberBatch(conditions))
+        .isInstanceOfSatisfying(ResponseStatusException.class,
+            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+  }
+
+  @Test
+  public void batchEndpointRejectsNullConditions() {
+    List<MemberSearchCondition> conditions = Arrays.asList(condition("member1", null, null), null);
+
+    assertThatThrownBy(() -> memberController.searchMemberBatch(conditions))
+        .isInstanceOfSatisfying(ResponseStatusException.class,
+            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+  }
+
+  private static MemberSearchCondition condition(String username, String usernameIgnoreCase, String teamName) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setUsername(username);
+    condition.setUsernameIgnoreCase(usernameIgnoreCase);
+    condition.setTeamName(teamName);
+    return condition;
+  }
+}
@@ -0,0 +1,88 @@
+package study.querydsl.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+/**
+ * 복제본 대신 별도 H2 DB 를 쓴다. database() 로 어느 쪽에 연결됐는지 확인한다.
+ */
+@SpringBootTest(properties = {
+    "member.replica.enabled=true",
+    "member.replica.urls=jdbc:h2:mem:replica_routing_test;DB_CLOSE_DELAY=-1",
+    "member.replica.read-your-writes-ms=300",
+    "member.replica.check-interval-ms=3600000"
+})
+class ReplicaRoutingDataSourceTest {
+
+  @Autowired PlatformTransactionManager transactionManager;
+  @Autowired JdbcTemplate jdbcTemplate;
+  @Autowired EntityManager em;
+  @Autowired ReplicaPool replicaPool;
+  @Autowired ReplicaMonitor replicaMonitor;
+
+  @AfterEach
+  public void cleanUp() {
+    replicaPool.all().forEach(replica -> replica.markHealthy(Replica.UNKNOWN_LAG));
+    jdbcTemplate.update("delete from member");
+  }
+
+  @Test
+  public void readOnlyTransactionsGoToReplica() {
+    assertThat(database(true)).isEqualToIgnoringCase("replica_routing_test");
+    assertThat(database(false)).isNotEqualToIgnoringCase("replica_routing_test");
+  }
+
+  @Test
+  public void unmarkedReadOnlyTransactionsStayOnPrimary() {
+    // 색인 재구축처럼 요청 경로가 아닌 읽기는 복제 지연이 없는 주 DB 에서 읽는다.
+    TransactionTemplate tx = new TransactionTemplate(transactionManager);
+    tx.setReadOnly(true);
+    assertThat(tx.execute(status -> jdbcTemplate.queryForObject("select database()", String.class)))
+        .isNotEqualToIgnoringCase("replica_routing_test");
+  }
+
+  @Test
+  public void readsFollowOwnWritesWithinWindow() throws InterruptedException {
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> em.persist(new Member("member1", 10)));
+
+    assertThat(database(true)).isNotEqualToIgnoringCase("replica_routing_test");
+    Thread.sleep(400);
+    assertThat(database(true)).isEqualToIgnoringCase("replica_routing_test");
+  }
+
+  @Test
+  public void unhealthyReplicaFallsBackToPrimary() {
+    replicaPool.all().forEach(replica -> replica.markUnhealthy("down for test"));
+
+    assertThat(database(true)).isNotEqualToIgnoringCase("replica_routing_test");
+    assertThat(replicaMonitor.health().getStatus()).isEqualTo(new Status("DEGRADED"));
+  }
+
+  @Test
+  public void monitorReportsHealth() {
+    replicaMonitor.check();
+
+    Replica replica = replicaPool.all().get(0);
+    assertThat(replica.healthy()).isTrue();
+    // 별도 DB 라서 주 DB 의 heartbeat 가 복제되지 않는다.
+    assertThat(replica.lagMillis()).isEqualTo(Replica.UNKNOWN_LAG);
+    assertThat(replicaMonitor.health().getStatus()).isEqualTo(Status.UP);
+  }
+
+  private String database(boolean readOnly) {
+    TransactionTemplate tx = new TransactionTemplate(transactionManager);
+    tx.setReadOnly(readOnly);
+    return ReplicaReads.callWith(true,
+        () -> tx.execute(status -> jdbcTemplate.queryForObject("select database()", String.class)));
+  }
+}
@@ -5,22 +5,32 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
+import java.util.ArrayList;
 import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.repository.index.MemberBulkChangedEvent;
+import study.querydsl.repository.index.MemberChangedEvent;
+import study.querydsl.repository.support.BulkWriteStats;
 
-@SpringBootTest
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @Transactional
+@RecordApplicationEvents
 class MemberJpaRepositoryTest {
 
   @Autowired
   EntityManager em;
   @Autowired MemberJpaRepository memberJpaRepository;
+  @Autowired ApplicationEvents events;
 
   @Test
   public void basicTest() {
@@ -66,4 +76,65 @@ class MemberJpaRepositoryTest {
 
     assertThat(result).extracting("username").containsExactly("member3", "member4");
   }
-}
\ No newline at end of file
+
+  @Test
+  public void findAllByIds() {
+    Team teamA = new Team("teamA");
+    em.persist(teamA);
+
+    Member member1 = new Member("member1", 10, teamA);
+    Member member2 = new Member("member2", 20, teamA);
+    Member member3 = new Member("member3", 30);
+    em.persist(member1);
+    em.persist(member2);
+    em.persist(member3);
+
+    em.flush();
+    em.clear();
+
+    Member managed = memberJpaRepository.findById(member2.getId()).get();
+
+    List<Member> result = memberJpaRepository.findAllByIds(
+        List.of(member3.getId(), member1.getId(), -1L, member2.getId()));
+
+    assertThat(result).extracting("username").containsExactly("member3", "member1", "member2");
+    assertThat(result.get(2)).isSameAs(managed);
+
+    List<MemberTeamDto> dtos = memberJpaRepository.findAllDtosByIds(
+        List.of(member2.getId(), member3.getId()));
+
+    assertThat(dtos).extracting("username").containsExactly("member2", "member3");
+    assertThat(dtos).extracting("teamName").containsExactly("teamA", null);
+  }
+
+  @Test
+  public void saveAll() {
+    Team teamA = new Team("teamA");
+    memberJpaRepository.saveAllTeams(List.of(teamA));
+
+    List<Member> members = new ArrayList<>();
+    for (int i = 0; i < 2500; i++) {
+      members.add(new Member("member" + i, i, teamA));
+    }
+    Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+    BulkWriteStats stats = memberJpaRepository.saveAll(members);
+
+    assertThat(stats.rows()).isEqualTo(2500);
+    assertThat(members).extracting("id").doesNotContainNull().doesNotHaveDuplicates();
+    assertThat(em.contains(members.get(0))).isFalse();
+    // insert 는 JDBC batch(100건)로, id 는 시퀀스 블록(100개)으로 받으므로 문장 준비는 건수보다 훨씬 적다.
+    assertThat(statistics.getEntityInsertCount()).isEqualTo(2500);
+    assertThat(statistics.getPrepareStatementCount()).isLessThan(100);
+    // 회원별 이벤트 대신 벌크 이벤트 하나만 발행된다.
+    assertThat(events.stream(MemberChangedEvent.class)).isEmpty();
+    assertThat(events.stream(MemberBulkChangedEvent.class))
+        .singleElement()
+        .satisfies(event -> assertThat(event.memberIds()).hasSize(2500));
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamA");
+    condition.setAgeGoe(2490);
+    assertThat(memberJpaRepository.search(condition)).hasSize(10);
+  }
+}
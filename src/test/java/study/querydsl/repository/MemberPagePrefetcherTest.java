@@ -0,0 +1,97 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+
+/**
+ * 미리 읽기는 다른 스레드에서 커밋된 데이터를 읽으므로 테스트 트랜잭션 없이 실행하고 직접 정리한다.
+ */
+@SpringBootTest(properties = {
+    "member.search.prefetch.enabled=true",
+    "member.search.prefetch.ttl-ms=60000"
+})
+class MemberPagePrefetcherTest {
+
+  @Autowired MemberSearchCoalescer coalescer;
+  @Autowired MemberPagePrefetcher prefetcher;
+  @Autowired MeterRegistry meterRegistry;
+  @Autowired EntityManager em;
+  @Autowired TransactionTemplate transactionTemplate;
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  public void before() {
+    transactionTemplate.executeWithoutResult(status -> {
+      for (int i = 0; i < 5; i++) {
+        em.persist(new Member("member" + i, 10 + i));
+      }
+    });
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    jdbcTemplate.update("delete from member");
+    prefetcher.invalidate();
+  }
+
+  @Test
+  public void nextPageIsServedFromPrefetch() throws InterruptedException {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    PageRequest first = PageRequest.of(0, 2, Sort.by("username"));
+    double hits = count("hit");
+    double loaded = loaded();
+
+    coalescer.searchPageSimple(condition, first);
+    awaitLoaded(loaded + 1);
+    Page<MemberTeamDto> second = coalescer.searchPageSimple(condition, first.next());
+
+    assertThat(count("hit")).isEqualTo(hits + 1);
+    assertThat(second.getContent()).hasSize(2);
+    assertThat(second.getTotalElements()).isEqualTo(5);
+  }
+
+  @Test
+  public void committedChangeDropsPrefetchedPages() throws InterruptedException {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    PageRequest first = PageRequest.of(0, 2, Sort.by("username"));
+    double loaded = loaded();
+
+    coalescer.searchPageSimple(condition, first);
+    awaitLoaded(loaded + 1);
+    transactionTemplate.executeWithoutResult(status -> em.persist(new Member("member00", 99)));
+    double misses = count("miss");
+    Page<MemberTeamDto> second = coalescer.searchPageSimple(condition, first.next());
+
+    assertThat(count("miss")).isEqualTo(misses + 1);
+    assertThat(second.getTotalElements()).isEqualTo(6);
+  }
+
+  private double count(String result) {
+    return meterRegistry.counter("member.search.prefetch", "result", result).count();
+  }
+
+  private double loaded() {
+    return meterRegistry.counter("member.search.prefetch.loaded").count();
+  }
+
+  private void awaitLoaded(double target) throws InterruptedException {
+    for (int i = 0; i < 100 && loaded() < target; i++) {
+      Thread.sleep(50);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * 같은 조건의 id 목록을 fetch() 로 List&lt;Long&gt; 에 담을 때와 MemberPrimitiveRepository 로 long[] 에 담을 때
+ * 시간과 스레드 할당량을 비교한다. 두 결과가 같은지도 확인한다.
+ * <p>
+ * ./gradlew test -Dbenchmark=true 로 실행
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MemberPrimitiveRepositoryBenchmarkTest {
+
+  private static final int ROWS = 500_000;
+  private static final int ROUNDS = 10;
+  private static final long FIRST_ID = 10_000_000;
+
+  @Autowired MemberPrimitiveRepository memberPrimitiveRepository;
+  @Autowired JPAQueryFactory queryFactory;
+  @Autowired JdbcTemplate jdbcTemplate;
+  @Autowired PlatformTransactionManager transactionManager;
+
+  @BeforeEach
+  public void before() {
+    List<Object[]> batch = new ArrayList<>(10_000);
+    for (int i = 0; i < ROWS; i++) {
+      batch.add(new Object[]{FIRST_ID + i, "member" + i, i % 100});
+      if (batch.size() == 10_000) {
+        jdbcTemplate.batchUpdate("insert into member (member_id, username, age) values (?, ?, ?)", batch);
+        batch.clear();
+      }
+    }
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    jdbcTemplate.update("delete from member");
+  }
+
+  @Test
+  public void fetchListVersusPrimitiveArray() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(10);
+    TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+    readOnlyTx.setReadOnly(true);
+
+    Supplier<Object> boxed = () -> readOnlyTx.execute(status -> queryFactory.select(member.id)
+        .from(member).where(member.age.goe(10)).orderBy(member.id.asc()).fetch());
+    Supplier<Object> primitive = () -> readOnlyTx.execute(status -> memberPrimitiveRepository.findIds(condition));
+
+    run("fetch List<Long>", boxed);
+    run("findIds long[]", primitive);
+
+    List<Long> expected = readOnlyTx.execute(status -> queryFactory.select(member.id)
+        .from(member).where(member.age.goe(10)).orderBy(member.id.asc()).fetch());
+    assertThat(readOnlyTx.execute(status -> memberPrimitiveRepository.findIds(condition).toArray()))
+        .containsExactly(expected.stream().mapToLong(Long::longValue).toArray());
+  }
+
+  private void run(String name, Supplier<Object> query) {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    query.get();
+    long allocated = threads.getCurrentThreadAllocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      query.get();
+    }
+    System.out.printf("%s x%d over %d rows: %dms/op, %dMB allocated/op%n", name, ROUNDS, ROWS,
+        (System.nanoTime() - start) / 1_000_000 / ROUNDS,
+        (threads.getCurrentThreadAllocatedBytes() - allocated) / ROUNDS / (1024 * 1024));
+  }
+}
@@ -0,0 +1,61 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.LongArrayList;
+
+@SpringBootTest
+@Transactional
+class MemberPrimitiveRepositoryTest {
+
+  @Autowired EntityManager em;
+  @Autowired MemberPrimitiveRepository memberPrimitiveRepository;
+
+  Member member1;
+  Member member4;
+
+  @BeforeEach
+  public void before() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+
+    member1 = new Member("member1", 10, teamA);
+    em.persist(member1);
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    member4 = new Member("member_4", 40, teamB);
+    em.persist(member4);
+  }
+
+  @Test
+  public void findIds() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamB");
+    condition.setAgeGoe(35);
+
+    // flush 되지 않은 회원도 조회된다.
+    LongArrayList ids = memberPrimitiveRepository.findIds(condition);
+    assertThat(ids.toArray()).containsExactly(member4.getId());
+  }
+
+  @Test
+  public void findAges() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    assertThat(memberPrimitiveRepository.findAges(condition)).containsExactly(10, 20, 30, 40);
+
+    // '_' 는 LIKE 와일드카드가 아니라 문자 그대로 비교한다.
+    condition.setUsernameContains("_");
+    assertThat(memberPrimitiveRepository.findAges(condition)).containsExactly(40);
+  }
+}
@@ -3,14 +3,26 @@ package study.querydsl.repository;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.querydsl.core.types.Predicate;
 import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.convert.support.DefaultConversionService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.querydsl.SimpleEntityPathResolver;
+import org.springframework.data.querydsl.binding.QuerydslBindings;
+import org.springframework.data.querydsl.binding.QuerydslPredicateBuilder;
+import org.springframework.data.util.TypeInformation;
+import org.springframework.util.LinkedMultiValueMap;
+import study.querydsl.dto.AgeStatisticsDto;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
@@ -98,6 +110,34 @@ class MemberRepositoryTest {
     assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
   }
 
+  @Test
+  public void searchPageAppliesRequestedSort() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    em.persist(new Member("member4", 40, teamB));
+
+    em.flush();
+    em.clear();
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    PageRequest pageRequest = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "age"));
+
+    // 비용 추정이 정렬 비용을 매기는 만큼 실제로도 요청한 정렬로 조회한다.
+    assertThat(memberRepository.searchPageSimple(condition, pageRequest).getContent())
+        .extracting("username").containsExactly("member4", "member3", "member2");
+    assertThat(memberRepository.searchPageComplex(condition, pageRequest).getContent())
+        .extracting("username").containsExactly("member4", "member3", "member2");
+    assertThat(memberRepository.searchPageFields(condition, EnumSet.of(MemberTeamField.USERNAME),
+        PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "teamName"))).getContent())
+        .extracting(row -> row.get("username")).containsExactly("member3", "member4");
+  }
+
   @Test
   public void querydslPredicateExecutorTest() {
     Team teamA = new Team("teamA");
@@ -124,4 +164,175 @@ class MemberRepositoryTest {
       System.out.println("findMember = " + findMember);
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  public void searchFields() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    em.persist(new Member("member4", 40, teamB));
+
+    em.flush();
+    em.clear();
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(20);
+
+    List<Map<String, Object>> result = memberRepository.searchFields(condition,
+        EnumSet.of(MemberTeamField.MEMBER_ID, MemberTeamField.USERNAME));
+
+    assertThat(result).hasSize(3);
+    assertThat(result.get(0)).containsOnlyKeys("memberId", "username");
+    assertThat(result).extracting(row -> row.get("username"))
+        .containsExactly("member2", "member3", "member4");
+
+    condition.setTeamName("teamB");
+    Page<Map<String, Object>> page = memberRepository.searchPageFields(condition,
+        EnumSet.of(MemberTeamField.USERNAME, MemberTeamField.TEAM_NAME), PageRequest.of(0, 1));
+
+    assertThat(page.getTotalElements()).isEqualTo(2);
+    assertThat(page.getContent().get(0))
+        .containsEntry("username", "member3")
+        .containsEntry("teamName", "teamB");
+  }
+
+  @Test
+  public void searchMerged() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    em.persist(new Member("member4", 40, teamB));
+
+    em.flush();
+    em.clear();
+
+    MemberSearchCondition byTeam = new MemberSearchCondition();
+    byTeam.setTeamName("teamA");
+    MemberSearchCondition byAge = new MemberSearchCondition();
+    byAge.setAgeGoe(20);
+    byAge.setAgeLoe(30);
+    MemberSearchCondition byIgnoreCase = new MemberSearchCondition();
+    byIgnoreCase.setUsernameIgnoreCase("MEMBER4");
+
+    List<List<MemberTeamDto>> result = memberRepository.searchMerged(List.of(byTeam, byAge, byIgnoreCase));
+
+    assertThat(result.get(0)).extracting("username").containsExactly("member1", "member2");
+    assertThat(result.get(1)).extracting("username").containsExactly("member2", "member3");
+    assertThat(result.get(2)).extracting("teamName").containsExactly("teamB");
+  }
+
+  @Test
+  public void searchUsernameIgnoreCase() {
+    Team teamA = new Team("teamA");
+    em.persist(teamA);
+
+    em.persist(new Member("Member1", 10, teamA));
+    Member member2 = new Member("member2", 20, teamA);
+    em.persist(member2);
+    member2.setUsername("MEMBER2");
+
+    em.flush();
+    em.clear();
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setUsernameIgnoreCase("mEmBeR1");
+    assertThat(memberRepository.search(condition)).extracting("username").containsExactly("Member1");
+
+    condition.setUsernameIgnoreCase("member2");
+    assertThat(memberRepository.search(condition)).extracting("username").containsExactly("MEMBER2");
+  }
+
+  @Test
+  public void searchUsernameContains() {
+    Team teamA = new Team("teamA");
+    em.persist(teamA);
+
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("guest1", 30, teamA));
+
+    em.flush();
+    em.clear();
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setUsernameContains("mber");
+    assertThat(memberRepository.search(condition)).extracting("username")
+        .containsExactly("member1", "member2");
+
+    condition = new MemberSearchCondition();
+    condition.setUsernameStartsWith("gue");
+    assertThat(memberRepository.search(condition)).extracting("username").containsExactly("guest1");
+
+    condition.setUsernameStartsWith("nobody");
+    assertThat(memberRepository.search(condition)).isEmpty();
+  }
+
+  @Test
+  public void ageStatisticsByTeam() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    em.persist(new Member("member4", 40, teamB));
+
+    em.flush();
+    em.clear();
+
+    List<AgeStatisticsDto> result = memberRepository.ageStatisticsByTeam(new MemberSearchCondition());
+
+    assertThat(result).extracting("teamName").containsExactly("teamA", "teamB");
+    assertThat(result.get(0).getAvg()).isEqualTo(15);
+    assertThat(result.get(1).getAvg()).isEqualTo(35);
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(20);
+    AgeStatisticsDto total = memberRepository.ageStatistics(condition);
+    assertThat(total.getCount()).isEqualTo(3);
+    assertThat(total.getSum()).isEqualTo(90);
+    assertThat(total.getMin()).isEqualTo(20);
+  }
+
+  @Test
+  public void querySliceWithWhitelistedBindings() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    em.flush();
+    em.clear();
+
+    QuerydslBindings bindings = new QuerydslBindings();
+    memberRepository.customize(bindings, QMember.member);
+    LinkedMultiValueMap<String, String> parameters = new LinkedMultiValueMap<>();
+    parameters.add("team.id", String.valueOf(teamA.getId()));
+    // 인덱스가 없는 경로는 바인딩되지 않는다.
+    parameters.add("age", "30");
+    Predicate predicate = new QuerydslPredicateBuilder(DefaultConversionService.getSharedInstance(),
+        SimpleEntityPathResolver.INSTANCE).getPredicate(TypeInformation.of(Member.class), parameters, bindings);
+
+    Slice<MemberTeamDto> first = memberRepository.querySlice(predicate, PageRequest.of(0, 1, Sort.by("username")));
+    Slice<MemberTeamDto> second = memberRepository.querySlice(predicate, PageRequest.of(1, 1, Sort.by("username")));
+
+    assertThat(first.getContent()).extracting("username").containsExactly("member1");
+    assertThat(first.hasNext()).isTrue();
+    assertThat(second.getContent()).extracting("username").containsExactly("member2");
+    assertThat(second.hasNext()).isFalse();
+  }
+}
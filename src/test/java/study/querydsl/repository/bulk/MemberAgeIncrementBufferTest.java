@@ -0,0 +1,92 @@
+package study.querydsl.repository.bulk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.persistence.EntityManager;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+
+/**
+ * flush 가 별도 트랜잭션으로 커밋되므로 테스트 트랜잭션 없이 실행하고 직접 정리한다.
+ */
+@SpringBootTest
+class MemberAgeIncrementBufferTest {
+
+  @Autowired MemberAgeIncrementBuffer buffer;
+  @Autowired EntityManager em;
+  @Autowired TransactionTemplate transactionTemplate;
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @AfterEach
+  public void cleanUp() {
+    buffer.flush();
+    jdbcTemplate.update("delete from member");
+  }
+
+  @Test
+  public void coalesceIncrements() throws Exception {
+    Member member1 = new Member("member1", 10);
+    Member member2 = new Member("member2", 20);
+    transactionTemplate.executeWithoutResult(status -> {
+      em.persist(member1);
+      em.persist(member2);
+    });
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int i = 0; i < 1000; i++) {
+      executor.execute(() -> {
+        buffer.increment(member1.getId(), 1);
+        buffer.increment(member2.getId(), 2);
+      });
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    // 반영 전에도 증가분이 조회 결과에 더해진다.
+    MemberTeamDto dto = new MemberTeamDto(member1.getId(), "member1", 10, null, null);
+    assertThat(buffer.applyTo(List.of(dto)).get(0).getAge()).isEqualTo(1010);
+    // 공유될 수 있는 원래 DTO 는 고치지 않는다.
+    assertThat(dto.getAge()).isEqualTo(10);
+
+    buffer.flush();
+
+    assertThat(buffer.pendingDelta(member1.getId())).isZero();
+    assertThat(jdbcTemplate.queryForObject("select age from member where member_id = ?", Integer.class,
+        member1.getId())).isEqualTo(1010);
+    assertThat(jdbcTemplate.queryForObject("select age from member where member_id = ?", Integer.class,
+        member2.getId())).isEqualTo(2020);
+  }
+
+  @Test
+  public void fieldRowsGetPendingDelta() {
+    Member member1 = new Member("member1", 10);
+    transactionTemplate.executeWithoutResult(status -> em.persist(member1));
+    buffer.increment(member1.getId(), 5);
+
+    Map<String, Object> row = new LinkedHashMap<>();
+    row.put("memberId", member1.getId());
+    row.put("age", 10);
+
+    assertThat(buffer.applyTo(row, true)).containsEntry("memberId", member1.getId()).containsEntry("age", 15);
+    // memberId 를 요청하지 않았으면 나이만 고친 행에서 id 를 뺀다.
+    assertThat(buffer.applyTo(row, false)).containsOnlyKeys("age").containsEntry("age", 15);
+    assertThat(row).containsEntry("age", 10);
+
+    buffer.flush();
+    assertThat(buffer.pendingDelta(member1.getId())).isZero();
+    assertThat(jdbcTemplate.queryForObject("select age from member where member_id = ?", Integer.class,
+        member1.getId())).isEqualTo(15);
+  }
+}
@@ -0,0 +1,73 @@
+package study.querydsl.repository.bulk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberRepository;
+
+/**
+ * 메모리 색인은 커밋 후에 갱신되므로 테스트 트랜잭션 없이 실행하고 직접 정리한다.
+ */
+@SpringBootTest
+class MemberBulkClausesTest {
+
+  @Autowired MemberBulkClauses memberBulkClauses;
+  @Autowired MemberRepository memberRepository;
+  @Autowired EntityManager em;
+  @Autowired TransactionTemplate transactionTemplate;
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  public void before() {
+    transactionTemplate.executeWithoutResult(status -> {
+      em.persist(new Member("member1", 10));
+      em.persist(new Member("member2", 20));
+      em.persist(new Member("member3", 30));
+    });
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    jdbcTemplate.update("delete from member");
+  }
+
+  @Test
+  public void bulkUsernameUpdateRefreshesIndexes() {
+    long count = memberBulkClauses.update(member.age.lt(28), update -> update.set(member.username, "guest"));
+
+    assertThat(count).isEqualTo(2);
+    assertThat(memberRepository.findByUsername("guest")).hasSize(2);
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setUsernameContains("gues");
+    assertThat(memberRepository.search(condition)).hasSize(2);
+  }
+
+  @Test
+  public void bulkUsernameUpdateKeepsNormalizedColumn() {
+    memberBulkClauses.update(member.age.lt(28), update -> update.set(member.username, "GUEST"));
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setUsernameIgnoreCase("guest");
+    assertThat(memberRepository.search(condition)).hasSize(2);
+    assertThat(jdbcTemplate.queryForObject("select count(*) from member where username_lower = 'guest'",
+        Long.class)).isEqualTo(2);
+  }
+
+  @Test
+  public void bulkDelete() {
+    long count = memberBulkClauses.delete(member.age.gt(18));
+
+    assertThat(count).isEqualTo(2);
+    assertThat(memberRepository.count()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,133 @@
+package study.querydsl.repository.bulk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.snapshot.MemberSnapshot;
+
+/**
+ * 구간마다 새 트랜잭션으로 실행되므로 테스트 트랜잭션 없이 실행하고 직접 정리한다.
+ * 회원 데이터는 처음 한 번만 persist 해서 스냅샷으로 내보내고, 테스트마다 스냅샷에서 다시 적재한다.
+ */
+@SpringBootTest
+class MemberBulkOperationsTest {
+
+  @Autowired MemberBulkOperations memberBulkOperations;
+  @Autowired EntityManager em;
+  @Autowired JPAQueryFactory queryFactory;
+  @Autowired TransactionTemplate transactionTemplate;
+  @Autowired JdbcTemplate jdbcTemplate;
+  @Autowired MemberSnapshot memberSnapshot;
+
+  @TempDir
+  static Path dir;
+
+  @BeforeEach
+  public void before() {
+    Path fixture = dir.resolve("members.snapshot");
+    if (Files.notExists(fixture)) {
+      transactionTemplate.executeWithoutResult(status -> {
+        for (int i = 0; i < 50; i++) {
+          em.persist(new Member("member" + i, i));
+        }
+      });
+      memberSnapshot.export(fixture);
+    }
+    memberSnapshot.restore(fixture);
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    jdbcTemplate.update("delete from member");
+    jdbcTemplate.update("delete from job_checkpoint");
+  }
+
+  @Test
+  public void chunkedUpdate() {
+    List<BulkProgress> progress = new ArrayList<>();
+    BulkResult result = memberBulkOperations.update("bulkAdd", null,
+        update -> update.set(member.age, member.age.add(1)),
+        BulkOptions.builder().chunkSize(8).parallelism(3).progressListener(progress::add).build());
+
+    assertThat(result.affectedRows()).isEqualTo(50);
+    assertThat(progress).hasSize((int) result.chunks());
+    assertThat(jdbcTemplate.queryForObject("select sum(age) from member", Long.class))
+        .isEqualTo(49L * 50 / 2 + 50);
+  }
+
+  @Test
+  public void resume() {
+    List<BulkProgress> progress = new ArrayList<>();
+    BulkOptions failing = BulkOptions.builder().chunkSize(8).progressListener(p -> {
+      if (p.completedChunks() == 2) {
+        throw new IllegalStateException("stop");
+      }
+    }).build();
+    assertThatThrownBy(() -> memberBulkOperations.update("bulkMultiply", null,
+        update -> update.set(member.age, member.age.add(100)), failing))
+        .hasMessage("stop");
+
+    // 같은 이름으로 다시 실행하면 끝난 구간은 건너뛰므로 모든 회원이 한 번씩만 변경된다.
+    BulkResult result = memberBulkOperations.update("bulkMultiply", null,
+        update -> update.set(member.age, member.age.add(100)),
+        BulkOptions.builder().chunkSize(8).progressListener(progress::add).build());
+
+    assertThat(result.skippedChunks()).isEqualTo(2);
+    assertThat(progress.get(0).completedChunks()).isEqualTo(3);
+    assertThat(jdbcTemplate.queryForObject("select sum(age) from member", Long.class))
+        .isEqualTo(49L * 50 / 2 + 50 * 100);
+    assertThat(jdbcTemplate.queryForObject("select count(*) from job_checkpoint", Long.class)).isZero();
+  }
+
+  @Test
+  public void resumeWithDifferentOptionsIsRejected() {
+    BulkOptions failing = BulkOptions.builder().chunkSize(8).progressListener(p -> {
+      if (p.completedChunks() == 2) {
+        throw new IllegalStateException("stop");
+      }
+    }).build();
+    assertThatThrownBy(() -> memberBulkOperations.update("bulkAdd", member.age.goe(10),
+        update -> update.set(member.age, member.age.add(1)), failing))
+        .hasMessage("stop");
+
+    // 구간 경계나 대상이 달라지면 기록된 구간을 건너뛸 수 없다.
+    assertThatThrownBy(() -> memberBulkOperations.update("bulkAdd", member.age.goe(10),
+        update -> update.set(member.age, member.age.add(1)), BulkOptions.builder().chunkSize(16).build()))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("chunk size 8");
+    assertThatThrownBy(() -> memberBulkOperations.update("bulkAdd", member.age.goe(20),
+        update -> update.set(member.age, member.age.add(1)), BulkOptions.builder().chunkSize(8).build()))
+        .isInstanceOf(IllegalStateException.class);
+
+    BulkResult result = memberBulkOperations.update("bulkAdd", member.age.goe(10),
+        update -> update.set(member.age, member.age.add(1)), BulkOptions.builder().chunkSize(8).build());
+    assertThat(result.skippedChunks()).isEqualTo(2);
+    assertThat(jdbcTemplate.queryForObject("select sum(age) from member", Long.class))
+        .isEqualTo(49L * 50 / 2 + 40);
+  }
+
+  @Test
+  public void chunkedDelete() {
+    BulkResult result = memberBulkOperations.delete("bulkDelete", member.age.goe(10),
+        BulkOptions.builder().chunkSize(8).pauseMillis(1).build());
+
+    assertThat(result.affectedRows()).isEqualTo(40);
+    assertThat(queryFactory.selectFrom(member).fetch()).hasSize(10);
+  }
+}
@@ -0,0 +1,68 @@
+package study.querydsl.repository.cost;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.cost.QueryCost.Part;
+import study.querydsl.repository.cost.QueryCostEstimator.TableStats;
+
+class QueryCostEstimatorTest {
+
+  private static final TableStats STATS = new TableStats(1_000_000, 100, 0, 99);
+
+  @Test
+  public void indexedFilterNarrowsScan() {
+    MemberSearchCondition byTeam = new MemberSearchCondition();
+    byTeam.setTeamName("teamA");
+    MemberSearchCondition byAge = new MemberSearchCondition();
+    byAge.setAgeGoe(50);
+
+    QueryCost team = QueryCostEstimator.estimate(byTeam, PageRequest.of(0, 20), STATS);
+    QueryCost age = QueryCostEstimator.estimate(byAge, PageRequest.of(0, 20), STATS);
+
+    assertThat(team.scanned()).isEqualTo(10_020);
+    // 나이 조건은 인덱스가 없어 count 쿼리가 전체를 읽는다.
+    assertThat(age.scanned()).isEqualTo(1_000_040);
+    assertThat(age.dominant()).isEqualTo(Part.SCAN);
+  }
+
+  @Test
+  public void deepOffsetIsCharged() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setUsernameStartsWith("me");
+
+    QueryCost shallow = QueryCostEstimator.estimate(condition, PageRequest.of(0, 20), STATS);
+    QueryCost deep = QueryCostEstimator.estimate(condition, PageRequest.of(400, 20), STATS);
+
+    assertThat(shallow.skipped()).isZero();
+    assertThat(deep.skipped()).isEqualTo(8_000);
+    assertThat(deep.returned()).isEqualTo(20);
+    assertThat(deep.dominant()).isEqualTo(Part.SCAN);
+  }
+
+  @Test
+  public void unindexedSortSortsAllMatches() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamA");
+
+    QueryCost byUsername = QueryCostEstimator.estimate(condition, PageRequest.of(0, 20, Sort.by("username")), STATS);
+    QueryCost byAge = QueryCostEstimator.estimate(condition, PageRequest.of(0, 20, Sort.by("age")), STATS);
+    QueryCost mixed = QueryCostEstimator.estimate(condition,
+        PageRequest.of(0, 20, Sort.by(Sort.Order.asc("username"), Sort.Order.desc("memberId"))), STATS);
+
+    assertThat(byUsername.sorted()).isZero();
+    assertThat(byAge.sorted()).isEqualTo(10_000);
+    assertThat(mixed.sorted()).isEqualTo(10_000);
+  }
+
+  @Test
+  public void unknownSortProperty() {
+    assertThatThrownBy(() -> QueryCostEstimator.estimate(new MemberSearchCondition(),
+        PageRequest.of(0, 20, Sort.by("password")), STATS))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,47 @@
+package study.querydsl.repository.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.repository.index.MemberColumnStore.Columns;
+import study.querydsl.repository.index.MemberColumnStore.Filter;
+import study.querydsl.repository.index.MemberColumnStore.Partial;
+
+class MemberColumnStoreTest {
+
+  @Test
+  public void aggregate() {
+    Columns columns = new Columns();
+    columns.upsert(1, "member1", 10, 1);
+    columns.upsert(2, "member2", 20, 1);
+    columns.upsert(3, "member3", 30, 2);
+    columns.upsert(4, "member4", 40, 2);
+
+    Partial all = columns.aggregate(new Filter(Integer.MIN_VALUE, Integer.MAX_VALUE, Filter.ANY, null),
+        0, columns.size);
+    assertThat(all.toDto(null).getCount()).isEqualTo(4);
+    assertThat(all.toDto(null).getSum()).isEqualTo(100);
+    assertThat(all.toDto(null).getAvg()).isEqualTo(25);
+
+    Partial[] byTeam = columns.aggregateByTeam(new Filter(15, Integer.MAX_VALUE, Filter.ANY, null),
+        new long[]{1, 2}, 0, columns.size);
+    assertThat(byTeam[0].toDto("teamA").getMin()).isEqualTo(20);
+    assertThat(byTeam[1].toDto("teamB").getMax()).isEqualTo(40);
+  }
+
+  @Test
+  public void deleteKeepsColumnsDense() {
+    Columns columns = new Columns();
+    for (int i = 1; i <= 2000; i++) {
+      columns.upsert(i, "member" + i, i, 0);
+    }
+    columns.delete(1);
+    columns.upsert(2000, "member2000", 1, 0);
+
+    assertThat(columns.size).isEqualTo(1999);
+    int[] matched = columns.match(new Filter(1, 1, Filter.ANY, null), 0, columns.size);
+    assertThat(matched).hasSize(1);
+    assertThat(columns.ids[matched[0]]).isEqualTo(2000);
+    assertThat(columns.username(matched[0])).isEqualTo("member2000");
+  }
+}
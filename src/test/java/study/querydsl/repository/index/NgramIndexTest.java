@@ -0,0 +1,110 @@
+package study.querydsl.repository.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+class NgramIndexTest {
+
+  @Test
+  public void containsCandidates() {
+    NgramIndex index = new NgramIndex();
+    index.put(1, "member1");
+    index.put(2, "member2");
+    index.put(3, "teama");
+
+    assertThat(index.containsCandidates("ber", 100)).containsExactly(1L, 2L);
+    assertThat(index.containsCandidates("ber2", 100)).containsExactly(2L);
+    assertThat(index.containsCandidates("xyz", 100)).isEmpty();
+    // trigram 보다 짧은 검색어는 색인을 사용할 수 없다.
+    assertThat(index.containsCandidates("be", 100)).isNull();
+  }
+
+  @Test
+  public void prefixCandidates() {
+    NgramIndex index = new NgramIndex();
+    index.put(1, "member1");
+    index.put(2, "remember");
+
+    assertThat(index.prefixCandidates("me", 100)).containsExactly(1L);
+    assertThat(index.prefixCandidates("rem", 100)).containsExactly(2L);
+    assertThat(index.prefixCandidates("m", 100)).isNull();
+  }
+
+  @Test
+  public void putReplacesPreviousValue() {
+    NgramIndex index = new NgramIndex();
+    index.put(1, "member1");
+    index.put(1, "guest1");
+
+    assertThat(index.containsCandidates("mem", 100)).isEmpty();
+    assertThat(index.containsCandidates("ues", 100)).containsExactly(1L);
+
+    index.remove(1);
+    assertThat(index.containsCandidates("ues", 100)).isEmpty();
+    assertThat(index.size()).isZero();
+  }
+
+  @Test
+  public void addKeepsPreviousValue() {
+    NgramIndex index = new NgramIndex();
+    index.put(1, "member1");
+    index.add(1, "guest1");
+
+    assertThat(index.containsCandidates("mem", 100)).containsExactly(1L);
+    assertThat(index.containsCandidates("ues", 100)).containsExactly(1L);
+  }
+
+  @Test
+  public void tooManyCandidates() {
+    NgramIndex index = new NgramIndex();
+    for (int i = 1; i <= 10; i++) {
+      index.put(i, "member" + i);
+    }
+
+    assertThat(index.containsCandidates("mem", 5)).isNull();
+  }
+
+  /**
+   * ./gradlew test -Dbenchmark=true 로 실행
+   */
+  @Test
+  @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+  public void benchmark() {
+    int rows = 2_000_000;
+    Random random = new Random(42);
+    NgramIndex index = new NgramIndex();
+
+    long start = System.nanoTime();
+    for (int i = 1; i <= rows; i++) {
+      index.put(i, randomName(random));
+    }
+    System.out.printf("build %d rows: %dms%n", rows, (System.nanoTime() - start) / 1_000_000);
+
+    int lookups = 10_000;
+    int hits = 0;
+    start = System.nanoTime();
+    for (int i = 0; i < lookups; i++) {
+      long[] candidates = index.containsCandidates(randomName(random).substring(2, 6), 1024);
+      hits += candidates == null ? 0 : candidates.length;
+    }
+    System.out.printf("contains x%d: %dus/op, %d candidates%n", lookups,
+        (System.nanoTime() - start) / 1_000 / lookups, hits);
+
+    start = System.nanoTime();
+    for (int i = 0; i < lookups; i++) {
+      index.prefixCandidates(randomName(random).substring(0, 4), 1024);
+    }
+    System.out.printf("prefix x%d: %dus/op%n", lookups, (System.nanoTime() - start) / 1_000 / lookups);
+  }
+
+  private static String randomName(Random random) {
+    char[] chars = new char[8 + random.nextInt(8)];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = (char) ('a' + random.nextInt(26));
+    }
+    return new String(chars);
+  }
+}
@@ -0,0 +1,42 @@
+package study.querydsl.repository.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.TeamStatisticsDto;
+import study.querydsl.repository.index.TeamStatistics.State;
+
+class TeamStatisticsTest {
+
+  @Test
+  public void incrementalUpdates() {
+    State state = new State();
+    state.putTeam(1, "teamA");
+    state.putTeam(2, "teamB");
+    state.putMember(1, 10, 1L);
+    state.putMember(2, 20, 1L);
+    state.putMember(3, 30, 2L);
+    state.putMember(4, 40, 2L);
+
+    // 나이 변경, 팀 변경, 삭제
+    state.putMember(1, 15, 1L);
+    state.putMember(4, 40, 1L);
+    state.removeMember(2);
+
+    List<TeamStatisticsDto> teams = state.teams();
+    assertThat(teams).containsExactly(
+        new TeamStatisticsDto(1L, "teamA", 2, 55, 27.5, 15, 40),
+        new TeamStatisticsDto(2L, "teamB", 1, 30, 30.0, 30, 30));
+  }
+
+  @Test
+  public void emptyTeam() {
+    State state = new State();
+    state.putTeam(1, "teamA");
+    state.putMember(1, 10, 1L);
+    state.putMember(1, 10, null);
+
+    assertThat(state.teams()).containsExactly(new TeamStatisticsDto(1L, "teamA", 0, 0, null, null, null));
+  }
+}
@@ -0,0 +1,38 @@
+package study.querydsl.repository.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.repository.index.UsernameBloomFilter.Bits;
+
+class UsernameBloomFilterTest {
+
+  @Test
+  public void noFalseNegatives() {
+    Bits bits = new Bits(10_000, 0.01);
+    for (int i = 0; i < 10_000; i++) {
+      bits.put("member" + i);
+    }
+
+    for (int i = 0; i < 10_000; i++) {
+      assertThat(bits.mightContain("member" + i)).isTrue();
+    }
+  }
+
+  @Test
+  public void falsePositiveRate() {
+    Bits bits = new Bits(10_000, 0.01);
+    for (int i = 0; i < 10_000; i++) {
+      bits.put("member" + i);
+    }
+
+    int falsePositives = 0;
+    for (int i = 0; i < 10_000; i++) {
+      if (bits.mightContain("guest" + i)) {
+        falsePositives++;
+      }
+    }
+    assertThat(falsePositives).isLessThan(300);
+    assertThat(bits.expectedFalsePositiveRate()).isLessThan(0.03);
+  }
+}
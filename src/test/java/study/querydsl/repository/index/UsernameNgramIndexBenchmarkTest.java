@@ -0,0 +1,111 @@
+package study.querydsl.repository.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 같은 부분 문자열/접두사 검색을 DB LIKE 만으로 실행할 때와 trigram 후보(id IN) + LIKE 로 실행할 때를 비교한다.
+ * 두 방식의 결과가 같은지도 확인한다.
+ * <p>
+ * ./gradlew test -Dbenchmark=true 로 실행
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class UsernameNgramIndexBenchmarkTest {
+
+  private static final int ROWS = 1_000_000;
+  private static final int LOOKUPS = 200;
+  private static final long FIRST_ID = 10_000_000;
+
+  @Autowired UsernameNgramIndex usernameNgramIndex;
+  @Autowired JPAQueryFactory queryFactory;
+  @Autowired JdbcTemplate jdbcTemplate;
+  @Autowired PlatformTransactionManager transactionManager;
+
+  @BeforeEach
+  public void before() {
+    Random random = new Random(42);
+    List<Object[]> batch = new ArrayList<>(10_000);
+    for (int i = 0; i < ROWS; i++) {
+      batch.add(new Object[]{FIRST_ID + i, randomName(random), random.nextInt(100)});
+      if (batch.size() == 10_000) {
+        jdbcTemplate.batchUpdate("insert into member (member_id, username, age) values (?, ?, ?)", batch);
+        batch.clear();
+      }
+    }
+    usernameNgramIndex.rebuild();
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    jdbcTemplate.update("delete from member");
+    usernameNgramIndex.rebuild();
+  }
+
+  @Test
+  public void likeVersusTrigramCandidates() {
+    Random random = new Random(7);
+    List<String> terms = new ArrayList<>(LOOKUPS);
+    List<String> prefixes = new ArrayList<>(LOOKUPS);
+    for (int i = 0; i < LOOKUPS; i++) {
+      terms.add(randomName(random).substring(2, 6));
+      prefixes.add(randomName(random).substring(0, 4));
+    }
+
+    run("contains like", terms, member.username::contains);
+    run("contains ngram", terms, usernameNgramIndex::usernameContains);
+    run("prefix like", prefixes, member.username::startsWith);
+    run("prefix ngram", prefixes, usernameNgramIndex::usernameStartsWith);
+
+    TransactionTemplate readOnlyTx = readOnlyTx();
+    for (String term : terms.subList(0, 20)) {
+      assertThat(readOnlyTx.execute(status -> ids(usernameNgramIndex.usernameContains(term))))
+          .isEqualTo(readOnlyTx.execute(status -> ids(member.username.contains(term))));
+    }
+  }
+
+  private void run(String name, List<String> terms, Function<String, Predicate> where) {
+    TransactionTemplate readOnlyTx = readOnlyTx();
+    long rows = 0;
+    long start = System.nanoTime();
+    for (String term : terms) {
+      rows += readOnlyTx.execute(status -> ids(where.apply(term))).size();
+    }
+    System.out.printf("%s x%d over %d rows: %dus/op, %d rows%n", name, terms.size(), ROWS,
+        (System.nanoTime() - start) / 1_000 / terms.size(), rows);
+  }
+
+  private List<Long> ids(Predicate where) {
+    return queryFactory.select(member.id).from(member).where(where).orderBy(member.id.asc()).fetch();
+  }
+
+  private TransactionTemplate readOnlyTx() {
+    TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+    readOnlyTx.setReadOnly(true);
+    return readOnlyTx;
+  }
+
+  private static String randomName(Random random) {
+    char[] chars = new char[8 + random.nextInt(8)];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = (char) ('a' + random.nextInt(26));
+    }
+    return new String(chars);
+  }
+}
@@ -0,0 +1,19 @@
+package study.querydsl.repository.shard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class KWayMergeTest {
+
+  @Test
+  public void mergesWithSkipAndLimit() {
+    List<List<Integer>> lists = List.of(List.of(1, 4, 7), List.of(), List.of(2, 5, 8), List.of(3, 6, 9));
+
+    assertThat(KWayMerge.merge(lists, Comparator.naturalOrder(), 0, 100)).containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9);
+    assertThat(KWayMerge.merge(lists, Comparator.naturalOrder(), 3, 4)).containsExactly(4, 5, 6, 7);
+    assertThat(KWayMerge.merge(lists, Comparator.naturalOrder(), 8, 4)).containsExactly(9);
+  }
+}
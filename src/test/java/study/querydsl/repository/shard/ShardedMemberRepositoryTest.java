@@ -0,0 +1,240 @@
+package study.querydsl.repository.shard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import study.querydsl.dto.AgeStatisticsDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberBatchSearchExecutor;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberTeamField;
+import study.querydsl.repository.bulk.MemberAgeIncrementBuffer;
+import study.querydsl.repository.bulk.MemberBulkClauses;
+import study.querydsl.repository.index.MemberChangedEvent;
+
+/**
+ * 샤드마다 별도 트랜잭션으로 저장하므로 테스트 트랜잭션 없이 실행하고 직접 정리한다.
+ */
+@SpringBootTest(properties = {
+    "member.sharding.enabled=true",
+    "member.sharding.count=3",
+    "member.sharding.url-template=jdbc:h2:mem:sharded_member_test_%d;DB_CLOSE_DELAY=-1",
+    "member.executor.pool-size=2",
+    "member.batch-search.max-conditions-per-query=1"
+})
+@RecordApplicationEvents
+class ShardedMemberRepositoryTest {
+
+  @Autowired ShardedMemberRepository shardedMemberRepository;
+  @Autowired MemberShards memberShards;
+  @Autowired MemberRepository memberRepository;
+  @Autowired ApplicationEvents events;
+  @Autowired MemberBatchSearchExecutor memberBatchSearchExecutor;
+  @Autowired MemberJpaRepository memberJpaRepository;
+  @Autowired MemberAgeIncrementBuffer memberAgeIncrementBuffer;
+  @Autowired MemberBulkClauses memberBulkClauses;
+
+  private final List<MemberTeamDto> expected = new ArrayList<>();
+
+  @BeforeEach
+  public void before() {
+    for (int t = 0; t < 6; t++) {
+      Team team = shardedMemberRepository.saveTeam(new Team("team" + t));
+      for (int m = 0; m < 4; m++) {
+        Member member = shardedMemberRepository.save(new Member("member" + t + "_" + m, (t * 7 + m * 3) % 40, team));
+        expected.add(new MemberTeamDto(member.getId(), member.getUsername(), member.getAge(), team.getId(),
+            team.getName()));
+      }
+    }
+    Member loner = shardedMemberRepository.save(new Member("loner", 25));
+    expected.add(new MemberTeamDto(loner.getId(), "loner", 25, null, null));
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    for (MemberShard shard : memberShards.all()) {
+      JdbcTemplate jdbc = new JdbcTemplate(shard.dataSource());
+      jdbc.update("delete from member");
+      jdbc.update("delete from team");
+    }
+  }
+
+  @Test
+  public void idsEncodeShard() {
+    for (MemberTeamDto dto : expected) {
+      assertThat(shardedMemberRepository.findById(dto.getMemberId())).contains(dto);
+    }
+    long usedShards = expected.stream().map(dto -> memberShards.byId(dto.getMemberId()).index()).distinct().count();
+    assertThat(usedShards).isGreaterThan(1);
+  }
+
+  @Test
+  public void searchMergesAllShardsById() {
+    List<MemberTeamDto> result = memberRepository.search(new MemberSearchCondition());
+
+    assertThat(result).containsExactlyElementsOf(
+        expected.stream().sorted(Comparator.comparing(MemberTeamDto::getMemberId)).toList());
+  }
+
+  @Test
+  public void pageIsMergedOnRequestedSort() {
+    Comparator<MemberTeamDto> byAgeDesc = Comparator.comparing(MemberTeamDto::getAge).reversed()
+        .thenComparing(MemberTeamDto::getMemberId);
+    List<MemberTeamDto> sorted = expected.stream().sorted(byAgeDesc).toList();
+
+    Page<MemberTeamDto> page = memberRepository.searchPageComplex(new MemberSearchCondition(),
+        PageRequest.of(2, 5, Sort.by(Sort.Direction.DESC, "age")));
+
+    assertThat(page.getTotalElements()).isEqualTo(expected.size());
+    assertThat(page.getContent()).containsExactlyElementsOf(sorted.subList(10, 15));
+  }
+
+  @Test
+  public void teamFilterGoesToOneShard() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("team3");
+
+    assertThat(shardedMemberRepository.targets(condition)).hasSize(1);
+    Page<MemberTeamDto> page = shardedMemberRepository.searchPage(condition, PageRequest.of(0, 10));
+    assertThat(page.getTotalElements()).isEqualTo(4);
+    assertThat(page.getContent()).allMatch(dto -> "team3".equals(dto.getTeamName()));
+  }
+
+  @Test
+  public void renamedTeamIsStillFound() {
+    Long teamId = expected.get(0).getTeamId();
+    shardedMemberRepository.renameTeam(teamId, "renamed");
+
+    // 팀은 id 의 샤드에 그대로 있고, 이름 조건은 팀 id 를 찾아 그 샤드로 보낸다.
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("renamed");
+    assertThat(shardedMemberRepository.search(condition))
+        .hasSize(4)
+        .allMatch(dto -> teamId.equals(dto.getTeamId()) && "renamed".equals(dto.getTeamName()));
+    condition.setTeamName("team0");
+    assertThat(shardedMemberRepository.search(condition)).isEmpty();
+  }
+
+  @Test
+  public void crossShardMoveIsRejected() {
+    MemberTeamDto moving = expected.get(0);
+    MemberTeamDto elsewhere = expected.stream()
+        .filter(dto -> dto.getTeamId() != null
+            && memberShards.byId(dto.getTeamId()) != memberShards.byId(moving.getMemberId()))
+        .findFirst()
+        .orElseThrow();
+
+    assertThatThrownBy(() -> shardedMemberRepository.changeTeam(moving.getMemberId(), elsewhere.getTeamId()))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(shardedMemberRepository.findById(moving.getMemberId())).contains(moving);
+  }
+
+  @Test
+  public void fieldsAndStatisticsReadShards() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("team4");
+    assertThat(memberRepository.searchFields(condition, EnumSet.of(MemberTeamField.USERNAME)))
+        .extracting(row -> row.get("username"))
+        .containsExactly("member4_0", "member4_1", "member4_2", "member4_3");
+
+    AgeStatisticsDto total = memberRepository.ageStatistics(new MemberSearchCondition());
+    assertThat(total.getCount()).isEqualTo(expected.size());
+    assertThat(total.getSum()).isEqualTo(expected.stream().mapToLong(MemberTeamDto::getAge).sum());
+    assertThat(total.getMax()).isEqualTo(expected.stream().mapToInt(MemberTeamDto::getAge).max().orElseThrow());
+
+    List<AgeStatisticsDto> byTeam = memberRepository.ageStatisticsByTeam(new MemberSearchCondition());
+    assertThat(byTeam).extracting(AgeStatisticsDto::getTeamName)
+        .containsExactly("team0", "team1", "team2", "team3", "team4", "team5");
+    assertThat(byTeam).allMatch(stats -> stats.getCount() == 4);
+  }
+
+  @Test
+  public void mergedSearchReadsShards() {
+    MemberSearchCondition loner = new MemberSearchCondition();
+    loner.setUsername("loner");
+    MemberSearchCondition team1 = new MemberSearchCondition();
+    team1.setTeamName("team1");
+
+    List<List<MemberTeamDto>> result = memberRepository.searchMerged(List.of(loner, team1));
+
+    assertThat(result.get(0)).extracting("username").containsExactly("loner");
+    assertThat(result.get(1)).hasSize(4);
+  }
+
+  @Test
+  public void batchWithMoreGroupsThanPoolThreadsCompletes() {
+    // 묶음마다 조건 하나(6개)이고 공유 풀은 2개다. 묶음이 샤드 결과를 기다리는 동안 샤드 쿼리는 다른 실행기에서 돈다.
+    List<MemberSearchCondition> conditions = new ArrayList<>();
+    for (int t = 0; t < 6; t++) {
+      MemberSearchCondition condition = new MemberSearchCondition();
+      condition.setUsernameStartsWith("member" + t + "_");
+      conditions.add(condition);
+    }
+
+    Map<Integer, List<MemberTeamDto>> result = assertTimeoutPreemptively(Duration.ofSeconds(30),
+        () -> memberBatchSearchExecutor.search(conditions));
+
+    assertThat(result).hasSize(6);
+    for (int t = 0; t < 6; t++) {
+      assertThat(result.get(t)).extracting(MemberTeamDto::getTeamName).containsOnly("team" + t).hasSize(4);
+    }
+  }
+
+  @Test
+  public void idLookupsReadShards() {
+    MemberTeamDto first = expected.get(0);
+    MemberTeamDto last = expected.get(expected.size() - 1);
+    long outOfRange = (long) memberShards.size() << MemberShards.SHARD_ID_SHIFT;
+
+    assertThat(memberJpaRepository.findAllDtosByIds(List.of(last.getMemberId(), outOfRange, first.getMemberId())))
+        .containsExactly(last, first);
+  }
+
+  @Test
+  public void primaryWritesFailFast() {
+    assertThatThrownBy(() -> memberJpaRepository.saveAll(List.of(new Member("primary", 1))))
+        .isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> memberAgeIncrementBuffer.increment(expected.get(0).getMemberId(), 1))
+        .isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> memberBulkClauses.update(QMember.member.age.goe(0),
+        update -> update.set(QMember.member.age, 0)))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void entityReadsFailFast() {
+    assertThatThrownBy(() -> memberRepository.findByUsername("loner"))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void shardWritesSkipPrimaryListeners() {
+    shardedMemberRepository.save(new Member("newcomer", 30));
+
+    // 샤드 EMF 는 JPA 콜백을 끄므로 기본 DB 의 색인을 고치는 변경 이벤트가 발행되지 않는다.
+    assertThat(events.stream(MemberChangedEvent.class)).isEmpty();
+  }
+}
@@ -0,0 +1,96 @@
+package study.querydsl.repository.snapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.persistence.EntityManager;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+/**
+ * 시퀀스 재시작(DDL)이 트랜잭션을 커밋하므로 테스트 트랜잭션 없이 실행하고 직접 정리한다.
+ */
+@SpringBootTest
+class MemberSnapshotTest {
+
+  @Autowired MemberSnapshot memberSnapshot;
+  @Autowired MemberRepository memberRepository;
+  @Autowired EntityManager em;
+  @Autowired TransactionTemplate transactionTemplate;
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @TempDir
+  Path dir;
+
+  @AfterEach
+  public void cleanUp() {
+    jdbcTemplate.update("delete from member");
+    jdbcTemplate.update("delete from team");
+  }
+
+  @Test
+  public void exportAndRestore() {
+    transactionTemplate.executeWithoutResult(status -> {
+      Team teamA = new Team("teamA");
+      em.persist(teamA);
+      for (int i = 0; i < 10; i++) {
+        em.persist(new Member("Member" + i, i, i % 2 == 0 ? teamA : null));
+      }
+    });
+
+    Path file = dir.resolve("members.snapshot");
+    SnapshotStats exported = memberSnapshot.export(file);
+    assertThat(exported.teams()).isEqualTo(1);
+    assertThat(exported.members()).isEqualTo(10);
+
+    jdbcTemplate.update("delete from member");
+    SnapshotStats restored = memberSnapshot.restore(file);
+    assertThat(restored.members()).isEqualTo(10);
+    assertThat(memberRepository.count()).isEqualTo(10);
+    String teamName = transactionTemplate.execute(status ->
+        memberRepository.findByUsername("Member4").get(0).getTeam().getName());
+    assertThat(teamName).isEqualTo("teamA");
+    assertThat(jdbcTemplate.queryForObject(
+        "select count(*) from member where username_lower = 'member4'", Long.class)).isEqualTo(1);
+
+    // 복원 후 새로 저장해도 id 가 겹치지 않는다.
+    Long newId = transactionTemplate.execute(status -> {
+      Member member = new Member("new");
+      em.persist(member);
+      return member.getId();
+    });
+    assertThat(newId).isGreaterThan(jdbcTemplate.queryForObject(
+        "select max(member_id) from member where username <> 'new'", Long.class));
+  }
+
+  @Test
+  public void restoreDiscardsCachedIdBlock() {
+    transactionTemplate.executeWithoutResult(status -> {
+      for (int i = 0; i < 3; i++) {
+        em.persist(new Member("Member" + i, i));
+      }
+    });
+    // 생성기는 아직 같은 블록의 뒤쪽 id 를 들고 있다. 복원할 데이터에 그 범위의 id 를 넣어 둔다.
+    jdbcTemplate.update("update member set member_id = member_id + 50 where username = 'Member2'");
+    Path file = dir.resolve("members.snapshot");
+    memberSnapshot.export(file);
+
+    memberSnapshot.restore(file);
+
+    Long newId = transactionTemplate.execute(status -> {
+      Member member = new Member("new");
+      em.persist(member);
+      return member.getId();
+    });
+    assertThat(newId).isGreaterThan(jdbcTemplate.queryForObject(
+        "select max(member_id) from member where username <> 'new'", Long.class));
+  }
+}
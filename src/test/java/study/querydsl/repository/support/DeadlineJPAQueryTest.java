@@ -0,0 +1,65 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.concurrent.Deadline;
+import study.querydsl.concurrent.DeadlineExceededException;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberRepository;
+
+@SpringBootTest
+@Transactional
+class DeadlineJPAQueryTest {
+
+  @Autowired EntityManager em;
+  @Autowired MemberRepository memberRepository;
+
+  @AfterEach
+  public void clearDeadline() {
+    Deadline.clear();
+  }
+
+  @Test
+  public void remainingTimeBecomesQueryTimeout() {
+    Deadline.set(Deadline.after("test", Duration.ofSeconds(3)));
+
+    org.hibernate.query.Query<?> query = new DeadlineJPAQueryFactory(em)
+        .selectFrom(member)
+        .createQuery()
+        .unwrap(org.hibernate.query.Query.class);
+
+    assertThat(query.getTimeout()).isBetween(1, 3);
+  }
+
+  @Test
+  public void noDeadlineNoTimeout() {
+    org.hibernate.query.Query<?> query = new DeadlineJPAQueryFactory(em)
+        .selectFrom(member)
+        .createQuery()
+        .unwrap(org.hibernate.query.Query.class);
+
+    assertThat(query.getTimeout()).isNull();
+  }
+
+  @Test
+  public void expiredDeadlineSkipsQueries() {
+    em.persist(new Member("member1", 10));
+    em.flush();
+    Deadline.set(Deadline.after("GET /v3/members []", Duration.ZERO));
+
+    assertThatThrownBy(() -> memberRepository.searchPageComplex(new MemberSearchCondition(), PageRequest.of(0, 1)))
+        .isInstanceOf(DeadlineExceededException.class)
+        .hasMessageContaining("GET /v3/members");
+  }
+}
@@ -0,0 +1,29 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+
+class InClauseChunksTest {
+
+  @Test
+  public void paddedSize() {
+    assertThat(InClauseChunks.paddedSize(1)).isEqualTo(1);
+    assertThat(InClauseChunks.paddedSize(3)).isEqualTo(4);
+    assertThat(InClauseChunks.paddedSize(8)).isEqualTo(8);
+    assertThat(InClauseChunks.paddedSize(9)).isEqualTo(16);
+  }
+
+  @Test
+  public void split() {
+    List<Long> ids = LongStream.rangeClosed(1, 11).boxed().toList();
+
+    List<List<Long>> chunks = InClauseChunks.split(ids, 8);
+
+    assertThat(chunks).hasSize(2);
+    assertThat(chunks.get(0)).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L);
+    assertThat(chunks.get(1)).containsExactly(9L, 10L, 11L, 11L);
+  }
+}
@@ -0,0 +1,23 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class LongArrayListTest {
+
+  @Test
+  public void grow() {
+    LongArrayList list = new LongArrayList(1);
+    for (long i = 0; i < 1000; i++) {
+      list.add(i * 3);
+    }
+
+    assertThat(list.size()).isEqualTo(1000);
+    assertThat(list.get(999)).isEqualTo(2997);
+    assertThat(list.stream().sum()).isEqualTo(3L * 999 * 1000 / 2);
+    assertThat(list.toArray()).hasSize(1000);
+    assertThatThrownBy(() -> list.get(1000)).isInstanceOf(IndexOutOfBoundsException.class);
+  }
+}
@@ -0,0 +1,124 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+  @Test
+  public void concurrentCallersShareOneExecution() throws Exception {
+    SingleFlight<String, List<Integer>> flights = new SingleFlight<>();
+    AtomicInteger executions = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<SingleFlight.Result<List<Integer>>>> futures = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      futures.add(executor.submit(() -> flights.execute("page0", 5_000, () -> {
+        executions.incrementAndGet();
+        await(release);
+        return List.of(1, 2, 3);
+      })));
+    }
+    while (flights.inFlight() == 0) {
+      Thread.onSpinWait();
+    }
+    // 모두 들어와서 기다리도록 잠시 둔다.
+    Thread.sleep(200);
+    release.countDown();
+
+    List<Integer> first = futures.get(0).get().value();
+    long leaders = 0;
+    for (Future<SingleFlight.Result<List<Integer>>> future : futures) {
+      assertThat(future.get().value()).isSameAs(first);
+      leaders += future.get().leader() ? 1 : 0;
+    }
+    executor.shutdown();
+    assertThat(executions.get()).isEqualTo(1);
+    assertThat(leaders).isEqualTo(1);
+    assertThat(flights.inFlight()).isZero();
+  }
+
+  @Test
+  public void resultIsNotKeptAfterCompletion() throws TimeoutException {
+    SingleFlight<String, Integer> flights = new SingleFlight<>();
+    AtomicInteger executions = new AtomicInteger();
+
+    flights.execute("key", 1_000, executions::incrementAndGet);
+    flights.execute("key", 1_000, executions::incrementAndGet);
+
+    assertThat(executions.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void failureIsSharedWithWaiters() throws Exception {
+    SingleFlight<String, Integer> flights = new SingleFlight<>();
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    Future<?> leader = executor.submit(() -> flights.execute("key", 1_000, () -> {
+      await(release);
+      throw new IllegalStateException("boom");
+    }));
+    while (flights.inFlight() == 0) {
+      Thread.onSpinWait();
+    }
+
+    AtomicInteger followerExecutions = new AtomicInteger();
+    Future<?> follower = executor.submit(() -> flights.execute("key", 5_000, followerExecutions::incrementAndGet));
+    Thread.sleep(200);
+    release.countDown();
+
+    assertThatThrownBy(follower::get)
+        .hasRootCauseInstanceOf(IllegalStateException.class)
+        .hasRootCauseMessage("boom");
+    assertThat(leader).failsWithin(1, TimeUnit.SECONDS);
+    assertThat(followerExecutions.get()).isZero();
+    executor.shutdown();
+  }
+
+  @Test
+  public void callerSpecificFailureIsRetriedByWaiter() throws Exception {
+    SingleFlight<String, Integer> flights = new SingleFlight<>();
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    Future<?> leader = executor.submit(() -> flights.execute("key", 1_000, () -> {
+      await(release);
+      throw new IllegalStateException("leader deadline");
+    }, IllegalStateException.class::isInstance));
+    while (flights.inFlight() == 0) {
+      Thread.onSpinWait();
+    }
+
+    AtomicInteger followerExecutions = new AtomicInteger();
+    Future<SingleFlight.Result<Integer>> follower = executor.submit(() -> flights.execute("key", 5_000,
+        followerExecutions::incrementAndGet, IllegalStateException.class::isInstance));
+    Thread.sleep(200);
+    release.countDown();
+
+    // 먼저 실행한 호출만 실패하고, 기다리던 호출은 새로 실행해서 자기 결과를 받는다.
+    assertThat(leader).failsWithin(1, TimeUnit.SECONDS);
+    assertThat(follower.get().value()).isEqualTo(1);
+    assertThat(follower.get().leader()).isTrue();
+    assertThat(followerExecutions.get()).isEqualTo(1);
+    executor.shutdown();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
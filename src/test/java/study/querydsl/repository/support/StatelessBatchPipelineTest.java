@@ -0,0 +1,93 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import jakarta.persistence.EntityManager;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.index.MemberBulkChangedEvent;
+
+/**
+ * 파이프라인은 자체 세션/트랜잭션으로 실행되므로 테스트 트랜잭션 없이 실행하고 직접 정리한다.
+ */
+@SpringBootTest
+@RecordApplicationEvents
+class StatelessBatchPipelineTest {
+
+  @Autowired StatelessBatchPipeline pipeline;
+  @Autowired EntityManager em;
+  @Autowired TransactionTemplate transactionTemplate;
+  @Autowired JdbcTemplate jdbcTemplate;
+  @Autowired ApplicationEvents events;
+
+  @BeforeEach
+  public void before() {
+    transactionTemplate.executeWithoutResult(status -> {
+      for (int i = 0; i < 30; i++) {
+        em.persist(new Member("member" + i, i));
+      }
+    });
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    jdbcTemplate.update("delete from member");
+    jdbcTemplate.update("delete from job_checkpoint");
+  }
+
+  @Test
+  public void resumeAfterFailure() {
+    AtomicBoolean fail = new AtomicBoolean(true);
+    PipelineJob<Member, long[]> job = PipelineJob.<Member, long[]>builder()
+        .name("doubleAge")
+        .query("select m from Member m where m.id > :after order by m.id")
+        .type(Member.class)
+        .idOf(Member::getId)
+        .processor(m -> {
+          if (m.getAge() == 17 && fail.get()) {
+            throw new IllegalStateException("boom");
+          }
+          return new long[]{m.getId(), m.getAge() * 2L};
+        })
+        .writeSql("update member set age = ? where member_id = ?")
+        .writeBinder((ps, row) -> {
+          ps.setLong(1, row[1]);
+          ps.setLong(2, row[0]);
+        })
+        .batchSize(5)
+        .workers(2)
+        .queueCapacity(2)
+        .build();
+
+    assertThatThrownBy(() -> pipeline.run(job)).hasRootCauseMessage("boom");
+    // MemberBulkOperations 의 같은 이름 작업과 섞이지 않도록 이름 앞에 파이프라인 표시가 붙는다.
+    assertThat(jdbcTemplate.queryForList("select distinct job_name from job_checkpoint", String.class))
+        .allMatch("pipeline:doubleAge"::equals);
+
+    fail.set(false);
+    PipelineResult result = pipeline.run(job);
+
+    // 실패 전에 커밋된 배치는 다시 읽지 않으므로, 모든 회원이 정확히 한 번씩 처리된다.
+    assertThat(result.read()).isEqualTo(30 - countDoubledBefore(result.resumedAfterId()));
+    assertThat(jdbcTemplate.queryForObject("select sum(age) from member", Long.class)).isEqualTo(29L * 30);
+    assertThat(jdbcTemplate.queryForObject("select count(*) from job_checkpoint", Long.class)).isZero();
+    // 회원을 바꾼 실행마다(실패 전에 커밋된 배치가 있었으면 실패한 실행도) 전체 재계산 이벤트가 발행된다.
+    assertThat(events.stream(MemberBulkChangedEvent.class))
+        .hasSize(result.resumedAfterId() > 0 ? 2 : 1)
+        .allMatch(MemberBulkChangedEvent::isAll);
+  }
+
+  private long countDoubledBefore(long id) {
+    return jdbcTemplate.queryForObject("select count(*) from member where member_id <= ?", Long.class, id);
+  }
+}
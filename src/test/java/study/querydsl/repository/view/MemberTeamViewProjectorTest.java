@@ -0,0 +1,187 @@
+package study.querydsl.repository.view;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.index.MemberBulkChangedEvent;
+
+/**
+ * 다시 만들기는 구간마다 별도 트랜잭션으로 커밋하므로 테스트 트랜잭션 없이 실행하고 직접 정리한다.
+ */
+@SpringBootTest(properties = "member.view.enabled=true")
+class MemberTeamViewProjectorTest {
+
+  @Autowired MemberTeamViewProjector projector;
+  @Autowired MemberTeamViewRepository viewRepository;
+  @Autowired MemberRepository memberRepository;
+  @Autowired ApplicationEventPublisher eventPublisher;
+  @Autowired EntityManager em;
+  @Autowired TransactionTemplate transactionTemplate;
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @AfterEach
+  public void cleanUp() {
+    jdbcTemplate.update("delete from member_team_view");
+    jdbcTemplate.update("delete from member");
+    jdbcTemplate.update("delete from team");
+  }
+
+  @Test
+  public void entityChangesAreProjectedInSameTransaction() {
+    Long[] ids = transactionTemplate.execute(status -> {
+      Team teamA = new Team("teamA");
+      Team teamB = new Team("teamB");
+      em.persist(teamA);
+      em.persist(teamB);
+      Member member1 = new Member("member1", 10, teamA);
+      Member member2 = new Member("member2", 20, teamA);
+      em.persist(member1);
+      em.persist(member2);
+      em.persist(new Member("member3", 30));
+      return new Long[]{teamA.getId(), teamB.getId(), member1.getId(), member2.getId()};
+    });
+    assertThat(row(ids[2])).containsEntry("TEAM_NAME", "teamA").containsEntry("AGE", 10);
+
+    transactionTemplate.executeWithoutResult(status -> {
+      Member member1 = em.find(Member.class, ids[2]);
+      member1.setUsername("renamed");
+      member1.changeTeam(em.find(Team.class, ids[1]));
+      em.find(Team.class, ids[0]).setName("teamA2");
+      em.remove(em.find(Member.class, ids[3]));
+    });
+
+    assertThat(row(ids[2])).containsEntry("USERNAME", "renamed").containsEntry("TEAM_NAME", "teamB");
+    assertThat(jdbcTemplate.queryForObject("select count(*) from member_team_view where member_id = ?",
+        Long.class, ids[3])).isZero();
+    assertThat(projector.drift()).isZero();
+  }
+
+  @Test
+  public void teamRenameFansOutToAllMembers() {
+    Long teamId = transactionTemplate.execute(status -> {
+      Team team = new Team("teamA");
+      em.persist(team);
+      for (int i = 0; i < 5; i++) {
+        em.persist(new Member("member" + i, i, team));
+      }
+      return team.getId();
+    });
+
+    // 팀만 읽고 바꾸므로 회원 행은 팀 리스너의 update 로만 바뀐다.
+    transactionTemplate.executeWithoutResult(status -> em.find(Team.class, teamId).setName("teamZ"));
+
+    assertThat(jdbcTemplate.queryForObject("select count(*) from member_team_view where team_name = 'teamZ'",
+        Long.class)).isEqualTo(5);
+    assertThat(projector.drift()).isZero();
+  }
+
+  @Test
+  public void bulkChangeWithIdsIsRefreshed() {
+    Long memberId = transactionTemplate.execute(status -> {
+      Member member = new Member("member1", 10);
+      em.persist(member);
+      return member.getId();
+    });
+
+    transactionTemplate.executeWithoutResult(status -> {
+      jdbcTemplate.update("update member set age = age + 5 where member_id = ?", memberId);
+      eventPublisher.publishEvent(MemberBulkChangedEvent.agesOf(List.of(memberId)));
+    });
+
+    assertThat(row(memberId)).containsEntry("AGE", 15);
+  }
+
+  @Test
+  public void rebuildRepairsDrift() {
+    transactionTemplate.executeWithoutResult(status -> {
+      Team team = new Team("teamA");
+      em.persist(team);
+      for (int i = 0; i < 10; i++) {
+        em.persist(new Member("member" + i, i, i % 2 == 0 ? team : null));
+      }
+    });
+    jdbcTemplate.update("update member_team_view set team_name = 'stale' where username = 'member0'");
+    jdbcTemplate.update("delete from member_team_view where username = 'member1'");
+    jdbcTemplate.update("insert into member_team_view (member_id, username, age) values (-1, 'orphan', 0)");
+    assertThat(projector.drift()).isEqualTo(3);
+
+    MemberTeamViewRebuild result = projector.rebuild();
+
+    assertThat(result.rows()).isEqualTo(10);
+    assertThat(projector.drift()).isZero();
+  }
+
+  @Test
+  public void searchReadsViewWithSameResultAsJoin() {
+    transactionTemplate.executeWithoutResult(status -> {
+      Team teamA = new Team("teamA");
+      Team teamB = new Team("teamB");
+      em.persist(teamA);
+      em.persist(teamB);
+      for (int i = 0; i < 10; i++) {
+        em.persist(new Member("member" + i, 10 + i, i % 2 == 0 ? teamA : teamB));
+      }
+    });
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamB");
+    condition.setAgeGoe(13);
+    condition.setUsernameStartsWith("member");
+
+    List<MemberTeamDto> result = viewRepository.search(condition);
+
+    assertThat(result).extracting("username").containsExactly("member3", "member5", "member7", "member9");
+    assertThat(memberRepository.search(condition)).containsExactlyInAnyOrderElementsOf(result);
+  }
+
+  @Test
+  public void usernameConditionsUseNormalizedColumnAndNgramIndex() {
+    transactionTemplate.executeWithoutResult(status -> {
+      for (int i = 0; i < 10; i++) {
+        em.persist(new Member("Member" + i, 10 + i));
+      }
+    });
+    MemberSearchCondition ignoreCase = new MemberSearchCondition();
+    ignoreCase.setUsernameIgnoreCase("MEMBER3");
+    MemberSearchCondition contains = new MemberSearchCondition();
+    contains.setUsernameContains("mber7");
+    MemberSearchCondition startsWith = new MemberSearchCondition();
+    startsWith.setUsernameStartsWith("Member");
+
+    assertThat(viewRepository.search(ignoreCase)).extracting("username").containsExactly("Member3");
+    assertThat(viewRepository.search(contains)).extracting("username").containsExactly("Member7");
+    assertThat(viewRepository.search(startsWith)).hasSize(10);
+    assertThat(jdbcTemplate.queryForObject(
+        "select username_lower from member_team_view where username = 'Member3'", String.class))
+        .isEqualTo("member3");
+  }
+
+  @Test
+  public void searchSeesUnflushedChangesInSameTransaction() {
+    List<MemberTeamDto> result = transactionTemplate.execute(status -> {
+      em.persist(new Member("member1", 10));
+      MemberSearchCondition condition = new MemberSearchCondition();
+      condition.setUsername("member1");
+      return viewRepository.search(condition);
+    });
+
+    assertThat(result).hasSize(1);
+  }
+
+  private Map<String, Object> row(Long memberId) {
+    return jdbcTemplate.queryForMap("select * from member_team_view where member_id = ?", memberId);
+  }
+}
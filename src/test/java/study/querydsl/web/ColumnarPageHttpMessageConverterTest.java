@@ -0,0 +1,57 @@
+package study.querydsl.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import study.querydsl.dto.MemberTeamDto;
+
+class ColumnarPageHttpMessageConverterTest {
+
+  ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  public void columnarJson() throws Exception {
+    ColumnarPageHttpMessageConverter converter =
+        new ColumnarPageHttpMessageConverter(objectMapper, ColumnarPageHttpMessageConverter.COLUMNAR_JSON);
+    PageImpl<MemberTeamDto> page = new PageImpl<>(List.of(
+        new MemberTeamDto(1L, "member1", 10, 1L, "teamA"),
+        new MemberTeamDto(2L, "member2", 20, null, null)), PageRequest.of(0, 2), 5);
+
+    MockHttpOutputMessage output = new MockHttpOutputMessage();
+    converter.write(page, ColumnarPageHttpMessageConverter.COLUMNAR_JSON, output);
+
+    JsonNode json = objectMapper.readTree(output.getBodyAsString());
+    assertThat(json.get("fields").toString()).isEqualTo("[\"memberId\",\"username\",\"age\",\"teamId\",\"teamName\"]");
+    assertThat(json.get("columns").get(1).toString()).isEqualTo("[\"member1\",\"member2\"]");
+    assertThat(json.get("columns").get(4).toString()).isEqualTo("[\"teamA\",null]");
+    assertThat(json.get("page").get("totalElements").asLong()).isEqualTo(5);
+    assertThat(json.get("page").get("totalPages").asInt()).isEqualTo(3);
+  }
+
+  @Test
+  public void columnarCborFields() throws Exception {
+    ObjectMapper cbor = Jackson2ObjectMapperBuilder.cbor().build();
+    ColumnarPageHttpMessageConverter converter =
+        new ColumnarPageHttpMessageConverter(cbor, MediaType.APPLICATION_CBOR);
+    Map<String, Object> row = new LinkedHashMap<>();
+    row.put("username", "member1");
+    row.put("age", 10);
+
+    MockHttpOutputMessage output = new MockHttpOutputMessage();
+    converter.write(new PageImpl<>(List.of(row)), MediaType.APPLICATION_CBOR, output);
+
+    JsonNode tree = cbor.readTree(output.getBodyAsBytes());
+    assertThat(tree.get("fields").toString()).isEqualTo("[\"username\",\"age\"]");
+    assertThat(tree.get("columns").get(1).get(0).asInt()).isEqualTo(10);
+  }
+}